@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * JMH benchmarks for Bio-Formats readers, codecs and writers
+ * %%
+ * Copyright (C) 2018 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import loci.common.ByteArrayHandle;
+import loci.common.Location;
+import loci.common.services.DependencyException;
+import loci.common.services.ServiceException;
+import loci.common.services.ServiceFactory;
+import loci.formats.FormatException;
+import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
+import loci.formats.IFormatWriter;
+import loci.formats.in.FakeReader;
+import loci.formats.meta.IMetadata;
+import loci.formats.services.OMEXMLService;
+
+/**
+ * Helper methods for generating benchmark datasets.
+ * All datasets are either synthetic (.fake) or written to memory,
+ * so that the benchmarks do not depend on external data files.
+ */
+public final class BenchmarkTools {
+
+  // -- Constructor --
+
+  private BenchmarkTools() { }
+
+  // -- Utility methods --
+
+  /** Builds a FakeReader ID with the given dimensions. */
+  public static String fakeId(String name, String pixelType,
+    int sizeX, int sizeY, int sizeZ, int sizeC, int sizeT)
+  {
+    return name + "&pixelType=" + pixelType + "&sizeX=" + sizeX +
+      "&sizeY=" + sizeY + "&sizeZ=" + sizeZ + "&sizeC=" + sizeC +
+      "&sizeT=" + sizeT + ".fake";
+  }
+
+  /** Creates an empty OME-XML metadata store. */
+  public static IMetadata createMetadata() throws FormatException {
+    try {
+      ServiceFactory factory = new ServiceFactory();
+      OMEXMLService service = factory.getInstance(OMEXMLService.class);
+      return service.createOMEXMLMetadata();
+    }
+    catch (DependencyException e) {
+      throw new FormatException("Could not create OME-XML store.", e);
+    }
+    catch (ServiceException e) {
+      throw new FormatException("Could not create OME-XML store.", e);
+    }
+  }
+
+  /** Opens a FakeReader on the given ID, populating an OME-XML store. */
+  public static IFormatReader openFake(String fakeId)
+    throws FormatException, IOException
+  {
+    FakeReader reader = new FakeReader();
+    reader.setMetadataStore(createMetadata());
+    reader.setId(fakeId);
+    return reader;
+  }
+
+  /**
+   * Converts every plane of the given FakeReader ID using the given writer,
+   * and maps the result to an in-memory file with the given name.
+   *
+   * @param fakeId the FakeReader ID providing pixels and metadata
+   * @param name the name of the in-memory file; the extension determines
+   *   the output format
+   * @param writer an uninitialized writer for the output format
+   * @param compression the compression type, or null for the default
+   * @param tileSize the tile width and height, or 0 to write strips
+   * @return the in-memory file contents
+   */
+  public static byte[] writeInMemory(String fakeId, String name,
+    IFormatWriter writer, String compression, int tileSize)
+    throws FormatException, IOException
+  {
+    IFormatReader reader = openFake(fakeId);
+    ByteArrayHandle handle = new ByteArrayHandle();
+    Location.mapFile(name, handle);
+    try {
+      writer.setMetadataRetrieve((IMetadata) reader.getMetadataStore());
+      writer.setInterleaved(reader.isInterleaved());
+      if (compression != null) {
+        writer.setCompression(compression);
+      }
+      if (tileSize > 0) {
+        writer.setTileSizeX(tileSize);
+        writer.setTileSizeY(tileSize);
+      }
+      writer.setId(name);
+      byte[] buf = new byte[FormatTools.getPlaneSize(reader)];
+      for (int i=0; i<reader.getImageCount(); i++) {
+        buf = reader.openBytes(i, buf);
+        writer.saveBytes(i, buf);
+      }
+      writer.close();
+    }
+    finally {
+      reader.close();
+    }
+
+    ByteBuffer bytes = handle.getByteBuffer();
+    byte[] file = new byte[(int) handle.length()];
+    bytes.position(0);
+    bytes.get(file);
+    mapInMemory(name, file);
+    return file;
+  }
+
+  /** Maps the given bytes to an in-memory file with the given name. */
+  public static void mapInMemory(String name, byte[] file) {
+    Location.mapFile(name, new ByteArrayHandle(file));
+  }
+
+  /** Removes the in-memory file with the given name. */
+  public static void unmap(String name) {
+    Location.mapFile(name, null);
+  }
+
+}
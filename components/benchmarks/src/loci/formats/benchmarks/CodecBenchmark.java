@@ -0,0 +1,121 @@
+/*
+ * #%L
+ * JMH benchmarks for Bio-Formats readers, codecs and writers
+ * %%
+ * Copyright (C) 2018 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import loci.formats.FormatException;
+import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
+import loci.formats.codec.CodecOptions;
+import loci.formats.tiff.IFD;
+import loci.formats.tiff.TiffCompression;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks encoding and decoding of a single tile with each
+ * {@link TiffCompression} that supports both directions.
+ *
+ * CCITT, Thunderscan, Nikon and LuraWave compression cannot be written,
+ * so they are not included.  PackBits can only be decoded, and is
+ * benchmarked by {@link PackBitsBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodecBenchmark {
+
+  @Param({"UNCOMPRESSED", "LZW", "JPEG", "DEFLATE", "JPEG_2000",
+    "JPEG_2000_LOSSY"})
+  public String codec;
+
+  @Param({"512"})
+  public int tileSize;
+
+  private TiffCompression compression;
+  private CodecOptions compressOptions;
+  private CodecOptions decompressOptions;
+  private byte[] data;
+  private byte[] compressed;
+
+  @Setup(Level.Trial)
+  public void setUp() throws FormatException, IOException {
+    compression = TiffCompression.valueOf(codec);
+
+    IFormatReader reader = BenchmarkTools.openFake(BenchmarkTools.fakeId(
+      "codec", "uint8", tileSize, tileSize, 1, 1, 1));
+    data = reader.openBytes(0);
+    reader.close();
+
+    IFD ifd = new IFD();
+    ifd.put(IFD.IMAGE_WIDTH, tileSize);
+    ifd.put(IFD.IMAGE_LENGTH, tileSize);
+    ifd.put(IFD.BITS_PER_SAMPLE, new int[] {8});
+    ifd.put(IFD.SAMPLES_PER_PIXEL, 1);
+    ifd.put(IFD.LITTLE_ENDIAN, Boolean.TRUE);
+    compressOptions = compression.getCompressionCodecOptions(ifd);
+    compressed = compression.compress(data, compressOptions);
+
+    decompressOptions = new CodecOptions(compressOptions);
+    decompressOptions.maxBytes = data.length;
+    decompressOptions.bitsPerSample = 8;
+    decompressOptions.interleaved = true;
+  }
+
+  @Benchmark
+  public byte[] compress() throws FormatException, IOException {
+    return compression.compress(data, compressOptions);
+  }
+
+  @Benchmark
+  public byte[] decompress() throws FormatException, IOException {
+    return compression.decompress(compressed, decompressOptions);
+  }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * JMH benchmarks for Bio-Formats readers, codecs and writers
+ * %%
+ * Copyright (C) 2018 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.Permission;
+import java.util.concurrent.TimeUnit;
+
+import loci.formats.FormatException;
+import loci.formats.tools.CommandLineTools;
+import loci.formats.tools.ImageConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks an end-to-end bfconvert run from a synthetic dataset
+ * to a temporary TIFF or OME-TIFF file.
+ *
+ * The conversion is run through {@link ImageConverter#main(String[])};
+ * its call to System.exit is intercepted so that the exit status can be
+ * checked without stopping the benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImageConverterBenchmark {
+
+  @Param({"tiff", "ome.tiff"})
+  public String format;
+
+  @Param({"Uncompressed", "LZW"})
+  public String compression;
+
+  @Param({"0", "512"})
+  public int tileSize;
+
+  @Param({"2048"})
+  public int size;
+
+  @Param({"16"})
+  public int planes;
+
+  private String in;
+  private File out;
+  private SecurityManager oldSecurityManager;
+
+  // -- Helper classes --
+
+  /** Thrown in place of exiting the JVM. */
+  private static class ExitException extends SecurityException {
+    public final int status;
+    public ExitException(int status) {
+      this.status = status;
+    }
+  }
+
+  /** Security manager that turns System.exit into an ExitException. */
+  private static class NoExitSecurityManager extends SecurityManager {
+    @Override
+    public void checkPermission(Permission perm) { }
+
+    @Override
+    public void checkPermission(Permission perm, Object context) { }
+
+    @Override
+    public void checkExit(int status) {
+      throw new ExitException(status);
+    }
+  }
+
+  // -- Benchmark methods --
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    in = BenchmarkTools.fakeId("convert", "uint16", size, size, planes, 1, 1);
+    out = File.createTempFile("imageConverterBenchmark", "." + format);
+    oldSecurityManager = System.getSecurityManager();
+    System.setSecurityManager(new NoExitSecurityManager());
+  }
+
+  @Setup(Level.Invocation)
+  public void deleteOutput() {
+    out.delete();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.setSecurityManager(oldSecurityManager);
+    out.delete();
+  }
+
+  @Benchmark
+  public int convert() throws FormatException, IOException {
+    String[] args = tileSize > 0 ?
+      new String[] {in, out.getAbsolutePath(), "-compression", compression,
+        "-tilex", String.valueOf(tileSize), "-tiley", String.valueOf(tileSize),
+        CommandLineTools.NO_UPGRADE_CHECK} :
+      new String[] {in, out.getAbsolutePath(), "-compression", compression,
+        CommandLineTools.NO_UPGRADE_CHECK};
+    try {
+      ImageConverter.main(args);
+    }
+    catch (ExitException e) {
+      if (e.status != 0) {
+        throw new FormatException("Conversion failed with status " + e.status);
+      }
+      return e.status;
+    }
+    throw new IllegalStateException("ImageConverter did not exit");
+  }
+
+}
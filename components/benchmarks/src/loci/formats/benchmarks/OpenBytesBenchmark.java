@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * JMH benchmarks for Bio-Formats readers, codecs and writers
+ * %%
+ * Copyright (C) 2018 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import loci.formats.FormatException;
+import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
+import loci.formats.ImageReader;
+import loci.formats.in.FakeReader;
+import loci.formats.out.OMETiffWriter;
+import loci.formats.out.TiffWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks full-plane and tiled openBytes calls on synthetic and
+ * in-memory uncompressed TIFF/OME-TIFF datasets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OpenBytesBenchmark {
+
+  @Param({"fake", "tiff", "ome.tiff"})
+  public String format;
+
+  @Param({"uint8", "uint16"})
+  public String pixelType;
+
+  @Param({"2048"})
+  public int size;
+
+  @Param({"256"})
+  public int tileSize;
+
+  private String id;
+  private IFormatReader reader;
+  private byte[] planeBuf;
+  private byte[] tileBuf;
+
+  @Setup(Level.Trial)
+  public void setUp() throws FormatException, IOException {
+    String fakeId = BenchmarkTools.fakeId("openBytes", pixelType,
+      size, size, 1, 1, 1);
+    if (format.equals("fake")) {
+      id = fakeId;
+    }
+    else {
+      id = "openBytes-" + pixelType + "." + format;
+      BenchmarkTools.writeInMemory(fakeId, id, format.equals("tiff") ?
+        new TiffWriter() : new OMETiffWriter(), null, tileSize);
+    }
+    reader = format.equals("fake") ? new FakeReader() : new ImageReader();
+    reader.setId(id);
+    planeBuf = new byte[FormatTools.getPlaneSize(reader)];
+    tileBuf = new byte[FormatTools.getPlaneSize(reader, tileSize, tileSize)];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    reader.close();
+    if (!format.equals("fake")) {
+      BenchmarkTools.unmap(id);
+    }
+  }
+
+  @Benchmark
+  public byte[] fullPlane() throws FormatException, IOException {
+    return reader.openBytes(0, planeBuf);
+  }
+
+  @Benchmark
+  public void tiles(Blackhole blackhole) throws FormatException, IOException {
+    for (int y=0; y<size; y+=tileSize) {
+      for (int x=0; x<size; x+=tileSize) {
+        blackhole.consume(
+          reader.openBytes(0, tileBuf, x, y, tileSize, tileSize));
+      }
+    }
+  }
+
+}
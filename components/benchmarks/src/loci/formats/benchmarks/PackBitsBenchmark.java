@@ -0,0 +1,138 @@
+/*
+ * #%L
+ * JMH benchmarks for Bio-Formats readers, codecs and writers
+ * %%
+ * Copyright (C) 2018 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package loci.formats.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import loci.formats.FormatException;
+import loci.formats.IFormatReader;
+import loci.formats.codec.CodecOptions;
+import loci.formats.tiff.TiffCompression;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks decoding of a single PackBits tile.  PackBits cannot be
+ * written by {@link TiffCompression}, so the tile is encoded here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PackBitsBenchmark {
+
+  @Param({"512"})
+  public int tileSize;
+
+  private CodecOptions options;
+  private byte[] compressed;
+
+  @Setup(Level.Trial)
+  public void setUp() throws FormatException, IOException {
+    IFormatReader reader = BenchmarkTools.openFake(BenchmarkTools.fakeId(
+      "packBits", "uint8", tileSize, tileSize, 1, 1, 1));
+    byte[] data = reader.openBytes(0);
+    reader.close();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int row=0; row<tileSize; row++) {
+      // TIFF requires each row to be encoded separately
+      pack(data, row * tileSize, tileSize, out);
+    }
+    compressed = out.toByteArray();
+
+    options = new CodecOptions();
+    options.maxBytes = data.length;
+    options.bitsPerSample = 8;
+    options.interleaved = true;
+
+    if (!Arrays.equals(decompress(), data)) {
+      throw new FormatException("PackBits round trip failed");
+    }
+  }
+
+  @Benchmark
+  public byte[] decompress() throws FormatException, IOException {
+    return TiffCompression.PACK_BITS.decompress(compressed, options);
+  }
+
+  // -- Helper methods --
+
+  /**
+   * Encodes the given bytes with PackBits, using a replicate run for
+   * every run of at least two identical bytes.
+   */
+  private static void pack(byte[] data, int offset, int length,
+    ByteArrayOutputStream out)
+  {
+    int end = offset + length;
+    int i = offset;
+    while (i < end) {
+      int run = 1;
+      while (i + run < end && run < 128 && data[i + run] == data[i]) {
+        run++;
+      }
+      if (run > 1) {
+        out.write(1 - run);
+        out.write(data[i]);
+        i += run;
+      }
+      else {
+        int start = i;
+        while (i < end && i - start < 128 &&
+          (i + 1 == end || data[i] != data[i + 1]))
+        {
+          i++;
+        }
+        out.write(i - start - 1);
+        out.write(data, start, i - start);
+      }
+    }
+  }
+
+}
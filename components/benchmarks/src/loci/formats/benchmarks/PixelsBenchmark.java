@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * JMH benchmarks for Bio-Formats readers, codecs and writers
+ * %%
+ * Copyright (C) 2018 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import loci.formats.FormatException;
+import loci.formats.FormatTools;
+import loci.formats.ImageTools;
+import loci.formats.in.FakeReader;
+import loci.formats.MinMaxCalculator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks pixel-level helpers: channel splitting and min/max
+ * calculation over RGB planes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PixelsBenchmark {
+
+  @Param({"uint8", "uint16", "float"})
+  public String pixelType;
+
+  @Param({"1024"})
+  public int size;
+
+  private byte[] interleaved;
+  private byte[] channel;
+  private int bpp;
+  private FakeReader plain;
+  private MinMaxCalculator minMax;
+  private byte[] regionBuf;
+
+  @Setup(Level.Trial)
+  public void setUp() throws FormatException, IOException {
+    String id = BenchmarkTools.fakeId("pixels", pixelType, size, size, 1, 3, 1)
+      .replace(".fake", "&rgb=3&interleaved=true.fake");
+    plain = new FakeReader();
+    plain.setId(id);
+    interleaved = plain.openBytes(0);
+    bpp = FormatTools.getBytesPerPixel(plain.getPixelType());
+    channel = new byte[interleaved.length / 3];
+
+    minMax = new MinMaxCalculator(new FakeReader());
+    minMax.setId(id);
+    // NB: min/max values are cached for whole planes,
+    // so half a plane is read to force recalculation
+    regionBuf = new byte[interleaved.length / 2];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    plain.close();
+    minMax.close();
+  }
+
+  @Benchmark
+  public byte[] splitChannels() {
+    return ImageTools.splitChannels(interleaved, channel, 1, 3, bpp,
+      false, true, channel.length);
+  }
+
+  @Benchmark
+  public byte[] openBytesRegion() throws FormatException, IOException {
+    return plain.openBytes(0, regionBuf, 0, 0, size, size / 2);
+  }
+
+  @Benchmark
+  public byte[] minMaxRegion() throws FormatException, IOException {
+    return minMax.openBytes(0, regionBuf, 0, 0, size, size / 2);
+  }
+
+}
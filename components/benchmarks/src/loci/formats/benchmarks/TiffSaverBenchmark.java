@@ -0,0 +1,122 @@
+/*
+ * #%L
+ * JMH benchmarks for Bio-Formats readers, codecs and writers
+ * %%
+ * Copyright (C) 2018 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import loci.common.ByteArrayHandle;
+import loci.common.RandomAccessOutputStream;
+import loci.formats.FormatException;
+import loci.formats.IFormatReader;
+import loci.formats.tiff.IFD;
+import loci.formats.tiff.TiffCompression;
+import loci.formats.tiff.TiffSaver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks writing planes to an in-memory TIFF with {@link TiffSaver},
+ * as strips and as tiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TiffSaverBenchmark {
+
+  @Param({"UNCOMPRESSED", "LZW", "DEFLATE"})
+  public String compression;
+
+  @Param({"0", "256"})
+  public int tileSize;
+
+  @Param({"2048"})
+  public int size;
+
+  @Param({"8"})
+  public int planes;
+
+  private byte[] plane;
+  private int pixelType;
+
+  @Setup(Level.Trial)
+  public void setUp() throws FormatException, IOException {
+    IFormatReader reader = BenchmarkTools.openFake(BenchmarkTools.fakeId(
+      "tiffSaver", "uint16", size, size, 1, 1, 1));
+    plane = reader.openBytes(0);
+    pixelType = reader.getPixelType();
+    reader.close();
+  }
+
+  @Benchmark
+  public long writePlanes() throws FormatException, IOException {
+    ByteArrayHandle handle =
+      new ByteArrayHandle(planes * plane.length + 1024 * 1024);
+    RandomAccessOutputStream out = new RandomAccessOutputStream(handle);
+    TiffSaver saver = new TiffSaver(out, handle);
+    saver.setWritingSequentially(true);
+    saver.setLittleEndian(true);
+    saver.writeHeader();
+    for (int i=0; i<planes; i++) {
+      IFD ifd = new IFD();
+      ifd.put(IFD.IMAGE_WIDTH, (long) size);
+      ifd.put(IFD.IMAGE_LENGTH, (long) size);
+      ifd.put(IFD.LITTLE_ENDIAN, Boolean.TRUE);
+      ifd.put(IFD.COMPRESSION,
+        TiffCompression.valueOf(compression).getCode());
+      if (tileSize > 0) {
+        ifd.put(IFD.TILE_WIDTH, (long) tileSize);
+        ifd.put(IFD.TILE_LENGTH, (long) tileSize);
+      }
+      saver.writeImage(plane, ifd, i, pixelType, i == planes - 1);
+    }
+    saver.close();
+    return handle.length();
+  }
+
+}
@@ -36,9 +36,16 @@ import ij.process.LUT;
 import java.awt.image.ColorModel;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import loci.common.DateTools;
 import loci.common.Location;
@@ -50,11 +57,13 @@ import loci.formats.FilePattern;
 import loci.formats.FormatException;
 import loci.formats.FormatTools;
 import loci.formats.IFormatReader;
+import loci.formats.MinMaxCalculator;
 import loci.formats.Modulo;
 import loci.formats.meta.DummyMetadata;
 import loci.formats.meta.IMetadata;
 import loci.formats.meta.MetadataRetrieve;
 import loci.formats.meta.MetadataStore;
+import loci.plugins.BF;
 import loci.plugins.Slicer;
 import loci.plugins.util.BFVirtualStack;
 import loci.plugins.util.ImageProcessorReader;
@@ -336,8 +345,12 @@ public class ImagePlusReader implements StatusReporter {
     final int imageCount = reader.getImageCount();
 
     // CTR FIXME: Make virtual stack work with different color modes?
+    final boolean tiled = LociPrefs.isVirtualTiled();
     final BFVirtualStack virtualStack = new BFVirtualStack(options.getId(),
-      reader, false, false, false);
+      reader, false, false, false, tiled);
+    if (tiled) {
+      virtualStack.setTileCacheSize(LociPrefs.getVirtualTileCacheSize());
+    }
     for (int i=0; i<imageCount; i++) {
       String label = constructSliceLabel(i, reader, meta, s, zCount, cCount, tCount);
       virtualStack.addSlice(label);
@@ -346,7 +359,10 @@ public class ImagePlusReader implements StatusReporter {
     if (luts != null) {
       for (int c=0; c<cCount; c++) {
         int index = reader.getIndex(0, c, 0);
-        ImageProcessor ip = reader.openProcessors(index)[0];
+        // only the color model is needed, so tiled stacks read one pixel
+        ImageProcessor ip = tiled ?
+          reader.openProcessors(index, 0, 0, 1, 1)[0] :
+          reader.openProcessors(index)[0];
         final ColorModel cm = ip.getColorModel();
         final LUT lut = cm instanceof LUT ? (LUT) cm : null;
         luts.add(lut);
@@ -369,27 +385,41 @@ public class ImagePlusReader implements StatusReporter {
 
     // get list of planes to load
     final boolean[] load = getPlanesToLoad(s);
-    int current = 0, total = 0;
+    int total = 0;
     for (int j=0; j<load.length; j++) if (load[j]) total++;
-
-    final List<ImageProcessor> procs = new ArrayList<ImageProcessor>();
-    final List<String> labels = new ArrayList<String>();
+    final int[] planes = new int[total];
+    for (int j=0, next=0; j<load.length; j++) if (load[j]) planes[next++] = j;
 
     // read applicable image planes
     final Region region = process.getCropRegion(s);
-    for (int i=0; i<load.length; i++) {
-      if (!load[i]) continue;
-
+    final ImageProcessor[][] planeProcs = new ImageProcessor[total][];
+    int loaded = 0;
+    if (total > 0) {
+      // the first plane is always read with the main reader, which also
+      // prompts for a missing LuraWave license code if necessary
+      updateTiming(s, 0, 0, total);
+      planeProcs[0] = readProcessors(process, planes[0], region, thumbnail);
+      loaded = 1;
+    }
+    if (!thumbnail && total > 1) {
+      loaded = readPlanesInParallel(s, planes, region, planeProcs);
+    }
+    for (int i=loaded; i<total; i++) {
       // limit message update rate
-      updateTiming(s, current, current++, total);
+      updateTiming(s, i, i, total);
+      planeProcs[i] = readProcessors(process, planes[i], region, thumbnail);
+    }
 
-      // get image processor for ith plane
-      final ImageProcessor[] p = readProcessors(process, i, region, thumbnail);
+    final List<ImageProcessor> procs = new ArrayList<ImageProcessor>();
+    final List<String> labels = new ArrayList<String>();
+    for (int i=0; i<total; i++) {
+      final ImageProcessor[] p = planeProcs[i];
       if (p == null || p.length == 0) {
-        throw new FormatException("Cannot read plane #" + i);
+        throw new FormatException("Cannot read plane #" + planes[i]);
       }
       // generate a label for ith plane
-      String label = constructSliceLabel(i, reader, meta, s, zCount, cCount, tCount);
+      String label = constructSliceLabel(planes[i],
+        reader, meta, s, zCount, cCount, tCount);
 
       for (ImageProcessor ip : p) {
         procs.add(ip);
@@ -400,6 +430,125 @@ public class ImagePlusReader implements StatusReporter {
     return createStack(procs, labels, luts);
   }
 
+  /**
+   * Reads all but the first of the given planes concurrently, using a
+   * dedicated pool with one copy of the main reader per thread.  Each
+   * thread reuses a single raw plane buffer, so memory use beyond the
+   * processors themselves is bounded by the number of threads.
+   *
+   * The pool is not shared with other tasks, so that threads blocked in a
+   * reader cannot be asked to run work that readers themselves submit to
+   * the common pool.  All threads have finished before the copies are
+   * closed, even if one of them fails, and the min/max values computed by
+   * the copies are then added to those of the main reader.
+   *
+   * Only readers that are known to copy safely are read in parallel:
+   * {@link IFormatReader#copy()} throws a FormatException for any reader
+   * whose copies would share streams, parsers or helper readers, and the
+   * planes are then read serially with the main reader.
+   *
+   * @return the number of planes that were read, which is 1 if the
+   *   reader could not be copied
+   */
+  private int readPlanesInParallel(int s, int[] planes, Region region,
+    ImageProcessor[][] planeProcs) throws FormatException, IOException
+  {
+    final ImageProcessorReader reader = process.getReader();
+    final int threads = Math.min(planes.length - 1,
+      Runtime.getRuntime().availableProcessors());
+    if (threads <= 1) return 1;
+
+    final List<PlaneReader> planeReaders = new ArrayList<PlaneReader>();
+    final AtomicInteger next = new AtomicInteger(1);
+    final AtomicInteger done = new AtomicInteger(1);
+    final AtomicBoolean failed = new AtomicBoolean(false);
+    ExecutorService executor = null;
+    try {
+      for (int t=0; t<threads; t++) {
+        final ImageProcessorReader copy;
+        try {
+          copy = (ImageProcessorReader) reader.copy();
+        }
+        catch (FormatException e) {
+          // not known to be safe to use from another thread
+          BF.debug("Cannot copy reader; reading planes serially: " +
+            e.getMessage());
+          return 1;
+        }
+        copy.setSeries(s);
+        planeReaders.add(new PlaneReader(copy,
+          FormatTools.getPlaneSize(copy, region.width, region.height)));
+      }
+
+      executor = Executors.newFixedThreadPool(threads);
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (final PlaneReader r : planeReaders) {
+        futures.add(executor.submit(() -> {
+          int i;
+          while (!failed.get() && (i = next.getAndIncrement()) < planes.length)
+          {
+            try {
+              planeProcs[i] = r.reader.openProcessors(planes[i], r.buf,
+                region.x, region.y, region.width, region.height);
+            }
+            catch (FormatException | IOException | RuntimeException e) {
+              failed.set(true);
+              throw e;
+            }
+            int count = done.incrementAndGet();
+            synchronized (this) {
+              // limit message update rate
+              updateTiming(s, count - 1, count - 1, planes.length);
+            }
+          }
+          return null;
+        }));
+      }
+
+      // wait for every thread, so that no copy is closed while in use
+      Throwable error = null;
+      boolean interrupted = false;
+      for (Future<Void> future : futures) {
+        while (true) {
+          try {
+            future.get();
+            break;
+          }
+          catch (InterruptedException e) {
+            interrupted = true;
+            failed.set(true);
+          }
+          catch (ExecutionException e) {
+            if (error == null) error = e.getCause();
+            break;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+        if (error == null) error = new InterruptedIOException();
+      }
+      if (error instanceof FormatException) throw (FormatException) error;
+      if (error instanceof IOException) throw (IOException) error;
+      if (error instanceof RuntimeException) throw (RuntimeException) error;
+      if (error instanceof Error) throw (Error) error;
+
+      // min/max values of planes read by the copies are needed to autoscale
+      final MinMaxCalculator minMaxCalc = process.getMinMaxCalculator();
+      if (minMaxCalc != null) {
+        for (PlaneReader r : planeReaders) {
+          minMaxCalc.mergeMinMax((MinMaxCalculator)
+            r.reader.unwrap(MinMaxCalculator.class, null));
+        }
+      }
+    }
+    finally {
+      if (executor != null) executor.shutdown();
+      for (PlaneReader r : planeReaders) r.reader.close();
+    }
+    return planes.length;
+  }
+
   /**
    * HACK: This method mainly exists to prompt the user for a missing
    * LuraWave license code, in the case of LWF-compressed Flex.
@@ -716,4 +865,17 @@ public class ImagePlusReader implements StatusReporter {
     }
   }
 
+  // -- Helper classes --
+
+  /** A reader copy and the raw plane buffer used with it by one thread. */
+  private static class PlaneReader {
+    final ImageProcessorReader reader;
+    final byte[] buf;
+
+    PlaneReader(ImageProcessorReader reader, int planeSize) {
+      this.reader = reader;
+      this.buf = new byte[planeSize];
+    }
+  }
+
 }
@@ -28,12 +28,20 @@
 package loci.plugins.util;
 
 import ij.VirtualStack;
+import ij.process.ColorProcessor;
 import ij.process.ImageProcessor;
 
+import java.awt.Rectangle;
 import java.awt.image.IndexColorModel;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import loci.formats.ChannelMerger;
 import loci.formats.FormatException;
@@ -44,6 +52,7 @@ import loci.formats.cache.Cache;
 import loci.formats.cache.CacheException;
 import loci.formats.cache.CacheStrategy;
 import loci.formats.cache.CrosshairStrategy;
+import loci.plugins.BF;
 import loci.plugins.util.RecordedImageProcessor.MethodEntry;
 
 /**
@@ -53,6 +62,18 @@ import loci.plugins.util.RecordedImageProcessor.MethodEntry;
  */
 public class BFVirtualStack extends VirtualStack {
 
+  // -- Constants --
+
+  /** Maximum width and height of the planes returned in tiled mode. */
+  private static final int VIEW_SIZE = 2048;
+
+  /**
+   * Factor by which the requested scale must differ from the current one
+   * before the view is reread at the new scale.  This is smaller than any
+   * of ImageJ's zoom steps, but absorbs rounding of the canvas region.
+   */
+  private static final double ZOOM_TOLERANCE = 1.25;
+
   // -- Fields --
 
   protected ImageProcessorReader reader;
@@ -75,6 +96,41 @@ public class BFVirtualStack extends VirtualStack {
 
   private float[] calibrationTable;
 
+  /** Whether planes are assembled from tiles covering the visible region. */
+  private boolean tiled;
+
+  /** Visible part of the plane in full resolution coordinates, or null. */
+  private Rectangle visibleRegion;
+
+  /** Display magnification, in screen pixels per full resolution pixel. */
+  private double magnification = 1;
+
+  /**
+   * Part of the plane, in full resolution coordinates, that is covered by
+   * the planes returned in tiled mode.
+   */
+  private Rectangle view;
+
+  /** Full resolution pixels per pixel of the planes returned in tiled mode. */
+  private double viewScale = 1;
+
+  /** Maximum total size of cached tiles, in bytes. */
+  private long tileCacheSize = 256L * 1024 * 1024;
+
+  /**
+   * Tiles keyed by series, resolution, plane and position, in access
+   * order.
+   */
+  private final LinkedHashMap<String, ImageProcessor> tiles =
+    new LinkedHashMap<String, ImageProcessor>(16, 0.75f, true);
+  private long tileBytes;
+
+  /** Background prefetching of neighbouring tiles and planes. */
+  private ExecutorService prefetcher;
+  private ImageProcessorReader prefetchReader;
+  private boolean prefetchDisabled;
+  private final AtomicInteger prefetchGeneration = new AtomicInteger();
+
   // -- Static utility methods --
 
   protected static int getWidth(IFormatReader r, String path, int series)
@@ -91,13 +147,43 @@ public class BFVirtualStack extends VirtualStack {
     return r.getSizeY();
   }
 
+  /** Gets the scale at which a tiled stack's view covers the whole plane. */
+  private static double getMaxViewScale(int sizeX, int sizeY) {
+    double scaleX = (double) sizeX / VIEW_SIZE;
+    double scaleY = (double) sizeY / VIEW_SIZE;
+    return Math.max(1, Math.max(scaleX, scaleY));
+  }
+
+  private static int getViewWidth(IFormatReader r) {
+    double scale = getMaxViewScale(r.getSizeX(), r.getSizeY());
+    return (int) Math.ceil(r.getSizeX() / scale);
+  }
+
+  private static int getViewHeight(IFormatReader r) {
+    double scale = getMaxViewScale(r.getSizeX(), r.getSizeY());
+    return (int) Math.ceil(r.getSizeY() / scale);
+  }
+
   // -- Constructor --
 
   public BFVirtualStack(String path, IFormatReader r, boolean colorize,
     boolean merge, boolean record)
     throws FormatException, IOException, CacheException
   {
-    super(getWidth(r, path, r.getSeries()), getHeight(r, path, r.getSeries()),
+    this(path, r, colorize, merge, record, false);
+  }
+
+  /**
+   * Creates a virtual stack that can start in tiled mode (see
+   * {@link #setTiled(boolean)}).  A stack that starts in tiled mode does not
+   * fill the plane cache, so whole planes are never read.
+   */
+  public BFVirtualStack(String path, IFormatReader r, boolean colorize,
+    boolean merge, boolean record, boolean tiled)
+    throws FormatException, IOException, CacheException
+  {
+    super(tiled ? getViewWidth(r) : getWidth(r, path, r.getSeries()),
+      tiled ? getViewHeight(r) : getHeight(r, path, r.getSeries()),
       null, path);
     reader = new ImageProcessorReader(r);
     id = path;
@@ -121,14 +207,14 @@ public class BFVirtualStack extends VirtualStack {
     System.arraycopy(subC, 0, len, 0, subC.length);
     len[len.length - 2] = r.getSizeZ();
     len[len.length - 1] = r.getSizeT();
-    CacheStrategy strategy = new CrosshairStrategy(len);
-
-    cache = new Cache(strategy, new ImageProcessorSource(r), true);
 
     methodStacks = new ArrayList<List<MethodEntry>>();
     for (int i=0; i<r.getImageCount(); i++) {
       methodStacks.add(new ArrayList<MethodEntry>());
     }
+
+    if (tiled) setTiled(true);
+    else cache = createCache(r);
   }
 
   // -- BFVirtualStack API methods --
@@ -137,6 +223,7 @@ public class BFVirtualStack extends VirtualStack {
 
   public ImageProcessorReader getReader() { return reader; }
 
+  /** Gets the plane cache, which is null if the stack started tiled. */
   public Cache getCache() { return cache; }
 
   public RecordedImageProcessor getRecordedProcessor() {
@@ -152,6 +239,147 @@ public class BFVirtualStack extends VirtualStack {
     this.planeIndexes = planeIndexes;
   }
 
+  /**
+   * Enables or disables tiled mode.  In tiled mode, planes are assembled
+   * from tiles of the reader's optimal tile size, only tiles within the
+   * visible region are read, and neighbouring tiles and planes are
+   * prefetched in the background.  Whole planes are no longer cached.
+   *
+   * The planes returned in tiled mode cover a view of the plane, at most
+   * {@value #VIEW_SIZE} pixels wide and high, which is read from the
+   * pyramid resolution that best matches the view's scale.  Initially the
+   * view covers the whole plane; it follows the visible region as that is
+   * panned and zoomed.  See {@link #getView()} and {@link #getViewScale()}
+   * for mapping the planes' coordinates to those of the full resolution
+   * plane.
+   */
+  public synchronized void setTiled(boolean tiled) {
+    this.tiled = tiled;
+    if (tiled) {
+      viewScale = getMaxViewScale();
+      view = new Rectangle(0, 0, (int) Math.ceil(getWidth() * viewScale),
+        (int) Math.ceil(getHeight() * viewScale));
+    }
+    else {
+      close();
+      if (cache == null) {
+        try {
+          cache = createCache(reader.getReader());
+        }
+        catch (CacheException exc) {
+          exc.printStackTrace();
+        }
+      }
+    }
+  }
+
+  public boolean isTiled() { return tiled; }
+
+  /** Sets the maximum total size of cached tiles, in megabytes. */
+  public void setTileCacheSize(int megabytes) {
+    tileCacheSize = Math.max(0, megabytes) * 1024L * 1024L;
+    synchronized (tiles) {
+      trimTiles();
+    }
+  }
+
+  /**
+   * Sets the part of the plane that is currently displayed, in full
+   * resolution pixel coordinates, and the display magnification in screen
+   * pixels per full resolution pixel.  A null region means that the whole
+   * plane is visible.  In tiled mode, this moves the view once the region
+   * reaches one of its edges, or the magnification calls for another scale.
+   *
+   * @return true if this changes the pixels that a tiled stack reads
+   */
+  public synchronized boolean setVisibleRegion(Rectangle region,
+    double magnification)
+  {
+    int width = getPlaneWidth(), height = getPlaneHeight();
+    if (region != null) {
+      region = region.intersection(new Rectangle(0, 0, width, height));
+      if (region.width == width && region.height == height) {
+        region = null;
+      }
+    }
+    boolean regionChanged = region == null ?
+      visibleRegion != null : !region.equals(visibleRegion);
+    boolean viewChanged = tiled && updateView(
+      region == null ? new Rectangle(0, 0, width, height) : region,
+      magnification);
+    boolean changed = tiled &&
+      (regionChanged || viewChanged || magnification != this.magnification);
+    visibleRegion = region;
+    this.magnification = magnification;
+    return changed;
+  }
+
+  /**
+   * Gets the part of the plane, in full resolution coordinates, that is
+   * covered by the planes returned in tiled mode.  It may extend past the
+   * edges of the plane.
+   */
+  public synchronized Rectangle getView() {
+    if (!tiled) return new Rectangle(0, 0, getWidth(), getHeight());
+    return new Rectangle(view);
+  }
+
+  /**
+   * Gets the number of full resolution pixels per pixel of the planes
+   * returned in tiled mode.
+   */
+  public synchronized double getViewScale() {
+    return tiled ? viewScale : 1;
+  }
+
+  /**
+   * Converts a region of the returned planes to full resolution
+   * coordinates.
+   */
+  public synchronized Rectangle toPlaneRegion(Rectangle r) {
+    if (!tiled) return new Rectangle(r);
+    int x0 = view.x + (int) Math.floor(r.x * viewScale);
+    int y0 = view.y + (int) Math.floor(r.y * viewScale);
+    int x1 = view.x + (int) Math.ceil((r.x + r.width) * viewScale);
+    int y1 = view.y + (int) Math.ceil((r.y + r.height) * viewScale);
+    return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+  }
+
+  /**
+   * Converts a region in full resolution coordinates to coordinates of the
+   * returned planes.
+   */
+  public synchronized Rectangle toViewRegion(Rectangle r) {
+    if (!tiled) return new Rectangle(r);
+    int x0 = (int) Math.floor((r.x - view.x) / viewScale);
+    int y0 = (int) Math.floor((r.y - view.y) / viewScale);
+    int x1 = (int) Math.ceil((r.x + r.width - view.x) / viewScale);
+    int y1 = (int) Math.ceil((r.y + r.height - view.y) / viewScale);
+    return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+  }
+
+  /** Stops background prefetching and discards all cached tiles. */
+  public synchronized void close() {
+    prefetchGeneration.incrementAndGet();
+    if (prefetcher != null) {
+      prefetcher.shutdownNow();
+      prefetcher = null;
+    }
+    if (prefetchReader != null) {
+      try {
+        prefetchReader.close();
+      }
+      catch (IOException e) {
+        BF.debug("Cannot close prefetch reader: " + e.getMessage());
+      }
+      prefetchReader = null;
+    }
+    synchronized (tiles) {
+      tiles.clear();
+      tileBytes = 0;
+    }
+  }
+
   // -- VirtualStack API methods --
 
   @Override
@@ -171,19 +399,22 @@ public class BFVirtualStack extends VirtualStack {
     int[] cachePos = FormatTools.rasterToPosition(len, sliceIndex);
     ImageProcessor ip = null;
 
-    try {
-      ip = (ImageProcessor) cache.getObject(cachePos);
-      cache.setCurrentPos(cachePos);
-    }
-    catch (CacheException exc) {
-      exc.printStackTrace();
+    if (!tiled && cache != null) {
+      try {
+        ip = (ImageProcessor) cache.getObject(cachePos);
+        cache.setCurrentPos(cachePos);
+      }
+      catch (CacheException exc) {
+        exc.printStackTrace();
+      }
     }
 
     // cache missed
     try {
       if (ip == null) {
-        ip = reader.openProcessors(reader.getIndex(pos[0], pos[1], pos[2]))[0];
+        ip = openProcessor(reader.getIndex(pos[0], pos[1], pos[2]));
       }
+      if (tiled) prefetch(pos);
     }
     catch (FormatException exc) {
       exc.printStackTrace();
@@ -216,17 +447,19 @@ public class BFVirtualStack extends VirtualStack {
         new ImageProcessor[reader.getSizeC() - 1];
       for (int i=0; i<otherChannels.length; i++) {
         int channel = i >= pos[1] ? i + 1 : i;
-        try {
-          cachePos[0] = channel;
-          otherChannels[i] = (ImageProcessor) cache.getObject(cachePos);
-        }
-        catch (CacheException exc) {
-          exc.printStackTrace();
+        if (!tiled && cache != null) {
+          try {
+            cachePos[0] = channel;
+            otherChannels[i] = (ImageProcessor) cache.getObject(cachePos);
+          }
+          catch (CacheException exc) {
+            exc.printStackTrace();
+          }
         }
         if (otherChannels[i] == null) {
           try {
             int index = reader.getIndex(pos[0], channel, pos[2]);
-            otherChannels[i] = reader.openProcessors(index)[0];
+            otherChannels[i] = openProcessor(index);
           }
           catch (FormatException exc) {
             exc.printStackTrace();
@@ -263,16 +496,18 @@ public class BFVirtualStack extends VirtualStack {
     return null;
   }
 
+  /** In tiled mode, this is the width of the view, not of the plane. */
   @Override
   public int getWidth() {
     reader.setSeries(series);
-    return reader.getSizeX();
+    return tiled ? getViewWidth(reader) : reader.getSizeX();
   }
 
+  /** In tiled mode, this is the height of the view, not of the plane. */
   @Override
   public int getHeight() {
     reader.setSeries(series);
-    return reader.getSizeY();
+    return tiled ? getViewHeight(reader) : reader.getSizeY();
   }
 
   @Override
@@ -283,4 +518,274 @@ public class BFVirtualStack extends VirtualStack {
     return planeIndexes == null ? reader.getImageCount() : planeIndexes.length;
   }
 
+  // -- Helper methods --
+
+  /** Creates a cache of whole planes around the current position. */
+  private Cache createCache(IFormatReader r) throws CacheException {
+    CacheStrategy strategy = new CrosshairStrategy(len);
+    return new Cache(strategy, new ImageProcessorSource(r), true);
+  }
+
+  private int getPlaneWidth() {
+    reader.setSeries(series);
+    return reader.getSizeX();
+  }
+
+  private int getPlaneHeight() {
+    reader.setSeries(series);
+    return reader.getSizeY();
+  }
+
+  private double getMaxViewScale() {
+    return getMaxViewScale(getPlaneWidth(), getPlaneHeight());
+  }
+
+  /**
+   * Moves the view so that it covers the given visible region, at the
+   * scale that suits the given magnification.  The view stays put while
+   * the region lies within it and the scale changes by less than a zoom
+   * step, so that the viewer can pan within the view without rereading.
+   *
+   * @return true if the view moved
+   */
+  private boolean updateView(Rectangle region, double magnification) {
+    int width = getPlaneWidth(), height = getPlaneHeight();
+    double maxScale = getMaxViewScale();
+    double scale = magnification > 0 ?
+      Math.min(maxScale, Math.max(1, 1 / magnification)) : maxScale;
+    if (scale > viewScale / ZOOM_TOLERANCE &&
+      scale < viewScale * ZOOM_TOLERANCE)
+    {
+      scale = viewScale;
+    }
+    if (scale == viewScale && isWithinView(region, width, height)) {
+      return false;
+    }
+
+    // center the new view on the region, within the plane if possible
+    int viewWidth = (int) Math.ceil(getWidth() * scale);
+    int viewHeight = (int) Math.ceil(getHeight() * scale);
+    int x = region.x + region.width / 2 - viewWidth / 2;
+    int y = region.y + region.height / 2 - viewHeight / 2;
+    x = Math.max(0, Math.min(x, width - viewWidth));
+    y = Math.max(0, Math.min(y, height - viewHeight));
+    Rectangle newView = new Rectangle(x, y, viewWidth, viewHeight);
+    boolean moved = !newView.equals(view) || scale != viewScale;
+    view = newView;
+    viewScale = scale;
+    return moved;
+  }
+
+  /**
+   * Checks whether the given region lies within the view, without
+   * reaching any edge of the view beyond which the plane continues.
+   */
+  private boolean isWithinView(Rectangle region, int width, int height) {
+    if (!view.contains(region)) return false;
+    int right = view.x + view.width, bottom = view.y + view.height;
+    return (region.x > view.x || view.x <= 0) &&
+      (region.y > view.y || view.y <= 0) &&
+      (region.x + region.width < right || right >= width) &&
+      (region.y + region.height < bottom || bottom >= height);
+  }
+
+  /** Reads the given plane, either whole or from the visible tiles. */
+  private ImageProcessor openProcessor(int no)
+    throws FormatException, IOException
+  {
+    if (!tiled) return reader.openProcessors(no)[0];
+
+    int width = getPlaneWidth(), height = getPlaneHeight();
+    int viewWidth = getWidth(), viewHeight = getHeight();
+    Rectangle region = visibleRegion == null ?
+      new Rectangle(0, 0, width, height) : visibleRegion;
+    region = region.intersection(view);
+    int resolution = getViewResolution();
+    ImageProcessor ip = null;
+    reader.setResolution(resolution);
+    try {
+      double scaleX = (double) width / reader.getSizeX();
+      double scaleY = (double) height / reader.getSizeY();
+      for (Rectangle tile : getTiles(reader, region, scaleX, scaleY)) {
+        ImageProcessor t = getTile(reader, resolution, no, tile);
+        if (ip == null) {
+          ip = t.createProcessor(viewWidth, viewHeight);
+          if (t.getColorModel() != null) ip.setColorModel(t.getColorModel());
+        }
+        // scale tiles down to the view if it falls between two resolutions
+        int x0 = (int) Math.round((tile.x * scaleX - view.x) / viewScale);
+        int y0 = (int) Math.round((tile.y * scaleY - view.y) / viewScale);
+        int x1 = (int)
+          Math.round(((tile.x + tile.width) * scaleX - view.x) / viewScale);
+        int y1 = (int)
+          Math.round(((tile.y + tile.height) * scaleY - view.y) / viewScale);
+        if (x1 <= x0 || y1 <= y0) continue;
+        if (x1 - x0 == t.getWidth() && y1 - y0 == t.getHeight()) {
+          ip.insert(t, x0, y0);
+        }
+        else {
+          t.setInterpolationMethod(ImageProcessor.NONE);
+          ip.insert(t.resize(x1 - x0, y1 - y0), x0, y0);
+        }
+      }
+    }
+    finally {
+      reader.setResolution(0);
+    }
+    if (ip != null) ip.resetMinAndMax();
+    return ip;
+  }
+
+  /**
+   * Picks the lowest resolution that still has at least one pixel per
+   * pixel of the view.  Must be called with the reader set to the full
+   * resolution.
+   */
+  private int getViewResolution() {
+    int resolutions = reader.getResolutionCount();
+    if (viewScale <= 1 || resolutions <= 1) return 0;
+    int sizeX = reader.getSizeX();
+    int best = 0;
+    for (int r=1; r<resolutions; r++) {
+      reader.setResolution(r);
+      double downsample = (double) sizeX / reader.getSizeX();
+      if (downsample <= viewScale) best = r;
+    }
+    reader.setResolution(0);
+    return best;
+  }
+
+  /**
+   * Lists the tiles at the given reader's current resolution that overlap
+   * the given full resolution region.  Tiles are no larger than the view,
+   * even if the reader's optimal tiles are strips as wide as the plane.
+   */
+  private static List<Rectangle> getTiles(IFormatReader r, Rectangle region,
+    double scaleX, double scaleY)
+  {
+    int sizeX = r.getSizeX(), sizeY = r.getSizeY();
+    int tileWidth =
+      Math.max(1, Math.min(VIEW_SIZE, r.getOptimalTileWidth()));
+    int tileHeight =
+      Math.max(1, Math.min(VIEW_SIZE, r.getOptimalTileHeight()));
+    int x0 = Math.max(0, (int) (region.x / scaleX));
+    int y0 = Math.max(0, (int) (region.y / scaleY));
+    int x1 = Math.min(sizeX,
+      (int) Math.ceil((region.x + region.width) / scaleX));
+    int y1 = Math.min(sizeY,
+      (int) Math.ceil((region.y + region.height) / scaleY));
+
+    List<Rectangle> list = new ArrayList<Rectangle>();
+    for (int y=(y0 / tileHeight) * tileHeight; y<y1; y+=tileHeight) {
+      for (int x=(x0 / tileWidth) * tileWidth; x<x1; x+=tileWidth) {
+        list.add(new Rectangle(x, y, Math.min(tileWidth, sizeX - x),
+          Math.min(tileHeight, sizeY - y)));
+      }
+    }
+    return list;
+  }
+
+  /** Returns the given tile from the tile cache, reading it if needed. */
+  private ImageProcessor getTile(ImageProcessorReader r, int resolution,
+    int no, Rectangle tile) throws FormatException, IOException
+  {
+    String key =
+      series + ":" + resolution + ":" + no + ":" + tile.x + ":" + tile.y;
+    synchronized (tiles) {
+      ImageProcessor t = tiles.get(key);
+      if (t != null) return t;
+    }
+    ImageProcessor t =
+      r.openProcessors(no, tile.x, tile.y, tile.width, tile.height)[0];
+    synchronized (tiles) {
+      if (tiles.put(key, t) == null) tileBytes += getSize(t);
+      trimTiles();
+    }
+    return t;
+  }
+
+  /** Evicts least recently used tiles until the cache fits its limit. */
+  private void trimTiles() {
+    Iterator<Map.Entry<String, ImageProcessor>> it =
+      tiles.entrySet().iterator();
+    while (tileBytes > tileCacheSize && it.hasNext()) {
+      tileBytes -= getSize(it.next().getValue());
+      it.remove();
+    }
+  }
+
+  private long getSize(ImageProcessor t) {
+    // RGB processors report a bit depth of 24, but store 4 bytes per pixel
+    int bytesPerPixel = t instanceof ColorProcessor ? 4 : t.getBitDepth() / 8;
+    return (long) t.getPixelCount() * bytesPerPixel;
+  }
+
+  /**
+   * Queues a background read of the tiles surrounding the visible region
+   * and of the visible tiles in the neighbouring Z sections and
+   * timepoints.  Any prefetch still running for an earlier position is
+   * abandoned.
+   */
+  private void prefetch(int[] pos) throws FormatException, IOException {
+    final int generation = prefetchGeneration.incrementAndGet();
+    if (prefetchDisabled) return;
+    if (prefetchReader == null) {
+      try {
+        prefetchReader = (ImageProcessorReader) reader.copy();
+      }
+      catch (FormatException e) {
+        // the reader cannot be safely shared with a background thread
+        prefetchDisabled = true;
+        return;
+      }
+    }
+    if (prefetcher == null) {
+      prefetcher = Executors.newSingleThreadExecutor(task -> {
+        Thread t = new Thread(task, "BFVirtualStack-prefetch");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+
+    final int width = getPlaneWidth(), height = getPlaneHeight();
+    final Rectangle visible = (visibleRegion == null ?
+      new Rectangle(0, 0, width, height) : visibleRegion).intersection(view);
+    final Rectangle around = new Rectangle(visible);
+    around.grow(visible.width / 2, visible.height / 2);
+    final int resolution = getViewResolution();
+
+    final List<Integer> planes = new ArrayList<Integer>();
+    int sizeZ = reader.getSizeZ(), sizeT = reader.getSizeT();
+    int no = reader.getIndex(pos[0], pos[1], pos[2]);
+    planes.add(no);
+    if (pos[0] + 1 < sizeZ) planes.add(reader.getIndex(pos[0] + 1, pos[1], pos[2]));
+    if (pos[0] > 0) planes.add(reader.getIndex(pos[0] - 1, pos[1], pos[2]));
+    if (pos[2] + 1 < sizeT) planes.add(reader.getIndex(pos[0], pos[1], pos[2] + 1));
+    if (pos[2] > 0) planes.add(reader.getIndex(pos[0], pos[1], pos[2] - 1));
+
+    final ImageProcessorReader r = prefetchReader;
+    final int s = series;
+    prefetcher.submit(() -> {
+      try {
+        r.setSeries(s);
+        r.setResolution(resolution);
+        double scaleX = (double) width / r.getSizeX();
+        double scaleY = (double) height / r.getSizeY();
+        for (int i=0; i<planes.size(); i++) {
+          int plane = planes.get(i);
+          // the current plane only needs the surrounding tiles
+          Rectangle area = i == 0 ? around : visible;
+          for (Rectangle tile : getTiles(r, area, scaleX, scaleY)) {
+            if (prefetchGeneration.get() != generation) return;
+            getTile(r, resolution, plane, tile);
+          }
+        }
+      }
+      catch (FormatException | IOException e) {
+        // prefetching is best effort; errors resurface on display
+        BF.debug("Cannot prefetch tiles: " + e.getMessage());
+      }
+    });
+  }
+
 }
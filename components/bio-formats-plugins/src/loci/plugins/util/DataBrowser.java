@@ -244,9 +244,9 @@ public class DataBrowser extends StackWindow {
     fpsPanel.add(fpsLabel, BorderLayout.EAST);
 
     ImageStack stack = imp.getStack();
-    if (stack instanceof BFVirtualStack) {
-      BFVirtualStack bfvs = (BFVirtualStack) stack;
-      Cache cache = bfvs.getCache();
+    Cache cache = stack instanceof BFVirtualStack ?
+      ((BFVirtualStack) stack).getCache() : null;
+    if (cache != null) {
       if (hasZ) {
         CacheIndicator zCache =
           new CacheIndicator(cache, channels.length, zSlider, 10, 20);
@@ -40,7 +40,6 @@ import loci.common.DataTools;
 import loci.formats.FormatException;
 import loci.formats.FormatTools;
 import loci.formats.IFormatReader;
-import loci.formats.ImageTools;
 import loci.formats.ReaderWrapper;
 import loci.plugins.BF;
 
@@ -88,88 +87,7 @@ public class ImageProcessorReader extends ReaderWrapper {
   {
     // read byte array
     byte[] b = openThumbBytes(no);
-
-    int c = getRGBChannelCount();
-    int type = getPixelType();
-    int bpp = FormatTools.getBytesPerPixel(type);
-    boolean interleave = isInterleaved();
-
-    int w = getThumbSizeX();
-    int h = getThumbSizeY();
-
-    if (b.length != w * h * c * bpp && b.length != w * h * bpp) {
-      throw new FormatException("Invalid byte array length: " + b.length +
-        " (expected w=" + w + ", h=" + h + ", c=" + c + ", bpp=" + bpp + ")");
-    }
-
-    // create a color model for this plane (null means default)
-    final LUT cm = createColorModel();
-
-    // convert byte array to appropriate primitive array type
-    boolean isFloat = FormatTools.isFloatingPoint(type);
-    boolean isLittle = isLittleEndian();
-    boolean isSigned = FormatTools.isSigned(type);
-
-    // construct image processors
-    ImageProcessor[] ip = new ImageProcessor[c];
-    for (int i=0; i<c; i++) {
-      byte[] channel =
-        ImageTools.splitChannels(b, i, c, bpp, false, interleave);
-      Object pixels = DataTools.makeDataArray(channel, bpp, isFloat, isLittle);
-      if (pixels instanceof byte[]) {
-        byte[] q = (byte[]) pixels;
-        if (q.length != w * h) {
-          byte[] tmp = q;
-          q = new byte[w * h];
-          System.arraycopy(tmp, 0, q, 0, Math.min(q.length, tmp.length));
-        }
-        if (isSigned) q = DataTools.makeSigned(q);
-
-        ip[i] = new ByteProcessor(w, h, q, null);
-        if (cm != null) ip[i].setColorModel(cm);
-      }
-      else if (pixels instanceof short[]) {
-        short[] q = (short[]) pixels;
-        if (q.length != w * h) {
-          short[] tmp = q;
-          q = new short[w * h];
-          System.arraycopy(tmp, 0, q, 0, Math.min(q.length, tmp.length));
-        }
-        if (isSigned) q = DataTools.makeSigned(q);
-
-        ip[i] = new ShortProcessor(w, h, q, cm);
-      }
-      else if (pixels instanceof int[]) {
-        int[] q = (int[]) pixels;
-        if (q.length != w * h) {
-          int[] tmp = q;
-          q = new int[w * h];
-          System.arraycopy(tmp, 0, q, 0, Math.min(q.length, tmp.length));
-        }
-
-        ip[i] = new FloatProcessor(w, h, q);
-      }
-      else if (pixels instanceof float[]) {
-        float[] q = (float[]) pixels;
-        if (q.length != w * h) {
-          float[] tmp = q;
-          q = new float[w * h];
-          System.arraycopy(tmp, 0, q, 0, Math.min(q.length, tmp.length));
-        }
-        ip[i] = new FloatProcessor(w, h, q, null);
-      }
-      else if (pixels instanceof double[]) {
-        double[] q = (double[]) pixels;
-        if (q.length != w * h) {
-          double[] tmp = q;
-          q = new double[w * h];
-          System.arraycopy(tmp, 0, q, 0, Math.min(q.length, tmp.length));
-        }
-        ip[i] = new FloatProcessor(w, h, q);
-      }
-    }
-
-    return ip;
+    return makeProcessors(b, b.length, getThumbSizeX(), getThumbSizeY(), false);
   }
 
   /**
@@ -184,103 +102,138 @@ public class ImageProcessorReader extends ReaderWrapper {
   {
     // read byte array
     byte[] b = openBytes(no, x, y, w, h);
+    return makeProcessors(b, b.length, w, h, false);
+  }
 
+  /**
+   * Returns an array of ImageProcessors that represent the given slice,
+   * using the given buffer to read the raw plane.  The buffer is not
+   * referenced by the returned processors, so it can be reused for
+   * subsequent calls.
+   *
+   * @param no Position of image plane.
+   * @param buf Buffer of at least {@link FormatTools#getPlaneSize} bytes.
+   */
+  public ImageProcessor[] openProcessors(int no, byte[] buf,
+    int x, int y, int w, int h)
+    throws FormatException, IOException
+  {
+    openBytes(no, buf, x, y, w, h);
+    return makeProcessors(buf, FormatTools.getPlaneSize(this, w, h), w, h,
+      true);
+  }
+
+  // -- IFormatReader methods --
+
+  @Override
+  public Class<?> getNativeDataType() {
+    return ImageProcessor[].class;
+  }
+
+  @Override
+  public Object openPlane(int no, int x, int y, int w, int h)
+    throws FormatException, IOException
+  {
+    return openProcessors(no, x, y, w, h);
+  }
+
+  // -- Helper methods --
+
+  /**
+   * Converts the first len bytes of the given raw plane into one image
+   * processor per RGB channel.  Samples are decoded straight into the
+   * primitive array used by each processor.
+   *
+   * @param shared true if b may be reused by the caller, in which case
+   *   it is never used directly as processor pixels
+   */
+  private ImageProcessor[] makeProcessors(byte[] b, int len, int w, int h,
+    boolean shared) throws FormatException, IOException
+  {
     int c = getRGBChannelCount();
     int type = getPixelType();
     int bpp = FormatTools.getBytesPerPixel(type);
     boolean interleave = isInterleaved();
 
-    if (b.length != w * h * c * bpp && b.length != w * h * bpp) {
-      throw new FormatException("Invalid byte array length: " + b.length +
+    if (len != w * h * c * bpp && len != w * h * bpp) {
+      throw new FormatException("Invalid byte array length: " + len +
         " (expected w=" + w + ", h=" + h + ", c=" + c + ", bpp=" + bpp + ")");
     }
 
     // create a color model for this plane (null means default)
     final LUT cm = createColorModel();
 
-    // convert byte array to appropriate primitive array type
     boolean isFloat = FormatTools.isFloatingPoint(type);
     boolean isLittle = isLittleEndian();
     boolean isSigned = FormatTools.isSigned(type);
 
+    // any samples missing from a short plane are left as zero
+    int channelLength = c == 1 ? len : len / c;
+    int count = Math.min(w * h, channelLength / bpp);
+    int step = interleave ? c * bpp : bpp;
+
     // construct image processors
     ImageProcessor[] ip = new ImageProcessor[c];
     for (int i=0; i<c; i++) {
-      byte[] channel =
-        ImageTools.splitChannels(b, i, c, bpp, false, interleave);
-      Object pixels = DataTools.makeDataArray(channel, bpp, isFloat, isLittle);
-      if (pixels instanceof byte[]) {
-        byte[] q = (byte[]) pixels;
-        if (q.length != w * h) {
-          byte[] tmp = q;
+      int offset = interleave ? i * bpp : i * channelLength;
+      if (bpp == 1) {
+        byte[] q;
+        if (c == 1 && len == w * h && b.length == len && !shared) q = b;
+        else {
           q = new byte[w * h];
-          System.arraycopy(tmp, 0, q, 0, Math.min(q.length, tmp.length));
+          if (step == 1) System.arraycopy(b, offset, q, 0, count);
+          else {
+            for (int k=0, o=offset; k<count; k++, o+=step) q[k] = b[o];
+          }
         }
         if (isSigned) q = DataTools.makeSigned(q);
 
         ip[i] = new ByteProcessor(w, h, q, null);
         if (cm != null) ip[i].setColorModel(cm);
       }
-      else if (pixels instanceof short[]) {
-        short[] q = (short[]) pixels;
-        if (q.length != w * h) {
-          short[] tmp = q;
-          q = new short[w * h];
-          System.arraycopy(tmp, 0, q, 0, Math.min(q.length, tmp.length));
+      else if (bpp == 2) {
+        short[] q = new short[w * h];
+        for (int k=0, o=offset; k<count; k++, o+=step) {
+          q[k] = (short) getInt(b, o, 2, isLittle);
         }
         if (isSigned) q = DataTools.makeSigned(q);
 
         ip[i] = new ShortProcessor(w, h, q, cm);
       }
-      else if (pixels instanceof int[]) {
-        int[] q = (int[]) pixels;
-        if (q.length != w * h) {
-          int[] tmp = q;
-          q = new int[w * h];
-          System.arraycopy(tmp, 0, q, 0, Math.min(q.length, tmp.length));
-        }
-
-        ip[i] = new FloatProcessor(w, h, q);
-      }
-      else if (pixels instanceof float[]) {
-        float[] q = (float[]) pixels;
-        if (q.length != w * h) {
-          float[] tmp = q;
-          q = new float[w * h];
-          System.arraycopy(tmp, 0, q, 0, Math.min(q.length, tmp.length));
+      else if (bpp == 4) {
+        float[] q = new float[w * h];
+        for (int k=0, o=offset; k<count; k++, o+=step) {
+          int v = getInt(b, o, 4, isLittle);
+          q[k] = isFloat ? Float.intBitsToFloat(v) : (float) v;
         }
         ip[i] = new FloatProcessor(w, h, q, null);
       }
-      else if (pixels instanceof double[]) {
-        double[] q = (double[]) pixels;
-        if (q.length != w * h) {
-          double[] tmp = q;
-          q = new double[w * h];
-          System.arraycopy(tmp, 0, q, 0, Math.min(q.length, tmp.length));
+      else if (bpp == 8 && isFloat) {
+        float[] q = new float[w * h];
+        for (int k=0, o=offset; k<count; k++, o+=step) {
+          long v = ((long) getInt(b, o + (isLittle ? 4 : 0), 4, isLittle) << 32) |
+            (getInt(b, o + (isLittle ? 0 : 4), 4, isLittle) & 0xffffffffL);
+          q[k] = (float) Double.longBitsToDouble(v);
         }
-        ip[i] = new FloatProcessor(w, h, q);
+        ip[i] = new FloatProcessor(w, h, q, null);
       }
     }
 
     return ip;
   }
 
-  // -- IFormatReader methods --
-
-  @Override
-  public Class<?> getNativeDataType() {
-    return ImageProcessor[].class;
-  }
-
-  @Override
-  public Object openPlane(int no, int x, int y, int w, int h)
-    throws FormatException, IOException
-  {
-    return openProcessors(no, x, y, w, h);
+  /** Decodes a 2 or 4 byte integer sample. */
+  private static int getInt(byte[] b, int off, int len, boolean little) {
+    int v = 0;
+    if (little) {
+      for (int k=len-1; k>=0; k--) v = (v << 8) | (b[off + k] & 0xff);
+    }
+    else {
+      for (int k=0; k<len; k++) v = (v << 8) | (b[off + k] & 0xff);
+    }
+    return v;
   }
 
-  // -- Helper methods --
-
   private LUT createColorModel() throws FormatException, IOException {
     // NB: If a color table is present, we might as well use it,
     // regardless of the value of isIndexed.
@@ -73,6 +73,9 @@ public final class LociPrefs {
   public static final String PREF_SLICE_LABEL_BASE_INDEX = "bioformats.sliceLabelBaseIndex";
   public static final String PREF_CELLSENS_FAIL =
     "bioformats.cellsens.fail_on_missing_ets";
+  public static final String PREF_VIRTUAL_TILED = "bioformats.virtual.tiled";
+  public static final String PREF_VIRTUAL_TILE_CACHE =
+    "bioformats.virtual.tileCacheSize";
 
   // -- Constructor --
 
@@ -210,6 +213,19 @@ public final class LociPrefs {
     return Prefs.get(PREF_CELLSENS_FAIL, CellSensReader.FAIL_ON_MISSING_DEFAULT);
   }
 
+  /**
+   * Whether virtual stacks read only the visible tiles of each plane.
+   * @see BFVirtualStack#setTiled(boolean)
+   */
+  public static boolean isVirtualTiled() {
+    return Prefs.get(PREF_VIRTUAL_TILED, false);
+  }
+
+  /** Gets the tile cache size of tiled virtual stacks, in megabytes. */
+  public static int getVirtualTileCacheSize() {
+    return Prefs.getInt(PREF_VIRTUAL_TILE_CACHE, 256);
+  }
+
   // -- Helper methods --
 
   private static boolean getPref(String pref,
@@ -29,12 +29,21 @@ package loci.plugins.util;
 
 import ij.ImagePlus;
 import ij.ImageStack;
+import ij.gui.ImageCanvas;
+import ij.gui.ImageWindow;
+import ij.measure.Calibration;
 import ij.process.ImageStatistics;
 import ij.process.LUT;
 
+import java.awt.EventQueue;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.IOException;
 import java.util.List;
 
+import javax.swing.Timer;
+
 import loci.formats.IFormatReader;
 import loci.plugins.util.RecordedImageProcessor.MethodEntry;
 
@@ -46,11 +55,25 @@ import loci.plugins.util.RecordedImageProcessor.MethodEntry;
  */
 public class VirtualImagePlus extends ImagePlus {
 
+  // -- Constants --
+
+  /** How often the canvas is checked for pans and zooms, in milliseconds. */
+  private static final int REGION_POLL_INTERVAL = 250;
+
   // -- Fields --
 
   private IFormatReader r;
   private LUT[] luts;
 
+  /** Watches the canvas of a tiled stack for changes to the visible region. */
+  private Timer regionTimer;
+
+  /**
+   * Calibration of the full resolution plane, which a tiled stack's view
+   * shows at an offset and scale.
+   */
+  private Calibration planeCalibration;
+
   // -- Constructor --
 
   public VirtualImagePlus(String title, ImageStack stack) {
@@ -70,34 +93,80 @@ public class VirtualImagePlus extends ImagePlus {
     this.luts = luts;
   }
 
+  /**
+   * Rereads the current plane if the displayed region or zoom level has
+   * changed since it was read.  Only tiled virtual stacks depend on the
+   * displayed region; see {@link BFVirtualStack#setTiled(boolean)}.
+   */
+  public synchronized void updateVisibleRegion() {
+    if (!(getStack() instanceof BFVirtualStack)) return;
+    BFVirtualStack stack = (BFVirtualStack) getStack();
+    if (setVisibleRegion(stack)) {
+      stack.getProcessor(getCurrentSlice());
+      updateProcessor(stack);
+      updateAndDraw();
+    }
+  }
+
   // -- ImagePlus API methods --
 
+  /**
+   * Additionally, for tiled stacks, rereads the current plane whenever the
+   * window's canvas is panned or zoomed.  Mouse releases are handled at
+   * once; wheel, keyboard and menu zooms are picked up by polling the
+   * canvas once they have settled.
+   */
+  @Override
+  public void setWindow(ImageWindow win) {
+    super.setWindow(win);
+    stopRegionTimer();
+    final ImageCanvas canvas = win == null ? null : win.getCanvas();
+    if (canvas == null || !(getStack() instanceof BFVirtualStack) ||
+      !((BFVirtualStack) getStack()).isTiled())
+    {
+      return;
+    }
+    if (planeCalibration == null) {
+      planeCalibration = getCalibration().copy();
+      updateCalibration((BFVirtualStack) getStack());
+    }
+
+    canvas.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseReleased(MouseEvent e) {
+        // let the canvas finish its own handling of the drag first
+        EventQueue.invokeLater(() -> updateVisibleRegion());
+      }
+    });
+    final VisibleRegionTracker tracker = new VisibleRegionTracker();
+    regionTimer = new Timer(REGION_POLL_INTERVAL, e -> {
+      if (tracker.isSettled(canvas.getSrcRect(), canvas.getMagnification())) {
+        updateVisibleRegion();
+      }
+    });
+    regionTimer.start();
+  }
+
   @Override
   public synchronized void setSlice(int index) {
+    if (getStack() instanceof BFVirtualStack) {
+      setVisibleRegion((BFVirtualStack) getStack());
+    }
     super.setSlice(index);
 
-    BFVirtualStack stack = null;
     if (getStack() instanceof BFVirtualStack) {
-      stack = (BFVirtualStack) getStack();
-      RecordedImageProcessor proc = stack.getRecordedProcessor();
-      List<MethodEntry> methods = stack.getMethodStack();
-      if (methods != null) {
-        proc.applyMethodStack(methods);
-      }
-      // if we call setProcessor(getTitle(), proc), the type will be set
-      // to GRAY32 (regardless of the actual processor type)
-      setProcessor(getTitle(), proc.getChild());
-      int channel = getChannel() - 1;
-      if (channel >= 0 && luts != null && channel < luts.length) {
-        getProcessor().setColorModel(luts[channel]);
-      }
-      this.ip = proc;
+      updateProcessor((BFVirtualStack) getStack());
     }
   }
 
   @Override
   public void close() {
+    stopRegionTimer();
+    ImageStack stack = getStack();
     super.close();
+    if (stack instanceof BFVirtualStack) {
+      ((BFVirtualStack) stack).close();
+    }
     try {
       r.close();
     }
@@ -120,4 +189,64 @@ public class VirtualImagePlus extends ImagePlus {
     return super.getStatistics(mOptions, nBins, histMin, histMax);
   }
 
+  // -- Helper methods --
+
+  private void stopRegionTimer() {
+    if (regionTimer != null) {
+      regionTimer.stop();
+      regionTimer = null;
+    }
+  }
+
+  /**
+   * Passes the displayed region and zoom level on to the stack.  The canvas
+   * shows the stack's view of the plane, so its coordinates are mapped to
+   * the plane's; if the view then moves, the canvas is moved with it so
+   * that it keeps showing the same part of the plane.
+   */
+  private boolean setVisibleRegion(BFVirtualStack stack) {
+    ImageCanvas canvas = getCanvas();
+    if (canvas == null) return false;
+    Rectangle view = stack.getView();
+    double scale = stack.getViewScale();
+    Rectangle visible = stack.toPlaneRegion(canvas.getSrcRect());
+    boolean changed = stack.setVisibleRegion(visible,
+      canvas.getMagnification() / scale);
+    if (!view.equals(stack.getView()) || scale != stack.getViewScale()) {
+      canvas.setSourceRect(stack.toViewRegion(visible));
+      updateCalibration(stack);
+    }
+    return changed;
+  }
+
+  /** Calibrates the view's pixels by their position in the plane. */
+  private void updateCalibration(BFVirtualStack stack) {
+    if (planeCalibration == null) return;
+    Rectangle view = stack.getView();
+    double scale = stack.getViewScale();
+    Calibration cal = planeCalibration.copy();
+    cal.pixelWidth *= scale;
+    cal.pixelHeight *= scale;
+    cal.xOrigin = (planeCalibration.xOrigin - view.x) / scale;
+    cal.yOrigin = (planeCalibration.yOrigin - view.y) / scale;
+    setCalibration(cal);
+  }
+
+  /** Replays recorded operations on the stack's most recent plane. */
+  private void updateProcessor(BFVirtualStack stack) {
+    RecordedImageProcessor proc = stack.getRecordedProcessor();
+    List<MethodEntry> methods = stack.getMethodStack();
+    if (methods != null) {
+      proc.applyMethodStack(methods);
+    }
+    // if we call setProcessor(getTitle(), proc), the type will be set
+    // to GRAY32 (regardless of the actual processor type)
+    setProcessor(getTitle(), proc.getChild());
+    int channel = getChannel() - 1;
+    if (channel >= 0 && luts != null && channel < luts.length) {
+      getProcessor().setColorModel(luts[channel]);
+    }
+    this.ip = proc;
+  }
+
 }
@@ -0,0 +1,67 @@
+/*
+ * #%L
+ * Bio-Formats Plugins for ImageJ: a collection of ImageJ plugins including the
+ * Bio-Formats Importer, Bio-Formats Exporter, Bio-Formats Macro Extensions,
+ * Data Browser and Stack Slicer.
+ * %%
+ * Copyright (C) 2006 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+package loci.plugins.util;
+
+import java.awt.Rectangle;
+
+/**
+ * Follows the displayed region of an image canvas across periodic polls,
+ * and reports when a pan or zoom has settled.  This lets a tiled virtual
+ * stack reread the visible region once per gesture, rather than at every
+ * intermediate step of a drag or a run of mouse wheel events.
+ */
+class VisibleRegionTracker {
+
+  // -- Fields --
+
+  private Rectangle region;
+  private double magnification;
+  private boolean reported;
+
+  // -- VisibleRegionTracker API methods --
+
+  /**
+   * Records the displayed region and magnification at one poll.
+   *
+   * @return true if the display has changed since it was last reported,
+   *   and has not changed since the previous poll
+   */
+  public boolean isSettled(Rectangle region, double magnification) {
+    if (region == null) return false;
+    if (!region.equals(this.region) || magnification != this.magnification) {
+      this.region = new Rectangle(region);
+      this.magnification = magnification;
+      reported = false;
+      return false;
+    }
+    if (reported) return false;
+    reported = true;
+    return true;
+  }
+
+}
@@ -36,6 +36,8 @@ import ij.process.LUT;
 import java.awt.Color;
 import java.awt.image.IndexColorModel;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 import loci.common.Location;
 import loci.common.Region;
@@ -984,6 +986,35 @@ public class ImporterTest {
     xyzctTest(imp,x,y,z,c,t);
   }
 
+  /** tests that planes read concurrently end up in the right stack order */
+  private void parallelReadTester(int pixType, int x, int y, int z, int c, int t)
+  {
+    String path = constructFakeFilename("parallel", pixType, x, y, z, c, t, -1, false, -1, false, -1);
+    ImagePlus[] imps = null;
+
+    try {
+      ImporterOptions options = new ImporterOptions();
+      options.setAutoscale(false);
+      options.setVirtual(false);
+      options.setId(path);
+      imps = BF.openImagePlus(options);
+    }
+    catch (IOException e) {
+      fail(e.getMessage());
+    }
+    catch (FormatException e) {
+      fail(e.getMessage());
+    }
+
+    impsCountTest(imps,1);
+
+    ImagePlus imp = imps[0];
+
+    xyzctTest(imp,x,y,z,c,t);
+
+    stackInZctOrderTest(imp,z,c,t,false,false);
+  }
+
   /** tests BF's options.setStackOrder() */
   private void outputStackOrderTester(boolean virtual, int pixType, ChannelOrder order, int x, int y, int z, int c, int t)
   {
@@ -2004,6 +2035,16 @@ public class ImporterTest {
     defaultBehaviorTester(FormatTools.DOUBLE, 106, 44, 5, 5, 4);
   }
 
+  @Test(timeOut = 120000)
+  public void testParallelRead()
+  {
+    parallelReadTester(FormatTools.UINT8, 64, 48, 5, 4, 3);
+
+    // importers running on the common pool must not starve each other
+    IntStream.range(0, 2 * ForkJoinPool.getCommonPoolParallelism() + 2)
+      .parallel().forEach(i -> parallelReadTester(FormatTools.UINT16, 47, 31, 4, 3, 2));
+  }
+
   @Test
   public void testOutputStackOrder()
   {
@@ -0,0 +1,209 @@
+/*
+ * #%L
+ * Bio-Formats Plugins for ImageJ: a collection of ImageJ plugins including the
+ * Bio-Formats Importer, Bio-Formats Exporter, Bio-Formats Macro Extensions,
+ * Data Browser and Stack Slicer.
+ * %%
+ * Copyright (C) 2006 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+package loci.plugins.util;
+
+import ij.process.ImageProcessor;
+
+import java.awt.Rectangle;
+
+import loci.formats.IFormatReader;
+import loci.formats.in.FakeReader;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the tiled mode of {@link BFVirtualStack}.
+ */
+public class BFVirtualStackTest {
+
+  private static final String ID =
+    "test&sizeX=256&sizeY=192&sizeZ=3&series=2.fake";
+
+  /** A pyramid whose full resolution planes exceed 2^31 pixels. */
+  private static final String LARGE_ID =
+    "large&sizeX=65536&sizeY=40000&resolutions=6&resolutionScale=2.fake";
+
+  private IFormatReader reader;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    reader = new FakeReader();
+    reader.setId(ID);
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    reader.close();
+  }
+
+  @Test
+  public void testTiledMatchesWholePlanes() throws Exception {
+    for (int series=0; series<reader.getSeriesCount(); series++) {
+      reader.setSeries(series);
+      BFVirtualStack whole = createStack(false);
+      BFVirtualStack tiled = createStack(true);
+      try {
+        for (int n=1; n<=whole.getSize(); n++) {
+          assertPixelsEqual(tiled.getProcessor(n), whole.getProcessor(n));
+        }
+      }
+      finally {
+        tiled.close();
+      }
+    }
+  }
+
+  @Test
+  public void testSeriesSharingReader() throws Exception {
+    // both stacks wrap the same reader, so each must reset it to its own
+    // series before reading tiles
+    reader.setSeries(0);
+    BFVirtualStack first = createStack(true);
+    reader.setSeries(1);
+    BFVirtualStack second = createStack(true);
+    reader.setSeries(1);
+    BFVirtualStack expected = createStack(false);
+    try {
+      first.getProcessor(1);
+      assertPixelsEqual(second.getProcessor(1), expected.getProcessor(1));
+    }
+    finally {
+      first.close();
+      second.close();
+    }
+  }
+
+  @Test
+  public void testVisibleRegionChanges() throws Exception {
+    BFVirtualStack tiled = createStack(true);
+    try {
+      Rectangle region = new Rectangle(10, 20, 64, 32);
+      assertTrue(tiled.setVisibleRegion(region, 1));
+      assertFalse(tiled.setVisibleRegion(new Rectangle(region), 1));
+      assertTrue(tiled.setVisibleRegion(region, 0.5));
+      // the whole plane is the same as no region
+      assertTrue(tiled.setVisibleRegion(null, 0.5));
+      assertFalse(tiled.setVisibleRegion(
+        new Rectangle(0, 0, tiled.getWidth(), tiled.getHeight()), 0.5));
+    }
+    finally {
+      tiled.close();
+    }
+
+    BFVirtualStack whole = createStack(false);
+    assertFalse(whole.setVisibleRegion(new Rectangle(0, 0, 8, 8), 1));
+  }
+
+  @Test
+  public void testTiledLargePlane() throws Exception {
+    IFormatReader large = new FakeReader();
+    large.setFlattenedResolutions(false);
+    large.setId(LARGE_ID);
+    BFVirtualStack tiled =
+      new BFVirtualStack(LARGE_ID, large, false, false, false, true);
+    try {
+      // the whole plane is shown from the smallest resolution
+      assertEquals(tiled.getWidth(), 2048);
+      assertEquals(tiled.getHeight(), 1250);
+      assertEquals(tiled.getViewScale(), 32.0);
+      assertEquals(tiled.getView(), new Rectangle(0, 0, 65536, 40000));
+      large.setResolution(5);
+      ImageProcessor expected = new ImageProcessorReader(large)
+        .openProcessors(0)[0];
+      large.setResolution(0);
+      assertPixelsEqual(tiled.getProcessor(1), expected);
+
+      // zooming in on a region reads it at full resolution
+      Rectangle region = new Rectangle(30000, 20000, 512, 256);
+      assertTrue(tiled.setVisibleRegion(region, 1));
+      assertEquals(tiled.getViewScale(), 1.0);
+      Rectangle view = tiled.getView();
+      assertTrue(view.contains(region));
+      assertEquals(view.width, 2048);
+      assertEquals(view.height, 1250);
+      assertPixelsEqual(crop(tiled.getProcessor(1), tiled.toViewRegion(region)),
+        new ImageProcessorReader(large).openProcessors(0,
+          region.x, region.y, region.width, region.height)[0]);
+
+      // panning within the view does not move it
+      region.translate(256, 128);
+      assertTrue(tiled.setVisibleRegion(region, 1));
+      assertEquals(tiled.getView(), view);
+      assertEquals(tiled.toPlaneRegion(tiled.toViewRegion(region)), region);
+
+      // reaching its edge does
+      region.x = view.x + view.width - region.width;
+      assertTrue(tiled.setVisibleRegion(region, 1));
+      assertFalse(tiled.getView().equals(view));
+      assertTrue(tiled.getView().contains(region));
+
+      // scales between resolutions are read from the next larger one
+      assertTrue(tiled.setVisibleRegion(region, 1 / 3.0));
+      assertEquals(tiled.getViewScale(), 3.0);
+      ImageProcessor ip = tiled.getProcessor(1);
+      assertEquals(ip.getWidth(), 2048);
+      assertEquals(ip.getHeight(), 1250);
+    }
+    finally {
+      tiled.close();
+      large.close();
+    }
+  }
+
+  // -- Helper methods --
+
+  private ImageProcessor crop(ImageProcessor ip, Rectangle region) {
+    ip.setRoi(region);
+    return ip.crop();
+  }
+
+  private BFVirtualStack createStack(boolean tiled) throws Exception {
+    BFVirtualStack stack = new BFVirtualStack(ID, reader, false, false, false);
+    stack.setTiled(tiled);
+    return stack;
+  }
+
+  private void assertPixelsEqual(ImageProcessor actual,
+    ImageProcessor expected)
+  {
+    assertEquals(actual.getWidth(), expected.getWidth());
+    assertEquals(actual.getHeight(), expected.getHeight());
+    for (int y=0; y<expected.getHeight(); y++) {
+      for (int x=0; x<expected.getWidth(); x++) {
+        assertEquals(actual.getPixel(x, y), expected.getPixel(x, y),
+          "pixel " + x + "," + y);
+      }
+    }
+  }
+
+}
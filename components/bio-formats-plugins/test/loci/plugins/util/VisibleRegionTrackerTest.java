@@ -0,0 +1,79 @@
+/*
+ * #%L
+ * Bio-Formats Plugins for ImageJ: a collection of ImageJ plugins including the
+ * Bio-Formats Importer, Bio-Formats Exporter, Bio-Formats Macro Extensions,
+ * Data Browser and Stack Slicer.
+ * %%
+ * Copyright (C) 2006 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+package loci.plugins.util;
+
+import java.awt.Rectangle;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Tests when {@link VisibleRegionTracker} reports a settled pan or zoom.
+ */
+public class VisibleRegionTrackerTest {
+
+  @Test
+  public void testSettlesAfterOneStablePoll() {
+    VisibleRegionTracker tracker = new VisibleRegionTracker();
+    Rectangle region = new Rectangle(0, 0, 100, 100);
+    assertFalse(tracker.isSettled(region, 1));
+    assertTrue(tracker.isSettled(region, 1));
+    // an unchanged display is only reported once
+    assertFalse(tracker.isSettled(region, 1));
+    assertFalse(tracker.isSettled(region, 1));
+  }
+
+  @Test
+  public void testDragIsReportedWhenItStops() {
+    VisibleRegionTracker tracker = new VisibleRegionTracker();
+    for (int x=0; x<50; x+=10) {
+      assertFalse(tracker.isSettled(new Rectangle(x, 0, 100, 100), 1));
+    }
+    assertTrue(tracker.isSettled(new Rectangle(40, 0, 100, 100), 1));
+  }
+
+  @Test
+  public void testZoom() {
+    VisibleRegionTracker tracker = new VisibleRegionTracker();
+    Rectangle region = new Rectangle(0, 0, 100, 100);
+    tracker.isSettled(region, 1);
+    assertTrue(tracker.isSettled(region, 1));
+    // a zoom centred on the same region still changes the resolution read
+    assertFalse(tracker.isSettled(region, 0.5));
+    assertTrue(tracker.isSettled(region, 0.5));
+  }
+
+  @Test
+  public void testNoCanvasRegion() {
+    VisibleRegionTracker tracker = new VisibleRegionTracker();
+    assertFalse(tracker.isSettled(null, 1));
+    assertFalse(tracker.isSettled(null, 1));
+  }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats;
+
+/**
+ * Per-thread pool of the scratch byte arrays that are allocated for every
+ * tile or plane in the decoding paths, e.g. compressed TIFF strips.
+ *
+ * Arrays are handed out by {@link #take(int)} with exactly the requested
+ * length, so that code which relies on the length of an array keeps
+ * working.  Callers that track the length themselves, e.g. of compressed
+ * strips that vary in size, use {@link #takeAtLeast(int)} instead, which
+ * can reuse any array that is long enough.  Arrays are kept in
+ * power-of-two size classes, each holding the few most recently released
+ * arrays of the current thread.  Arrays shorter than
+ * {@link #MIN_POOLED_LENGTH} or longer than {@link #MAX_POOLED_LENGTH} are
+ * not pooled.
+ *
+ * The contents of a pooled array are undefined.
+ * An array must not be used after it has been passed to
+ * {@link #release(byte[])}.
+ *
+ * When {@link ReaderMetrics} is enabled, each call is recorded as
+ * <code>BufferPool.hit</code> or <code>BufferPool.miss</code>, and each
+ * released array that did not fit within the thread limit as
+ * <code>BufferPool.discard</code>; the hit rate is the count of hits over
+ * the count of hits and misses.
+ */
+public final class BufferPool {
+
+  // -- Constants --
+
+  /** Length of the shortest array that is pooled. */
+  public static final int MIN_POOLED_LENGTH = 1 << 12;
+
+  /** Length of the longest array that is pooled. */
+  public static final int MAX_POOLED_LENGTH = 1 << 26;
+
+  /** Number of arrays kept per size class and thread. */
+  public static final int BUFFERS_PER_CLASS = 4;
+
+  /** Default number of bytes kept by each thread. */
+  public static final long THREAD_LIMIT_DEFAULT = 128L * 1024 * 1024;
+
+  private static final int MIN_SHIFT =
+    Integer.numberOfTrailingZeros(MIN_POOLED_LENGTH);
+
+  private static final int CLASS_COUNT =
+    Integer.numberOfTrailingZeros(MAX_POOLED_LENGTH) - MIN_SHIFT + 1;
+
+  // -- Static fields --
+
+  private static volatile boolean enabled = true;
+
+  private static volatile long threadLimit = THREAD_LIMIT_DEFAULT;
+
+  private static final ThreadLocal<Cache> CACHE = new ThreadLocal<Cache>() {
+    @Override
+    protected Cache initialValue() {
+      return new Cache();
+    }
+  };
+
+  // -- Constructor --
+
+  private BufferPool() { }
+
+  // -- BufferPool API methods --
+
+  /**
+   * Sets whether arrays are pooled.  When disabled, {@link #take(int)}
+   * always allocates and {@link #release(byte[])} does nothing.
+   */
+  public static void setEnabled(boolean enable) {
+    enabled = enable;
+  }
+
+  /** Returns true if arrays are pooled. */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Sets the number of bytes of released arrays kept by each thread. */
+  public static void setThreadLimit(long bytes) {
+    threadLimit = bytes;
+  }
+
+  /** Returns the number of bytes of released arrays kept by each thread. */
+  public static long getThreadLimit() {
+    return threadLimit;
+  }
+
+  /**
+   * Returns an array of exactly the given length, reusing one released by
+   * the current thread if possible.  The contents of the array are undefined.
+   */
+  public static byte[] take(int length) {
+    return take(length, true);
+  }
+
+  /**
+   * Returns an array of at least the given length, reusing one released by
+   * the current thread if possible.  Newly allocated arrays are rounded up
+   * to the size of their class, so that they can be reused for any length
+   * in the class.  The contents of the array are undefined.
+   */
+  public static byte[] takeAtLeast(int length) {
+    return take(length, false);
+  }
+
+  /**
+   * Returns an array to the current thread's pool.  The array may have been
+   * allocated by any means, but must no longer be referenced by the caller.
+   */
+  public static void release(byte[] buf) {
+    if (!enabled || buf == null || buf.length < MIN_POOLED_LENGTH ||
+      buf.length > MAX_POOLED_LENGTH)
+    {
+      return;
+    }
+    long start = ReaderMetrics.start();
+    if (!CACHE.get().offer(buf, threadLimit)) {
+      ReaderMetrics.record(BufferPool.class, "discard", start, buf.length);
+    }
+  }
+
+  /** Returns the number of bytes held by the current thread's pool. */
+  public static long getPooledBytes() {
+    return CACHE.get().bytes;
+  }
+
+  /** Discards all arrays held by the current thread's pool. */
+  public static void clear() {
+    CACHE.remove();
+  }
+
+  // -- Helper methods --
+
+  private static byte[] take(int length, boolean exact) {
+    if (!enabled || length < MIN_POOLED_LENGTH || length > MAX_POOLED_LENGTH) {
+      return new byte[length];
+    }
+    long start = ReaderMetrics.start();
+    byte[] buf = CACHE.get().take(length, exact);
+    if (buf != null) {
+      ReaderMetrics.record(BufferPool.class, "hit", start, length);
+      return buf;
+    }
+    ReaderMetrics.record(BufferPool.class, "miss", start, length);
+    return new byte[exact ? length : 1 << (sizeClass(length) + MIN_SHIFT)];
+  }
+
+  /** Returns the index of the size class holding arrays of the length. */
+  private static int sizeClass(int length) {
+    return 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_SHIFT;
+  }
+
+  // -- Helper classes --
+
+  /** Released arrays of a single thread. */
+  private static class Cache {
+    /** Arrays of each size class, least recently released first. */
+    private final byte[][][] classes =
+      new byte[CLASS_COUNT][BUFFERS_PER_CLASS][];
+
+    private long bytes;
+
+    byte[] take(int length, boolean exact) {
+      byte[][] slots = classes[sizeClass(length)];
+      for (int i=slots.length-1; i>=0; i--) {
+        byte[] buf = slots[i];
+        if (buf != null &&
+          (exact ? buf.length == length : buf.length >= length))
+        {
+          System.arraycopy(slots, i + 1, slots, i, slots.length - i - 1);
+          slots[slots.length - 1] = null;
+          bytes -= buf.length;
+          return buf;
+        }
+      }
+      return null;
+    }
+
+    boolean offer(byte[] buf, long limit) {
+      byte[][] slots = classes[sizeClass(buf.length)];
+      int used = 0;
+      for (byte[] slot : slots) {
+        if (slot == buf) return true;
+        if (slot != null) used++;
+      }
+      // a full size class drops its least recently released array
+      int evicted = used == slots.length ? slots[0].length : 0;
+      if (bytes - evicted + buf.length > limit) {
+        return false;
+      }
+      if (evicted > 0) {
+        System.arraycopy(slots, 1, slots, 0, slots.length - 1);
+        used--;
+      }
+      slots[used] = buf;
+      bytes += buf.length - evicted;
+      return true;
+    }
+  }
+
+}
@@ -267,6 +267,34 @@ public abstract class DelegateReader extends FormatReader {
     }
   }
 
+  /* @see IFormatReader#copy(String) */
+  @Override
+  public IFormatReader copy(String id) throws FormatException, IOException {
+    FormatTools.assertId(currentId, true, 1);
+    // only the delegate that read the current file needs to read the new one
+    boolean legacy = callLegacyReader();
+    IFormatReader swapped =
+      legacy ? legacyReader.copy(id) : nativeReader.copy(id);
+    DelegateReader copy;
+    try {
+      copy = (DelegateReader) copy();
+    }
+    catch (FormatException | IOException e) {
+      swapped.close();
+      throw e;
+    }
+    if (legacy) {
+      copy.legacyReader.close();
+      copy.legacyReader = swapped;
+    }
+    else {
+      copy.nativeReader.close();
+      copy.nativeReader = swapped;
+    }
+    copy.currentId = id;
+    return copy;
+  }
+
   // -- IFormatHandler API methods --
 
   /* @see IFormatHandler#setId(String) */
@@ -321,4 +349,21 @@ public abstract class DelegateReader extends FormatReader {
     return legacyReaderInitialized && (useLegacy || !nativeReaderInitialized);
   }
 
+  // -- Internal FormatReader API methods --
+
+  /* @see FormatReader#initCopy() */
+  @Override
+  protected void initCopy() throws FormatException, IOException {
+    super.initCopy();
+    nativeReader = nativeReader.copy();
+    legacyReader = legacyReader.copy();
+  }
+
+  /* @see FormatReader#isCopySupported() */
+  @Override
+  protected boolean isCopySupported() {
+    // subclasses only choose the delegates, which check their own support
+    return true;
+  }
+
 }
@@ -32,8 +32,12 @@
 
 package loci.formats;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedHashSet;
 import java.util.Hashtable;
 import java.util.List;
@@ -41,19 +45,26 @@ import java.util.Set;
 import java.util.Vector;
 import java.util.Arrays;
 
+import loci.common.BZip2Handle;
 import loci.common.DataTools;
+import loci.common.GZipHandle;
 import loci.common.Location;
 import loci.common.RandomAccessInputStream;
+import loci.common.ZipHandle;
 import loci.common.services.DependencyException;
 import loci.common.services.ServiceException;
 import loci.common.services.ServiceFactory;
+import loci.formats.in.DynamicMetadataOptions;
 import loci.formats.in.MetadataLevel;
+import loci.formats.in.MetadataOptions;
 import loci.formats.meta.DummyMetadata;
 import loci.formats.meta.FilterMetadata;
 import loci.formats.meta.IMetadata;
 import loci.formats.meta.MetadataRetrieve;
 import loci.formats.meta.MetadataStore;
 import loci.formats.ome.OMEXMLMetadata;
+import loci.formats.remote.PageCache;
+import loci.formats.remote.RangeHandle;
 import loci.formats.services.OMEXMLService;
 
 import ome.xml.model.AffineTransform;
@@ -113,7 +124,7 @@ import ome.xml.model.enums.handlers.PulseEnumHandler;
  * Abstract superclass of all biological file format readers.
  */
 public abstract class FormatReader extends FormatHandler
-  implements IFormatReader
+  implements IFormatReader, Cloneable
 {
 
   // -- Constants --
@@ -121,6 +132,15 @@ public abstract class FormatReader extends FormatHandler
   /** Default thumbnail width and height. */
   protected static final int THUMBNAIL_DIMENSION = 128;
 
+  /**
+   * Option key: if true, readers that support it populate only the series
+   * list and core dimensions during {@link #setId(String)}, and populate
+   * the remaining metadata for each series (channels, planes, original
+   * metadata) the first time that series is selected.
+   */
+  public static final String LAZY_SERIES_KEY = "series.lazy";
+  public static final boolean LAZY_SERIES_DEFAULT = false;
+
   // -- Fields --
 
   /** Current file. */
@@ -189,6 +209,28 @@ public abstract class FormatReader extends FormatHandler
   private ServiceFactory factory;
   private OMEXMLService service;
 
+  /** Handle through which the current file is read, if it is remote. */
+  private transient RangeHandle rangeHandle;
+
+  /** Id that was mapped to a {@link RangeHandle} by this reader. */
+  private transient String mappedId;
+
+  /** Streams opened by {@link #openHandle(String)}. */
+  private transient HandlePool handles;
+
+  /**
+   * Series whose metadata has been populated, or null if this reader
+   * populates all series in {@link #initFile(String)}.  Shared with copies,
+   * which share the MetadataStore.
+   */
+  private BitSet initializedSeries;
+
+  /** Whether {@link #setId(String)} is in progress. */
+  private transient boolean initializing;
+
+  /** Plane decoded by {@link #openBuffer} before copying to a direct buffer. */
+  private transient byte[] bufferPlane;
+
   // -- Constructors --
 
   /** Constructs a format reader with the given name and default suffix. */
@@ -207,10 +249,230 @@ public abstract class FormatReader extends FormatHandler
     if (in != null) {
       in.close();
     }
-    in = new RandomAccessInputStream(currentId);
+    in = rangeHandle == null ? openStream(currentId) :
+      new RandomAccessInputStream(rangeHandle.duplicate(), currentId);
     in.order(isLittleEndian());
   }
 
+  /**
+   * Opens a stream on the given file.  If {@link PageCache#PAGE_CACHE_KEY}
+   * is enabled and the id names a plain local file, the stream reads
+   * through the shared {@link PageCache}, so that the many small reads
+   * made while parsing headers become a few large sequential reads that
+   * are shared by every stream on the same file.
+   */
+  protected RandomAccessInputStream openStream(String id) throws IOException {
+    if (isPageCached(id)) {
+      return new RandomAccessInputStream(
+        RangeHandle.open(id, PageCache.getShared()), id);
+    }
+    return new RandomAccessInputStream(id);
+  }
+
+  /**
+   * Opens a stream on the given file as {@link #openStream(String)} does;
+   * the buffer size is used only if the file is not read through the
+   * shared {@link PageCache}.
+   */
+  protected RandomAccessInputStream openStream(String id, int bufferSize)
+    throws IOException
+  {
+    if (isPageCached(id)) {
+      return new RandomAccessInputStream(
+        RangeHandle.open(id, PageCache.getShared()), id);
+    }
+    return new RandomAccessInputStream(id, bufferSize);
+  }
+
+  /**
+   * Returns a stream on the given file from this reader's pool of open
+   * streams.  Closing the stream returns it to the pool instead of closing
+   * the file, so readers that open a stream on each call to openBytes do
+   * not reopen the file every time.  The stream may be positioned anywhere
+   * in the file.  The pool is closed along with the reader.
+   *
+   * @see HandlePool
+   */
+  protected RandomAccessInputStream openHandle(String id) throws IOException {
+    return openHandle(id, 0);
+  }
+
+  /**
+   * Returns a stream on the given file as {@link #openHandle(String)} does;
+   * the buffer size is used only if a new stream has to be opened and the
+   * file is not read through the shared {@link PageCache}.
+   */
+  protected RandomAccessInputStream openHandle(String id, int bufferSize)
+    throws IOException
+  {
+    if (handles == null) {
+      handles = HandlePool.create(getMetadataOptions());
+    }
+    RandomAccessInputStream stream = handles.reuse(id);
+    if (stream != null) {
+      return stream;
+    }
+    return handles.open(id, bufferSize,
+      isPageCached(id) ? PageCache.getShared() : null);
+  }
+
+  /**
+   * Returns the handle through which the current file is read if it is
+   * being read with range requests, or null otherwise.
+   *
+   * @see RangeHandle#RANGE_READ_KEY
+   */
+  protected RangeHandle getRangeHandle() {
+    return rangeHandle;
+  }
+
+  /**
+   * Replaces any state that must not be shared with the reader from which
+   * this reader was copied, such as nested readers, parsers and scratch
+   * buffers.  Called on the new reader by {@link #copy()}, before
+   * {@link #reopenFile()}; the input stream has already been detached.
+   * Subclasses that override this method should call super.initCopy().
+   *
+   * @throws FormatException if this reader cannot be copied
+   */
+  protected void initCopy() throws FormatException, IOException {
+  }
+
+  /**
+   * Re-reads whatever locates the pixels in the current file, such as
+   * strip or tile offsets.  Called on the new reader by
+   * {@link #copy(String)}, after {@link #initCopy()} and
+   * {@link #reopenFile()}, so that offsets are never taken from the file
+   * from which this reader was copied.
+   *
+   * @throws FormatException if the current file is not structured like the
+   *   file from which this reader was copied
+   */
+  protected void initFileSwap() throws FormatException, IOException {
+  }
+
+  /**
+   * Returns true if {@link #copy()} is supported once {@link #setId} has
+   * been called; uninitialized readers can always be copied.  A reader may
+   * only return true once every stream, parser and helper reader that it
+   * holds (other than {@link #in}) is replaced by {@link #initCopy()}.
+   * Since a subclass may add such state of its own, implementations should
+   * only return true for the exact class that was checked, e.g.
+   * <code>getClass() == MyReader.class</code>.
+   */
+  protected boolean isCopySupported() {
+    return false;
+  }
+
+  /**
+   * Returns true if {@link #copy(String)} is supported, in addition to
+   * {@link #copy()}.  A reader may only return true if it reads all pixels
+   * of a single file through {@link #in}, re-reads their offsets in
+   * {@link #initFileSwap()}, and does not keep the name of its current file
+   * anywhere else.  As for {@link #isCopySupported()}, implementations
+   * should only return true for the exact class that was checked.
+   */
+  protected boolean isFileSwapSupported() {
+    return false;
+  }
+
+  /**
+   * Returns true if {@link #LAZY_SERIES_KEY} is set.  Readers that support
+   * lazy series initialization check this in {@link #initFile(String)},
+   * and if it is set call {@link #deferSeriesInitialization()} and move
+   * the per-series work into {@link #initSeries(int)}.
+   */
+  protected boolean isLazySeries() {
+    MetadataOptions options = getMetadataOptions();
+    if (options instanceof DynamicMetadataOptions) {
+      return ((DynamicMetadataOptions) options).getBoolean(
+        LAZY_SERIES_KEY, LAZY_SERIES_DEFAULT);
+    }
+    return LAZY_SERIES_DEFAULT;
+  }
+
+  /**
+   * Declares that {@link #initFile(String)} has populated only the series
+   * list and core metadata, so {@link #initSeries(int)} must be called
+   * before each series is used.
+   */
+  protected void deferSeriesInitialization() {
+    initializedSeries = new BitSet();
+  }
+
+  /**
+   * Returns true if the metadata for the given series has been populated,
+   * either by {@link #initFile(String)} or by {@link #initSeries(int)}.
+   */
+  protected boolean isSeriesInitialized(int series) {
+    return initializedSeries == null || initializedSeries.get(series);
+  }
+
+  /**
+   * Populates the metadata for the given series, which is the current
+   * series.  Called at most once per series after
+   * {@link #deferSeriesInitialization()}, the first time the series is
+   * selected; series 0 is initialized at the end of
+   * {@link #setId(String)}.
+   *
+   * @throws FormatException if a parsing error occurs
+   * @throws IOException if an I/O error occurs
+   */
+  protected void initSeries(int series) throws FormatException, IOException {
+  }
+
+  /** Calls {@link #initSeries(int)} if the current series needs it. */
+  private void ensureSeriesInitialized() throws FormatException, IOException {
+    BitSet initialized = initializedSeries;
+    if (initialized == null || initializing) {
+      return;
+    }
+    synchronized (initialized) {
+      int current = getSeries();
+      if (initialized.get(current)) {
+        return;
+      }
+      initialized.set(current);
+      boolean success = false;
+      try {
+        initSeries(current);
+        MetadataStore store = getMetadataStore();
+        if (store instanceof OMEXMLMetadata) {
+          if (saveOriginalMetadata) {
+            // setId skipped the series, as it had no metadata yet
+            setupService();
+            Hashtable<String, Object> seriesMetadata = new Hashtable<>();
+            MetadataTools.merge(getSeriesMetadata(), seriesMetadata,
+              getOriginalMetadataPrefix(store, current));
+            service.populateOriginalMetadata(
+              (OMEXMLMetadata) store, seriesMetadata);
+          }
+          ((OMEXMLMetadata) store).resolveReferences();
+        }
+        success = true;
+      }
+      finally {
+        if (!success) {
+          initialized.clear(current);
+        }
+      }
+    }
+  }
+
+  /**
+   * Calls {@link #ensureSeriesInitialized()} from a method that cannot
+   * throw checked exceptions.
+   */
+  private void ensureSeriesInitializedUnchecked() {
+    try {
+      ensureSeriesInitialized();
+    }
+    catch (FormatException | IOException e) {
+      throw new IllegalStateException(
+        "Could not initialize series " + getSeries(), e);
+    }
+  }
+
   /**
    * Initializes the given file (parsing header information, etc.).
    * Most subclasses should override this method to perform
@@ -232,6 +494,10 @@ public abstract class FormatReader extends FormatHandler
     series = 0;
     close();
     currentId = id;
+    if (RangeHandle.isEnabled(getMetadataOptions()) && RangeHandle.map(id)) {
+      mappedId = id;
+    }
+    rangeHandle = RangeHandle.getMapped(id);
     metadata = new Hashtable<String, Object>();
 
     core = new ArrayList<CoreMetadata>();
@@ -244,6 +510,22 @@ public abstract class FormatReader extends FormatHandler
     getMetadataStore().createRoot();
   }
 
+  /**
+   * Returns true if streams on the given id should read through the
+   * shared page cache: the cache must be enabled, and the id must name a
+   * local file that is neither mapped nor compressed.
+   */
+  private boolean isPageCached(String id) throws IOException {
+    if (!PageCache.isEnabled(getMetadataOptions()) ||
+      Location.getMappedFile(id) != null)
+    {
+      return false;
+    }
+    String path = Location.getMappedId(id);
+    return new File(path).isFile() && !ZipHandle.isZipFile(path) &&
+      !GZipHandle.isGZipFile(path) && !BZip2Handle.isBZip2File(path);
+  }
+
   /** Returns true if the given file name is in the used files list. */
   protected boolean isUsedFile(String file) {
     String[] usedFiles = getUsedFiles();
@@ -515,23 +797,68 @@ public abstract class FormatReader extends FormatHandler
   protected byte[] readPlane(RandomAccessInputStream s, int x, int y,
     int w, int h, int scanlinePad, byte[] buf) throws IOException
   {
+    readPlane(s, x, y, w, h, scanlinePad, buf, null);
+    return buf;
+  }
+
+  /**
+   * Reads a raw plane from disk into the given buffer, starting at its
+   * current position.  The position of the buffer is not changed.
+   *
+   * @return a view of the plane, as described by
+   *   {@link IFormatReader#openBuffer(int, ByteBuffer, int, int, int, int)}
+   */
+  protected ByteBuffer readPlane(RandomAccessInputStream s, int x, int y,
+    int w, int h, ByteBuffer buf) throws IOException
+  {
+    return readPlane(s, x, y, w, h, 0, buf);
+  }
+
+  /**
+   * Reads a raw plane from disk into the given buffer, starting at its
+   * current position.  The position of the buffer is not changed.
+   *
+   * @return a view of the plane, as described by
+   *   {@link IFormatReader#openBuffer(int, ByteBuffer, int, int, int, int)}
+   */
+  protected ByteBuffer readPlane(RandomAccessInputStream s, int x, int y,
+    int w, int h, int scanlinePad, ByteBuffer buf) throws IOException
+  {
+    readPlane(s, x, y, w, h, scanlinePad, null, buf);
+    return FormatTools.getBufferView(this, buf, w, h);
+  }
+
+  /**
+   * Reads a raw plane from disk into exactly one of the given array or
+   * buffer.
+   */
+  private void readPlane(RandomAccessInputStream s, int x, int y,
+    int w, int h, int scanlinePad, byte[] buf, ByteBuffer buffer)
+    throws IOException
+  {
+    long start = ReaderMetrics.start();
     int c = getRGBChannelCount();
     int bpp = FormatTools.getBytesPerPixel(getPixelType());
     if (x == 0 && y == 0 && w == getSizeX() && h == getSizeY() &&
       scanlinePad == 0)
     {
-      s.read(buf);
+      if (buf != null) {
+        s.read(buf);
+      }
+      else {
+        read(s, null, buffer, 0, w * h * bpp * c);
+      }
     }
     else if (x == 0 && w == getSizeX() && scanlinePad == 0) {
       if (isInterleaved()) {
         s.skipBytes(y * w * bpp * c);
-        s.read(buf, 0, h * w * bpp * c);
+        read(s, buf, buffer, 0, h * w * bpp * c);
       }
       else {
         int rowLen = w * bpp;
         for (int channel=0; channel<c; channel++) {
           s.skipBytes(y * rowLen);
-          s.read(buf, channel * h * rowLen, h * rowLen);
+          read(s, buf, buffer, channel * h * rowLen, h * rowLen);
           if (channel < c - 1) {
             // no need to skip bytes after reading final channel
             s.skipBytes((getSizeY() - y - h) * rowLen);
@@ -545,7 +872,7 @@ public abstract class FormatReader extends FormatHandler
         s.skipBytes(y * scanlineWidth * bpp * c);
         for (int row=0; row<h; row++) {
           s.skipBytes(x * bpp * c);
-          s.read(buf, row * w * bpp * c, w * bpp * c);
+          read(s, buf, buffer, row * w * bpp * c, w * bpp * c);
           if (row < h - 1) {
             // no need to skip bytes after reading final row
             s.skipBytes(bpp * c * (scanlineWidth - w - x));
@@ -557,7 +884,8 @@ public abstract class FormatReader extends FormatHandler
           s.skipBytes(y * scanlineWidth * bpp);
           for (int row=0; row<h; row++) {
             s.skipBytes(x * bpp);
-            s.read(buf, channel * w * h * bpp + row * w * bpp, w * bpp);
+            read(s, buf, buffer, channel * w * h * bpp + row * w * bpp,
+              w * bpp);
             if (row < h - 1 || channel < c - 1) {
               // no need to skip bytes after reading final row of final channel
               s.skipBytes(bpp * (scanlineWidth - w - x));
@@ -570,7 +898,31 @@ public abstract class FormatReader extends FormatHandler
         }
       }
     }
-    return buf;
+    ReaderMetrics.record(getClass(), "readPlane", start, (long) w * h * bpp * c);
+  }
+
+  /**
+   * Reads len bytes into either the given array or buffer, at the given
+   * offset from the start of the array or the position of the buffer.
+   */
+  private static void read(RandomAccessInputStream s, byte[] buf,
+    ByteBuffer buffer, int off, int len) throws IOException
+  {
+    if (buf != null) {
+      s.read(buf, off, len);
+    }
+    else if (buffer.hasArray()) {
+      s.read(buffer.array(), buffer.arrayOffset() + buffer.position() + off,
+        len);
+    }
+    else {
+      // handles differ in how they apply the offset to a buffer,
+      // so always read into a slice that starts at zero
+      ByteBuffer dest = buffer.duplicate();
+      dest.position(buffer.position() + off);
+      dest.limit(dest.position() + len);
+      s.read(dest.slice(), 0, len);
+    }
   }
 
   /** Return a properly configured loci.formats.meta.FilterMetadata. */
@@ -889,6 +1241,41 @@ public abstract class FormatReader extends FormatHandler
   public abstract byte[] openBytes(int no, byte[] buf, int x, int y,
     int w, int h) throws FormatException, IOException;
 
+  /* @see IFormatReader#openBuffer(int, ByteBuffer) */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf)
+    throws FormatException, IOException
+  {
+    return openBuffer(no, buf, 0, 0, getSizeX(), getSizeY());
+  }
+
+  /**
+   * Heap buffers are filled in place by
+   * {@link #openBytes(int, byte[], int, int, int, int)}; other buffers
+   * receive a single copy of a decoded plane that is reused between calls.
+   * Readers that can read straight into a buffer should override this
+   * method, e.g. by using
+   * {@link #readPlane(RandomAccessInputStream, int, int, int, int, ByteBuffer)}.
+   *
+   * @see IFormatReader#openBuffer(int, ByteBuffer, int, int, int, int)
+   */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    if (buf == null || FormatTools.isArrayBacked(buf)) {
+      return FormatTools.openBuffer(this, no, buf, x, y, w, h);
+    }
+    FormatTools.checkBufferSize(this, buf.remaining(), w, h);
+    int size = FormatTools.getPlaneSize(this, w, h);
+    if (bufferPlane == null || bufferPlane.length != size) {
+      bufferPlane = new byte[size];
+    }
+    openBytes(no, bufferPlane, x, y, w, h);
+    buf.duplicate().put(bufferPlane);
+    return FormatTools.getBufferView(this, buf, w, h);
+  }
+
   /* @see IFormatReader#openPlane(int, int, int, int, int int) */
   @Override
   public Object openPlane(int no, int x, int y, int w, int h)
@@ -909,12 +1296,107 @@ public abstract class FormatReader extends FormatHandler
   @Override
   public void close(boolean fileOnly) throws IOException {
     if (in != null) in.close();
+    if (handles != null) {
+      handles.close();
+      handles = null;
+    }
+    bufferPlane = null;
     if (!fileOnly) {
       in = null;
       currentId = null;
       resolution = 0;
       core = null;
+      initializedSeries = null;
+      rangeHandle = null;
+      if (mappedId != null) {
+        RangeHandle.unmap(mappedId);
+        mappedId = null;
+      }
+    }
+  }
+
+  /* @see IFormatReader#copy() */
+  @Override
+  public IFormatReader copy() throws FormatException, IOException {
+    if (!isCopySupported()) {
+      if (currentId != null) {
+        throw new FormatException(getClass().getName() + " cannot be copied");
+      }
+      return newCopy();
+    }
+    FormatReader copy = cloneReader();
+    copy.initCopy();
+    if (currentId != null) {
+      copy.reopenFile();
     }
+    return copy;
+  }
+
+  /* @see IFormatReader#copy(String) */
+  @Override
+  public IFormatReader copy(String id) throws FormatException, IOException {
+    FormatTools.assertId(currentId, true, 1);
+    if (!isCopySupported() || !isFileSwapSupported()) {
+      throw new FormatException(
+        getClass().getName() + " cannot be copied to another file");
+    }
+    FormatReader copy = cloneReader();
+    copy.currentId = id;
+    // the range handle belongs to the current file
+    copy.rangeHandle = null;
+    copy.initCopy();
+    copy.reopenFile();
+    try {
+      copy.initFileSwap();
+    }
+    catch (FormatException | IOException e) {
+      copy.close();
+      throw e;
+    }
+    return copy;
+  }
+
+  /** Clones this reader, detaching everything that reads the file. */
+  private FormatReader cloneReader() throws FormatException {
+    FormatReader copy;
+    try {
+      copy = (FormatReader) clone();
+    }
+    catch (CloneNotSupportedException e) {
+      throw new FormatException(e);
+    }
+    copy.in = null;
+    copy.mappedId = null;
+    copy.handles = null;
+    copy.bufferPlane = null;
+    return copy;
+  }
+
+  /**
+   * Creates a new, uninitialized reader of the same class with the same
+   * configuration.  Nothing has been read from a file yet, so this is
+   * equivalent to {@link #copy()} for readers that do not support copying.
+   */
+  private FormatReader newCopy() throws FormatException {
+    FormatReader copy;
+    try {
+      // nested reader classes are not always public
+      Constructor<? extends FormatReader> constructor =
+        getClass().getDeclaredConstructor();
+      constructor.setAccessible(true);
+      copy = constructor.newInstance();
+    }
+    catch (ReflectiveOperationException e) {
+      throw new FormatException(getClass().getName() + " cannot be copied", e);
+    }
+    copy.setMetadataOptions(getMetadataOptions());
+    copy.setGroupFiles(group);
+    copy.setNormalized(normalizeData);
+    copy.setOriginalMetadataPopulated(saveOriginalMetadata);
+    copy.setMetadataFiltered(filterMetadata);
+    copy.setMetadataStore(metadataStore);
+    copy.setFlattenedResolutions(flattenedResolutions);
+    return copy;
   }
 
   /* @see IFormatReader#getSeriesCount() */
@@ -934,6 +1416,7 @@ public abstract class FormatReader extends FormatHandler
     coreIndex = seriesToCoreIndex(no);
     series = no;
     resolution = 0;
+    ensureSeriesInitializedUnchecked();
   }
 
   /* @see IFormatReader#getSeries() */
@@ -1364,6 +1847,7 @@ public abstract class FormatReader extends FormatHandler
     series = coreIndexToSeries(no);
     coreIndex = no;
     resolution = no - seriesToCoreIndex(series);
+    ensureSeriesInitializedUnchecked();
   }
 
   // -- IFormatHandler API methods --
@@ -1392,59 +1876,87 @@ public abstract class FormatReader extends FormatHandler
     if (currentId == null || !new Location(id).getAbsolutePath().equals(
       new Location(currentId).getAbsolutePath()))
     {
-      initFile(id);
-
-      MetadataStore store = getMetadataStore();
-      if (saveOriginalMetadata) {
-        if (store instanceof OMEXMLMetadata) {
-          setupService();
-          Hashtable<String, Object> allMetadata =
-            new Hashtable<>(metadata);
-
-          for (int series=0; series<getSeriesCount(); series++) {
-            String name = "Series " + series;
-            try {
-              String realName = ((IMetadata) store).getImageName(series);
-              if (realName != null && realName.trim().length() != 0) {
-                name = realName;
-              }
-            }
-            catch (Exception e) { }
-            setSeries(series);
-            MetadataTools.merge(getSeriesMetadata(), allMetadata, name + " ");
-          }
-          setSeries(0);
-
-          service.populateOriginalMetadata((OMEXMLMetadata) store, allMetadata);
-        }
+      initializing = true;
+      try {
+        initialize(id);
+      }
+      finally {
+        initializing = false;
       }
+      ensureSeriesInitialized();
+    }
+  }
 
+  /**
+   * Calls {@link #initFile(String)} and completes the MetadataStore.
+   * Series selected here are not lazily initialized.
+   */
+  private void initialize(String id) throws FormatException, IOException {
+    initFile(id);
+
+    MetadataStore store = getMetadataStore();
+    if (saveOriginalMetadata) {
       if (store instanceof OMEXMLMetadata) {
-        ((OMEXMLMetadata) store).resolveReferences();
         setupService();
+        Hashtable<String, Object> allMetadata =
+          new Hashtable<>(metadata);
 
-        if (getMetadataOptions().isValidate()) {
-          try {
-            String omexml = service.getOMEXML((MetadataRetrieve)store);
-            service.validateOMEXML(omexml);
-          } catch (ServiceException | NullPointerException e) {
-            LOGGER.warn("OMEXMLService unable to create OME-XML metadata object.", e);
+        for (int series=0; series<getSeriesCount(); series++) {
+          if (!isSeriesInitialized(series)) {
+            // added when the series is initialized
+            continue;
           }
+          setSeries(series);
+          MetadataTools.merge(getSeriesMetadata(), allMetadata,
+            getOriginalMetadataPrefix(store, series));
         }
+        setSeries(0);
 
-        for (int series=0; series<getSeriesCount(); series++) {
-          setSeries(series);
+        service.populateOriginalMetadata((OMEXMLMetadata) store, allMetadata);
+      }
+    }
 
-          if (getModuloZ().length() > 1 || getModuloC().length() > 1 ||
-            getModuloT().length() > 1)
-          {
-            service.addModuloAlong(
-              (OMEXMLMetadata) store, getCurrentCore(), series);
-          }
+    if (store instanceof OMEXMLMetadata) {
+      ((OMEXMLMetadata) store).resolveReferences();
+      setupService();
+
+      if (getMetadataOptions().isValidate()) {
+        try {
+          String omexml = service.getOMEXML((MetadataRetrieve)store);
+          service.validateOMEXML(omexml);
+        } catch (ServiceException | NullPointerException e) {
+          LOGGER.warn("OMEXMLService unable to create OME-XML metadata object.", e);
         }
-        setSeries(0);
+      }
+
+      for (int series=0; series<getSeriesCount(); series++) {
+        setSeries(series);
+
+        if (getModuloZ().length() > 1 || getModuloC().length() > 1 ||
+          getModuloT().length() > 1)
+        {
+          service.addModuloAlong(
+            (OMEXMLMetadata) store, getCurrentCore(), series);
+        }
+      }
+      setSeries(0);
+    }
+  }
+
+  /**
+   * Returns the prefix of the original metadata keys of the given series,
+   * which is the image name if there is one.
+   */
+  private String getOriginalMetadataPrefix(MetadataStore store, int series) {
+    String name = "Series " + series;
+    try {
+      String realName = ((IMetadata) store).getImageName(series);
+      if (realName != null && realName.trim().length() != 0) {
+        name = realName;
       }
     }
+    catch (Exception e) { }
+    return name + " ";
   }
 
   /** Initialize the OMEXMLService needed by {@link #setId(String)} */
@@ -36,6 +36,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.MalformedURLException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Properties;
 import java.util.Vector;
 import java.util.jar.Attributes;
@@ -1067,6 +1069,56 @@ public final class FormatTools {
     return w * h * r.getRGBChannelCount() * getBytesPerPixel(r.getPixelType());
   }
 
+  // -- Utility methods -- buffers
+
+  /**
+   * Obtains a sub-image into the given buffer using
+   * {@link IFormatReader#openBytes(int, byte[], int, int, int, int)}.
+   * Buffers for which {@link #isArrayBacked(ByteBuffer)} is true are filled
+   * in place; other buffers receive a copy of the decoded sub-image.
+   *
+   * @see IFormatReader#openBuffer(int, ByteBuffer, int, int, int, int)
+   */
+  public static ByteBuffer openBuffer(IFormatReader r, int no, ByteBuffer buf,
+    int x, int y, int w, int h) throws FormatException, IOException
+  {
+    if (buf == null) {
+      buf = ByteBuffer.wrap(r.openBytes(no, x, y, w, h));
+    }
+    else if (isArrayBacked(buf)) {
+      checkBufferSize(r, buf.remaining(), w, h);
+      r.openBytes(no, buf.array(), x, y, w, h);
+    }
+    else {
+      checkBufferSize(r, buf.remaining(), w, h);
+      byte[] plane = r.openBytes(no, x, y, w, h);
+      buf.duplicate().put(plane, 0, getPlaneSize(r, w, h));
+    }
+    return getBufferView(r, buf, w, h);
+  }
+
+  /**
+   * Returns true if the given buffer is writable and its current position is
+   * the start of its backing array, so that it can be passed to
+   * {@link IFormatReader#openBytes(int, byte[], int, int, int, int)}.
+   */
+  public static boolean isArrayBacked(ByteBuffer buf) {
+    return buf.hasArray() && buf.arrayOffset() + buf.position() == 0;
+  }
+
+  /**
+   * Returns a view of the w * h sub-image that starts at the current position
+   * of the given buffer, in the byte order of the given reader.
+   */
+  public static ByteBuffer getBufferView(IFormatReader r, ByteBuffer buf,
+    int w, int h)
+  {
+    ByteBuffer view = buf.duplicate();
+    view.limit(view.position() + getPlaneSize(r, w, h));
+    return view.slice().order(r.isLittleEndian() ?
+      ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+  }
+
   // -- Utility methods -- export
 
   public static String getTileFilename(int tileX, int tileY,
@@ -0,0 +1,388 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import loci.common.Constants;
+import loci.common.IRandomAccess;
+import loci.common.Location;
+import loci.common.RandomAccessInputStream;
+import loci.formats.in.DynamicMetadataOptions;
+import loci.formats.in.MetadataOptions;
+import loci.formats.remote.PageCache;
+import loci.formats.remote.RangeHandle;
+
+/**
+ * Pool of open streams for readers that read pixels from several files, or
+ * that open a new stream on each call to openBytes.
+ *
+ * A stream obtained from {@link #open(String, int, PageCache)} is returned
+ * to the pool when it is closed, rather than closing the underlying file,
+ * and is handed out again the next time the same file is opened.  A reused
+ * stream is left where it was last positioned, so that reading the next
+ * plane of a file often needs no I/O beyond what the stream has already
+ * buffered; callers must seek before reading.  Each pool
+ * keeps at most {@link #getMaxIdle()} idle streams, least recently used
+ * first out.  The number of files held open by all pools together is
+ * bounded by {@link #getGlobalLimit()}; beyond that, the least recently
+ * used idle stream of any pool is closed.
+ */
+public class HandlePool implements Closeable {
+
+  // -- Constants --
+
+  /** Option key for the number of idle streams kept open by each reader. */
+  public static final String MAX_IDLE_KEY = "handles.max_per_reader";
+  public static final int MAX_IDLE_DEFAULT = 8;
+
+  /** Default number of files held open by all pools together. */
+  public static final int GLOBAL_LIMIT_DEFAULT = 256;
+
+  // -- Static fields --
+
+  /** Guards the state of every pool. */
+  private static final Object LOCK = new Object();
+
+  /** Idle streams of every pool, least recently used first. */
+  private static final LinkedHashSet<PooledStream> IDLE =
+    new LinkedHashSet<PooledStream>();
+
+  private static int globalLimit = GLOBAL_LIMIT_DEFAULT;
+
+  /** Number of files held open by all pools, whether idle or in use. */
+  private static int openCount;
+
+  // -- Fields --
+
+  private final int maxIdle;
+
+  /** Idle streams of this pool keyed by file, least recently used first. */
+  private final LinkedHashMap<String, PooledStream> idle =
+    new LinkedHashMap<String, PooledStream>(16, 0.75f, true);
+
+  private boolean closed;
+
+  // -- Constructor --
+
+  /**
+   * Constructs an empty pool.
+   *
+   * @param maxIdle the maximum number of idle streams to keep open
+   */
+  public HandlePool(int maxIdle) {
+    this.maxIdle = Math.max(0, maxIdle);
+  }
+
+  // -- Static utility methods --
+
+  /**
+   * Constructs a pool configured by {@link #MAX_IDLE_KEY} in the given
+   * options.
+   */
+  public static HandlePool create(MetadataOptions options) {
+    int maxIdle = MAX_IDLE_DEFAULT;
+    if (options instanceof DynamicMetadataOptions) {
+      maxIdle = ((DynamicMetadataOptions) options).getInteger(
+        MAX_IDLE_KEY, MAX_IDLE_DEFAULT);
+    }
+    return new HandlePool(maxIdle);
+  }
+
+  /** Returns the maximum number of files held open by all pools together. */
+  public static int getGlobalLimit() {
+    synchronized (LOCK) {
+      return globalLimit;
+    }
+  }
+
+  /**
+   * Sets the number of files held open by all pools together.  Idle
+   * streams beyond the new limit are closed.  Streams that are in use are
+   * never closed, so the limit may be exceeded while they are.
+   */
+  public static void setGlobalLimit(int limit) throws IOException {
+    List<PooledStream> evicted;
+    synchronized (LOCK) {
+      globalLimit = Math.max(0, limit);
+      evicted = evict(0);
+    }
+    closeAll(evicted);
+  }
+
+  /** Returns the number of files held open by all pools together. */
+  public static int getOpenCount() {
+    synchronized (LOCK) {
+      return openCount;
+    }
+  }
+
+  // -- HandlePool API methods --
+
+  /** Returns the maximum number of idle streams kept open by this pool. */
+  public int getMaxIdle() {
+    return maxIdle;
+  }
+
+  /** Returns the number of idle streams held by this pool. */
+  public int getIdleCount() {
+    synchronized (LOCK) {
+      return idle.size();
+    }
+  }
+
+  /**
+   * Returns an idle stream on the given file, or null if this pool does not
+   * hold one.  The stream is prepared as by
+   * {@link #open(String, int, PageCache)}.
+   */
+  public RandomAccessInputStream reuse(String id) throws IOException {
+    synchronized (LOCK) {
+      return closed ? null : take(id);
+    }
+  }
+
+  /**
+   * Returns a stream on the given file, reusing an idle stream if there is
+   * one.  The stream is big-endian, as a newly opened stream would be, but
+   * a reused stream is not repositioned.  Closing it returns it to the
+   * pool.
+   *
+   * @param id the file to open
+   * @param bufferSize the buffer size of a newly opened stream, or 0 for
+   *                   the default size
+   * @param cache the cache through which a newly opened stream should read,
+   *              or null to read the file directly
+   */
+  public RandomAccessInputStream open(String id, int bufferSize,
+    PageCache cache) throws IOException
+  {
+    List<PooledStream> evicted;
+    synchronized (LOCK) {
+      if (!closed) {
+        PooledStream stream = take(id);
+        if (stream != null) {
+          return stream;
+        }
+      }
+      evicted = evict(1);
+      openCount++;
+    }
+    closeAll(evicted);
+
+    IRandomAccess handle = null;
+    try {
+      if (cache != null) {
+        handle = RangeHandle.open(id, cache);
+      }
+      else if (bufferSize > 0) {
+        handle = Location.getHandle(id, false, true, bufferSize);
+      }
+      else {
+        handle = Location.getHandle(id);
+      }
+      return new PooledStream(this, handle, id);
+    }
+    catch (IOException | RuntimeException e) {
+      synchronized (LOCK) {
+        openCount--;
+      }
+      if (handle != null) {
+        handle.close();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Closes the idle streams of this pool.  Streams that are in use are
+   * closed when they are returned.
+   */
+  @Override
+  public void close() throws IOException {
+    List<PooledStream> evicted = new ArrayList<PooledStream>();
+    synchronized (LOCK) {
+      closed = true;
+      for (PooledStream stream : idle.values()) {
+        IDLE.remove(stream);
+        evicted.add(stream);
+      }
+      idle.clear();
+    }
+    closeAll(evicted);
+  }
+
+  // -- Helper methods --
+
+  /**
+   * Removes and prepares the idle stream on the given file, if any.
+   * Must be called while holding the lock.
+   */
+  private PooledStream take(String id) throws IOException {
+    PooledStream stream = idle.remove(id);
+    if (stream != null) {
+      IDLE.remove(stream);
+      stream.idle = false;
+      stream.prepare();
+    }
+    return stream;
+  }
+
+  /**
+   * Returns a stream to the pool.  The stream is closed instead if the pool
+   * has been closed or already has an idle stream on the same file.
+   */
+  private void release(PooledStream stream) throws IOException {
+    List<PooledStream> evicted = new ArrayList<PooledStream>();
+    synchronized (LOCK) {
+      if (closed || maxIdle == 0 || idle.containsKey(stream.getFile())) {
+        evicted.add(stream);
+      }
+      else {
+        stream.idle = true;
+        idle.put(stream.getFile(), stream);
+        IDLE.add(stream);
+        if (idle.size() > maxIdle) {
+          Iterator<PooledStream> eldest = idle.values().iterator();
+          PooledStream s = eldest.next();
+          eldest.remove();
+          IDLE.remove(s);
+          evicted.add(s);
+        }
+        evicted.addAll(evict(0));
+      }
+    }
+    closeAll(evicted);
+  }
+
+  /**
+   * Removes the least recently used idle streams of all pools until the
+   * given number of additional files can be opened within the global limit.
+   * Must be called while holding the lock; the streams that are returned
+   * must then be closed.
+   */
+  private static List<PooledStream> evict(int needed) {
+    List<PooledStream> evicted = new ArrayList<PooledStream>();
+    Iterator<PooledStream> eldest = IDLE.iterator();
+    while (openCount + needed - evicted.size() > globalLimit &&
+      eldest.hasNext())
+    {
+      PooledStream stream = eldest.next();
+      eldest.remove();
+      stream.pool.idle.remove(stream.getFile());
+      evicted.add(stream);
+    }
+    return evicted;
+  }
+
+  /** Closes the underlying files of the given streams. */
+  private static void closeAll(List<PooledStream> streams) throws IOException {
+    IOException failure = null;
+    for (PooledStream stream : streams) {
+      try {
+        stream.closeHandle();
+      }
+      catch (IOException e) {
+        failure = e;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  // -- Helper classes --
+
+  /** Stream that is returned to its pool when closed. */
+  private static class PooledStream extends RandomAccessInputStream {
+
+    private final HandlePool pool;
+
+    /** True if this stream is held by the pool rather than a caller. */
+    private boolean idle;
+
+    private boolean handleClosed;
+
+    PooledStream(HandlePool pool, IRandomAccess handle, String id)
+      throws IOException
+    {
+      super(handle, id);
+      this.pool = pool;
+    }
+
+    String getFile() {
+      return file;
+    }
+
+    /**
+     * Restores the byte order and encoding of a newly opened stream.
+     * The file pointer is left alone, since seeking outside the buffered
+     * part of the file would read a new buffer that the caller is likely
+     * to discard at its own seek.
+     */
+    void prepare() throws IOException {
+      order(false);
+      setEncoding(Constants.ENCODING);
+    }
+
+    void closeHandle() throws IOException {
+      synchronized (LOCK) {
+        if (handleClosed) {
+          return;
+        }
+        handleClosed = true;
+        openCount--;
+      }
+      super.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+      synchronized (LOCK) {
+        if (idle || handleClosed) {
+          return;
+        }
+      }
+      pool.release(this);
+    }
+
+  }
+
+}
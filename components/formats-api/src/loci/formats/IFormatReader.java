@@ -33,6 +33,7 @@
 package loci.formats;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Hashtable;
 import java.util.List;
 
@@ -284,6 +285,43 @@ public interface IFormatReader extends IFormatHandler, IPyramidHandler {
   byte[] openBytes(int no, byte[] buf, int x, int y, int w, int h)
     throws FormatException, IOException;
 
+  /**
+   * Obtains the specified image plane into a buffer.
+   * @see #openBuffer(int, ByteBuffer, int, int, int, int)
+   */
+  ByteBuffer openBuffer(int no, ByteBuffer buf)
+    throws FormatException, IOException;
+
+  /**
+   * Obtains a sub-image of the specified image plane into a heap or direct
+   * buffer, without the intermediate byte array copies of
+   * {@link #openBytes(int, byte[], int, int, int, int)}.
+   *
+   * The pixels are written starting at the current position of
+   * <code>buf</code>, which is left unchanged.  The returned buffer is a view
+   * of exactly the requested sub-image whose byte order matches
+   * {@link #isLittleEndian()}; the remaining layout (pixel type, RGB channel
+   * count and interleaving) is that described by this reader.
+   *
+   * If <code>buf</code> is null, the returned buffer may be a read-only view
+   * of memory owned by the reader, which is only valid until the next call
+   * to this reader.
+   *
+   * @param no the image index within the file.
+   * @param buf a pre-allocated buffer with at least
+   *   (w * h * bytesPerPixel * RGB channel count) bytes remaining, or null.
+   * @param x X coordinate of the upper-left corner of the sub-image
+   * @param y Y coordinate of the upper-left corner of the sub-image
+   * @param w width of the sub-image
+   * @param h height of the sub-image
+   * @return a view of the sub-image.
+   * @throws FormatException if there was a problem parsing the metadata of the
+   *   file, or if <code>buf</code> is too small.
+   * @throws IOException if there was a problem reading the file.
+   */
+  ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y, int w, int h)
+    throws FormatException, IOException;
+
   /**
    * Obtains the specified image plane (or sub-image thereof) in the reader's
    * native data structure. For most readers this is a byte array; however,
@@ -634,4 +672,45 @@ public interface IFormatReader extends IFormatHandler, IPyramidHandler {
    * called, but close(false) has not been called.
    */
   void reopenFile() throws IOException;
+
+  /**
+   * Creates a new reader that is initialized to the same file as this one.
+   * The copy shares all parsed metadata (core metadata, original metadata,
+   * the MetadataStore and any format-specific structures such as IFD
+   * lists) with this reader, but has its own open files and its own
+   * current series and resolution.  This allows a single call to
+   * {@link #setId} to be shared by one reader per thread.
+   *
+   * If {@link #setId} has not been called, the copy is an uninitialized
+   * reader with the same configuration.
+   *
+   * The copy must be closed independently of this reader, and neither
+   * reader should be reinitialized with a different file while the other
+   * is still in use.
+   *
+   * Copying an initialized reader is only supported by readers that are
+   * known to replace all of their per-file state in the copy; callers
+   * should be prepared to fall back to a single reader when a
+   * FormatException is thrown.
+   *
+   * @throws FormatException if this reader cannot be copied
+   */
+  IFormatReader copy() throws FormatException, IOException;
+
+  /**
+   * Creates a copy of this reader, as {@link #copy()} does, that reads
+   * pixels from the given file instead of the current file, without
+   * calling {@link #setId} on it.  The given file must have exactly the
+   * same structure as the current file, e.g. another file of a pattern
+   * written by the same acquisition; the copy shares this reader's
+   * metadata, which is not checked against the given file.
+   *
+   * This is only supported by readers that read all pixels from their
+   * current file alone; callers should be prepared to fall back to
+   * calling {@link #setId} on a new reader when a FormatException is
+   * thrown.
+   *
+   * @throws FormatException if this reader cannot be copied to another file
+   */
+  IFormatReader copy(String id) throws FormatException, IOException;
 }
@@ -34,6 +34,7 @@ package loci.formats;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -47,6 +48,7 @@ import loci.formats.in.MetadataLevel;
 import loci.formats.in.MetadataOptions;
 import loci.formats.in.DynamicMetadataOptions;
 import loci.formats.meta.MetadataStore;
+import loci.formats.remote.RangeHandle;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,7 +60,7 @@ import org.slf4j.LoggerFactory;
  *
  * @author Curtis Rueden ctrueden at wisc.edu
  */
-public class ImageReader implements IFormatReader {
+public class ImageReader implements IFormatReader, Cloneable {
 
   // -- Constants --
 
@@ -106,6 +108,9 @@ public class ImageReader implements IFormatReader {
 
   private boolean allowOpen = true;
 
+  /** Id that was mapped to a {@link RangeHandle} during type detection. */
+  private String mappedId;
+
   // -- Constructors --
 
   /**
@@ -171,6 +176,19 @@ public class ImageReader implements IFormatReader {
    // blacklist temporary files that are being copied e.g. by WinSCP
    boolean invalid = id != null && id.toLowerCase().endsWith(".filepart");
 
+   if (!id.equals(currentId)) {
+     if (mappedId != null) {
+       RangeHandle.unmap(mappedId);
+       mappedId = null;
+     }
+     if (!invalid && RangeHandle.isEnabled(getMetadataOptions()) &&
+       RangeHandle.map(id))
+     {
+       // share one block cache between type detection and the reader
+       mappedId = id;
+     }
+   }
+
    // NB: Check that we can generate a valid handle for the ID;
    // e.g., for files, this will throw an exception if the file is missing.
    if (!fake && !omero) {
@@ -194,6 +212,10 @@ public class ImageReader implements IFormatReader {
         }
       }
       if (!success) {
+        if (mappedId != null) {
+          RangeHandle.unmap(mappedId);
+          mappedId = null;
+        }
         throw new UnknownFormatException("Unknown file format: " + id);
       }
     }
@@ -460,6 +482,22 @@ public class ImageReader implements IFormatReader {
     return getReader().openBytes(no, buf, x, y, w, h);
   }
 
+  /* @see IFormatReader#openBuffer(int, ByteBuffer) */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf)
+    throws FormatException, IOException
+  {
+    return getReader().openBuffer(no, buf);
+  }
+
+  /* @see IFormatReader#openBuffer(int, ByteBuffer, int, int, int, int) */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    return getReader().openBuffer(no, buf, x, y, w, h);
+  }
+
   /* @see IFormatReader#openPlane(int, int, int, int, int) */
   @Override
   public Object openPlane(int no, int x, int y, int w, int h)
@@ -586,7 +624,26 @@ public class ImageReader implements IFormatReader {
   @Override
   public void close(boolean fileOnly) throws IOException {
     for (int i=0; i<readers.length; i++) readers[i].close(fileOnly);
-    if (!fileOnly) currentId = null;
+    if (!fileOnly) {
+      currentId = null;
+      if (mappedId != null) {
+        RangeHandle.unmap(mappedId);
+        mappedId = null;
+      }
+    }
+  }
+
+  /* @see IFormatReader#copy() */
+  @Override
+  public IFormatReader copy() throws FormatException, IOException {
+    return copy(currentId, false);
+  }
+
+  /* @see IFormatReader#copy(String) */
+  @Override
+  public IFormatReader copy(String id) throws FormatException, IOException {
+    FormatTools.assertId(currentId, true, 1);
+    return copy(id, true);
   }
 
   /* @see IFormatReader#setGroupFiles(boolean) */
@@ -852,4 +909,46 @@ public class ImageReader implements IFormatReader {
   @Override
   public void close() throws IOException { close(false); }
 
+  // -- Helper methods --
+
+  /**
+   * Copies this reader and each of its readers, with the current reader
+   * reading the given file if swap is set.
+   */
+  private ImageReader copy(String id, boolean swap)
+    throws FormatException, IOException
+  {
+    ImageReader copy;
+    try {
+      copy = (ImageReader) clone();
+    }
+    catch (CloneNotSupportedException e) {
+      throw new FormatException(e);
+    }
+    copy.mappedId = null;
+    copy.readers = new IFormatReader[readers.length];
+    for (int i=0; i<readers.length; i++) {
+      if (i != current && readers[i].getCurrentFile() != null) {
+        // don't reopen files that were left open by a previous setId call
+        try {
+          copy.readers[i] =
+            readers[i].getClass().getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException exc) {
+          throw new FormatException(exc);
+        }
+        copy.readers[i].setMetadataOptions(readers[i].getMetadataOptions());
+      }
+      else if (swap && i == current) {
+        copy.readers[i] = readers[i].copy(id);
+      }
+      else {
+        copy.readers[i] = readers[i].copy();
+      }
+    }
+    // the current reader was chosen for this file, so skip type detection
+    copy.currentId = id;
+    return copy;
+  }
+
 }
@@ -0,0 +1,307 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import loci.formats.in.DynamicMetadataOptions;
+import loci.formats.in.MetadataOptions;
+
+/**
+ * Periodic checkpoints of fully reconstructed frames for readers of
+ * delta-coded video, in which each frame is decoded relative to the one
+ * before it.
+ *
+ * Every {@link #getInterval()}th frame is kept, so that any frame can be
+ * reached by decoding at most that many deltas from the nearest checkpoint
+ * instead of replaying the stream from the first frame.  Checkpoints are held
+ * in memory up to a budget in bytes.  Beyond that they are either written to
+ * a temporary file, if spilling is enabled, or thinned out by doubling the
+ * interval.
+ */
+public class KeyframeCache implements Closeable {
+
+  // -- Constants --
+
+  /** Option key for the number of frames between checkpoints. */
+  public static final String INTERVAL_KEY = "video.keyframe_interval";
+  public static final int INTERVAL_DEFAULT = 32;
+
+  /** Option key for the number of bytes of checkpoints held in memory. */
+  public static final String MAX_BYTES_KEY = "video.keyframe_max_bytes";
+  public static final long MAX_BYTES_DEFAULT = 64L * 1024 * 1024;
+
+  /** Option key used to spill checkpoints beyond the budget to disk. */
+  public static final String SPILL_KEY = "video.keyframe_spill";
+  public static final boolean SPILL_DEFAULT = false;
+
+  // -- Fields --
+
+  private int interval;
+
+  private final long maxBytes;
+
+  private final boolean spill;
+
+  private final TreeMap<Integer, Entry> frames = new TreeMap<Integer, Entry>();
+
+  private long memoryBytes;
+
+  private File spillFile;
+
+  private RandomAccessFile spillData;
+
+  // -- Constructor --
+
+  /**
+   * Constructs an empty cache.
+   *
+   * @param interval the number of frames between checkpoints
+   * @param maxBytes the maximum number of bytes of checkpoints to hold in
+   *                 memory
+   * @param spill true if checkpoints beyond the budget should be written to
+   *              a temporary file rather than dropped
+   */
+  public KeyframeCache(int interval, long maxBytes, boolean spill) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Invalid interval: " + interval);
+    }
+    this.interval = interval;
+    this.maxBytes = maxBytes;
+    this.spill = spill;
+  }
+
+  // -- Static utility methods --
+
+  /**
+   * Constructs a cache configured by {@link #INTERVAL_KEY},
+   * {@link #MAX_BYTES_KEY} and {@link #SPILL_KEY} in the given options.
+   */
+  public static KeyframeCache create(MetadataOptions options) {
+    return create(options, INTERVAL_DEFAULT);
+  }
+
+  /**
+   * Constructs a cache configured by the given options, using the given
+   * number of frames between checkpoints if {@link #INTERVAL_KEY} is not set.
+   * Readers whose frames are small may use a shorter default interval.
+   */
+  public static KeyframeCache create(MetadataOptions options,
+    int defaultInterval)
+  {
+    int interval = defaultInterval;
+    long maxBytes = MAX_BYTES_DEFAULT;
+    boolean spill = SPILL_DEFAULT;
+    if (options instanceof DynamicMetadataOptions) {
+      DynamicMetadataOptions dynamic = (DynamicMetadataOptions) options;
+      interval = dynamic.getInteger(INTERVAL_KEY, defaultInterval);
+      maxBytes = dynamic.getLong(MAX_BYTES_KEY, MAX_BYTES_DEFAULT);
+      spill = dynamic.getBoolean(SPILL_KEY, SPILL_DEFAULT);
+    }
+    return new KeyframeCache(Math.max(1, interval), maxBytes, spill);
+  }
+
+  // -- KeyframeCache API methods --
+
+  /**
+   * Returns the number of frames between checkpoints.  This grows if
+   * checkpoints are thinned out to stay within the memory budget.
+   */
+  public synchronized int getInterval() {
+    return interval;
+  }
+
+  /** Returns true if the given frame should be stored as a checkpoint. */
+  public synchronized boolean isCheckpoint(int frame) {
+    return frame % interval == 0 && !frames.containsKey(frame);
+  }
+
+  /**
+   * Stores a copy of the given fully reconstructed frame.
+   * Frames that are not checkpoints are ignored.
+   */
+  public synchronized void put(int frame, byte[] data) throws IOException {
+    if (data == null || !isCheckpoint(frame)) {
+      return;
+    }
+    while (memoryBytes + data.length > maxBytes) {
+      if (spill) {
+        frames.put(frame, writeSpill(data));
+        return;
+      }
+      if (!thin()) {
+        return;
+      }
+      if (frame % interval != 0) {
+        return;
+      }
+    }
+    frames.put(frame, new Entry(data.clone()));
+    memoryBytes += data.length;
+  }
+
+  /**
+   * Returns the frame from which the given frame should be reached: either
+   * the decoder's current frame, or the nearest checkpoint at or before the
+   * given frame, whichever is closer.  Returns -1 if decoding must start
+   * from the beginning of the stream.
+   *
+   * @param frame the frame that is needed
+   * @param current the frame that the decoder last reconstructed, or -1
+   */
+  public synchronized int nearest(int frame, int current) {
+    Integer checkpoint = frames.floorKey(frame);
+    int start = checkpoint == null ? -1 : checkpoint;
+    if (current <= frame && current >= start) {
+      return current;
+    }
+    return start;
+  }
+
+  /**
+   * Returns a copy of the given checkpoint, or null if it is not stored.
+   */
+  public synchronized byte[] get(int frame) throws IOException {
+    Entry entry = frames.get(frame);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.data != null) {
+      return entry.data.clone();
+    }
+    byte[] data = new byte[entry.length];
+    spillData.seek(entry.offset);
+    spillData.readFully(data);
+    return data;
+  }
+
+  /** Returns the number of stored checkpoints. */
+  public synchronized int size() {
+    return frames.size();
+  }
+
+  /** Returns the number of bytes of checkpoints held in memory. */
+  public synchronized long getMemoryBytes() {
+    return memoryBytes;
+  }
+
+  /** Removes all checkpoints. */
+  public synchronized void clear() throws IOException {
+    frames.clear();
+    memoryBytes = 0;
+    if (spillData != null) {
+      spillData.setLength(0);
+    }
+  }
+
+  // -- Closeable API methods --
+
+  /** Removes all checkpoints and deletes the spill file, if any. */
+  @Override
+  public synchronized void close() throws IOException {
+    frames.clear();
+    memoryBytes = 0;
+    if (spillData != null) {
+      spillData.close();
+      spillData = null;
+    }
+    if (spillFile != null) {
+      spillFile.delete();
+      spillFile = null;
+    }
+  }
+
+  // -- Helper methods --
+
+  /**
+   * Doubles the interval and drops the checkpoints that no longer fall on
+   * it.  Returns false if there is nothing left to drop.
+   */
+  private boolean thin() {
+    if (frames.isEmpty() || interval > Integer.MAX_VALUE / 2) {
+      return false;
+    }
+    interval *= 2;
+    Iterator<Map.Entry<Integer, Entry>> it = frames.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Integer, Entry> e = it.next();
+      if (e.getKey() % interval != 0) {
+        if (e.getValue().data != null) {
+          memoryBytes -= e.getValue().length;
+        }
+        it.remove();
+      }
+    }
+    return true;
+  }
+
+  private Entry writeSpill(byte[] data) throws IOException {
+    if (spillData == null) {
+      spillFile = File.createTempFile("keyframes", ".tmp");
+      spillFile.deleteOnExit();
+      spillData = new RandomAccessFile(spillFile, "rw");
+    }
+    long offset = spillData.length();
+    spillData.seek(offset);
+    spillData.write(data);
+    return new Entry(offset, data.length);
+  }
+
+  // -- Helper classes --
+
+  /** A checkpoint held either in memory or in the spill file. */
+  private static class Entry {
+    final byte[] data;
+    final long offset;
+    final int length;
+
+    Entry(byte[] data) {
+      this.data = data;
+      this.offset = -1;
+      this.length = data.length;
+    }
+
+    Entry(long offset, int length) {
+      this.data = null;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable copy of a single metric recorded by {@link ReaderMetrics}.
+ */
+public class MetricSnapshot {
+
+  // -- Fields --
+
+  private final long count;
+  private final long bytes;
+  private final long totalNanos;
+  private final long maxNanos;
+  private final long[] histogram;
+
+  // -- Constructor --
+
+  @ConstructorProperties({"count", "bytes", "totalNanos", "maxNanos",
+    "histogram"})
+  public MetricSnapshot(long count, long bytes, long totalNanos,
+    long maxNanos, long[] histogram)
+  {
+    this.count = count;
+    this.bytes = bytes;
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+    this.histogram = histogram.clone();
+  }
+
+  // -- MetricSnapshot API methods --
+
+  /** Gets the number of recorded calls. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Gets the total number of bytes processed by all recorded calls. */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /** Gets the total time spent in all recorded calls, in nanoseconds. */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /** Gets the time spent in the slowest recorded call, in nanoseconds. */
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  /** Gets the mean time per call, in nanoseconds. */
+  public double getMeanNanos() {
+    return count == 0 ? 0 : (double) totalNanos / count;
+  }
+
+  /** Gets the throughput of all recorded calls, in bytes per second. */
+  public double getBytesPerSecond() {
+    return totalNanos == 0 ? 0 : bytes * 1e9 / totalNanos;
+  }
+
+  /**
+   * Gets the latency histogram.  Element <code>i</code> is the number of
+   * calls that took less than <code>2^i</code> microseconds (and at least
+   * <code>2^(i-1)</code>); the last element also counts all slower calls.
+   */
+  public long[] getHistogram() {
+    return histogram.clone();
+  }
+
+  // -- Object API methods --
+
+  @Override
+  public String toString() {
+    return String.format("count=%d bytes=%d total=%.3f ms mean=%.3f ms " +
+      "max=%.3f ms", count, bytes, totalNanos / 1e6, getMeanNanos() / 1e6,
+      maxNanos / 1e6);
+  }
+
+}
@@ -0,0 +1,257 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process-wide registry of timing and throughput metrics for readers,
+ * codecs and I/O.
+ *
+ * Each metric is identified by a name of the form
+ * <code>Source.operation</code>, e.g. <code>TiffReader.openBytes</code>,
+ * <code>TiffParser.read</code> or <code>TiffCompression.LZW.decompress</code>,
+ * and records a call count, a byte count and a latency histogram.
+ *
+ * The hooks in {@link FormatReader} and the TIFF classes only record
+ * when collection has been enabled via {@link #setEnabled(boolean)};
+ * when disabled, the only overhead is a volatile read per call.
+ *
+ * @see MetricSnapshot
+ */
+public final class ReaderMetrics {
+
+  // -- Constants --
+
+  private static final Logger LOGGER =
+    LoggerFactory.getLogger(ReaderMetrics.class);
+
+  /** Name under which the metrics are registered with JMX. */
+  public static final String OBJECT_NAME = "loci.formats:type=ReaderMetrics";
+
+  /**
+   * Number of latency histogram buckets.  Bucket <code>i</code> counts
+   * calls that took less than <code>2^i</code> microseconds; the last
+   * bucket also counts all slower calls.
+   */
+  public static final int HISTOGRAM_BUCKETS = 32;
+
+  // -- Static fields --
+
+  private static volatile boolean enabled = false;
+
+  private static final ConcurrentHashMap<String, Metric> METRICS =
+    new ConcurrentHashMap<String, Metric>();
+
+  // -- Constructor --
+
+  private ReaderMetrics() { }
+
+  // -- ReaderMetrics API methods --
+
+  /** Sets whether the built-in hooks should record metrics. */
+  public static void setEnabled(boolean enable) {
+    enabled = enable;
+  }
+
+  /** Returns true if the built-in hooks are recording metrics. */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns a start time for a call to be passed to
+   * {@link #record(String, String, long, long)},
+   * or -1 if metrics are not being collected.
+   */
+  public static long start() {
+    return enabled ? System.nanoTime() : -1;
+  }
+
+  /**
+   * Records a completed call.
+   *
+   * @param source the class whose simple name identifies the metric
+   * @param operation the operation that was performed
+   * @param start the value returned by {@link #start()} before the call,
+   *   or -1 if nothing should be recorded
+   * @param bytes the number of bytes read, decoded or copied by the call
+   */
+  public static void record(Class<?> source, String operation, long start,
+    long bytes)
+  {
+    if (start < 0) return;
+    record(source.getSimpleName(), operation, start, bytes);
+  }
+
+  /**
+   * Records a completed call.
+   *
+   * @param source the reader, codec or stream that performed the call
+   * @param operation the operation that was performed
+   * @param start the value returned by {@link #start()} before the call,
+   *   or -1 if nothing should be recorded
+   * @param bytes the number of bytes read, decoded or copied by the call
+   */
+  public static void record(String source, String operation, long start,
+    long bytes)
+  {
+    if (start < 0) return;
+    long elapsed = System.nanoTime() - start;
+    String name = source + "." + operation;
+    Metric metric = METRICS.get(name);
+    if (metric == null) {
+      metric = new Metric();
+      Metric existing = METRICS.putIfAbsent(name, metric);
+      if (existing != null) metric = existing;
+    }
+    metric.add(elapsed, bytes);
+  }
+
+  /** Returns a copy of all metrics recorded so far, sorted by name. */
+  public static Map<String, MetricSnapshot> snapshot() {
+    Map<String, MetricSnapshot> snapshot =
+      new TreeMap<String, MetricSnapshot>();
+    for (Map.Entry<String, Metric> entry : METRICS.entrySet()) {
+      snapshot.put(entry.getKey(), entry.getValue().snapshot());
+    }
+    return snapshot;
+  }
+
+  /** Discards all metrics recorded so far. */
+  public static void reset() {
+    METRICS.clear();
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server under
+   * {@link #OBJECT_NAME}, if they are not already registered.
+   */
+  public static synchronized void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(new MXBean(), name);
+      }
+    }
+    catch (JMException e) {
+      LOGGER.warn("Could not register metrics MBean", e);
+    }
+  }
+
+  /** Removes the metrics from the platform MBean server. */
+  public static synchronized void unregisterMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    }
+    catch (JMException e) {
+      LOGGER.warn("Could not unregister metrics MBean", e);
+    }
+  }
+
+  // -- Helper classes --
+
+  /** Running totals for a single metric. */
+  private static class Metric {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram =
+      new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    void add(long elapsed, long byteCount) {
+      count.increment();
+      bytes.add(byteCount);
+      totalNanos.add(elapsed);
+      long max = maxNanos.get();
+      while (elapsed > max && !maxNanos.compareAndSet(max, elapsed)) {
+        max = maxNanos.get();
+      }
+      long micros = elapsed / 1000;
+      int bucket = 64 - Long.numberOfLeadingZeros(micros);
+      histogram.incrementAndGet(Math.min(bucket, HISTOGRAM_BUCKETS - 1));
+    }
+
+    MetricSnapshot snapshot() {
+      long[] buckets = new long[HISTOGRAM_BUCKETS];
+      for (int i=0; i<buckets.length; i++) {
+        buckets[i] = histogram.get(i);
+      }
+      return new MetricSnapshot(count.sum(), bytes.sum(), totalNanos.sum(),
+        maxNanos.get(), buckets);
+    }
+  }
+
+  /** JMX view of the metrics. */
+  private static class MXBean implements ReaderMetricsMXBean {
+    @Override
+    public boolean isEnabled() {
+      return ReaderMetrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enable) {
+      ReaderMetrics.setEnabled(enable);
+    }
+
+    @Override
+    public Map<String, MetricSnapshot> getMetrics() {
+      return snapshot();
+    }
+
+    @Override
+    public void reset() {
+      ReaderMetrics.reset();
+    }
+  }
+
+}
@@ -34,6 +34,7 @@ package loci.formats;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
@@ -48,7 +49,7 @@ import loci.formats.meta.MetadataStore;
  * Abstract superclass of reader logic that wraps other readers.
  * All methods are simply delegated to the wrapped reader.
  */
-public abstract class ReaderWrapper implements IFormatReader {
+public abstract class ReaderWrapper implements IFormatReader, Cloneable {
 
   // -- Fields --
 
@@ -348,6 +349,27 @@ public abstract class ReaderWrapper implements IFormatReader {
     return reader.openBytes(no, buf, x, y, w, h);
   }
 
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf)
+    throws FormatException, IOException
+  {
+    return openBuffer(no, buf, 0, 0, getSizeX(), getSizeY());
+  }
+
+  /**
+   * Obtains the sub-image through
+   * {@link #openBytes(int, byte[], int, int, int, int)}, so that wrappers
+   * which transform the pixels need not implement this method.  Wrappers
+   * which pass the pixels through unchanged should override it to forward
+   * to the wrapped reader.
+   */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    return FormatTools.openBuffer(this, no, buf, x, y, w, h);
+  }
+
   @Override
   public Object openPlane(int no, int x, int y, int w, int h)
     throws FormatException, IOException
@@ -365,6 +387,49 @@ public abstract class ReaderWrapper implements IFormatReader {
     reader.close(fileOnly);
   }
 
+  /**
+   * Copies this wrapper around a copy of the wrapped reader.
+   * Subclasses that cache pixel data or other per-reader state should
+   * override this method to reset that state in the copy.
+   *
+   * @see IFormatReader#copy()
+   */
+  @Override
+  public IFormatReader copy() throws FormatException, IOException {
+    ReaderWrapper copy;
+    try {
+      copy = (ReaderWrapper) clone();
+    }
+    catch (CloneNotSupportedException e) {
+      throw new FormatException(e);
+    }
+    copy.reader = reader.copy();
+    return copy;
+  }
+
+  /**
+   * Copies this wrapper, as {@link #copy()} does, around a copy of the
+   * wrapped reader that reads the given file.
+   *
+   * @see IFormatReader#copy(String)
+   */
+  @Override
+  public IFormatReader copy(String id) throws FormatException, IOException {
+    IFormatReader swapped = reader.copy(id);
+    ReaderWrapper copy;
+    try {
+      copy = (ReaderWrapper) copy();
+    }
+    catch (FormatException | IOException e) {
+      swapped.close();
+      throw e;
+    }
+    // replace the copy of the current file
+    copy.reader.close();
+    copy.reader = swapped;
+    return copy;
+  }
+
   @Override
   public int getSeriesCount() {
     return reader.getSeriesCount();
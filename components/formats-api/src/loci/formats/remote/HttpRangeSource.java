@@ -0,0 +1,157 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.remote;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicLong;
+
+import loci.formats.ReaderMetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RangeSource} that reads byte ranges of a file over HTTP(S),
+ * one <code>Range</code> request per call to
+ * {@link #read(long, byte[], int, int)}.
+ */
+public class HttpRangeSource implements RangeSource {
+
+  // -- Constants --
+
+  private static final Logger LOGGER =
+    LoggerFactory.getLogger(HttpRangeSource.class);
+
+  private static final int TIMEOUT = 30000;
+
+  // -- Fields --
+
+  private final URL url;
+
+  private volatile long length = -1;
+
+  private final AtomicLong requests = new AtomicLong();
+
+  // -- Constructor --
+
+  public HttpRangeSource(String url) throws IOException {
+    this.url = new URL(url);
+  }
+
+  // -- HttpRangeSource API methods --
+
+  /** Returns the number of range requests issued so far. */
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  // -- RangeSource API methods --
+
+  @Override
+  public long length() throws IOException {
+    if (length < 0) {
+      HttpURLConnection conn = open();
+      try {
+        conn.setRequestMethod("HEAD");
+        check(conn, HttpURLConnection.HTTP_OK);
+        length = conn.getContentLengthLong();
+      }
+      finally {
+        conn.disconnect();
+      }
+      if (length < 0) {
+        throw new IOException("No Content-Length for " + url);
+      }
+    }
+    return length;
+  }
+
+  @Override
+  public void read(long offset, byte[] buf, int off, int len)
+    throws IOException
+  {
+    if (len == 0) return;
+    long start = ReaderMetrics.start();
+    requests.incrementAndGet();
+    LOGGER.trace("GET {} bytes={}-{}", url, offset, offset + len - 1);
+    HttpURLConnection conn = open();
+    try {
+      conn.setRequestProperty("Range",
+        "bytes=" + offset + "-" + (offset + len - 1));
+      check(conn, HttpURLConnection.HTTP_PARTIAL);
+      try (InputStream s = conn.getInputStream()) {
+        int n = 0;
+        while (n < len) {
+          int r = s.read(buf, off + n, len - n);
+          if (r < 0) {
+            throw new EOFException("Expected " + len + " bytes at " + offset +
+              " from " + url + ", got " + n);
+          }
+          n += r;
+        }
+      }
+    }
+    finally {
+      conn.disconnect();
+    }
+    ReaderMetrics.record(HttpRangeSource.class, "read", start, len);
+  }
+
+  @Override
+  public void close() {
+  }
+
+  // -- Helper methods --
+
+  private HttpURLConnection open() throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    conn.setConnectTimeout(TIMEOUT);
+    conn.setReadTimeout(TIMEOUT);
+    return conn;
+  }
+
+  private void check(HttpURLConnection conn, int expected) throws IOException {
+    int code = conn.getResponseCode();
+    if (code != expected) {
+      if (code == HttpURLConnection.HTTP_OK) {
+        throw new IOException(url + " does not support range requests");
+      }
+      throw new IOException("HTTP " + code + " for " + url);
+    }
+  }
+
+}
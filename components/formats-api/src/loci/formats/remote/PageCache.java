@@ -0,0 +1,204 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.remote;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import loci.formats.in.DynamicMetadataOptions;
+import loci.formats.in.MetadataOptions;
+
+/**
+ * LRU cache of fixed-size pages of file data, bounded in bytes.
+ *
+ * Pages are keyed by a file key and a page index.  The shared instance
+ * returned by {@link #getShared()} holds the pages of local files opened by
+ * readers for which {@link #PAGE_CACHE_KEY} is enabled, so every stream on
+ * a file reuses the pages read by the others, including streams that are
+ * opened and closed repeatedly while a dataset is initialized.
+ *
+ * @see RangeHandle
+ */
+public class PageCache {
+
+  // -- Constants --
+
+  /** Option key used to enable reading local files through the cache. */
+  public static final String PAGE_CACHE_KEY = "cache.pages";
+  public static final boolean PAGE_CACHE_DEFAULT = false;
+
+  /** Default size in bytes of a page. */
+  public static final int DEFAULT_PAGE_SIZE = 16384;
+
+  /** Default maximum number of bytes held by the shared cache. */
+  public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  // -- Static fields --
+
+  private static PageCache shared;
+
+  // -- Fields --
+
+  private final int pageSize;
+
+  private final long maxBytes;
+
+  private final LinkedHashMap<Page, byte[]> pages =
+    new LinkedHashMap<Page, byte[]>(16, 0.75f, true);
+
+  private long cachedBytes;
+
+  // -- Constructor --
+
+  /**
+   * Constructs an empty cache.
+   *
+   * @param pageSize the size in bytes of each page
+   * @param maxBytes the maximum number of bytes to cache
+   */
+  public PageCache(int pageSize, long maxBytes) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Invalid page size: " + pageSize);
+    }
+    this.pageSize = pageSize;
+    this.maxBytes = maxBytes;
+  }
+
+  // -- Static utility methods --
+
+  /** Returns the cache shared by all readers, creating it if necessary. */
+  public static synchronized PageCache getShared() {
+    if (shared == null) {
+      shared = new PageCache(DEFAULT_PAGE_SIZE, DEFAULT_MAX_BYTES);
+    }
+    return shared;
+  }
+
+  /**
+   * Replaces the shared cache, e.g. to change the page or cache size.
+   * Handles that are already open keep using the previous cache.
+   */
+  public static synchronized void setShared(PageCache cache) {
+    shared = cache;
+  }
+
+  /**
+   * Returns true if reading through the shared cache is enabled by
+   * {@link #PAGE_CACHE_KEY} in the given options.
+   */
+  public static boolean isEnabled(MetadataOptions options) {
+    if (options instanceof DynamicMetadataOptions) {
+      return ((DynamicMetadataOptions) options).getBoolean(
+        PAGE_CACHE_KEY, PAGE_CACHE_DEFAULT);
+    }
+    return PAGE_CACHE_DEFAULT;
+  }
+
+  // -- PageCache API methods --
+
+  /** Returns the size in bytes of each page. */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /** Returns the maximum number of bytes held by this cache. */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /** Returns the number of bytes currently held by this cache. */
+  public synchronized long getCachedBytes() {
+    return cachedBytes;
+  }
+
+  /** Returns the given page, or null if it is not cached. */
+  public synchronized byte[] get(String file, long page) {
+    return pages.get(new Page(file, page));
+  }
+
+  /** Returns true if the given page is cached. */
+  public synchronized boolean contains(String file, long page) {
+    return pages.containsKey(new Page(file, page));
+  }
+
+  /**
+   * Adds a page, evicting the least recently used pages if the cache
+   * grows past its maximum size.
+   */
+  public synchronized void put(String file, long page, byte[] data) {
+    Page key = new Page(file, page);
+    byte[] old = pages.put(key, data);
+    cachedBytes += data.length - (old == null ? 0 : old.length);
+    Iterator<Map.Entry<Page, byte[]>> it = pages.entrySet().iterator();
+    while (cachedBytes > maxBytes && pages.size() > 1 && it.hasNext()) {
+      Map.Entry<Page, byte[]> eldest = it.next();
+      if (eldest.getKey().equals(key)) continue;
+      cachedBytes -= eldest.getValue().length;
+      it.remove();
+    }
+  }
+
+  /** Removes all pages. */
+  public synchronized void clear() {
+    pages.clear();
+    cachedBytes = 0;
+  }
+
+  // -- Helper classes --
+
+  private static final class Page {
+
+    private final String file;
+    private final long index;
+
+    Page(String file, long index) {
+      this.file = file;
+      this.index = index;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Page)) return false;
+      Page p = (Page) o;
+      return index == p.index && file.equals(p.file);
+    }
+
+    @Override
+    public int hashCode() {
+      return file.hashCode() * 31 + Long.hashCode(index);
+    }
+
+  }
+
+}
@@ -0,0 +1,743 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.remote;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import loci.common.IRandomAccess;
+import loci.common.Location;
+import loci.formats.in.DynamicMetadataOptions;
+import loci.formats.in.MetadataOptions;
+
+/**
+ * Read-only {@link IRandomAccess} over a {@link RangeSource}.
+ *
+ * The source is read in fixed-size blocks which are kept in a
+ * {@link PageCache}, either private to the handle or shared with other
+ * handles (see {@link #open(String, PageCache)}).  A read that misses the
+ * cache fetches all of the contiguous missing blocks it needs with a
+ * single range request, and
+ * sequential reads (e.g. header parsing) progressively read further ahead,
+ * up to {@link #MAX_READ_AHEAD} bytes.  Readers that know which byte
+ * ranges they are about to need can pass them to
+ * {@link #prefetch(long[], long[])}, which merges nearby ranges and fetches
+ * them with as few requests as possible.
+ *
+ * Handles returned by {@link #duplicate()} share the cache but have their
+ * own file pointer and byte order, so each thread should use its own.
+ *
+ * Remote files are mapped with {@link #map(String)}, after which
+ * <code>new RandomAccessInputStream(id)</code> uses the mapped handle.
+ * As with any handle registered through {@link Location#mapFile}, all
+ * streams opened on the same id then share a single file pointer.
+ */
+public class RangeHandle implements IRandomAccess {
+
+  // -- Constants --
+
+  /** Option key used to enable range-request reading of http(s) ids. */
+  public static final String RANGE_READ_KEY = "remote.range_read";
+  public static final boolean RANGE_READ_DEFAULT = false;
+
+  /** Default size in bytes of a cached block. */
+  public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+  /** Default maximum number of bytes held in the block cache. */
+  public static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+
+  /** Largest number of bytes fetched ahead of a sequential read. */
+  public static final int MAX_READ_AHEAD = 1024 * 1024;
+
+  /**
+   * Prefetched ranges separated by fewer than this many bytes are read
+   * with a single request.
+   */
+  public static final int MERGE_GAP = 65536;
+
+  // -- Fields --
+
+  private final Blocks blocks;
+
+  /** Whether closing this handle closes the source. */
+  private final boolean owner;
+
+  private long fp;
+
+  private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+  /** End of the previous read, used to detect sequential access. */
+  private long lastEnd = -1;
+
+  /** Number of bytes read sequentially since the last seek. */
+  private long sequential;
+
+  private final byte[] scratch = new byte[8];
+
+  /** Index and contents of the most recently read block. */
+  private long currentBlock = -1;
+  private byte[] currentData;
+
+  // -- Constructors --
+
+  /**
+   * Constructs a handle over the given source, using the default block
+   * and cache sizes.
+   */
+  public RangeHandle(RangeSource source) throws IOException {
+    this(source, DEFAULT_BLOCK_SIZE, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Constructs a handle over the given source.
+   *
+   * @param source the source from which to read
+   * @param blockSize the size in bytes of each cached block
+   * @param cacheSize the maximum number of bytes to cache
+   */
+  public RangeHandle(RangeSource source, int blockSize, long cacheSize)
+    throws IOException
+  {
+    this(new Blocks(source, new PageCache(blockSize, cacheSize), "", true),
+      true);
+  }
+
+  /**
+   * Constructs a handle over the given source whose blocks are kept in a
+   * cache that may be shared with other handles.
+   *
+   * @param source the source from which to read
+   * @param cache the cache in which to keep blocks
+   * @param key the key that identifies the source's blocks in the cache
+   */
+  public RangeHandle(RangeSource source, PageCache cache, String key)
+    throws IOException
+  {
+    this(new Blocks(source, cache, key, false), true);
+  }
+
+  private RangeHandle(Blocks blocks, boolean owner) {
+    this.blocks = blocks;
+    this.owner = owner;
+  }
+
+  // -- Static utility methods --
+
+  /** Returns true if the given id can be read with an HTTP range source. */
+  public static boolean isRemote(String id) {
+    return id != null && (id.startsWith("http://") ||
+      id.startsWith("https://"));
+  }
+
+  /**
+   * Returns true if range-request reading is enabled by
+   * {@link #RANGE_READ_KEY} in the given options.
+   */
+  public static boolean isEnabled(MetadataOptions options) {
+    if (options instanceof DynamicMetadataOptions) {
+      return ((DynamicMetadataOptions) options).getBoolean(
+        RANGE_READ_KEY, RANGE_READ_DEFAULT);
+    }
+    return RANGE_READ_DEFAULT;
+  }
+
+  /**
+   * Returns the handle mapped to the given id in the current thread,
+   * or null if the id is not mapped to a RangeHandle.
+   */
+  public static RangeHandle getMapped(String id) {
+    if (id == null) return null;
+    IRandomAccess handle = Location.getMappedFile(id);
+    return handle instanceof RangeHandle ? (RangeHandle) handle : null;
+  }
+
+  /**
+   * Maps a new handle over an {@link HttpRangeSource} to the given id,
+   * unless the id is not remote or is already mapped.
+   *
+   * @return true if a mapping was created; the caller is then responsible
+   *   for calling {@link #unmap(String)}
+   */
+  public static boolean map(String id) throws IOException {
+    if (!isRemote(id) || Location.getMappedFile(id) != null) {
+      return false;
+    }
+    Location.mapFile(id, new RangeHandle(new HttpRangeSource(id)));
+    return true;
+  }
+
+  /**
+   * Opens a handle over the given local file whose blocks are kept in the
+   * given cache.  Blocks are keyed by the file's path, length and
+   * modification time, so pages of a file that has since been modified
+   * are never returned.
+   */
+  public static RangeHandle open(String path, PageCache cache)
+    throws IOException
+  {
+    File file = new File(path).getAbsoluteFile();
+    String key =
+      file.getPath() + ":" + file.length() + ":" + file.lastModified();
+    return new RangeHandle(new FileRangeSource(file), cache, key);
+  }
+
+  /** Removes and closes the handle mapped to the given id. */
+  public static void unmap(String id) throws IOException {
+    IRandomAccess handle = Location.getMappedFile(id);
+    Location.mapFile(id, null);
+    if (handle != null) {
+      handle.close();
+    }
+  }
+
+  // -- RangeHandle API methods --
+
+  /**
+   * Returns a new handle that shares this handle's source and cache,
+   * positioned at the start of the file.
+   */
+  public RangeHandle duplicate() {
+    return new RangeHandle(blocks, false);
+  }
+
+  /** Returns the source from which this handle reads. */
+  public RangeSource getSource() {
+    return blocks.source;
+  }
+
+  /**
+   * Fetches the given byte ranges into the cache.  Ranges that are
+   * already cached are skipped, and the remaining ranges are merged into
+   * as few requests as possible, which are issued concurrently.
+   * The file pointer is not changed.
+   *
+   * @param offsets the starting offset of each range
+   * @param lengths the length in bytes of each range
+   */
+  public void prefetch(long[] offsets, long[] lengths) throws IOException {
+    int bs = blocks.blockSize;
+    long count = blocks.blockCount();
+    long[] needed = new long[0];
+    int n = 0;
+    for (int i=0; i<offsets.length; i++) {
+      if (lengths[i] <= 0 || offsets[i] < 0 || offsets[i] >= blocks.length) {
+        continue;
+      }
+      long first = offsets[i] / bs;
+      long last = Math.min(count - 1, (offsets[i] + lengths[i] - 1) / bs);
+      for (long b=first; b<=last; b++) {
+        if (blocks.contains(b)) continue;
+        if (n == needed.length) {
+          needed = Arrays.copyOf(needed, Math.max(16, n * 2));
+        }
+        needed[n++] = b;
+      }
+    }
+    if (n == 0) return;
+    Arrays.sort(needed, 0, n);
+
+    long gap = Math.max(1, MERGE_GAP / bs);
+    long maxRun = Math.max(1, blocks.maxBytes / 4 / bs);
+    final List<long[]> runs = new ArrayList<long[]>();
+    long start = needed[0];
+    long end = start;
+    for (int i=1; i<n; i++) {
+      long b = needed[i];
+      if (b == end) continue;
+      if (b - end > gap || b - start >= maxRun) {
+        runs.add(new long[] {start, end});
+        start = b;
+      }
+      end = b;
+    }
+    runs.add(new long[] {start, end});
+
+    IntStream range = IntStream.range(0, runs.size());
+    if (runs.size() > 1) {
+      range = range.parallel();
+    }
+    try {
+      range.forEach(i -> {
+        try {
+          blocks.fetch(runs.get(i)[0], runs.get(i)[1]);
+        }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  // -- IRandomAccess API methods --
+
+  /* @see IRandomAccess#close() */
+  @Override
+  public void close() throws IOException {
+    if (owner) {
+      blocks.close();
+    }
+  }
+
+  /* @see IRandomAccess#getFilePointer() */
+  @Override
+  public long getFilePointer() {
+    return fp;
+  }
+
+  /* @see IRandomAccess#exists() */
+  @Override
+  public boolean exists() {
+    return true;
+  }
+
+  /* @see IRandomAccess#length() */
+  @Override
+  public long length() {
+    return blocks.length;
+  }
+
+  /* @see IRandomAccess#getOrder() */
+  @Override
+  public ByteOrder getOrder() {
+    return order;
+  }
+
+  /* @see IRandomAccess#setOrder(ByteOrder) */
+  @Override
+  public void setOrder(ByteOrder order) {
+    this.order = order;
+  }
+
+  /* @see IRandomAccess#read(byte[]) */
+  @Override
+  public int read(byte[] b) throws IOException {
+    return read(b, 0, b.length);
+  }
+
+  /* @see IRandomAccess#read(byte[], int, int) */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) return 0;
+    if (fp >= blocks.length) return -1;
+    len = (int) Math.min(len, blocks.length - fp);
+
+    if (fp == lastEnd) {
+      sequential += len;
+    }
+    else {
+      sequential = 0;
+    }
+    int bs = blocks.blockSize;
+    long lastBlock = (fp + len - 1) / bs;
+    long readAhead = Math.min(sequential, MAX_READ_AHEAD) / bs;
+
+    int n = 0;
+    while (n < len) {
+      long block = fp / bs;
+      byte[] data = block == currentBlock ? currentData : blocks.get(block);
+      if (data == null) {
+        data = blocks.load(block, lastBlock, readAhead);
+      }
+      currentBlock = block;
+      currentData = data;
+      int blockOffset = (int) (fp - block * bs);
+      int count = Math.min(len - n, data.length - blockOffset);
+      System.arraycopy(data, blockOffset, b, off + n, count);
+      n += count;
+      fp += count;
+    }
+    lastEnd = fp;
+    return n;
+  }
+
+  /* @see IRandomAccess#read(ByteBuffer) */
+  @Override
+  public int read(ByteBuffer buffer) throws IOException {
+    return read(buffer, 0, buffer.capacity());
+  }
+
+  /* @see IRandomAccess#read(ByteBuffer, int, int) */
+  @Override
+  public int read(ByteBuffer buffer, int off, int len) throws IOException {
+    byte[] b = new byte[len];
+    int n = read(b, 0, len);
+    if (n > 0) {
+      buffer.position(off);
+      buffer.put(b, 0, n);
+    }
+    return n;
+  }
+
+  /* @see IRandomAccess#seek(long) */
+  @Override
+  public void seek(long pos) {
+    fp = pos;
+  }
+
+  /* @see IRandomAccess#skipBytes(long) */
+  @Override
+  public long skipBytes(long n) {
+    long skip = Math.max(0, Math.min(n, blocks.length - fp));
+    fp += skip;
+    return skip;
+  }
+
+  /* @see IRandomAccess#write(ByteBuffer) */
+  @Override
+  public void write(ByteBuffer buf) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see IRandomAccess#write(ByteBuffer, int, int) */
+  @Override
+  public void write(ByteBuffer buf, int off, int len) throws IOException {
+    throw readOnly();
+  }
+
+  // -- DataInput API methods --
+
+  /* @see java.io.DataInput#readBoolean() */
+  @Override
+  public boolean readBoolean() throws IOException {
+    return readByte() != 0;
+  }
+
+  /* @see java.io.DataInput#readByte() */
+  @Override
+  public byte readByte() throws IOException {
+    return buffer(1).get();
+  }
+
+  /* @see java.io.DataInput#readChar() */
+  @Override
+  public char readChar() throws IOException {
+    return buffer(2).getChar();
+  }
+
+  /* @see java.io.DataInput#readDouble() */
+  @Override
+  public double readDouble() throws IOException {
+    return buffer(8).getDouble();
+  }
+
+  /* @see java.io.DataInput#readFloat() */
+  @Override
+  public float readFloat() throws IOException {
+    return buffer(4).getFloat();
+  }
+
+  /* @see java.io.DataInput#readFully(byte[]) */
+  @Override
+  public void readFully(byte[] b) throws IOException {
+    readFully(b, 0, b.length);
+  }
+
+  /* @see java.io.DataInput#readFully(byte[], int, int) */
+  @Override
+  public void readFully(byte[] b, int off, int len) throws IOException {
+    int n = read(b, off, len);
+    if (n < len) {
+      throw new EOFException();
+    }
+  }
+
+  /* @see java.io.DataInput#readInt() */
+  @Override
+  public int readInt() throws IOException {
+    return buffer(4).getInt();
+  }
+
+  /* @see java.io.DataInput#readLine() */
+  @Override
+  public String readLine() throws IOException {
+    if (fp >= blocks.length) return null;
+    StringBuilder line = new StringBuilder();
+    while (fp < blocks.length) {
+      int c = readUnsignedByte();
+      if (c == '\n') break;
+      if (c == '\r') {
+        if (fp < blocks.length && readUnsignedByte() != '\n') {
+          fp--;
+        }
+        break;
+      }
+      line.append((char) c);
+    }
+    return line.toString();
+  }
+
+  /* @see java.io.DataInput#readLong() */
+  @Override
+  public long readLong() throws IOException {
+    return buffer(8).getLong();
+  }
+
+  /* @see java.io.DataInput#readShort() */
+  @Override
+  public short readShort() throws IOException {
+    return buffer(2).getShort();
+  }
+
+  /* @see java.io.DataInput#readUnsignedByte() */
+  @Override
+  public int readUnsignedByte() throws IOException {
+    return readByte() & 0xff;
+  }
+
+  /* @see java.io.DataInput#readUnsignedShort() */
+  @Override
+  public int readUnsignedShort() throws IOException {
+    return readShort() & 0xffff;
+  }
+
+  /* @see java.io.DataInput#readUTF() */
+  @Override
+  public String readUTF() throws IOException {
+    return DataInputStream.readUTF(this);
+  }
+
+  /* @see java.io.DataInput#skipBytes(int) */
+  @Override
+  public int skipBytes(int n) {
+    return (int) skipBytes((long) n);
+  }
+
+  // -- DataOutput API methods --
+
+  /* @see java.io.DataOutput#write(byte[]) */
+  @Override
+  public void write(byte[] b) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#write(byte[], int, int) */
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#write(int) */
+  @Override
+  public void write(int b) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeBoolean(boolean) */
+  @Override
+  public void writeBoolean(boolean v) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeByte(int) */
+  @Override
+  public void writeByte(int v) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeBytes(String) */
+  @Override
+  public void writeBytes(String s) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeChar(int) */
+  @Override
+  public void writeChar(int v) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeChars(String) */
+  @Override
+  public void writeChars(String s) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeDouble(double) */
+  @Override
+  public void writeDouble(double v) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeFloat(float) */
+  @Override
+  public void writeFloat(float v) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeInt(int) */
+  @Override
+  public void writeInt(int v) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeLong(long) */
+  @Override
+  public void writeLong(long v) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeShort(int) */
+  @Override
+  public void writeShort(int v) throws IOException {
+    throw readOnly();
+  }
+
+  /* @see java.io.DataOutput#writeUTF(String) */
+  @Override
+  public void writeUTF(String str) throws IOException {
+    throw readOnly();
+  }
+
+  // -- Helper methods --
+
+  /** Reads the given number of bytes into a buffer in the current order. */
+  private ByteBuffer buffer(int len) throws IOException {
+    readFully(scratch, 0, len);
+    return ByteBuffer.wrap(scratch, 0, len).order(order);
+  }
+
+  private IOException readOnly() {
+    return new IOException("RangeHandle is read-only");
+  }
+
+  // -- Helper classes --
+
+  /** Source and page cache shared by a handle and its duplicates. */
+  private static class Blocks {
+
+    final RangeSource source;
+    final long length;
+    final int blockSize;
+    final long maxBytes;
+
+    private final PageCache cache;
+    private final String key;
+
+    /** Whether the cache belongs to this source alone. */
+    private final boolean privateCache;
+
+    Blocks(RangeSource source, PageCache cache, String key,
+      boolean privateCache) throws IOException
+    {
+      this.source = source;
+      this.length = source.length();
+      this.cache = cache;
+      this.key = key;
+      this.privateCache = privateCache;
+      this.blockSize = cache.getPageSize();
+      this.maxBytes = cache.getMaxBytes();
+    }
+
+    long blockCount() {
+      return (length + blockSize - 1) / blockSize;
+    }
+
+    byte[] get(long block) {
+      return cache.get(key, block);
+    }
+
+    boolean contains(long block) {
+      return cache.contains(key, block);
+    }
+
+    void put(long block, byte[] data) {
+      cache.put(key, block, data);
+    }
+
+    /**
+     * Fetches the given block and any missing blocks that follow it up to
+     * <code>last</code> with a single request, extending the request by up
+     * to <code>readAhead</code> further missing blocks.
+     *
+     * @return the data for <code>block</code>
+     */
+    byte[] load(long block, long last, long readAhead) throws IOException {
+      long end = block;
+      while (end < last && !contains(end + 1)) {
+        end++;
+      }
+      if (end == last) {
+        long limit = Math.min(blockCount() - 1, last + readAhead);
+        while (end < limit && !contains(end + 1)) {
+          end++;
+        }
+      }
+      return fetch(block, end);
+    }
+
+    /**
+     * Reads blocks <code>first</code> through <code>last</code> with a
+     * single request and caches them.
+     *
+     * @return the data for <code>first</code>
+     */
+    byte[] fetch(long first, long last) throws IOException {
+      long start = first * blockSize;
+      long end = Math.min(length, (last + 1) * blockSize);
+      byte[] data = new byte[(int) (end - start)];
+      source.read(start, data, 0, data.length);
+      byte[] firstBlock = null;
+      for (long b=first; b<=last; b++) {
+        int off = (int) ((b - first) * blockSize);
+        byte[] block =
+          Arrays.copyOfRange(data, off, Math.min(data.length, off + blockSize));
+        if (firstBlock == null) {
+          firstBlock = block;
+        }
+        put(b, block);
+      }
+      return firstBlock;
+    }
+
+    void close() throws IOException {
+      if (privateCache) {
+        cache.clear();
+      }
+      source.close();
+    }
+
+  }
+
+}
@@ -138,6 +138,18 @@ public interface OMEXMLService extends Service {
   public OMEXMLMetadata getOMEMetadata(MetadataRetrieve src)
     throws ServiceException;
 
+  /**
+   * Returns a new {@link loci.formats.ome.OMEXMLMetadata} object with the
+   * same contents as the given MetadataRetrieve, which can be modified
+   * without affecting the original.  OME-XML metadata objects are copied
+   * node by node, without writing the model to an OME-XML string and
+   * parsing it again.
+   * @throws ServiceException If there is an error creating the OME-XML
+   * metadata object.
+   */
+  public OMEXMLMetadata copyOMEMetadata(MetadataRetrieve src)
+    throws ServiceException;
+
   /**
    * Extracts an OME-XML metadata string from the given metadata object,
    * by converting to an OME-XML metadata object if necessary.
@@ -56,6 +56,7 @@ import loci.formats.FormatTools;
 import loci.formats.MetadataTools;
 import loci.formats.Modulo;
 import loci.formats.meta.IMetadata;
+import loci.formats.meta.IPyramidStore;
 import loci.formats.meta.MetadataRetrieve;
 import loci.formats.meta.MetadataStore;
 import loci.formats.meta.ModuloAnnotation;
@@ -461,6 +462,48 @@ public class OMEXMLServiceImpl extends AbstractService implements OMEXMLService
     return omexmlMeta;
   }
 
+  /** @see OMEXMLService#copyOMEMetadata(loci.formats.meta.MetadataRetrieve) */
+  @Override
+  public OMEXMLMetadata copyOMEMetadata(MetadataRetrieve src)
+    throws ServiceException {
+    // anything other than an OME-XML metadata object is converted
+    // into a new object anyway
+    if (!(src instanceof OMEXMLMetadata)) return getOMEMetadata(src);
+
+    OMEXMLMetadata original = (OMEXMLMetadata) src;
+    original.resolveReferences();
+    OMEXMLMetadataRoot originalRoot = (OMEXMLMetadataRoot) original.getRoot();
+
+    // copy the model via a detached DOM tree, which is exactly what
+    // dumpXML would have serialized
+    OMEXMLMetadata copy = createOMEXMLMetadata();
+    try {
+      OMEModel model = new OMEModelImpl();
+      OMEXMLMetadataRoot root = new OMEXMLMetadataRoot(
+        originalRoot.asXMLElement(XMLTools.createDocument()), model);
+      model.resolveReferences();
+      copy.setRoot(root);
+    }
+    catch (Exception e) {
+      throw new ServiceException(e);
+    }
+
+    // pyramid resolutions are only stored as annotations once the
+    // original has been written, so copy any that are not yet present
+    if (original instanceof IPyramidStore && copy instanceof IPyramidStore) {
+      IPyramidStore from = (IPyramidStore) original;
+      IPyramidStore to = (IPyramidStore) copy;
+      for (int i=0; i<copy.getImageCount(); i++) {
+        if (to.getResolutionCount(i) > 1) continue;
+        for (int r=1; r<from.getResolutionCount(i); r++) {
+          to.setResolutionSizeX(from.getResolutionSizeX(i, r), i, r);
+          to.setResolutionSizeY(from.getResolutionSizeY(i, r), i, r);
+        }
+      }
+    }
+    return copy;
+  }
+
   /** @see OMEXMLService#getOMEXML(loci.formats.meta.MetadataRetrieve) */
   @Override
   public String getOMEXML(MetadataRetrieve src) throws ServiceException {
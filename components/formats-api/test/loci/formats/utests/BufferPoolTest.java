@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package loci.formats.utests;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.util.Map;
+
+import loci.formats.BufferPool;
+import loci.formats.MetricSnapshot;
+import loci.formats.ReaderMetrics;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link loci.formats.BufferPool}.
+ */
+public class BufferPoolTest {
+
+  private static final int LENGTH = 3 * BufferPool.MIN_POOLED_LENGTH;
+
+  @BeforeMethod
+  public void setUp() {
+    BufferPool.clear();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    BufferPool.setEnabled(true);
+    BufferPool.setThreadLimit(BufferPool.THREAD_LIMIT_DEFAULT);
+    BufferPool.clear();
+    ReaderMetrics.setEnabled(false);
+    ReaderMetrics.reset();
+  }
+
+  @Test
+  public void testReuse() {
+    byte[] buf = BufferPool.take(LENGTH);
+    assertEquals(buf.length, LENGTH);
+    BufferPool.release(buf);
+    assertEquals(BufferPool.getPooledBytes(), LENGTH);
+    assertSame(BufferPool.take(LENGTH), buf);
+    assertEquals(BufferPool.getPooledBytes(), 0);
+  }
+
+  @Test
+  public void testExactLength() {
+    byte[] buf = BufferPool.take(LENGTH);
+    BufferPool.release(buf);
+
+    // same size class, but a different length
+    byte[] other = BufferPool.take(LENGTH + 1);
+    assertNotSame(other, buf);
+    assertEquals(other.length, LENGTH + 1);
+    assertSame(BufferPool.take(LENGTH), buf);
+  }
+
+  @Test
+  public void testTakeAtLeast() {
+    // new arrays are rounded up to the size of their class
+    byte[] buf = BufferPool.takeAtLeast(LENGTH);
+    assertEquals(buf.length, 4 * BufferPool.MIN_POOLED_LENGTH);
+    BufferPool.release(buf);
+    assertSame(BufferPool.takeAtLeast(LENGTH + 1), buf);
+    BufferPool.release(buf);
+    assertNotSame(BufferPool.take(LENGTH), buf);
+    assertSame(BufferPool.takeAtLeast(buf.length), buf);
+
+    // exact arrays can be reused by callers that track the length
+    byte[] exact = BufferPool.take(LENGTH);
+    BufferPool.release(exact);
+    assertNotSame(BufferPool.takeAtLeast(LENGTH + 1), exact);
+    assertSame(BufferPool.takeAtLeast(LENGTH - 1), exact);
+  }
+
+  @Test
+  public void testSmallArraysNotPooled() {
+    byte[] buf = new byte[BufferPool.MIN_POOLED_LENGTH - 1];
+    BufferPool.release(buf);
+    assertEquals(BufferPool.getPooledBytes(), 0);
+    assertNotSame(BufferPool.take(buf.length), buf);
+  }
+
+  @Test
+  public void testDisabled() {
+    BufferPool.setEnabled(false);
+    byte[] buf = BufferPool.take(LENGTH);
+    BufferPool.release(buf);
+    assertEquals(BufferPool.getPooledBytes(), 0);
+    assertNotSame(BufferPool.take(LENGTH), buf);
+  }
+
+  @Test
+  public void testDoubleRelease() {
+    byte[] buf = BufferPool.take(LENGTH);
+    BufferPool.release(buf);
+    BufferPool.release(buf);
+    assertEquals(BufferPool.getPooledBytes(), LENGTH);
+    assertSame(BufferPool.take(LENGTH), buf);
+    assertNotSame(BufferPool.take(LENGTH), buf);
+  }
+
+  @Test
+  public void testClassLimit() {
+    byte[][] bufs = new byte[BufferPool.BUFFERS_PER_CLASS + 1][];
+    for (int i=0; i<bufs.length; i++) {
+      bufs[i] = new byte[LENGTH];
+    }
+    for (byte[] buf : bufs) {
+      BufferPool.release(buf);
+    }
+    // the least recently released array is evicted
+    assertEquals(BufferPool.getPooledBytes(),
+      (long) BufferPool.BUFFERS_PER_CLASS * LENGTH);
+    for (int i=bufs.length-1; i>0; i--) {
+      assertSame(BufferPool.take(LENGTH), bufs[i]);
+    }
+    assertNotSame(BufferPool.take(LENGTH), bufs[0]);
+  }
+
+  @Test
+  public void testThreadLimitAndMetrics() {
+    ReaderMetrics.reset();
+    ReaderMetrics.setEnabled(true);
+    BufferPool.setThreadLimit(LENGTH);
+
+    byte[] first = BufferPool.take(LENGTH);
+    byte[] second = BufferPool.take(LENGTH);
+    BufferPool.release(first);
+    BufferPool.release(second);
+    assertEquals(BufferPool.getPooledBytes(), LENGTH);
+    assertSame(BufferPool.take(LENGTH), first);
+
+    Map<String, MetricSnapshot> metrics = ReaderMetrics.snapshot();
+    assertEquals(metrics.get("BufferPool.miss").getCount(), 2);
+    assertEquals(metrics.get("BufferPool.discard").getCount(), 1);
+    assertEquals(metrics.get("BufferPool.hit").getCount(), 1);
+    assertEquals(metrics.get("BufferPool.hit").getBytes(), LENGTH);
+  }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package loci.formats.utests;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import loci.common.RandomAccessInputStream;
+import loci.formats.HandlePool;
+import loci.formats.in.DynamicMetadataOptions;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link loci.formats.HandlePool}.
+ */
+public class HandlePoolTest {
+
+  private File[] files;
+
+  private int openCount;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    files = new File[4];
+    for (int i=0; i<files.length; i++) {
+      files[i] = File.createTempFile("HandlePoolTest", ".dat");
+      files[i].deleteOnExit();
+      try (FileOutputStream out = new FileOutputStream(files[i])) {
+        for (int b=0; b<64; b++) {
+          out.write(i * 64 + b);
+        }
+      }
+    }
+    openCount = HandlePool.getOpenCount();
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    HandlePool.setGlobalLimit(HandlePool.GLOBAL_LIMIT_DEFAULT);
+    for (File file : files) {
+      file.delete();
+    }
+  }
+
+  private String path(int i) {
+    return files[i].getAbsolutePath();
+  }
+
+  @Test
+  public void testReuse() throws IOException {
+    HandlePool pool = new HandlePool(2);
+    RandomAccessInputStream s = pool.open(path(0), 0, null);
+    s.order(true);
+    s.seek(10);
+    s.close();
+    assertEquals(pool.getIdleCount(), 1);
+    assertEquals(HandlePool.getOpenCount(), openCount + 1);
+
+    RandomAccessInputStream reused = pool.reuse(path(0));
+    assertSame(reused, s);
+    assertEquals(reused.getFilePointer(), 10);
+    assertFalse(reused.isLittleEndian());
+    reused.seek(0);
+    assertEquals(reused.readUnsignedByte(), 0);
+    assertNull(pool.reuse(path(1)));
+    reused.close();
+
+    pool.close();
+    assertEquals(pool.getIdleCount(), 0);
+    assertEquals(HandlePool.getOpenCount(), openCount);
+  }
+
+  @Test
+  public void testConcurrentStreamsOnSameFile() throws IOException {
+    HandlePool pool = new HandlePool(2);
+    RandomAccessInputStream a = pool.open(path(0), 0, null);
+    RandomAccessInputStream b = pool.open(path(0), 0, null);
+    assertNotSame(a, b);
+    a.close();
+    b.close();
+    assertEquals(pool.getIdleCount(), 1);
+    assertEquals(HandlePool.getOpenCount(), openCount + 1);
+    pool.close();
+  }
+
+  @Test
+  public void testMaxIdle() throws IOException {
+    HandlePool pool = new HandlePool(2);
+    for (int i=0; i<files.length; i++) {
+      pool.open(path(i), 0, null).close();
+    }
+    assertEquals(pool.getIdleCount(), 2);
+    assertEquals(HandlePool.getOpenCount(), openCount + 2);
+    assertNull(pool.reuse(path(0)));
+    RandomAccessInputStream s = pool.reuse(path(3));
+    s.seek(0);
+    assertEquals(s.readUnsignedByte(), 3 * 64);
+    s.close();
+    pool.close();
+  }
+
+  @Test
+  public void testGlobalLimit() throws IOException {
+    HandlePool.setGlobalLimit(openCount + 2);
+    HandlePool first = new HandlePool(4);
+    HandlePool second = new HandlePool(4);
+    first.open(path(0), 0, null).close();
+    first.open(path(1), 0, null).close();
+    second.open(path(2), 0, null).close();
+
+    // the least recently used stream of any pool is closed
+    assertEquals(HandlePool.getOpenCount(), openCount + 2);
+    assertNull(first.reuse(path(0)));
+    assertEquals(first.getIdleCount(), 1);
+    assertEquals(second.getIdleCount(), 1);
+
+    first.close();
+    second.close();
+    assertEquals(HandlePool.getOpenCount(), openCount);
+  }
+
+  @Test
+  public void testStreamInUseWhenPoolIsClosed() throws IOException {
+    HandlePool pool = new HandlePool(2);
+    RandomAccessInputStream s = pool.open(path(0), 0, null);
+    pool.close();
+    assertEquals(s.readUnsignedByte(), 0);
+    s.close();
+    s.close();
+    assertEquals(HandlePool.getOpenCount(), openCount);
+  }
+
+  @Test
+  public void testOptions() {
+    DynamicMetadataOptions options = new DynamicMetadataOptions();
+    assertEquals(HandlePool.create(options).getMaxIdle(),
+      HandlePool.MAX_IDLE_DEFAULT);
+    options.setInteger(HandlePool.MAX_IDLE_KEY, 3);
+    assertEquals(HandlePool.create(options).getMaxIdle(), 3);
+    assertTrue(HandlePool.getGlobalLimit() > 0);
+  }
+
+}
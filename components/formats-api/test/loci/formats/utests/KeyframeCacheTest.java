@@ -0,0 +1,141 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.utests;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import loci.formats.KeyframeCache;
+import loci.formats.in.DynamicMetadataOptions;
+
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link loci.formats.KeyframeCache}.
+ */
+public class KeyframeCacheTest {
+
+  private static final int FRAME = 1000;
+
+  private static byte[] frame(int no) {
+    byte[] data = new byte[FRAME];
+    Arrays.fill(data, (byte) no);
+    return data;
+  }
+
+  @Test
+  public void testCheckpointsAtInterval() throws IOException {
+    KeyframeCache cache = new KeyframeCache(10, Long.MAX_VALUE, false);
+    for (int i=0; i<100; i++) {
+      cache.put(i, frame(i));
+    }
+    assertEquals(cache.size(), 10);
+    assertNull(cache.get(15));
+    assertEquals(cache.get(20), frame(20));
+    assertEquals(cache.nearest(37, -1), 30);
+    assertEquals(cache.nearest(37, 35), 35);
+    assertEquals(cache.nearest(37, 50), 30);
+    assertEquals(cache.nearest(37, 25), 30);
+    assertEquals(cache.nearest(5, 9), 0);
+    cache.close();
+  }
+
+  @Test
+  public void testStoredFramesAreCopies() throws IOException {
+    KeyframeCache cache = new KeyframeCache(1, Long.MAX_VALUE, false);
+    byte[] data = frame(1);
+    cache.put(0, data);
+    data[0] = 42;
+    byte[] stored = cache.get(0);
+    assertEquals(stored[0], 1);
+    stored[1] = 42;
+    assertEquals(cache.get(0)[1], 1);
+    cache.close();
+  }
+
+  @Test
+  public void testThinnedToBudget() throws IOException {
+    KeyframeCache cache = new KeyframeCache(4, 5 * FRAME, false);
+    for (int i=0; i<100; i++) {
+      cache.put(i, frame(i));
+    }
+    assertTrue(cache.getMemoryBytes() <= 5 * FRAME);
+    assertTrue(cache.getInterval() > 4);
+    assertNotNull(cache.get(0));
+    int interval = cache.getInterval();
+    for (int i=0; i<100; i+=interval) {
+      assertEquals(cache.get(i), frame(i));
+    }
+    assertTrue(cache.nearest(99, -1) >= 99 - interval);
+    cache.close();
+  }
+
+  @Test
+  public void testSpillToDisk() throws IOException {
+    KeyframeCache cache = new KeyframeCache(4, 5 * FRAME, true);
+    for (int i=0; i<100; i++) {
+      cache.put(i, frame(i));
+    }
+    assertEquals(cache.getInterval(), 4);
+    assertEquals(cache.size(), 25);
+    assertTrue(cache.getMemoryBytes() <= 5 * FRAME);
+    for (int i=0; i<100; i+=4) {
+      assertEquals(cache.get(i), frame(i));
+    }
+    cache.close();
+    assertEquals(cache.size(), 0);
+  }
+
+  @Test
+  public void testOptions() {
+    DynamicMetadataOptions options = new DynamicMetadataOptions();
+    assertEquals(KeyframeCache.create(options).getInterval(),
+      KeyframeCache.INTERVAL_DEFAULT);
+    options.setInteger(KeyframeCache.INTERVAL_KEY, 7);
+    assertEquals(KeyframeCache.create(options).getInterval(), 7);
+  }
+
+  @Test
+  public void testDefaultInterval() {
+    DynamicMetadataOptions options = new DynamicMetadataOptions();
+    assertEquals(KeyframeCache.create(options, 8).getInterval(), 8);
+    options.setInteger(KeyframeCache.INTERVAL_KEY, 7);
+    assertEquals(KeyframeCache.create(options, 8).getInterval(), 7);
+  }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.utests;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+import loci.common.services.ServiceFactory;
+import loci.formats.CoreMetadata;
+import loci.formats.FormatException;
+import loci.formats.FormatReader;
+import loci.formats.FormatTools;
+import loci.formats.in.DynamicMetadataOptions;
+import loci.formats.ome.OMEXMLMetadata;
+import loci.formats.services.OMEXMLService;
+
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for lazy series initialization in
+ * {@link loci.formats.FormatReader}.
+ */
+public class LazySeriesTest {
+
+  private static final int SERIES_COUNT = 5;
+
+  /** Reader that records the series passed to initSeries. */
+  private static class TestReader extends FormatReader {
+    private final List<Integer> initialized = new ArrayList<Integer>();
+    private int failingSeries = -1;
+
+    TestReader() {
+      super("Lazy series test", "lazy");
+    }
+
+    @Override
+    public boolean isThisType(String name, boolean open) {
+      return false;
+    }
+
+    @Override
+    public byte[] openBytes(int no, byte[] buf, int x, int y, int w, int h)
+      throws FormatException, IOException
+    {
+      return buf;
+    }
+
+    @Override
+    protected void initFile(String id) throws FormatException, IOException {
+      super.initFile(id);
+      initialized.clear();
+      core.clear();
+      for (int i=0; i<SERIES_COUNT; i++) {
+        CoreMetadata ms = new CoreMetadata();
+        ms.sizeX = 8;
+        ms.sizeY = 8;
+        ms.sizeZ = 1;
+        ms.sizeC = 1;
+        ms.sizeT = 1;
+        ms.imageCount = 1;
+        ms.dimensionOrder = "XYZCT";
+        ms.pixelType = FormatTools.UINT8;
+        core.add(ms);
+      }
+      if (isLazySeries()) {
+        deferSeriesInitialization();
+      }
+      else {
+        for (int i=0; i<SERIES_COUNT; i++) {
+          setSeries(i);
+          initSeries(i);
+        }
+        setSeries(0);
+      }
+    }
+
+    @Override
+    protected void initSeries(int series)
+      throws FormatException, IOException
+    {
+      if (series == failingSeries) {
+        throw new IOException("series " + series);
+      }
+      assertEquals(getSeries(), series);
+      initialized.add(series);
+      addSeriesMeta("initialized", true);
+    }
+  }
+
+  private static TestReader createReader(boolean lazy)
+    throws FormatException, IOException
+  {
+    TestReader reader = new TestReader();
+    DynamicMetadataOptions options = new DynamicMetadataOptions();
+    options.setBoolean(FormatReader.LAZY_SERIES_KEY, lazy);
+    reader.setMetadataOptions(options);
+    reader.setId("test.lazy");
+    return reader;
+  }
+
+  private static Hashtable<?, ?> getOriginalMetadata(boolean lazy)
+    throws Exception
+  {
+    OMEXMLService service =
+      new ServiceFactory().getInstance(OMEXMLService.class);
+    OMEXMLMetadata store = service.createOMEXMLMetadata();
+    TestReader reader = new TestReader();
+    DynamicMetadataOptions options = new DynamicMetadataOptions();
+    options.setBoolean(FormatReader.LAZY_SERIES_KEY, lazy);
+    reader.setMetadataOptions(options);
+    reader.setMetadataStore(store);
+    reader.setOriginalMetadataPopulated(true);
+    reader.setId("test.lazy");
+    for (int i=0; i<SERIES_COUNT; i++) {
+      reader.setSeries(i);
+    }
+    reader.setSeries(0);
+    reader.close();
+    return service.getOriginalMetadata(store);
+  }
+
+  @Test
+  public void testEager() throws Exception {
+    TestReader reader = createReader(false);
+    assertEquals(reader.initialized.size(), SERIES_COUNT);
+    reader.setSeries(3);
+    assertEquals(reader.initialized.size(), SERIES_COUNT);
+    assertEquals(reader.getSeriesMetadataValue("initialized"), true);
+    reader.close();
+  }
+
+  @Test
+  public void testOnlyFirstSeriesInitializedBySetId() throws Exception {
+    TestReader reader = createReader(true);
+    assertEquals(reader.getSeriesCount(), SERIES_COUNT);
+    assertEquals(reader.initialized.size(), 1);
+    assertEquals(reader.initialized.get(0).intValue(), 0);
+    assertEquals(reader.getSeriesMetadataValue("initialized"), true);
+    reader.close();
+  }
+
+  @Test
+  public void testInitializedOnceOnSelection() throws Exception {
+    TestReader reader = createReader(true);
+    reader.setSeries(3);
+    reader.setSeries(0);
+    reader.setSeries(3);
+    reader.setCoreIndex(4);
+    assertEquals(reader.initialized.size(), 3);
+    assertEquals(reader.initialized.get(1).intValue(), 3);
+    assertEquals(reader.initialized.get(2).intValue(), 4);
+    reader.setSeries(3);
+    assertEquals(reader.getSeriesMetadataValue("initialized"), true);
+    reader.close();
+  }
+
+  @Test
+  public void testOriginalMetadata() throws Exception {
+    Hashtable<?, ?> eager = getOriginalMetadata(false);
+    assertEquals(eager.size(), SERIES_COUNT);
+    for (int i=0; i<SERIES_COUNT; i++) {
+      assertEquals(eager.get("Series " + i + " initialized"), "true");
+    }
+    assertEquals(getOriginalMetadata(true), eager);
+  }
+
+  @Test
+  public void testFailureIsRetried() throws Exception {
+    TestReader reader = createReader(true);
+    reader.failingSeries = 2;
+    try {
+      reader.setSeries(2);
+      fail("expected IllegalStateException");
+    }
+    catch (IllegalStateException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+    assertFalse(reader.initialized.contains(2));
+    reader.failingSeries = -1;
+    reader.setSeries(2);
+    assertTrue(reader.initialized.contains(2));
+    reader.close();
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.utests;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import loci.common.RandomAccessInputStream;
+import loci.formats.CoreMetadata;
+import loci.formats.FormatException;
+import loci.formats.FormatReader;
+import loci.formats.FormatTools;
+import loci.formats.ReaderWrapper;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link loci.formats.IFormatReader#openBuffer}.
+ */
+public class OpenBufferTest {
+
+  private static final int SIZE_X = 6;
+  private static final int SIZE_Y = 4;
+  private static final int SIZE_C = 2;
+  private static final int BPP = 2;
+  private static final int PLANE = SIZE_X * SIZE_Y * SIZE_C * BPP;
+
+  /** Reader of one raw, planar 16-bit RGB plane. */
+  private static class TestReader extends FormatReader {
+    private final boolean direct;
+    private int openBytesCount;
+
+    TestReader(boolean direct) {
+      super("Open buffer test", "raw");
+      this.direct = direct;
+    }
+
+    @Override
+    public boolean isThisType(String name, boolean open) {
+      return false;
+    }
+
+    @Override
+    public byte[] openBytes(int no, byte[] buf, int x, int y, int w, int h)
+      throws FormatException, IOException
+    {
+      FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
+      openBytesCount++;
+      in.seek(0);
+      return readPlane(in, x, y, w, h, buf);
+    }
+
+    @Override
+    public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+      int w, int h) throws FormatException, IOException
+    {
+      if (!direct || buf == null) {
+        return super.openBuffer(no, buf, x, y, w, h);
+      }
+      FormatTools.checkPlaneParameters(this, no, buf.remaining(), x, y, w, h);
+      in.seek(0);
+      return readPlane(in, x, y, w, h, buf);
+    }
+
+    @Override
+    protected void initFile(String id) throws FormatException, IOException {
+      super.initFile(id);
+      in = new RandomAccessInputStream(id);
+      CoreMetadata ms = core.get(0);
+      ms.sizeX = SIZE_X;
+      ms.sizeY = SIZE_Y;
+      ms.sizeZ = 1;
+      ms.sizeC = SIZE_C;
+      ms.sizeT = 1;
+      ms.imageCount = 1;
+      ms.rgb = true;
+      ms.interleaved = false;
+      ms.littleEndian = true;
+      ms.dimensionOrder = "XYCZT";
+      ms.pixelType = FormatTools.UINT16;
+    }
+  }
+
+  /** Wrapper that relies on the default openBuffer implementation. */
+  private static class TestWrapper extends ReaderWrapper {
+    TestWrapper(TestReader reader) {
+      super(reader);
+    }
+  }
+
+  private File file;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    file = File.createTempFile("OpenBufferTest", ".raw");
+    file.deleteOnExit();
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      for (int i=0; i<PLANE; i++) {
+        out.write(i);
+      }
+    }
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    file.delete();
+  }
+
+  private TestReader createReader(boolean direct)
+    throws FormatException, IOException
+  {
+    TestReader reader = new TestReader(direct);
+    reader.setId(file.getAbsolutePath());
+    return reader;
+  }
+
+  private static byte[] contents(ByteBuffer buf) {
+    byte[] b = new byte[buf.remaining()];
+    buf.duplicate().get(b);
+    return b;
+  }
+
+  @Test
+  public void testHeapBufferFilledInPlace() throws Exception {
+    TestReader reader = createReader(false);
+    byte[] array = new byte[PLANE];
+    ByteBuffer view = reader.openBuffer(0, ByteBuffer.wrap(array));
+    assertSame(view.array(), array);
+    assertEquals(view.remaining(), PLANE);
+    assertEquals(view.order(), ByteOrder.LITTLE_ENDIAN);
+    assertEquals(array, reader.openBytes(0));
+    reader.close();
+  }
+
+  @Test
+  public void testDirectBufferAtPosition() throws Exception {
+    TestReader reader = createReader(false);
+    ByteBuffer buf = ByteBuffer.allocateDirect(PLANE + 10);
+    buf.position(7);
+    ByteBuffer view = reader.openBuffer(0, buf, 1, 1, 3, 2);
+    assertEquals(buf.position(), 7);
+    assertEquals(contents(view), reader.openBytes(0, 1, 1, 3, 2));
+    assertEquals(buf.get(7), view.get(0));
+    reader.close();
+  }
+
+  @Test
+  public void testNullBuffer() throws Exception {
+    TestReader reader = createReader(false);
+    ByteBuffer view = reader.openBuffer(0, null);
+    assertEquals(contents(view), reader.openBytes(0));
+    reader.close();
+  }
+
+  @Test(expectedExceptions = FormatException.class)
+  public void testBufferTooSmall() throws Exception {
+    TestReader reader = createReader(false);
+    try {
+      reader.openBuffer(0, ByteBuffer.allocateDirect(PLANE - 1));
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testReadPlaneIntoBuffer() throws Exception {
+    TestReader reader = createReader(true);
+    int[][] regions = {
+      {0, 0, SIZE_X, SIZE_Y}, {0, 1, SIZE_X, 2}, {2, 1, 3, 3}, {5, 3, 1, 1}
+    };
+    for (int[] r : regions) {
+      byte[] expected = reader.openBytes(0, r[0], r[1], r[2], r[3]);
+      for (ByteBuffer buf : new ByteBuffer[] {
+        ByteBuffer.allocateDirect(PLANE + 3), ByteBuffer.allocate(PLANE + 3)})
+      {
+        buf.position(3);
+        ByteBuffer view = reader.openBuffer(0, buf, r[0], r[1], r[2], r[3]);
+        assertEquals(buf.position(), 3);
+        assertEquals(contents(view), expected);
+      }
+    }
+    reader.close();
+  }
+
+  @Test
+  public void testWrapperDefault() throws Exception {
+    TestReader reader = createReader(false);
+    TestWrapper wrapper = new TestWrapper(reader);
+    ByteBuffer buf = ByteBuffer.allocateDirect(PLANE);
+    int count = reader.openBytesCount;
+    ByteBuffer view = wrapper.openBuffer(0, buf);
+    assertEquals(reader.openBytesCount, count + 1);
+    assertEquals(contents(view), reader.openBytes(0));
+    assertTrue(view.isDirect());
+    wrapper.close();
+  }
+
+}
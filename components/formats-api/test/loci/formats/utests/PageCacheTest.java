@@ -0,0 +1,188 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.utests;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import loci.formats.in.DynamicMetadataOptions;
+import loci.formats.remote.PageCache;
+import loci.formats.remote.RangeHandle;
+import loci.formats.remote.RangeSource;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link loci.formats.remote.PageCache}.
+ */
+public class PageCacheTest {
+
+  private static final int PAGE = 1024;
+
+  private byte[] data;
+  private AtomicInteger reads;
+
+  @BeforeMethod
+  public void setUp() {
+    data = new byte[PAGE * 100 + 17];
+    new Random(3).nextBytes(data);
+    reads = new AtomicInteger();
+  }
+
+  private RangeSource source() {
+    return new RangeSource() {
+      @Override
+      public long length() {
+        return data.length;
+      }
+
+      @Override
+      public void read(long offset, byte[] buf, int off, int len) {
+        reads.incrementAndGet();
+        System.arraycopy(data, (int) offset, buf, off, len);
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+  }
+
+  @Test
+  public void testEviction() {
+    PageCache cache = new PageCache(PAGE, PAGE * 4);
+    for (int i=0; i<10; i++) {
+      cache.put("a", i, new byte[PAGE]);
+    }
+    assertEquals(cache.getCachedBytes(), PAGE * 4);
+    assertNull(cache.get("a", 0));
+    assertNotNull(cache.get("a", 9));
+
+    // touching a page keeps it
+    cache.get("a", 6);
+    cache.put("a", 10, new byte[PAGE]);
+    assertNotNull(cache.get("a", 6));
+    assertNull(cache.get("a", 7));
+    assertTrue(!cache.contains("b", 6));
+
+    cache.clear();
+    assertEquals(cache.getCachedBytes(), 0);
+    assertNull(cache.get("a", 6));
+  }
+
+  @Test
+  public void testSharedBetweenHandles() throws IOException {
+    PageCache cache = new PageCache(PAGE, PAGE * 1000);
+    RangeHandle first = new RangeHandle(source(), cache, "file");
+    byte[] b = new byte[PAGE * 10];
+    first.seek(PAGE * 5 + 3);
+    first.readFully(b);
+    first.close();
+    int count = reads.get();
+    assertEquals(count, 1);
+
+    // a second handle on the same file reads only from the cache
+    RangeHandle second = new RangeHandle(source(), cache, "file");
+    byte[] c = new byte[PAGE * 10];
+    second.seek(PAGE * 5 + 3);
+    second.readFully(c);
+    assertEquals(c, b);
+    assertEquals(reads.get(), count);
+    second.close();
+
+    // a handle with a different key does not see the pages
+    RangeHandle other = new RangeHandle(source(), cache, "other");
+    other.seek(PAGE * 5 + 3);
+    other.readFully(c);
+    assertEquals(reads.get(), count + 1);
+    other.close();
+  }
+
+  @Test
+  public void testSmallReads() throws IOException {
+    PageCache cache = new PageCache(PAGE, PAGE * 1000);
+    RangeHandle handle = new RangeHandle(source(), cache, "file");
+    for (int i=0; i<data.length; i++) {
+      assertEquals(handle.readByte(), data[i]);
+    }
+    // byte-by-byte scanning must read ahead in large blocks
+    assertTrue(reads.get() < 20, "reads: " + reads.get());
+    handle.close();
+  }
+
+  @Test
+  public void testLocalFile() throws IOException {
+    File file = File.createTempFile("PageCacheTest", ".bin");
+    file.deleteOnExit();
+    Files.write(file.toPath(), data);
+    PageCache cache = new PageCache(PAGE, PAGE * 1000);
+
+    RangeHandle handle = RangeHandle.open(file.getPath(), cache);
+    assertEquals(handle.length(), data.length);
+    byte[] b = new byte[100];
+    handle.seek(data.length - 100);
+    handle.readFully(b);
+    for (int i=0; i<b.length; i++) {
+      assertEquals(b[i], data[data.length - 100 + i]);
+    }
+    handle.close();
+
+    // modifying the file must not return stale pages
+    data[data.length - 1]++;
+    Files.write(file.toPath(), data);
+    file.setLastModified(file.lastModified() + 2000);
+    handle = RangeHandle.open(file.getPath(), cache);
+    handle.seek(data.length - 1);
+    assertEquals(handle.readByte(), data[data.length - 1]);
+    handle.close();
+    file.delete();
+  }
+
+  @Test
+  public void testEnabled() {
+    DynamicMetadataOptions options = new DynamicMetadataOptions();
+    assertTrue(!PageCache.isEnabled(options));
+    options.setBoolean(PageCache.PAGE_CACHE_KEY, true);
+    assertTrue(PageCache.isEnabled(options));
+  }
+
+}
@@ -0,0 +1,275 @@
+/*
+ * #%L
+ * Top-level reader and writer APIs
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.utests;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import loci.common.Location;
+import loci.common.RandomAccessInputStream;
+import loci.formats.in.DynamicMetadataOptions;
+import loci.formats.remote.HttpRangeSource;
+import loci.formats.remote.RangeHandle;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link loci.formats.remote.RangeHandle}, using a local
+ * HTTP server that supports range requests.
+ */
+public class RangeHandleTest {
+
+  private static final int LENGTH = 1024 * 1024 + 12345;
+  private static final int BLOCK = 4096;
+
+  private HttpServer server;
+  private String url;
+  private byte[] data;
+  private List<long[]> ranges = new CopyOnWriteArrayList<long[]>();
+
+  @BeforeClass
+  public void startServer() throws IOException {
+    data = new byte[LENGTH];
+    new Random(42).nextBytes(data);
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/data.bin", this::handle);
+    server.start();
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/data.bin";
+  }
+
+  @AfterClass
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  @BeforeMethod
+  public void resetRanges() {
+    ranges.clear();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    if (exchange.getRequestMethod().equals("HEAD")) {
+      exchange.getResponseHeaders().set("Content-Length",
+        String.valueOf(data.length));
+      exchange.sendResponseHeaders(200, -1);
+      exchange.close();
+      return;
+    }
+    String range = exchange.getRequestHeaders().getFirst("Range");
+    String[] bounds = range.substring("bytes=".length()).split("-");
+    int start = Integer.parseInt(bounds[0]);
+    int end = Math.min(data.length - 1, Integer.parseInt(bounds[1]));
+    ranges.add(new long[] {start, end});
+    exchange.getResponseHeaders().set("Content-Range",
+      "bytes " + start + "-" + end + "/" + data.length);
+    exchange.sendResponseHeaders(206, end - start + 1);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(data, start, end - start + 1);
+    }
+  }
+
+  private RangeHandle open() throws IOException {
+    return new RangeHandle(new HttpRangeSource(url), BLOCK, 1024 * 1024);
+  }
+
+  private void assertData(byte[] b, long offset) {
+    for (int i=0; i<b.length; i++) {
+      assertEquals(b[i], data[(int) offset + i], "byte " + (offset + i));
+    }
+  }
+
+  @Test
+  public void testLength() throws IOException {
+    RangeHandle handle = open();
+    assertEquals(handle.length(), LENGTH);
+    assertEquals(ranges.size(), 0);
+    handle.close();
+  }
+
+  @Test
+  public void testRandomReads() throws IOException {
+    RangeHandle handle = open();
+    Random r = new Random(7);
+    for (int i=0; i<200; i++) {
+      long offset = r.nextInt(LENGTH);
+      byte[] b = new byte[(int) Math.min(r.nextInt(20000), LENGTH - offset)];
+      handle.seek(offset);
+      handle.readFully(b);
+      assertData(b, offset);
+      assertEquals(handle.getFilePointer(), offset + b.length);
+    }
+    handle.seek(LENGTH);
+    assertEquals(handle.read(new byte[1]), -1);
+    handle.close();
+  }
+
+  @Test
+  public void testCoalescedMiss() throws IOException {
+    RangeHandle handle = open();
+    byte[] b = new byte[BLOCK * 10];
+    handle.seek(BLOCK * 3 + 17);
+    handle.readFully(b);
+    assertData(b, BLOCK * 3 + 17);
+    assertEquals(ranges.size(), 1);
+
+    // everything is now cached
+    handle.seek(BLOCK * 3);
+    handle.readFully(new byte[BLOCK * 8]);
+    assertEquals(ranges.size(), 1);
+    handle.close();
+  }
+
+  @Test
+  public void testSequentialReadAhead() throws IOException {
+    RangeHandle handle = open();
+    byte[] b = new byte[512];
+    for (int offset=0; offset<BLOCK * 64; offset+=b.length) {
+      handle.readFully(b);
+      assertData(b, offset);
+    }
+    // 64 blocks were read sequentially; read-ahead must have
+    // needed far fewer requests
+    assertTrue(ranges.size() < 16, "requests: " + ranges.size());
+    handle.close();
+  }
+
+  @Test
+  public void testPrefetch() throws IOException {
+    RangeHandle handle = open();
+    long[] offsets = new long[32];
+    long[] lengths = new long[32];
+    for (int i=0; i<offsets.length; i++) {
+      // pairs of adjacent tiles, with a large gap between pairs
+      offsets[i] = (i / 2) * 60000 + (i % 2) * 1000;
+      lengths[i] = 1000;
+    }
+    handle.prefetch(offsets, lengths);
+    int requests = ranges.size();
+    assertTrue(requests > 0 && requests <= 16, "requests: " + requests);
+
+    for (int i=offsets.length-1; i>=0; i--) {
+      byte[] b = new byte[(int) lengths[i]];
+      handle.seek(offsets[i]);
+      handle.readFully(b);
+      assertData(b, offsets[i]);
+    }
+    assertEquals(ranges.size(), requests);
+
+    // nothing left to fetch
+    handle.prefetch(offsets, lengths);
+    assertEquals(ranges.size(), requests);
+    handle.close();
+  }
+
+  @Test
+  public void testDataInput() throws IOException {
+    RangeHandle handle = open();
+    handle.seek(100);
+    handle.setOrder(ByteOrder.LITTLE_ENDIAN);
+    int expected = (data[100] & 0xff) | ((data[101] & 0xff) << 8) |
+      ((data[102] & 0xff) << 16) | ((data[103] & 0xff) << 24);
+    assertEquals(handle.readInt(), expected);
+    handle.seek(100);
+    handle.setOrder(ByteOrder.BIG_ENDIAN);
+    assertEquals(handle.readInt(), Integer.reverseBytes(expected));
+    assertEquals(handle.readUnsignedShort(),
+      ((data[104] & 0xff) << 8) | (data[105] & 0xff));
+    handle.close();
+  }
+
+  @Test
+  public void testDuplicateSharesCache() throws IOException {
+    RangeHandle handle = open();
+    handle.seek(5000);
+    handle.readFully(new byte[100]);
+    int requests = ranges.size();
+
+    RangeHandle copy = handle.duplicate();
+    assertEquals(copy.getFilePointer(), 0);
+    copy.seek(5000);
+    byte[] b = new byte[100];
+    copy.readFully(b);
+    assertData(b, 5000);
+    assertEquals(ranges.size(), requests);
+    assertEquals(handle.getFilePointer(), 5100);
+    copy.close();
+    handle.close();
+  }
+
+  @Test
+  public void testMapping() throws IOException {
+    assertTrue(RangeHandle.map(url));
+    try {
+      assertNotNull(RangeHandle.getMapped(url));
+      assertTrue(!RangeHandle.map(url));
+      RandomAccessInputStream s = new RandomAccessInputStream(url);
+      assertEquals(s.length(), LENGTH);
+      s.seek(LENGTH - 10);
+      byte[] b = new byte[10];
+      s.readFully(b);
+      assertData(b, LENGTH - 10);
+      s.close();
+      assertNotNull(Location.getMappedFile(url));
+    }
+    finally {
+      RangeHandle.unmap(url);
+    }
+    assertNull(RangeHandle.getMapped(url));
+    assertTrue(!RangeHandle.map("/tmp/not-remote.tif"));
+  }
+
+  @Test
+  public void testEnabled() {
+    DynamicMetadataOptions options = new DynamicMetadataOptions();
+    assertTrue(!RangeHandle.isEnabled(options));
+    options.setBoolean(RangeHandle.RANGE_READ_KEY, true);
+    assertTrue(RangeHandle.isEnabled(options));
+  }
+
+}
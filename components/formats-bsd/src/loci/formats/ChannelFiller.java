@@ -33,6 +33,7 @@
 package loci.formats;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import loci.common.DataTools;
 import loci.formats.meta.MetadataStore;
@@ -209,6 +210,15 @@ public class ChannelFiller extends ReaderWrapper {
     return buf;
   }
 
+  /* @see IFormatReader#openBuffer(int, ByteBuffer, int, int, int, int) */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    if (!isFilled()) return reader.openBuffer(no, buf, x, y, w, h);
+    return super.openBuffer(no, buf, x, y, w, h);
+  }
+
   // -- IFormatHandler API methods --
 
   /* @see IFormatHandler#getNativeDataType() */
@@ -33,6 +33,8 @@
 package loci.formats;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import loci.common.DataTools;
 import loci.formats.meta.MetadataRetrieve;
@@ -193,20 +195,31 @@ public class ChannelSeparator extends ReaderWrapper {
 
         int stripHeight = h / strips;
         int lastStripHeight = stripHeight + (h - (stripHeight * strips));
-        byte[] strip = strips == 1 ? buf : new byte[stripHeight * w * bpp];
+        byte[] strip =
+          strips == 1 ? buf : BufferPool.take(stripHeight * w * bpp);
         for (int i=0; i<strips; i++) {
-          lastImage = reader.openBytes(source, x, y + i * stripHeight, w,
-            i == strips - 1 ? lastStripHeight : stripHeight);
+          int height = i == strips - 1 ? lastStripHeight : stripHeight;
+          // the previous image is reused, so it is no longer valid
+          BufferPool.release(lastImage);
+          lastImageIndex = -1;
+          lastImage =
+            BufferPool.take(FormatTools.getPlaneSize(reader, w, height));
+          // readers may leave missing or truncated regions unwritten, and
+          // expect them to be blank
+          Arrays.fill(lastImage, (byte) 0);
+          reader.openBytes(source, lastImage, x, y + i * stripHeight, w,
+            height);
           lastImageIndex = source;
           lastImageSeries = series;
           lastImageX = x;
           lastImageY = y + i * stripHeight;
           lastImageWidth = w;
-          lastImageHeight = i == strips - 1 ? lastStripHeight : stripHeight;
+          lastImageHeight = height;
 
           if (strips != 1 && lastStripHeight != stripHeight && i == strips - 1)
           {
-            strip = new byte[lastStripHeight * w * bpp];
+            BufferPool.release(strip);
+            strip = BufferPool.take(lastStripHeight * w * bpp);
           }
 
           ImageTools.splitChannels(lastImage, strip, channel, c, bpp,
@@ -216,6 +229,9 @@ public class ChannelSeparator extends ReaderWrapper {
               strip.length);
           }
         }
+        if (strips != 1) {
+          BufferPool.release(strip);
+        }
       }
       else {
         ImageTools.splitChannels(lastImage, buf, channel, c, bpp,
@@ -227,6 +243,21 @@ public class ChannelSeparator extends ReaderWrapper {
     return reader.openBytes(no, buf, x, y, w, h);
   }
 
+  /* @see IFormatReader#openBuffer(int, ByteBuffer, int, int, int, int) */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    FormatTools.assertId(getCurrentFile(), true, 2);
+    FormatTools.checkPlaneNumber(this, no);
+
+    if (reader.isRGB() && !reader.isIndexed()) {
+      // splitting the channels needs the whole interleaved plane anyway
+      return super.openBuffer(no, buf, x, y, w, h);
+    }
+    return reader.openBuffer(no, buf, x, y, w, h);
+  }
+
   /* @see loci.formats.IFormatReader#openThumbBytes(int) */
   @Override
   public byte[] openThumbBytes(int no) throws FormatException, IOException {
@@ -247,6 +278,7 @@ public class ChannelSeparator extends ReaderWrapper {
   public void close(boolean fileOnly) throws IOException {
     super.close(fileOnly);
     if (!fileOnly) {
+      BufferPool.release(lastImage);
       lastImage = null;
       lastImageIndex = -1;
       lastImageSeries = -1;
@@ -277,6 +309,20 @@ public class ChannelSeparator extends ReaderWrapper {
     return FormatTools.getZCTModuloCoords(this, index);
   }
 
+  /* @see IFormatReader#copy() */
+  @Override
+  public IFormatReader copy() throws FormatException, IOException {
+    ChannelSeparator copy = (ChannelSeparator) super.copy();
+    copy.lastImage = null;
+    copy.lastImageIndex = -1;
+    copy.lastImageSeries = -1;
+    copy.lastImageX = -1;
+    copy.lastImageY = -1;
+    copy.lastImageWidth = -1;
+    copy.lastImageHeight = -1;
+    return copy;
+  }
+
   // -- IFormatHandler API methods --
 
   /* @see IFormatHandler#getNativeDataType() */
@@ -291,6 +337,7 @@ public class ChannelSeparator extends ReaderWrapper {
     super.setId(id);
 
     // clear last image cache
+    BufferPool.release(lastImage);
     lastImage = null;
     lastImageIndex = -1;
     lastImageSeries = -1;
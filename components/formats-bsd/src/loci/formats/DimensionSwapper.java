@@ -33,6 +33,7 @@
 package loci.formats;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -249,6 +250,14 @@ public class DimensionSwapper extends ReaderWrapper {
     return super.openBytes(reorder(no), buf, x, y, w, h);
   }
 
+  /* @see IFormatReader#openBuffer(int, ByteBuffer, int, int, int, int) */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    return reader.openBuffer(reorder(no), buf, x, y, w, h);
+  }
+
   /* @see IFormatReader#openThumbImage(int) */
   @Override
   public byte[] openThumbBytes(int no) throws FormatException, IOException {
@@ -284,6 +293,23 @@ public class DimensionSwapper extends ReaderWrapper {
     return core;
   }
 
+  /* @see IFormatReader#copy() */
+  @Override
+  public IFormatReader copy() throws FormatException, IOException {
+    DimensionSwapper copy = (DimensionSwapper) super.copy();
+    if (core != null) {
+      // NB: the output order can then be changed independently
+      copy.core = new ArrayList<CoreMetadata>();
+      for (CoreMetadata c : core) {
+        SwappableMetadata swappable =
+          new SwappableMetadata((SwappableMetadata) c);
+        swappable.inputOrder = ((SwappableMetadata) c).inputOrder;
+        copy.core.add(swappable);
+      }
+    }
+    return copy;
+  }
+
   // -- IFormatHandler API methods --
 
   /* @see IFormatHandler#setId(String) */
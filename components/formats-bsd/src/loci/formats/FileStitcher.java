@@ -38,13 +38,16 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import loci.common.DataTools;
 import loci.common.Location;
+import loci.common.RandomAccessInputStream;
 import loci.formats.in.MetadataOptions;
 import loci.formats.meta.MetadataStore;
 
@@ -64,6 +67,12 @@ public class FileStitcher extends ReaderWrapper {
 
   private static final int MAX_READERS = 1000;
 
+  /** Default number of constituent readers kept open in template mode. */
+  public static final int DEFAULT_MAX_OPEN_READERS = 16;
+
+  /** Number of leading bytes compared when matching a file to the template. */
+  private static final int TEMPLATE_HEADER_SIZE = 64;
+
   // -- Fields --
 
   /**
@@ -97,6 +106,15 @@ public class FileStitcher extends ReaderWrapper {
   private ExternalSeries[] externals;
   private ClassList<IFormatReader> classList;
 
+  /**
+   * Whether the first file in each pattern is used as a metadata template
+   * for the remaining files.
+   */
+  private boolean templateMode = false;
+
+  /** Maximum number of constituent readers kept open in template mode. */
+  private int maxOpenReaders = DEFAULT_MAX_OPEN_READERS;
+
   // -- Constructors --
 
   /** Constructs a FileStitcher around a new image reader. */
@@ -167,6 +185,52 @@ public class FileStitcher extends ReaderWrapper {
     return !doNotChangePattern;
   }
 
+  /**
+   * Sets whether the first file in each pattern should be used as a
+   * metadata template for the remaining files.
+   *
+   * When enabled, the remaining files are assumed to have the same
+   * dimensions and used files as the first file, which is verified by
+   * comparing file lengths and headers instead of initializing a reader
+   * for each file.  Readers for the remaining files are only created
+   * when pixels are requested, as copies of the first file's reader
+   * (see {@link IFormatReader#copy(String)}) where the reader supports
+   * it; each copy still reads the pixel offsets of its own file, and
+   * falls back to a new reader if that file is structured differently.
+   * At most {@link #getMaxOpenReaders()} of them are kept open at
+   * any time.
+   */
+  public void setUsingTemplateMetadata(boolean templateMode) {
+    FormatTools.assertId(getCurrentFile(), false, 2);
+    this.templateMode = templateMode;
+  }
+
+  /**
+   * Gets whether the first file in each pattern is used as a metadata
+   * template for the remaining files.
+   */
+  public boolean isUsingTemplateMetadata() { return templateMode; }
+
+  /**
+   * Sets the maximum number of constituent readers that are kept open
+   * when using template metadata.  The least recently used reader is
+   * closed when this limit is exceeded.
+   */
+  public void setMaxOpenReaders(int maxOpenReaders) {
+    FormatTools.assertId(getCurrentFile(), false, 2);
+    if (maxOpenReaders < 1) {
+      throw new IllegalArgumentException(
+        "Invalid number of open readers: " + maxOpenReaders);
+    }
+    this.maxOpenReaders = maxOpenReaders;
+  }
+
+  /**
+   * Gets the maximum number of constituent readers that are kept open
+   * when using template metadata.
+   */
+  public int getMaxOpenReaders() { return maxOpenReaders; }
+
   /** Gets the reader appropriate for use with the given image plane. */
   public IFormatReader getReader(int no) throws FormatException, IOException {
     if (noStitch) return reader;
@@ -480,7 +544,9 @@ public class FileStitcher extends ReaderWrapper {
 
     if (ino < r.getImageCount()) {
       byte[] b = r.openBytes(ino, buf, x, y, w, h);
-      if (!noStitch && ino == r.getImageCount() - 1) {
+      // in template mode, the number of open readers is already bounded,
+      // and the first file's reader is needed to copy the others
+      if (!noStitch && !templateMode && ino == r.getImageCount() - 1) {
         r.close();
       }
       return b;
@@ -725,6 +791,11 @@ public class FileStitcher extends ReaderWrapper {
         files.add(path);
       }
 
+      if (templateMode) {
+        addTemplateUsedFiles(s, files);
+        continue;
+      }
+
       DimensionSwapper[] readers = s.getReaders();
       for (int i=0; i<readers.length; i++) {
         try {
@@ -900,6 +971,36 @@ public class FileStitcher extends ReaderWrapper {
     return list.toArray(new IFormatReader[0]);
   }
 
+  /* @see IFormatReader#copy() */
+  @Override
+  public IFormatReader copy() throws FormatException, IOException {
+    FileStitcher copy = (FileStitcher) super.copy();
+    // NB: closing the copy or changing its axis types must not affect
+    // this reader
+    copy.core = new ArrayList<CoreMetadata>();
+    for (CoreMetadata c : core) {
+      copy.core.add(new CoreMetadata(c));
+    }
+    if (lenZ != null) {
+      copy.lenZ = lenZ.clone();
+      copy.lenC = lenC.clone();
+      copy.lenT = lenT.clone();
+    }
+    if (externals != null) {
+      copy.externals = new ExternalSeries[externals.length];
+      for (int i=0; i<externals.length; i++) {
+        copy.externals[i] = copy.new ExternalSeries(externals[i]);
+      }
+    }
+    return copy;
+  }
+
+  /* @see IFormatReader#copy(String) */
+  @Override
+  public IFormatReader copy(String id) throws FormatException {
+    throw new FormatException("FileStitcher cannot be copied to another file");
+  }
+
   /* @see IFormatReader#reopenFile) */
   @Override
   public void reopenFile() throws IOException {
@@ -1138,6 +1239,38 @@ public class FileStitcher extends ReaderWrapper {
 
   // -- Helper methods --
 
+  /**
+   * Adds the used files for each file in the given series, initializing
+   * a reader only for files that do not match the template.
+   */
+  private void addTemplateUsedFiles(ExternalSeries s, Set<String> files) {
+    String[] f = s.getFiles();
+    boolean singleFile = false;
+    for (int i=0; i<f.length; i++) {
+      if (i > 0 && singleFile && s.matchesTemplate(i)) {
+        continue;
+      }
+      DimensionSwapper r = s.getReader(i);
+      try {
+        r.setId(f[i]);
+        String[] used = r.getUsedFiles();
+        for (String file : used) {
+          String path = new Location(file).getAbsolutePath();
+          files.add(path);
+        }
+        if (i == 0) {
+          singleFile = used.length == 1;
+        }
+      }
+      catch (FormatException e) {
+        LOGGER.debug("", e);
+      }
+      catch (IOException e) {
+        LOGGER.debug("", e);
+      }
+    }
+  }
+
   private int getExternalSeries() {
     return getExternalSeries(getCoreIndex());
   }
@@ -1321,6 +1454,15 @@ public class FileStitcher extends ReaderWrapper {
 
   class ExternalSeries {
     private DimensionSwapper[] readers;
+
+    /**
+     * Most recently used readers for all but the first file, when using
+     * template metadata.
+     */
+    private LinkedHashMap<Integer, DimensionSwapper> openReaders;
+    private long templateLength = -1;
+    private byte[] templateHeader;
+
     private String[] files;
     private FilePattern pattern;
     private byte[] blankThumbBytes;
@@ -1334,18 +1476,18 @@ public class FileStitcher extends ReaderWrapper {
       this.pattern = pattern;
       files = this.pattern.getFiles();
 
-      int nReaders = files.length > MAX_READERS ? 1 : files.length;
+      int nReaders = files.length > MAX_READERS || templateMode ?
+        1 : files.length;
       readers = new DimensionSwapper[nReaders];
       for (int i=0; i<readers.length; i++) {
-        if (classList != null) {
-          readers[i] = new DimensionSwapper(new ImageReader(classList));
-        }
-        else readers[i] = new DimensionSwapper();
-        readers[i].setMetadataOptions(getMetadataOptions());
-        readers[i].setGroupFiles(false);
+        readers[i] = createReader();
       }
       readers[0].setId(files[0]);
 
+      if (templateMode) {
+        openReaders = createOpenReaders();
+      }
+
       ag = new AxisGuesser(this.pattern, readers[0].getDimensionOrder(),
         readers[0].getSizeZ(), readers[0].getSizeT(),
         readers[0].getSizeC(), readers[0].isOrderCertain());
@@ -1357,7 +1499,49 @@ public class FileStitcher extends ReaderWrapper {
       imagesPerFile = readers[0].getImageCount();
     }
 
+    /**
+     * Creates a copy of the given series that shares its file list and
+     * axis assignments, with a copy of each initialized reader.
+     */
+    public ExternalSeries(ExternalSeries series)
+      throws FormatException, IOException
+    {
+      pattern = series.pattern;
+      files = series.files;
+      templateLength = series.templateLength;
+      templateHeader = series.templateHeader;
+      blankThumbBytes = series.blankThumbBytes;
+      originalOrder = series.originalOrder;
+      ag = series.ag;
+      imagesPerFile = series.imagesPerFile;
+
+      readers = new DimensionSwapper[series.readers.length];
+      for (int i=0; i<readers.length; i++) {
+        DimensionSwapper r = series.readers[i];
+        readers[i] = r.getCurrentFile() == null ?
+          createReader() : (DimensionSwapper) r.copy();
+      }
+      if (series.openReaders != null) {
+        openReaders = createOpenReaders();
+      }
+    }
+
     public DimensionSwapper getReader(int fno) {
+      if (openReaders != null && fno > 0 && fno < files.length) {
+        DimensionSwapper r = openReaders.get(fno);
+        if (r == null) {
+          r = copyTemplate(fno);
+          if (r == null) {
+            r = createReader();
+            r.setFlattenedResolutions(readers[0].hasFlattenedResolutions());
+            r.setNormalized(readers[0].isNormalized());
+            r.setOriginalMetadataPopulated(
+              readers[0].isOriginalMetadataPopulated());
+          }
+          openReaders.put(fno, r);
+        }
+        return r;
+      }
       if (fno < readers.length) {
         return readers[fno];
       }
@@ -1365,7 +1549,44 @@ public class FileStitcher extends ReaderWrapper {
     }
 
     public DimensionSwapper[] getReaders() {
-      return readers;
+      if (openReaders == null) {
+        return readers;
+      }
+      DimensionSwapper[] all =
+        new DimensionSwapper[readers.length + openReaders.size()];
+      System.arraycopy(readers, 0, all, 0, readers.length);
+      int next = readers.length;
+      for (DimensionSwapper r : openReaders.values()) {
+        all[next++] = r;
+      }
+      return all;
+    }
+
+    /**
+     * Checks whether the given file appears to have the same structure as
+     * the first file in the pattern.  Only the file length and the leading
+     * bytes are compared, so no reader is initialized.
+     */
+    public boolean matchesTemplate(int fno) {
+      if (fno == 0) {
+        return true;
+      }
+      try {
+        if (templateHeader == null) {
+          templateLength = new Location(files[0]).length();
+          templateHeader = readHeader(files[0], templateLength);
+        }
+        Location file = new Location(files[fno]);
+        if (!file.exists() || file.length() != templateLength) {
+          return false;
+        }
+        return Arrays.equals(templateHeader,
+          readHeader(files[fno], templateLength));
+      }
+      catch (IOException e) {
+        LOGGER.debug("Could not compare " + files[fno] + " to template", e);
+        return false;
+      }
     }
 
     public FilePattern getFilePattern() {
@@ -1392,6 +1613,79 @@ public class FileStitcher extends ReaderWrapper {
       return imagesPerFile;
     }
 
+    /**
+     * Creates the map of most recently used readers, which closes the
+     * least recently used reader once more than maxOpenReaders are open.
+     */
+    private LinkedHashMap<Integer, DimensionSwapper> createOpenReaders() {
+      final int maxOpen = maxOpenReaders;
+      return new LinkedHashMap<Integer, DimensionSwapper>(
+        maxOpen + 1, 0.75f, true)
+      {
+        @Override
+        protected boolean removeEldestEntry(
+          Map.Entry<Integer, DimensionSwapper> eldest)
+        {
+          if (size() <= maxOpen) {
+            return false;
+          }
+          try {
+            eldest.getValue().close();
+          }
+          catch (IOException e) {
+            LOGGER.debug("", e);
+          }
+          return true;
+        }
+      };
+    }
+
+    /**
+     * Copies the first file's reader so that it reads the given file,
+     * if the file matches the template.  Returns null if the file must be
+     * initialized by its own reader instead.
+     */
+    private DimensionSwapper copyTemplate(int fno) {
+      if (readers[0].getCurrentFile() == null || !matchesTemplate(fno) ||
+        readers[0].getUsedFiles(false).length != 1)
+      {
+        return null;
+      }
+      try {
+        return (DimensionSwapper) readers[0].copy(files[fno]);
+      }
+      catch (FormatException e) {
+        LOGGER.debug("Could not copy template for " + files[fno], e);
+      }
+      catch (IOException e) {
+        LOGGER.debug("Could not copy template for " + files[fno], e);
+      }
+      return null;
+    }
+
+    private DimensionSwapper createReader() {
+      DimensionSwapper r = null;
+      if (classList != null) {
+        r = new DimensionSwapper(new ImageReader(classList));
+      }
+      else r = new DimensionSwapper();
+      r.setMetadataOptions(getMetadataOptions());
+      r.setGroupFiles(false);
+      return r;
+    }
+
+    private byte[] readHeader(String file, long length) throws IOException {
+      byte[] header = new byte[(int) Math.min(length, TEMPLATE_HEADER_SIZE)];
+      RandomAccessInputStream s = new RandomAccessInputStream(file);
+      try {
+        s.readFully(header);
+      }
+      finally {
+        s.close();
+      }
+      return header;
+    }
+
   }
 
 }
@@ -0,0 +1,200 @@
+/*
+ * #%L
+ * BSD implementations of Bio-Formats readers and writers
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+import loci.common.DataTools;
+
+/**
+ * Records the time spent in, and bytes returned by, each call to
+ * <code>setId</code>, <code>openBytes</code> and
+ * <code>openThumbBytes</code> on the wrapped reader.
+ *
+ * Calls are recorded in {@link ReaderMetrics} under the simple name of the
+ * underlying format reader (e.g. <code>TiffReader.openBytes</code>), so
+ * that they can be compared with the lower-level I/O and decoding metrics.
+ * Calls made through this wrapper are always recorded; the lower-level
+ * metrics are only collected once the caller has enabled them with
+ * {@link ReaderMetrics#setEnabled(boolean)}.
+ */
+public class InstrumentedReader extends ReaderWrapper {
+
+  // -- Fields --
+
+  /** Simple class name of the underlying format reader. */
+  private String readerName;
+
+  // -- Constructors --
+
+  /** Constructs an InstrumentedReader around a new image reader. */
+  public InstrumentedReader() {
+    super();
+  }
+
+  /** Constructs an InstrumentedReader with a given reader. */
+  public InstrumentedReader(IFormatReader r) {
+    super(r);
+  }
+
+  // -- InstrumentedReader API methods --
+
+  /**
+   * Gets the simple class name of the underlying format reader,
+   * or null if no file has been initialized.
+   */
+  public String getReaderName() {
+    return readerName;
+  }
+
+  /**
+   * Returns a copy of the metrics recorded so far for the underlying
+   * format reader's class, keyed by operation.
+   */
+  public Map<String, MetricSnapshot> getMetrics() {
+    Map<String, MetricSnapshot> metrics =
+      new TreeMap<String, MetricSnapshot>();
+    if (readerName == null) return metrics;
+    String prefix = readerName + ".";
+    for (Map.Entry<String, MetricSnapshot> entry :
+      ReaderMetrics.snapshot().entrySet())
+    {
+      if (entry.getKey().startsWith(prefix)) {
+        metrics.put(entry.getKey().substring(prefix.length()),
+          entry.getValue());
+      }
+    }
+    return metrics;
+  }
+
+  // -- IFormatReader API methods --
+
+  /* @see IFormatReader#openBytes(int) */
+  @Override
+  public byte[] openBytes(int no) throws FormatException, IOException {
+    return openBytes(no, 0, 0, getSizeX(), getSizeY());
+  }
+
+  /* @see IFormatReader#openBytes(int, byte[]) */
+  @Override
+  public byte[] openBytes(int no, byte[] buf)
+    throws FormatException, IOException
+  {
+    return openBytes(no, buf, 0, 0, getSizeX(), getSizeY());
+  }
+
+  /* @see IFormatReader#openBytes(int, int, int, int, int) */
+  @Override
+  public byte[] openBytes(int no, int x, int y, int w, int h)
+    throws FormatException, IOException
+  {
+    int bpp = FormatTools.getBytesPerPixel(getPixelType());
+    int ch = getRGBChannelCount();
+    byte[] buf = DataTools.allocate(w, h, ch, bpp);
+    return openBytes(no, buf, x, y, w, h);
+  }
+
+  /* @see IFormatReader#openBytes(int, byte[], int, int, int, int) */
+  @Override
+  public byte[] openBytes(int no, byte[] buf, int x, int y, int w, int h)
+    throws FormatException, IOException
+  {
+    long start = System.nanoTime();
+    byte[] b = reader.openBytes(no, buf, x, y, w, h);
+    long bytes = (long) w * h * getRGBChannelCount() *
+      FormatTools.getBytesPerPixel(getPixelType());
+    ReaderMetrics.record(getSourceName(), "openBytes", start, bytes);
+    return b;
+  }
+
+  /* @see IFormatReader#openBuffer(int, ByteBuffer, int, int, int, int) */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    long start = System.nanoTime();
+    ByteBuffer b = reader.openBuffer(no, buf, x, y, w, h);
+    ReaderMetrics.record(getSourceName(), "openBuffer", start, b.remaining());
+    return b;
+  }
+
+  /* @see IFormatReader#openThumbBytes(int) */
+  @Override
+  public byte[] openThumbBytes(int no) throws FormatException, IOException {
+    long start = System.nanoTime();
+    byte[] b = reader.openThumbBytes(no);
+    ReaderMetrics.record(getSourceName(), "openThumbBytes", start, b.length);
+    return b;
+  }
+
+  /* @see IFormatReader#close(boolean) */
+  @Override
+  public void close(boolean fileOnly) throws IOException {
+    reader.close(fileOnly);
+    if (!fileOnly) {
+      readerName = null;
+    }
+  }
+
+  // -- IFormatHandler API methods --
+
+  /* @see IFormatHandler#setId(String) */
+  @Override
+  public void setId(String id) throws FormatException, IOException {
+    long start = System.nanoTime();
+    reader.setId(id);
+    readerName = unwrap().getClass().getSimpleName();
+    ReaderMetrics.record(readerName, "setId", start, 0);
+  }
+
+  /* @see IFormatHandler#close() */
+  @Override
+  public void close() throws IOException {
+    close(false);
+  }
+
+  // -- Helper methods --
+
+  /**
+   * Gets the name under which calls are recorded, falling back to the
+   * wrapped reader's class if no file has been initialized.
+   */
+  private String getSourceName() {
+    return readerName == null ?
+      reader.getClass().getSimpleName() : readerName;
+  }
+
+}
@@ -37,6 +37,7 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.lang.ArrayIndexOutOfBoundsException;
 
 import loci.common.Constants;
@@ -645,6 +646,21 @@ public class Memoizer extends ReaderWrapper {
     }
   }
 
+  @Override
+  public IFormatReader copy() throws FormatException, IOException {
+    Memoizer copy = (Memoizer) super.copy();
+    // the serializer is not thread-safe, so the copy creates its own
+    copy.ser = null;
+    return copy;
+  }
+
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    return reader.openBuffer(no, buf, x, y, w, h);
+  }
+
   // -- ReaderWrapper API methods --
 
   @Override
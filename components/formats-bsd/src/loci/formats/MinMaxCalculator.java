@@ -33,6 +33,7 @@
 package loci.formats;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import loci.common.DataTools;
@@ -234,6 +235,45 @@ public class MinMaxCalculator extends ReaderWrapper {
     return minMaxDone != null && minMaxDone[getCoreIndex()] == getImageCount();
   }
 
+  /**
+   * Adds the values computed by the given copy of this reader (see
+   * {@link #copy()}) to those of this reader, e.g. once some of the planes
+   * have been read with the copy instead.
+   *
+   * @throws IOException Not actually thrown.
+   */
+  public void mergeMinMax(MinMaxCalculator copy)
+    throws FormatException, IOException
+  {
+    FormatTools.assertId(getCurrentFile(), true, 2);
+    if (copy.minMaxDone == null) return;
+    initMinMax();
+    if (copy.minMaxDone.length != minMaxDone.length) {
+      throw new FormatException("Reader is not a copy of this reader");
+    }
+
+    for (int s=0; s<minMaxDone.length; s++) {
+      for (int c=0; c<chanMin[s].length; c++) {
+        chanMin[s][c] = Math.min(chanMin[s][c], copy.chanMin[s][c]);
+        chanMax[s][c] = Math.max(chanMax[s][c], copy.chanMax[s][c]);
+      }
+      for (int p=0; p<planeMin[s].length; p++) {
+        if (Double.isNaN(planeMin[s][p])) {
+          planeMin[s][p] = copy.planeMin[s][p];
+          planeMax[s][p] = copy.planeMax[s][p];
+        }
+      }
+      minMaxDone[s] = Math.max(minMaxDone[s], copy.minMaxDone[s]);
+    }
+
+    if (minMaxDone[getCoreIndex()] == getImageCount() && minMaxStore != null) {
+      for (int c=0; c<getSizeC(); c++) {
+        minMaxStore.setChannelGlobalMinMax(c, chanMin[getCoreIndex()][c],
+          chanMax[getCoreIndex()][c], getSeries());
+      }
+    }
+  }
+
   // -- IFormatReader API methods --
 
   /* @see IFormatReader#openBytes(int) */
@@ -272,6 +312,26 @@ public class MinMaxCalculator extends ReaderWrapper {
     return buf;
   }
 
+  /* @see IFormatReader#openBuffer(int, ByteBuffer, int, int, int, int) */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    FormatTools.assertId(getCurrentFile(), true, 2);
+    ByteBuffer plane = reader.openBuffer(no, buf, x, y, w, h);
+
+    int len = FormatTools.getBytesPerPixel(getPixelType()) * w * h;
+    if (plane.hasArray() && plane.arrayOffset() == 0) {
+      updateMinMax(no, plane.array(), len);
+    }
+    else if (!isMinMaxDone(no, len)) {
+      byte[] pixels = new byte[plane.remaining()];
+      plane.duplicate().get(pixels);
+      updateMinMax(no, pixels, len);
+    }
+    return plane;
+  }
+
   /* @see IFormatReader#close(boolean) */
   @Override
   public void close(boolean fileOnly) throws IOException {
@@ -285,6 +345,32 @@ public class MinMaxCalculator extends ReaderWrapper {
     }
   }
 
+  /* @see IFormatReader#copy() */
+  @Override
+  public IFormatReader copy() throws FormatException, IOException {
+    MinMaxCalculator copy = (MinMaxCalculator) super.copy();
+    // values computed so far are kept, but updated independently
+    copy.chanMin = copyArray(chanMin);
+    copy.chanMax = copyArray(chanMax);
+    copy.planeMin = copyArray(planeMin);
+    copy.planeMax = copyArray(planeMax);
+    copy.minMaxDone = minMaxDone == null ? null : minMaxDone.clone();
+    return copy;
+  }
+
+  /* @see IFormatReader#copy(String) */
+  @Override
+  public IFormatReader copy(String id) throws FormatException, IOException {
+    MinMaxCalculator copy = (MinMaxCalculator) super.copy(id);
+    // values computed so far belong to the current file
+    copy.chanMin = null;
+    copy.chanMax = null;
+    copy.planeMin = null;
+    copy.planeMax = null;
+    copy.minMaxDone = null;
+    return copy;
+  }
+
   // -- IFormatHandler API methods --
 
   /* @see IFormatHandler#getNativeDataType() */
@@ -312,11 +398,7 @@ public class MinMaxCalculator extends ReaderWrapper {
     int series = getCoreIndex();
     int pixelType = getPixelType();
     int bpp = FormatTools.getBytesPerPixel(pixelType);
-    int planeSize = getSizeX() * getSizeY() * bpp;
-    // check whether min/max values have already been computed for this plane
-    // and that the buffer requested is actually the entire plane
-    if (len == planeSize
-        && !Double.isNaN(planeMin[series][no * numRGB])) return;
+    if (isMinMaxDone(no, len)) return;
 
     boolean little = isLittleEndian();
     
@@ -376,6 +458,19 @@ public class MinMaxCalculator extends ReaderWrapper {
     }
   }
 
+  /**
+   * Checks whether min/max values have already been computed for the given
+   * plane, and that <code>len</code> bytes are actually the entire plane.
+   */
+  private boolean isMinMaxDone(int no, int len)
+    throws FormatException, IOException
+  {
+    initMinMax();
+    int bpp = FormatTools.getBytesPerPixel(getPixelType());
+    return len == getSizeX() * getSizeY() * bpp &&
+      !Double.isNaN(planeMin[getCoreIndex()][no * getRGBChannelCount()]);
+  }
+
   /**
    * Ensures internal min/max variables are initialized properly. 
    *
@@ -428,4 +523,15 @@ public class MinMaxCalculator extends ReaderWrapper {
     if (minMaxDone == null) minMaxDone = new int[seriesCount];
   }
 
+  private static double[][] copyArray(double[][] array) {
+    if (array == null) {
+      return null;
+    }
+    double[][] copy = new double[array.length][];
+    for (int i=0; i<array.length; i++) {
+      copy[i] = array[i] == null ? null : array[i].clone();
+    }
+    return copy;
+  }
+
 }
@@ -32,25 +32,17 @@
 
 package loci.formats.codec;
 
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBuffer;
-import java.awt.image.DataBufferByte;
-import java.awt.image.DataBufferUShort;
 import java.awt.image.WritableRaster;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
-import loci.common.ByteArrayHandle;
-import loci.common.DataTools;
 import loci.common.RandomAccessInputStream;
-import loci.common.RandomAccessOutputStream;
+import loci.common.Region;
 import loci.common.services.DependencyException;
 import loci.common.services.ServiceException;
 import loci.common.services.ServiceFactory;
 import loci.formats.FormatException;
 import loci.formats.MissingLibraryException;
 import loci.formats.gui.AWTImageTools;
-import loci.formats.gui.UnsignedIntBuffer;
 import loci.formats.services.JAIIIOService;
 import loci.formats.services.JAIIIOServiceImpl;
 
@@ -61,7 +53,107 @@ import loci.formats.services.JAIIIOServiceImpl;
  * </dl>
  */
 public class JPEG2000Codec extends WrappedCodec {
+
+  // -- Fields --
+
+  private JAIIIOService service;
+
+  // -- Constructor --
+
   public JPEG2000Codec() {
     super(new ome.codecs.JPEG2000Codec());
   }
+
+  // -- Codec API methods --
+
+  /* @see Codec#decompress(byte[], CodecOptions) */
+  @Override
+  public byte[] decompress(byte[] data, CodecOptions options)
+    throws FormatException
+  {
+    if (getRegion(options) == null) {
+      return super.decompress(data, options);
+    }
+    try (RandomAccessInputStream s = new RandomAccessInputStream(data)) {
+      return decompress(s, options);
+    }
+    catch (IOException e) {
+      throw new FormatException(e);
+    }
+  }
+
+  /**
+   * The CodecOptions parameter should have the following fields set:
+   *  {@link CodecOptions#interleaved interleaved}
+   *  {@link CodecOptions#littleEndian littleEndian}
+   * If the options are {@link JPEG2000CodecOptions} with a
+   * {@link JPEG2000CodecOptions#region region} set, only that region is
+   * decoded and the codestream is read in place rather than buffered.
+   *
+   * @see Codec#decompress(RandomAccessInputStream, CodecOptions)
+   */
+  @Override
+  public byte[] decompress(RandomAccessInputStream in, CodecOptions options)
+    throws FormatException, IOException
+  {
+    if (getRegion(options) == null) {
+      return super.decompress(in, options);
+    }
+
+    WritableRaster b = null;
+    try {
+      b = (WritableRaster)
+        getService().readRaster(in, (JPEG2000CodecOptions) options);
+    }
+    catch (ServiceException e) {
+      throw new FormatException(e);
+    }
+    byte[][] single = AWTImageTools.getPixelBytes(b, options.littleEndian);
+    if (single.length == 1) {
+      return single[0];
+    }
+    int bpp = single[0].length / (b.getWidth() * b.getHeight());
+
+    byte[] rtn = new byte[single.length * single[0].length];
+    if (options.interleaved) {
+      int next = 0;
+      for (int i=0; i<single[0].length/bpp; i++) {
+        for (int j=0; j<single.length; j++) {
+          for (int bb=0; bb<bpp; bb++) {
+            rtn[next++] = single[j][i * bpp + bb];
+          }
+        }
+      }
+    }
+    else {
+      for (int i=0; i<single.length; i++) {
+        System.arraycopy(single[i], 0, rtn, i * single[0].length,
+          single[i].length);
+      }
+    }
+    return rtn;
+  }
+
+  // -- Helper methods --
+
+  private static Region getRegion(CodecOptions options) {
+    if (options instanceof JPEG2000CodecOptions) {
+      return ((JPEG2000CodecOptions) options).region;
+    }
+    return null;
+  }
+
+  private JAIIIOService getService() throws FormatException {
+    if (service == null) {
+      try {
+        ServiceFactory factory = new ServiceFactory();
+        service = factory.getInstance(JAIIIOService.class);
+      }
+      catch (DependencyException de) {
+        throw new MissingLibraryException(JAIIIOServiceImpl.NO_J2K_MSG, de);
+      }
+    }
+    return service;
+  }
+
 }
@@ -32,6 +32,8 @@
 
 package loci.formats.codec;
 
+import loci.common.Region;
+
 /**
  * Options for compressing and decompressing JPEG-2000 data.
  */
@@ -71,6 +73,22 @@ public class JPEG2000CodecOptions extends CodecOptions {
    */
   public boolean writeBox = true;
 
+  /**
+   * The region to decode, in the coordinates of the chosen resolution level,
+   * as would be provided to:
+   * {@link javax.imageio.ImageReadParam#setSourceRegion(java.awt.Rectangle)}
+   * (READ). Leaving this value <code>null</code> signifies that the whole
+   * image will be decoded.
+   */
+  public Region region;
+
+  /**
+   * The offset in the input stream at which the code stream ends (READ).
+   * Leaving this value as 0 signifies that the code stream may extend to
+   * the end of the input stream.
+   */
+  public long codestreamEnd;
+
   // -- Constructors --
 
   /** Creates a new instance. */
@@ -91,6 +109,8 @@ public class JPEG2000CodecOptions extends CodecOptions {
       }
       numDecompositionLevels = j2kOptions.numDecompositionLevels;
       resolution = j2kOptions.resolution;
+      region = j2kOptions.region;
+      codestreamEnd = j2kOptions.codestreamEnd;
     }
   }
 
@@ -43,6 +43,7 @@ import loci.formats.FormatException;
 import loci.formats.FormatReader;
 import loci.formats.FormatTools;
 import loci.formats.ImageTools;
+import loci.formats.KeyframeCache;
 import loci.formats.MetadataTools;
 import loci.formats.UnsupportedCompressionException;
 import loci.formats.codec.CodecOptions;
@@ -149,6 +150,9 @@ public class AVIReader extends FormatReader {
   private byte[] lastImage;
   private int lastImageNo;
 
+  /** Checkpoints of decoded MSRLE and MSVideo frames, for random access. */
+  private transient KeyframeCache keyframes;
+
   // -- Constructor --
 
   /** Constructs a new AVI reader. */
@@ -299,6 +303,10 @@ public class AVIReader extends FormatReader {
       lut = null;
       lastImage = null;
       lastImageNo = -1;
+      if (keyframes != null) {
+        keyframes.close();
+        keyframes = null;
+      }
     }
   }
 
@@ -405,14 +413,24 @@ public class AVIReader extends FormatReader {
       buf = lastImage;
       return buf;
     }
+    if (keyframes == null && bmpCompression != JPEG) {
+      keyframes = KeyframeCache.create(getMetadataOptions());
+    }
     CodecOptions options = new CodecOptions();
     options.width = getSizeX();
     options.height = getSizeY();
     options.previousImage = (lastImageNo == no - 1) ? lastImage : null;
 
-    if (options.previousImage == null && bmpCompression != JPEG) {
+    if (options.previousImage == null && bmpCompression != JPEG && no > 0) {
+      // each frame is a delta from the one before it, so start from
+      // the nearest checkpoint and decode forward to the previous frame
+      int start = keyframes.nearest(no - 1, lastImageNo);
+      if (start != lastImageNo) {
+        lastImage = start < 0 ? null : keyframes.get(start);
+        lastImageNo = start;
+      }
       while (lastImageNo < no - 1) {
-        openBytes(lastImageNo + 1, buf);
+        uncompress(lastImageNo + 1, null);
       }
       options.previousImage = lastImage;
     }
@@ -526,6 +544,11 @@ public class AVIReader extends FormatReader {
     }
     lastImage = buf;
     lastImageNo = no;
+    if (keyframes != null && bmpCompression != JPEG &&
+      keyframes.isCheckpoint(no))
+    {
+      keyframes.put(no, buf);
+    }
     return buf;
   }
 
@@ -291,7 +291,7 @@ public class DicomReader extends FormatReader {
     int bpp = FormatTools.getBytesPerPixel(getPixelType());
     int bytes = getSizeX() * getSizeY() * bpp * ec;
     if (in == null) {
-      in = new RandomAccessInputStream(currentId);
+      in = openStream(currentId);
     }
     in.seek(offsets[no]);
 
@@ -483,7 +483,7 @@ public class DicomReader extends FormatReader {
   @Override
   protected void initFile(String id) throws FormatException, IOException {
     super.initFile(id);
-    in = new RandomAccessInputStream(id);
+    in = openStream(id);
     in.order(true);
     CoreMetadata m = core.get(0);
 
@@ -1363,7 +1363,7 @@ public class DicomReader extends FormatReader {
     int fileSeries = -1;
 
     String date = null, time = null, instance = null;
-    try (RandomAccessInputStream stream = new RandomAccessInputStream(file)) {
+    try (RandomAccessInputStream stream = openStream(file)) {
       if (!isThisType(stream)) {
         return;
       }
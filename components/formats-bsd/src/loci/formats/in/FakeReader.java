@@ -45,6 +45,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
 import loci.common.Constants;
 import loci.common.DataTools;
@@ -98,6 +99,8 @@ import ome.units.UNITS;
  *  <li>showinf 'Plate&amp;screens=0&amp;plates=1&amp;plateRows=3&amp;plateCols=3&amp;fields=8&amp;plateAcqs=5.fake'</li>
  *  <li>showinf 'regions&amp;points=10&amp;ellipses=5&amp;rectangles=10.fake'</li>
  *  <li>showinf 'pyramid&amp;sizeX=10000&amp;sizeY=10000&amp;resolutions=5&amp;resolutionScale=2.fake' -noflat -resolution 4</li>
+ *  <li>showinf 'zero&amp;sizeX=20000&amp;sizeY=20000&amp;fill=zero.fake' -nopix</li>
+ *  <li>showinf 'constant&amp;pixelType=uint16&amp;fill=constant&amp;fillValue=1000.fake'</li>
  * </ul></p>
  */
 public class FakeReader extends FormatReader {
@@ -131,6 +134,16 @@ public class FakeReader extends FormatReader {
 
   public static final int DEFAULT_RESOLUTION_SCALE = 2;
 
+  /** Fill mode: gradient with encoded plane indices (default). */
+  public static final String FILL_GRADIENT = "gradient";
+  /** Fill mode: every pixel is zero. */
+  public static final String FILL_ZERO = "zero";
+  /** Fill mode: every pixel has the value given by 'fillValue'. */
+  public static final String FILL_CONSTANT = "constant";
+
+  /** Minimum region size in bytes for which pixels are generated in parallel. */
+  private static final int PARALLEL_THRESHOLD = 16 * 1024 * 1024;
+
   private static final String TOKEN_SEPARATOR = "&";
   private static final long SEED = 0xcafebabe;
 
@@ -184,6 +197,12 @@ public class FakeReader extends FormatReader {
   /** Scale factor for gradient, if any. */
   private double scaleFactor = 1;
 
+  /** How pixel values are generated; one of the FILL_* constants. */
+  private String fill = FILL_GRADIENT;
+
+  /** Pixel value used when fill mode is {@link #FILL_CONSTANT}. */
+  private long fillValue = 0;
+
   /** 8-bit lookup table, if indexed color, one per channel. */
   private byte[][][] lut8 = null;
 
@@ -306,7 +325,6 @@ public class FakeReader extends FormatReader {
     final boolean signed = FormatTools.isSigned(pixelType);
     final boolean floating = FormatTools.isFloatingPoint(pixelType);
     final int rgb = getRGBChannelCount();
-    final boolean indexed = isIndexed();
     final boolean little = isLittleEndian();
     final boolean interleaved = isInterleaved();
 
@@ -314,76 +332,56 @@ public class FakeReader extends FormatReader {
     final int zIndex = zct[0], cIndex = zct[1], tIndex = zct[2];
     ac = cIndex;
 
+    final int length = w * h * rgb * bpp;
+    if (FILL_ZERO.equals(fill)) {
+      Arrays.fill(buf, 0, length, (byte) 0);
+      return buf;
+    }
+
+    // every row of a channel is identical outside of the special pixel
+    // boxes, so build one template row per channel and copy it into place
+    final int rowLength = w * bpp * (interleaved ? rgb : 1);
+    final int rowCount = interleaved ? h : h * rgb;
+    final byte[] template = new byte[w * rgb * bpp];
+
     // integer types start gradient at the smallest value
     long min = signed ? (long) -Math.pow(2, 8 * bpp - 1) : 0;
     if (floating) min = 0; // floating point types always start at 0
 
     for (int cOffset=0; cOffset<rgb; cOffset++) {
-      int channel = rgb * cIndex + cOffset;
-      for (int row=0; row<h; row++) {
-        int yy = y + row;
-        for (int col=0; col<w; col++) {
-          int xx = x + col;
-          long pixel = min + xx;
-
-          // encode various information into the image plane
-          boolean specialPixel = false;
-          if (yy < BOX_SIZE) {
-            int grid = xx / BOX_SIZE;
-            specialPixel = true;
-            switch (grid) {
-              case 0:
-                pixel = s;
-                break;
-              case 1:
-                pixel = no;
-                break;
-              case 2:
-                pixel = zIndex;
-                break;
-              case 3:
-                pixel = channel;
-                break;
-              case 4:
-                pixel = tIndex;
-                break;
-              default:
-                // just a normal pixel in the gradient
-                specialPixel = false;
-            }
-          }
+      for (int col=0; col<w; col++) {
+        long pixel = FILL_CONSTANT.equals(fill) ?
+          encodePixel(fillValue, true) : encodePixel(min + x + col, false);
+        DataTools.unpackBytes(pixel, template,
+          getPixelIndex(0, col, cOffset, w, 1, rgb, interleaved) * bpp,
+          bpp, little);
+      }
+    }
 
-          // if indexed color with non-null LUT, convert value to index
-          if (indexed) {
-            if (lut8 != null) pixel = valueToIndex[ac][(int) (pixel % 256)];
-            if (lut16 != null) pixel = valueToIndex[ac][(int) (pixel % 65536)];
-          }
+    if ((long) length >= PARALLEL_THRESHOLD) {
+      final int chunk = Math.max(1, PARALLEL_THRESHOLD / (4 * rowLength));
+      final int chunks = (rowCount + chunk - 1) / chunk;
+      IntStream.range(0, chunks).parallel().forEach(i ->
+        copyRows(template, buf, rowLength, h, i * chunk,
+          Math.min(rowCount, (i + 1) * chunk), interleaved));
+    }
+    else {
+      copyRows(template, buf, rowLength, h, 0, rowCount, interleaved);
+    }
 
-          // scale pixel value by the scale factor
-          // if floating point, convert value to raw IEEE floating point bits
-          switch (pixelType) {
-            case FormatTools.FLOAT:
-              float floatPixel;
-              if (specialPixel) floatPixel = pixel;
-              else floatPixel = (float) (scaleFactor * pixel);
-              pixel = Float.floatToIntBits(floatPixel);
-              break;
-            case FormatTools.DOUBLE:
-              double doublePixel;
-              if (specialPixel) doublePixel = pixel;
-              else doublePixel = scaleFactor * pixel;
-              pixel = Double.doubleToLongBits(doublePixel);
-              break;
-            default:
-              if (!specialPixel) pixel = (long) (scaleFactor * pixel);
-          }
+    if (FILL_CONSTANT.equals(fill)) return buf;
 
-          // unpack pixel into byte buffer
-          int index;
-          if (interleaved) index = w * rgb * row + rgb * col + cOffset; // CXY
-          else index = h * w * cOffset + w * row + col; // XYC
-          index *= bpp;
-          DataTools.unpackBytes(pixel, buf, index, bpp, little);
+    // encode various information into the upper-left corner of the plane
+    final int[] special = {s, no, zIndex, 0, tIndex};
+    final int specialWidth = special.length * BOX_SIZE;
+    for (int cOffset=0; cOffset<rgb; cOffset++) {
+      special[3] = rgb * cIndex + cOffset;
+      for (int row=0; row<h && y + row < BOX_SIZE; row++) {
+        for (int col=0; col<w && x + col < specialWidth; col++) {
+          long pixel = encodePixel(special[(x + col) / BOX_SIZE], true);
+          DataTools.unpackBytes(pixel, buf,
+            getPixelIndex(row, col, cOffset, w, h, rgb, interleaved) * bpp,
+            bpp, little);
         }
       }
     }
@@ -393,6 +391,19 @@ public class FakeReader extends FormatReader {
 
   // -- Internal FormatReader API methods --
 
+  /* @see loci.formats.FormatReader#initCopy() */
+  @Override
+  protected void initCopy() throws FormatException, IOException {
+    super.initCopy();
+    fakeSeries = new ArrayList<String>(fakeSeries);
+  }
+
+  /* @see loci.formats.FormatReader#isCopySupported() */
+  @Override
+  protected boolean isCopySupported() {
+    return getClass() == FakeReader.class;
+  }
+
   @Override
   public boolean isSingleFile(String id) throws FormatException, IOException {
     if (new Location(id).isDirectory() && checkSuffix(id, "fake")) {
@@ -477,6 +488,8 @@ public class FakeReader extends FormatReader {
     rectangles = 0;
     roiCount = 0;
     scaleFactor = 1;
+    fill = FILL_GRADIENT;
+    fillValue = 0;
     lut8 = null;
     lut16 = null;
     super.close(fileOnly);
@@ -682,6 +695,13 @@ public class FakeReader extends FormatReader {
       else if (key.equals("resolutionScale")) resolutionScale = intValue;
       else if (key.equals("lutLength")) lutLength = intValue;
       else if (key.equals("scaleFactor")) scaleFactor = doubleValue;
+      else if (key.equals("fill")) {
+        if (value.equals(FILL_ZERO)) fill = FILL_ZERO;
+        else if (value.equals(FILL_CONSTANT)) fill = FILL_CONSTANT;
+        else if (value.equals(FILL_GRADIENT)) fill = FILL_GRADIENT;
+        else throw new FormatException("Invalid fill mode: " + value);
+      }
+      else if (key.equals("fillValue")) fillValue = (long) doubleValue;
       else if (key.equals("exposureTime")) exposureTime = new Time((float) doubleValue, UNITS.SECOND);
       else if (key.equals("acquisitionDate")) acquisitionDate = value;
       else if (key.equals("screens")) screens = intValue;
@@ -1309,6 +1329,59 @@ public class FakeReader extends FormatReader {
     return fakeSeries;
   }
 
+  /**
+   * Converts a pixel value to the raw bits stored for the current pixel
+   * type, looking up the index if the image is indexed and applying the
+   * scale factor to values that are part of the gradient.
+   */
+  private long encodePixel(long pixel, boolean specialPixel) {
+    // if indexed color with non-null LUT, convert value to index
+    if (isIndexed()) {
+      if (lut8 != null) pixel = valueToIndex[ac][(int) (pixel % 256)];
+      if (lut16 != null) pixel = valueToIndex[ac][(int) (pixel % 65536)];
+    }
+
+    // scale pixel value by the scale factor
+    // if floating point, convert value to raw IEEE floating point bits
+    switch (getPixelType()) {
+      case FormatTools.FLOAT:
+        float floatPixel;
+        if (specialPixel) floatPixel = pixel;
+        else floatPixel = (float) (scaleFactor * pixel);
+        return Float.floatToIntBits(floatPixel);
+      case FormatTools.DOUBLE:
+        double doublePixel;
+        if (specialPixel) doublePixel = pixel;
+        else doublePixel = scaleFactor * pixel;
+        return Double.doubleToLongBits(doublePixel);
+      default:
+        if (!specialPixel) pixel = (long) (scaleFactor * pixel);
+        return pixel;
+    }
+  }
+
+  /** Gets the index of the given pixel within a buffer of w x h pixels. */
+  private static int getPixelIndex(int row, int col, int cOffset,
+    int w, int h, int rgb, boolean interleaved)
+  {
+    if (interleaved) return w * rgb * row + rgb * col + cOffset; // CXY
+    return h * w * cOffset + w * row + col; // XYC
+  }
+
+  /**
+   * Copies the template row for each channel into rows
+   * [firstRow, lastRow) of the given buffer.  If the buffer is not
+   * interleaved, row r belongs to channel r / h.
+   */
+  private static void copyRows(byte[] template, byte[] buf, int rowLength,
+    int h, int firstRow, int lastRow, boolean interleaved)
+  {
+    for (int row=firstRow; row<lastRow; row++) {
+      int src = interleaved ? 0 : (row / h) * rowLength;
+      System.arraycopy(template, src, buf, row * rowLength, rowLength);
+    }
+  }
+
   /** Fisher-Yates shuffle with constant seeds to ensure reproducibility. */
   private static void shuffle(int c, int[] array) {
     Random r = new Random(SEED + c);
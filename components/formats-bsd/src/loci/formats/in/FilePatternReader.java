@@ -211,6 +211,19 @@ public class FilePatternReader extends WrappedReader {
 
   // -- Internal FormatReader methods --
 
+  /* @see loci.formats.FormatReader#initCopy() */
+  @Override
+  protected void initCopy() throws FormatException, IOException {
+    super.initCopy();
+    helper = (FileStitcher) helper.copy();
+  }
+
+  /* @see loci.formats.FormatReader#isCopySupported() */
+  @Override
+  protected boolean isCopySupported() {
+    return getClass() == FilePatternReader.class;
+  }
+
   /* @see loci.formats.FormatReader#initFile(String) */
   @Override
   protected void initFile(String id) throws FormatException, IOException {
@@ -33,6 +33,7 @@
 package loci.formats.in;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import loci.common.DataTools;
 import loci.common.RandomAccessInputStream;
@@ -84,6 +85,21 @@ public class FitsReader extends FormatReader {
     return buf;
   }
 
+  /**
+   * @see loci.formats.IFormatReader#openBuffer(int, ByteBuffer, int, int,
+   *   int, int)
+   */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    if (buf == null) return super.openBuffer(no, buf, x, y, w, h);
+    FormatTools.checkPlaneParameters(this, no, buf.remaining(), x, y, w, h);
+
+    in.seek(pixelOffset + no * FormatTools.getPlaneSize(this));
+    return readPlane(in, x, y, w, h, buf);
+  }
+
   /* @see loci.formats.IFormatReader#close(boolean) */
   @Override
   public void close(boolean fileOnly) throws IOException {
@@ -33,9 +33,11 @@
 package loci.formats.in;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import loci.common.RandomAccessInputStream;
@@ -43,6 +45,7 @@ import loci.formats.CoreMetadata;
 import loci.formats.FormatException;
 import loci.formats.FormatReader;
 import loci.formats.FormatTools;
+import loci.formats.KeyframeCache;
 import loci.formats.MetadataTools;
 import loci.formats.meta.MetadataStore;
 
@@ -65,6 +68,12 @@ public class GIFReader extends FormatReader {
   private static final int END = 0x3b;
   private static final int GRAPHICS = 0xf9;
 
+  /** Number of decoded frames kept in memory. */
+  private static final int FRAME_CACHE_SIZE = 8;
+
+  /** Default number of frames between checkpoints of decoded frames. */
+  private static final int KEYFRAME_INTERVAL = 8;
+
   // -- Fields --
 
   /** Global color table. */
@@ -100,10 +109,18 @@ public class GIFReader extends FormatReader {
   private byte[] pixelStack;
   private byte[] pixels;
 
-  private Vector<byte[]> images;
+  /** Descriptor and data offset of each frame. */
+  private List<Frame> frames;
   private Vector<int[]> colorTables;
 
-  private transient Set<Integer> planesRead = new HashSet<Integer>();
+  /** Most recently used decoded frames, with transparency applied. */
+  private transient Map<Integer, byte[]> frameCache;
+
+  /**
+   * Checkpoints of decoded frames, used when transparent pixels are filled
+   * in from the previous frame.
+   */
+  private transient KeyframeCache keyframes;
 
   // -- Constructor --
 
@@ -145,22 +162,9 @@ public class GIFReader extends FormatReader {
   {
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
+    byte[] b = getFrame(no);
     act = colorTables.get(no);
 
-    byte[] b = images.get(no);
-    if (no > 0 && transparency && !planesRead.contains(no)) {
-      byte[] prev = planesRead.contains(no - 1) ? images.get(no - 1) : openBytes(no - 1);
-      int idx = transIndex;
-      if (idx >= 127) idx = 0;
-      for (int i=0; i<b.length; i++) {
-        if ((act[b[i] & 0xff] & 0xffffff) == idx) {
-          b[i] = prev[i];
-        }
-      }
-      images.setElementAt(b, no);
-    }
-    planesRead.add(no);
-
     for (int row=0; row<h; row++) {
       System.arraycopy(b, (row + y) * getSizeX() + x, buf, row*w, w);
     }
@@ -179,8 +183,13 @@ public class GIFReader extends FormatReader {
       gct = act;
       prefix = null;
       suffix = pixelStack = pixels = null;
-      images = null;
+      frames = null;
       colorTables = null;
+      frameCache = null;
+      if (keyframes != null) {
+        keyframes.close();
+        keyframes = null;
+      }
       Arrays.fill(dBlock, (byte) 0);
     }
   }
@@ -196,7 +205,7 @@ public class GIFReader extends FormatReader {
 
     in = new RandomAccessInputStream(id);
     in.order(true);
-    images = new Vector<byte[]>();
+    frames = new ArrayList<Frame>();
     colorTables = new Vector<int[]>();
 
     String ident = in.readString(6);
@@ -286,6 +295,99 @@ public class GIFReader extends FormatReader {
 
   // -- Helper methods --
 
+  /**
+   * Returns the given frame, decoding it and any earlier frames that it
+   * depends upon if they are not cached.
+   */
+  private byte[] getFrame(int no) throws IOException {
+    if (frameCache == null) {
+      frameCache = new LinkedHashMap<Integer, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> e) {
+          return size() > FRAME_CACHE_SIZE;
+        }
+      };
+    }
+    byte[] frame = frameCache.get(no);
+    if (frame != null) {
+      return frame;
+    }
+    if (!transparency || no == 0) {
+      frame = decodeFrame(no);
+      frameCache.put(no, frame);
+      return frame;
+    }
+
+    // transparent pixels are filled in from the previous frame, so start
+    // from the nearest cached frame or checkpoint and compose forward
+    if (keyframes == null) {
+      keyframes = KeyframeCache.create(getMetadataOptions(), KEYFRAME_INTERVAL);
+    }
+    int start = keyframes.nearest(no - 1, -1);
+    byte[] prev = null;
+    for (int i=no - 1; i>start && i>=0; i--) {
+      prev = frameCache.get(i);
+      if (prev != null) {
+        start = i;
+        break;
+      }
+    }
+    if (prev == null && start >= 0) {
+      prev = keyframes.get(start);
+      if (prev == null) {
+        start = -1;
+      }
+    }
+
+    int idx = transIndex;
+    if (idx >= 127) idx = 0;
+    for (int i=start + 1; i<=no; i++) {
+      frame = decodeFrame(i);
+      if (prev != null) {
+        int[] table = colorTables.get(i);
+        for (int p=0; p<frame.length; p++) {
+          if ((table[frame[p] & 0xff] & 0xffffff) == idx) {
+            frame[p] = prev[p];
+          }
+        }
+      }
+      if (keyframes.isCheckpoint(i)) {
+        keyframes.put(i, frame);
+      }
+      prev = frame;
+    }
+    frameCache.put(no, frame);
+    return frame;
+  }
+
+  /**
+   * Decodes the given frame without filling in transparent pixels.
+   * A frame following one with dispose code 3 starts from the frame three
+   * before it, so the chain of such frames is drawn in order.
+   */
+  private byte[] decodeFrame(int no) throws IOException {
+    List<Integer> chain = new ArrayList<Integer>();
+    int index = no;
+    chain.add(index);
+    while (frames.get(index).lastDispose == 3 && index > 2) {
+      index -= 3;
+      chain.add(index);
+    }
+
+    byte[] dest = new byte[getSizeX() * getSizeY()];
+    for (int i=chain.size() - 1; i>=0; i--) {
+      Frame frame = frames.get(chain.get(i));
+      ix = frame.x;
+      iy = frame.y;
+      iw = frame.width;
+      ih = frame.height;
+      interlace = frame.interlace;
+      in.seek(frame.offset);
+      decodeImageData(dest);
+    }
+    return dest;
+  }
+
   /** Reads the next variable length block. */
   private int readBlock() throws IOException {
     if (in.getFilePointer() == in.length()) return -1;
@@ -309,7 +411,7 @@ public class GIFReader extends FormatReader {
   }
 
   /** Decodes LZW image data into a pixel array.  Adapted from ImageMagick. */
-  private void decodeImageData() throws IOException {
+  private void decodeImageData(byte[] dest) throws IOException {
     int nullCode = -1;
     int npix = iw * ih;
 
@@ -411,27 +513,10 @@ public class GIFReader extends FormatReader {
     }
 
     for (i=pi; i<npix; i++) pixels[i] = 0;
-    setPixels();
+    setPixels(dest);
   }
 
-  private void setPixels() {
-    // expose destination image's pixels as an int array
-    byte[] dest = new byte[getSizeX() * getSizeY()];
-    int lastImage = -1;
-
-    // fill in starting image contents based on last image's dispose code
-    if (lastDispose > 0) {
-      if (lastDispose == 3) { // use image before last
-        int n = getImageCount() - 2;
-        if (n > 0) lastImage = n - 1;
-      }
-
-      if (lastImage != -1) {
-        byte[] prev = images.get(lastImage);
-        System.arraycopy(prev, 0, dest, 0, getSizeX() * getSizeY());
-      }
-    }
-
+  private void setPixels(byte[] dest) {
     // copy each source line to the appropriate place in the destination
 
     int pass = 1;
@@ -473,8 +558,6 @@ public class GIFReader extends FormatReader {
         }
       }
     }
-    colorTables.add(act);
-    images.add(dest);
   }
 
   private void skipBlocks() throws IOException {
@@ -483,35 +566,38 @@ public class GIFReader extends FormatReader {
     while (blockSize > 0 && check != -1);
   }
 
+  /**
+   * Records the descriptor, color table and data offset of the next frame,
+   * and skips its image data.
+   */
   private void readImageBlock() throws FormatException, IOException {
-    ix = in.readShort();
-    iy = in.readShort();
-    iw = in.readShort();
-    ih = in.readShort();
+    Frame frame = new Frame();
+    frame.x = in.readShort();
+    frame.y = in.readShort();
+    frame.width = in.readShort();
+    frame.height = in.readShort();
 
     int packed = in.read();
     boolean lctFlag = (packed & 0x80) != 0;
-    interlace = (packed & 0x40) != 0;
+    frame.interlace = (packed & 0x40) != 0;
+    interlace = frame.interlace;
     int lctSize = 2 << (packed & 7);
 
     act = lctFlag ? readLut(lctSize) : gct;
 
-    int save = 0;
-
-    if (transparency) {
-      save = act[transIndex];
-      act[transIndex] = 0;
-    }
-
     if (act == null) throw new FormatException("Color table not found.");
 
-    decodeImageData();
+    frame.lastDispose = lastDispose;
+    frame.offset = in.getFilePointer();
+
+    // skip the LZW minimum code size and the image data sub-blocks
+    in.skipBytes(1);
     skipBlocks();
 
+    frames.add(frame);
+    colorTables.add(act);
     core.get(0).imageCount++;
 
-    if (transparency) act[transIndex] = save;
-
     lastDispose = dispose;
   }
 
@@ -538,4 +624,16 @@ public class GIFReader extends FormatReader {
     return lut;
   }
 
+  // -- Helper classes --
+
+  /** Image descriptor of a single frame. */
+  private static class Frame {
+    /** Offset of the LZW minimum code size that precedes the image data. */
+    long offset;
+    int x, y, width, height;
+    boolean interlace;
+    /** Dispose code of the previous frame. */
+    int lastDispose;
+  }
+
 }
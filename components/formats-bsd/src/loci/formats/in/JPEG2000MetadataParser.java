@@ -84,6 +84,12 @@ public class JPEG2000MetadataParser {
   /** Height of the image as specified in the JPEG 2000 codestream. */
   private Integer codestreamSizeY;
 
+  /** Width of each codestream tile. */
+  private Integer codestreamTileSizeX;
+
+  /** Height of each codestream tile. */
+  private Integer codestreamTileSizeY;
+
   /** Number of channels the image as specified in the JPEG 2000 codestream. */
   private Short codestreamSizeC;
 
@@ -323,11 +329,15 @@ public class JPEG2000MetadataParser {
             // Skipping:
             //  * Horizontal image offset (uint32)
             //  * Vertical image offset (uint32)
-            //  * Tile width (uint32)
-            //  * Tile height (uint32)
+            in.skipBytes(8);
+            codestreamTileSizeX = in.readInt();
+            codestreamTileSizeY = in.readInt();
+            LOGGER.trace("Read tile size {}x{} at {}", codestreamTileSizeX,
+                codestreamTileSizeY, in.getFilePointer());
+            // Skipping:
             //  * Horizontal tile offset (uint32)
             //  * Vertical tile offset (uint32)
-            in.skipBytes(24);
+            in.skipBytes(8);
             codestreamSizeC = in.readShort();
             LOGGER.trace("Read total components {} at {}",
                 codestreamSizeC, in.getFilePointer());
@@ -435,6 +445,24 @@ public class JPEG2000MetadataParser {
     return codestreamSizeY;
   }
 
+  /**
+   * Returns the width of each tile in the codestream, which is the image width
+   * if the codestream is not tiled.
+   * @return See above.
+   */
+  public Integer getCodestreamTileSizeX() {
+    return codestreamTileSizeX;
+  }
+
+  /**
+   * Returns the height of each tile in the codestream, which is the image
+   * height if the codestream is not tiled.
+   * @return See above.
+   */
+  public Integer getCodestreamTileSizeY() {
+    return codestreamTileSizeY;
+  }
+
   /**
    * Returns the number of channels the image has as specified in the header.
    * @return See above.
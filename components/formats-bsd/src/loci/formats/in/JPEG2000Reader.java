@@ -34,11 +34,14 @@ package loci.formats.in;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import loci.common.RandomAccessInputStream;
+import loci.common.Region;
 import loci.formats.CoreMetadata;
 import loci.formats.FormatException;
 import loci.formats.FormatReader;
@@ -60,6 +63,15 @@ public class JPEG2000Reader extends FormatReader {
   private static final Logger LOGGER =
     LoggerFactory.getLogger(JPEG2000Reader.class);
 
+  /**
+   * Largest plane, in bytes, that is decoded whole and kept in memory.
+   * Larger planes are decoded one region or tile at a time.
+   */
+  private static final long MAX_PLANE_CACHE_SIZE = 64 * 1024 * 1024;
+
+  /** Largest total size, in bytes, of the decoded tiles kept in memory. */
+  private static final long MAX_TILE_CACHE_SIZE = 64 * 1024 * 1024;
+
   // -- Fields --
 
   /** The number of JPEG 2000 resolution levels the file has. */
@@ -73,6 +85,16 @@ public class JPEG2000Reader extends FormatReader {
   private int lastSeries = -1;
   private byte[] lastSeriesPlane;
 
+  /** Tile size of the codestream at full resolution, or 0 if not tiled. */
+  private int tileSizeX;
+  private int tileSizeY;
+
+  private transient JPEG2000Codec codec;
+
+  /** Decoded codestream tiles, keyed by core index and tile index. */
+  private transient Map<Long, byte[]> tileCache;
+  private transient int maxCachedTiles;
+
   // -- Constructor --
 
   /** Constructs a new JPEG2000Reader. */
@@ -149,6 +171,9 @@ public class JPEG2000Reader extends FormatReader {
       pixelsOffset = 0;
       lastSeries = -1;
       lastSeriesPlane = null;
+      tileSizeX = 0;
+      tileSizeY = 0;
+      tileCache = null;
     }
   }
 
@@ -178,12 +203,37 @@ public class JPEG2000Reader extends FormatReader {
       options.resolution = getCoreIndex();
     }
 
-    in.seek(pixelsOffset);
-    lastSeriesPlane = new JPEG2000Codec().decompress(in, options);
-    try (RandomAccessInputStream s = new RandomAccessInputStream(lastSeriesPlane)) {
-      readPlane(s, x, y, w, h, buf);
+    if (codec == null) {
+      codec = new JPEG2000Codec();
+    }
+
+    int bpp = FormatTools.getBytesPerPixel(getPixelType()) * getRGBChannelCount();
+    long planeSize = (long) getSizeX() * getSizeY() * bpp;
+    int scale = 1 << getCoreIndex();
+    int tileWidth = Math.min(getSizeX(), (tileSizeX + scale - 1) / scale);
+    int tileHeight = Math.min(getSizeY(), (tileSizeY + scale - 1) / scale);
+    boolean tiled = tileWidth > 0 && tileHeight > 0 &&
+      (tileWidth < getSizeX() || tileHeight < getSizeY());
+    boolean wholePlane = w == getSizeX() && h == getSizeY();
+
+    if ((wholePlane || !tiled) && planeSize <= MAX_PLANE_CACHE_SIZE) {
+      in.seek(pixelsOffset);
+      lastSeriesPlane = codec.decompress(in, options);
+      try (RandomAccessInputStream s = new RandomAccessInputStream(lastSeriesPlane)) {
+        readPlane(s, x, y, w, h, buf);
+      }
+      lastSeries = getCoreIndex();
+    }
+    else if (tiled) {
+      openTiles(options, buf, x, y, w, h, tileWidth, tileHeight, bpp);
+    }
+    else {
+      // the codestream is a single tile, so decode only the requested region
+      options.region = new Region(x, y, w, h);
+      in.seek(pixelsOffset);
+      byte[] region = codec.decompress(in, options);
+      System.arraycopy(region, 0, buf, 0, Math.min(region.length, buf.length));
     }
-    lastSeries = getCoreIndex();
     return buf;
   }
 
@@ -215,6 +265,12 @@ public class JPEG2000Reader extends FormatReader {
     lut = metadataParser.getLookupTable();
 
     pixelsOffset = metadataParser.getCodestreamOffset();
+    if (metadataParser.getCodestreamTileSizeX() != null &&
+      metadataParser.getCodestreamTileSizeY() != null)
+    {
+      tileSizeX = metadataParser.getCodestreamTileSizeX();
+      tileSizeY = metadataParser.getCodestreamTileSizeY();
+    }
 
     ms0.sizeZ = 1;
     ms0.sizeT = 1;
@@ -261,4 +317,59 @@ public class JPEG2000Reader extends FormatReader {
 
   // -- Helper methods --
 
+  /**
+   * Copies the requested region from each codestream tile that it overlaps,
+   * decoding only those tiles and keeping the most recently used ones.
+   */
+  private void openTiles(JPEG2000CodecOptions options, byte[] buf,
+    int x, int y, int w, int h, int tileWidth, int tileHeight, int bpp)
+    throws FormatException, IOException
+  {
+    if (tileCache == null) {
+      tileCache = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+          return size() > maxCachedTiles;
+        }
+      };
+    }
+    maxCachedTiles = (int) Math.max(1,
+      MAX_TILE_CACHE_SIZE / ((long) tileWidth * tileHeight * bpp));
+
+    int tileCols = (getSizeX() + tileWidth - 1) / tileWidth;
+    int tileRows = (getSizeY() + tileHeight - 1) / tileHeight;
+    Region image = new Region(x, y, w, h);
+
+    for (int row=0; row<tileRows; row++) {
+      for (int col=0; col<tileCols; col++) {
+        Region tile = new Region(col * tileWidth, row * tileHeight,
+          Math.min(tileWidth, getSizeX() - col * tileWidth),
+          Math.min(tileHeight, getSizeY() - row * tileHeight));
+        if (!tile.intersects(image)) {
+          continue;
+        }
+
+        long key = ((long) getCoreIndex() << 32) | (row * tileCols + col);
+        byte[] tileBuf = tileCache.get(key);
+        if (tileBuf == null) {
+          JPEG2000CodecOptions tileOptions = new JPEG2000CodecOptions(options);
+          tileOptions.region = tile;
+          in.seek(pixelsOffset);
+          tileBuf = codec.decompress(in, tileOptions);
+          tileCache.put(key, tileBuf);
+        }
+
+        Region intersection = tile.intersection(image);
+        int rowLen = intersection.width * bpp;
+        for (int trow=0; trow<intersection.height; trow++) {
+          int src = bpp * ((intersection.y - tile.y + trow) * tile.width +
+            intersection.x - tile.x);
+          int dest = bpp * ((intersection.y - y + trow) * w +
+            intersection.x - x);
+          System.arraycopy(tileBuf, src, buf, dest, rowLen);
+        }
+      }
+    }
+  }
+
 }
@@ -33,8 +33,10 @@
 package loci.formats.in;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import loci.formats.CoreMetadata;
 import loci.formats.FormatException;
@@ -50,6 +52,7 @@ import loci.formats.codec.JPEG2000CodecOptions;
 import loci.formats.meta.MetadataStore;
 import loci.formats.tiff.IFD;
 import loci.formats.tiff.IFDList;
+import loci.formats.tiff.OnDemandLongArray;
 import loci.formats.tiff.PhotoInterp;
 import loci.formats.tiff.TiffCompression;
 import loci.formats.tiff.TiffParser;
@@ -289,27 +292,7 @@ public class MinimalTiffReader extends SubResolutionFormatReader {
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
     IFD firstIFD = ifds.get(0);
-    lastPlane = no;
-    IFD ifd;
-    if (seriesToIFD) {
-      ifd = ifds.get(getSeries());
-    } else {
-      ifd = ifds.get(no);
-    }
-    if ((firstIFD.getCompression() == TiffCompression.JPEG_2000
-        || firstIFD.getCompression() == TiffCompression.JPEG_2000_LOSSY)
-        && resolutionLevels != null) {
-      if (getCoreIndex() > 0) {
-        ifd = subResolutionIFDs.get(no).get(getCoreIndex() - 1);
-      }
-      setResolutionLevel(ifd);
-    }
-
-    if (tiffParser == null) {
-      initTiffParser();
-    }
-
-    tiffParser.getSamples(ifd, buf, x, y, w, h);
+    tiffParser.getSamples(getPlaneIFD(no), buf, x, y, w, h);
 
     boolean float16 = getPixelType() == FormatTools.FLOAT &&
       firstIFD.getBitsPerSample()[0] == 16;
@@ -362,6 +345,31 @@ public class MinimalTiffReader extends SubResolutionFormatReader {
     return buf;
   }
 
+  /**
+   * Reads uncompressed planes straight into the buffer with
+   * {@link TiffParser#getSamples(IFD, ByteBuffer, int, int, long, long)}.
+   * Subclasses which process the pixels in <code>openBytes</code> use the
+   * default implementation instead.
+   *
+   * @see loci.formats.IFormatReader#openBuffer(int, ByteBuffer, int, int,
+   *   int, int)
+   */
+  @Override
+  public ByteBuffer openBuffer(int no, ByteBuffer buf, int x, int y,
+    int w, int h) throws FormatException, IOException
+  {
+    boolean unprocessed =
+      getClass() == MinimalTiffReader.class || getClass() == TiffReader.class;
+    boolean float32 = getPixelType() != FormatTools.FLOAT ||
+      ifds.get(0).getBitsPerSample()[0] == 32;
+    if (buf == null || !unprocessed || !float32) {
+      return super.openBuffer(no, buf, x, y, w, h);
+    }
+    FormatTools.checkPlaneParameters(this, no, buf.remaining(), x, y, w, h);
+    tiffParser.getSamples(getPlaneIFD(no), buf, x, y, w, h);
+    return FormatTools.getBufferView(this, buf, w, h);
+  }
+
   /* @see loci.formats.IFormatReader#reopenFile() */
   @Override
   public void reopenFile() throws IOException {
@@ -439,11 +447,76 @@ public class MinimalTiffReader extends SubResolutionFormatReader {
 
   // -- Internal FormatReader API methods --
 
+  /* @see loci.formats.FormatReader#initCopy() */
+  @Override
+  protected void initCopy() throws FormatException, IOException {
+    super.initCopy();
+    // IFDs are filled in lazily, so each copy needs its own
+    ifds = copyIFDs(ifds);
+    thumbnailIFDs = copyIFDs(thumbnailIFDs);
+    if (subResolutionIFDs != null) {
+      List<IFDList> subResolutions = new ArrayList<IFDList>();
+      for (IFDList list : subResolutionIFDs) {
+        subResolutions.add(copyIFDs(list));
+      }
+      subResolutionIFDs = subResolutions;
+    }
+    tiffParser = null;
+    j2kCodecOptions = null;
+  }
+
+  /* @see loci.formats.FormatReader#initFileSwap() */
+  @Override
+  protected void initFileSwap() throws FormatException, IOException {
+    super.initFileSwap();
+    // sub-resolutions are derived from the JPEG 2000 codestream
+    if (subResolutionIFDs != null && subResolutionIFDs.size() > 0) {
+      throw new FormatException(
+        "JPEG 2000 sub-resolutions cannot be read from another file");
+    }
+    Boolean littleEndian = tiffParser.checkHeader();
+    if (littleEndian == null) {
+      throw new FormatException("Invalid TIFF file: " + getCurrentFile());
+    }
+    in.order(littleEndian.booleanValue());
+
+    IFDList allIFDs = readIFDs();
+    IFDList newIFDs = new IFDList();
+    IFDList newThumbnailIFDs = new IFDList();
+    for (IFD ifd : allIFDs) {
+      tiffParser.fillInIFD(ifd);
+      Number subfile = (Number) ifd.getIFDValue(IFD.NEW_SUBFILE_TYPE);
+      int subfileType = subfile == null ? 0 : subfile.intValue();
+      if (subfileType != 1 || allIFDs.size() <= 1) {
+        newIFDs.add(ifd);
+      }
+      else if (subfileType == 1) {
+        newThumbnailIFDs.add(ifd);
+      }
+    }
+    checkSameStructure(ifds, newIFDs);
+    checkSameStructure(thumbnailIFDs, newThumbnailIFDs);
+    ifds = newIFDs;
+    thumbnailIFDs = newThumbnailIFDs;
+  }
+
+  /* @see loci.formats.FormatReader#isCopySupported() */
+  @Override
+  protected boolean isCopySupported() {
+    return getClass() == MinimalTiffReader.class;
+  }
+
+  /* @see loci.formats.FormatReader#isFileSwapSupported() */
+  @Override
+  protected boolean isFileSwapSupported() {
+    return getClass() == MinimalTiffReader.class;
+  }
+
   /* @see loci.formats.FormatReader#initFile(String) */
   @Override
   protected void initFile(String id) throws FormatException, IOException {
     super.initFile(id);
-    in = new RandomAccessInputStream(id, 16);
+    in = openStream(id, 16);
     initTiffParser();
     Boolean littleEndian = tiffParser.checkHeader();
     if (littleEndian == null) {
@@ -454,21 +527,7 @@ public class MinimalTiffReader extends SubResolutionFormatReader {
 
     LOGGER.info("Reading IFDs");
 
-    IFDList allIFDs = null;
-    if (!mergeSubIFDs) {
-      allIFDs = tiffParser.getMainIFDs();
-    }
-    else {
-      allIFDs = new IFDList();
-      for (IFD ifd : tiffParser.getMainIFDs()) {
-        allIFDs.add(ifd);
-        allIFDs.addAll(tiffParser.getSubIFDs(ifd));
-      }
-    }
-
-    if (allIFDs == null || allIFDs.size() == 0) {
-      throw new FormatException("No IFDs found");
-    }
+    IFDList allIFDs = readIFDs();
 
     ifds = new IFDList();
     thumbnailIFDs = new IFDList();
@@ -689,12 +748,39 @@ public class MinimalTiffReader extends SubResolutionFormatReader {
     tiffParser.setCodecOptions(j2kCodecOptions);
   }
 
+  /**
+   * Returns the IFD holding the given plane of the current series, preparing
+   * the TiffParser to read from it.
+   */
+  private IFD getPlaneIFD(int no) throws FormatException {
+    IFD firstIFD = ifds.get(0);
+    lastPlane = no;
+    IFD ifd;
+    if (seriesToIFD) {
+      ifd = ifds.get(getSeries());
+    } else {
+      ifd = ifds.get(no);
+    }
+    if ((firstIFD.getCompression() == TiffCompression.JPEG_2000
+        || firstIFD.getCompression() == TiffCompression.JPEG_2000_LOSSY)
+        && resolutionLevels != null) {
+      if (getCoreIndex() > 0) {
+        ifd = subResolutionIFDs.get(no).get(getCoreIndex() - 1);
+      }
+      setResolutionLevel(ifd);
+    }
+
+    if (tiffParser == null) {
+      initTiffParser();
+    }
+    return ifd;
+  }
 
   /** Reinitialize the underlying TiffParser. */
   protected void initTiffParser() {
     if (in == null) {
       try {
-        in = new RandomAccessInputStream(getCurrentFile(), 16);
+        in = openStream(getCurrentFile(), 16);
       }
       catch (IOException e) {
         LOGGER.error("Could not initialize stream", e);
@@ -703,6 +789,88 @@ public class MinimalTiffReader extends SubResolutionFormatReader {
     tiffParser = new TiffParser(in);
     tiffParser.setDoCaching(false);
     tiffParser.setUse64BitOffsets(use64Bit);
+    tiffParser.setRangeHandle(getRangeHandle());
+    tiffParser.setMetricsSource(getClass().getSimpleName());
+  }
+
+  /** Reads the main IFDs, and any SubIFDs if they are to be merged. */
+  private IFDList readIFDs() throws FormatException, IOException {
+    IFDList allIFDs = null;
+    if (!mergeSubIFDs) {
+      allIFDs = tiffParser.getMainIFDs();
+    }
+    else {
+      allIFDs = new IFDList();
+      for (IFD ifd : tiffParser.getMainIFDs()) {
+        allIFDs.add(ifd);
+        allIFDs.addAll(tiffParser.getSubIFDs(ifd));
+      }
+    }
+
+    if (allIFDs == null || allIFDs.size() == 0) {
+      throw new FormatException("No IFDs found");
+    }
+    return allIFDs;
+  }
+
+  /**
+   * Checks that each IFD in the given list describes an image with the
+   * same dimensions, pixel type and layout as the corresponding expected
+   * IFD.  Offsets and compression may differ, as they are always taken
+   * from the IFDs that were read.
+   */
+  private static void checkSameStructure(IFDList expected, IFDList actual)
+    throws FormatException
+  {
+    if (expected.size() != actual.size()) {
+      throw new FormatException("Expected " + expected.size() +
+        " IFDs, found " + actual.size());
+    }
+    for (int i=0; i<expected.size(); i++) {
+      IFD e = expected.get(i);
+      IFD a = actual.get(i);
+      if (e.getImageWidth() != a.getImageWidth() ||
+        e.getImageLength() != a.getImageLength() ||
+        e.getPixelType() != a.getPixelType() ||
+        e.getSamplesPerPixel() != a.getSamplesPerPixel() ||
+        e.getPlanarConfiguration() != a.getPlanarConfiguration() ||
+        e.getPhotometricInterpretation() != a.getPhotometricInterpretation())
+      {
+        throw new FormatException("IFD #" + i + " does not match");
+      }
+    }
+  }
+
+  /**
+   * Copies each IFD in the given list.  Byte count arrays, which may be
+   * corrected while reading tiles, and on-demand offset arrays, which hold
+   * a stream, are copied as well; all other values are shared.
+   */
+  static IFDList copyIFDs(IFDList list) {
+    if (list == null) {
+      return null;
+    }
+    IFDList copy = new IFDList();
+    for (IFD ifd : list) {
+      IFD ifdCopy = ifd == null ? null : new IFD(ifd);
+      if (ifdCopy != null) {
+        for (Map.Entry<Integer, Object> entry : ifdCopy.entrySet()) {
+          Object value = entry.getValue();
+          if (value instanceof OnDemandLongArray) {
+            entry.setValue(
+              new OnDemandLongArray((OnDemandLongArray) value, null));
+          }
+          else if (value instanceof long[] &&
+            (entry.getKey() == IFD.STRIP_BYTE_COUNTS ||
+            entry.getKey() == IFD.TILE_BYTE_COUNTS))
+          {
+            entry.setValue(((long[]) value).clone());
+          }
+        }
+      }
+      copy.add(ifdCopy);
+    }
+    return copy;
   }
 
 }
@@ -207,7 +207,7 @@ public class NRRDReader extends FormatReader {
       return buf;
     }
     else if (encoding.equals("raw")) {
-      try (RandomAccessInputStream s = new RandomAccessInputStream(dataFile)) {
+      try (RandomAccessInputStream s = openHandle(dataFile)) {
         s.seek(offset + no * FormatTools.getPlaneSize(this));
         readPlane(s, x, y, w, h, buf);
       }
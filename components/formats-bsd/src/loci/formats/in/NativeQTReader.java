@@ -42,6 +42,7 @@ import loci.formats.CoreMetadata;
 import loci.formats.FormatException;
 import loci.formats.FormatReader;
 import loci.formats.FormatTools;
+import loci.formats.KeyframeCache;
 import loci.formats.MetadataTools;
 import loci.formats.UnsupportedCompressionException;
 import loci.formats.codec.CodecOptions;
@@ -98,6 +99,9 @@ public class NativeQTReader extends FormatReader {
   /** Flag indicating whether we can safely use prevPixels. */
   private boolean canUsePrevious;
 
+  /** Checkpoints of decoded QuickTime RLE frames, for random access. */
+  private transient KeyframeCache keyframes;
+
   /** Video codec used by this movie. */
   private String codec;
 
@@ -190,6 +194,26 @@ public class NativeQTReader extends FormatReader {
       nextOffset = temp;
     }
 
+    if (code.equals("rle ") && keyframes == null) {
+      keyframes = KeyframeCache.create(getMetadataOptions());
+    }
+    if (code.equals("rle ") && no > 0 && prevPlane != no &&
+      (prevPlane != no - 1 || prevPixels == null))
+    {
+      // each frame is a delta from the one before it, so start from
+      // the nearest checkpoint and decode forward to the previous frame
+      int current = prevPixels == null ? -1 : prevPlane;
+      int start = keyframes.nearest(no - 1, current);
+      if (start != current) {
+        prevPixels = start < 0 ? null : keyframes.get(start);
+        prevPlane = start;
+      }
+      byte[] plane = new byte[FormatTools.getPlaneSize(this)];
+      while (prevPlane < no - 1) {
+        openBytes(prevPlane + 1, plane);
+      }
+    }
+
     byte[] pixs = new byte[nextOffset - offset];
 
     in.seek(pixelOffset + offset);
@@ -219,6 +243,9 @@ public class NativeQTReader extends FormatReader {
       prevPixels = t;
     }
     prevPlane = no;
+    if (code.equals("rle ") && keyframes.isCheckpoint(no)) {
+      keyframes.put(no, prevPixels);
+    }
 
     // determine whether we need to strip out any padding bytes
 
@@ -285,6 +312,10 @@ public class NativeQTReader extends FormatReader {
       pixelOffset = pixelBytes = bitsPerPixel = rawSize = 0;
       prevPlane = altPlanes = 0;
       canUsePrevious = false;
+      if (keyframes != null) {
+        keyframes.close();
+        keyframes = null;
+      }
       scale = 0;
       chunkSizes = null;
       interlaced = separatedFork = flip = false;
@@ -39,8 +39,10 @@ import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import loci.common.DataTools;
 import loci.common.Location;
@@ -127,7 +129,7 @@ public class OMETiffReader extends SubResolutionFormatReader {
     String fileName = new Location(id).getAbsoluteFile().getAbsolutePath();
     IFD ifd = null;
     long[] ifdOffsets = null;
-    try (RandomAccessInputStream ras = new RandomAccessInputStream(fileName, 16)) {
+    try (RandomAccessInputStream ras = openStream(fileName, 16)) {
         TiffParser tp = new TiffParser(ras);
         ifd = tp.getFirstIFD();
         ifdOffsets = tp.getIFDOffsets();
@@ -338,7 +340,7 @@ public class OMETiffReader extends SubResolutionFormatReader {
       return buf;
     }
     IFD ifd = ifdList.get(i);
-    try (RandomAccessInputStream s = new RandomAccessInputStream(info[series][no].id, 16)) {
+    try (RandomAccessInputStream s = openStream(info[series][no].id, 16)) {
       TiffParser p = new TiffParser(s);
       if (resolution > 0) {
         IFDList subifds = p.getSubIFDs(ifd);
@@ -433,6 +435,47 @@ public class OMETiffReader extends SubResolutionFormatReader {
 
   // -- Internal FormatReader API methods --
 
+  /* @see loci.formats.FormatReader#initCopy() */
+  @Override
+  protected void initCopy() throws FormatException, IOException {
+    super.initCopy();
+    if (info == null) {
+      return;
+    }
+    // all planes in a file share a reader, so copy each reader once
+    Map<IFormatReader, IFormatReader> readers =
+      new IdentityHashMap<IFormatReader, IFormatReader>();
+    OMETiffPlane[][] planes = new OMETiffPlane[info.length][];
+    for (int s=0; s<info.length; s++) {
+      if (info[s] == null) continue;
+      planes[s] = new OMETiffPlane[info[s].length];
+      for (int q=0; q<info[s].length; q++) {
+        OMETiffPlane plane = info[s][q];
+        if (plane == null) continue;
+        planes[s][q] = new OMETiffPlane();
+        planes[s][q].id = plane.id;
+        planes[s][q].ifd = plane.ifd;
+        planes[s][q].certain = plane.certain;
+        planes[s][q].exists = plane.exists;
+        if (plane.reader != null) {
+          IFormatReader reader = readers.get(plane.reader);
+          if (reader == null) {
+            reader = plane.reader.copy();
+            readers.put(plane.reader, reader);
+          }
+          planes[s][q].reader = reader;
+        }
+      }
+    }
+    info = planes;
+  }
+
+  /* @see loci.formats.FormatReader#isCopySupported() */
+  @Override
+  protected boolean isCopySupported() {
+    return getClass() == OMETiffReader.class;
+  }
+
   /* @see loci.formats.SubResolutionFormatReader#initFile(String) */
   @Override
   protected void initFile(String id) throws FormatException, IOException {
@@ -538,6 +581,7 @@ public class OMETiffReader extends SubResolutionFormatReader {
 
     if (!isGroupFiles() && !isSingleFile(currentId)) {
       IFormatReader reader = new MinimalTiffReader();
+      reader.setMetadataOptions(getMetadataOptions());
       reader.setId(currentId);
       core.set(0, 0, new OMETiffCoreMetadata(reader.getCoreMetadataList().get(0)));
       int ifdCount = reader.getImageCount();
@@ -908,6 +952,7 @@ public class OMETiffReader extends SubResolutionFormatReader {
         IFormatReader r = readers.get(filename);
         if (r == null) {
           r = new MinimalTiffReader();
+          r.setMetadataOptions(getMetadataOptions());
           readers.put(filename, r);
         }
 
@@ -1007,10 +1052,11 @@ public class OMETiffReader extends SubResolutionFormatReader {
       RandomAccessInputStream testFile = null;
       try {
         if (info[s][0].id != null) {
-          testFile = new RandomAccessInputStream(info[s][0].id, 16);
+          testFile = openStream(info[s][0].id, 16);
         }
         if (info[s][0].reader == null) {
           info[s][0].reader = new MinimalTiffReader();
+          info[s][0].reader.setMetadataOptions(getMetadataOptions());
         }
         String firstFile = info[s][0].id;
         if (firstFile == null ||
@@ -1039,7 +1085,7 @@ public class OMETiffReader extends SubResolutionFormatReader {
 
             continue;
           }
-          try (RandomAccessInputStream test = new RandomAccessInputStream(info[s][plane].id, 16)) {
+          try (RandomAccessInputStream test = openStream(info[s][plane].id, 16)) {
             if (!info[s][plane].reader.isThisType(test)) {
               LOGGER.warn("{} is not a valid OME-TIFF", info[s][plane].id);
               info[s][plane].id = info[s][0].id;
@@ -1300,7 +1346,7 @@ public class OMETiffReader extends SubResolutionFormatReader {
       }
       IFD ifd = ifdList.get(i);
       IFDList subifds = null;
-      try (RandomAccessInputStream rs = new RandomAccessInputStream(info[s][0].id, 16)) {
+      try (RandomAccessInputStream rs = openStream(info[s][0].id, 16)) {
         TiffParser p = new TiffParser(rs);
         subifds = p.getSubIFDs(ifd);
       }
@@ -1368,9 +1414,9 @@ public class OMETiffReader extends SubResolutionFormatReader {
     return DataTools.readFile(metadataFile);
   }
 
-  private static IFD getFirstIFD(String fname) throws IOException {
+  private IFD getFirstIFD(String fname) throws IOException {
     IFD firstIFD = null;
-    try (RandomAccessInputStream ras = new RandomAccessInputStream(fname, 16)) {
+    try (RandomAccessInputStream ras = openStream(fname, 16)) {
       TiffParser tp = new TiffParser(ras);
       firstIFD = tp.getFirstIFD();
     }
@@ -120,6 +120,20 @@ public class TiffReader extends BaseTiffReader {
     }
   }
 
+  // -- Internal FormatReader API methods --
+
+  /* @see loci.formats.FormatReader#isCopySupported() */
+  @Override
+  protected boolean isCopySupported() {
+    return getClass() == TiffReader.class;
+  }
+
+  /* @see loci.formats.FormatReader#isFileSwapSupported() */
+  @Override
+  protected boolean isFileSwapSupported() {
+    return getClass() == TiffReader.class && companionFile == null;
+  }
+
   // -- Internal BaseTiffReader API methods --
 
   /* @see BaseTiffReader#initStandardMetadata() */
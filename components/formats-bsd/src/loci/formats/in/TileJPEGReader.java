@@ -60,6 +60,12 @@ public class TileJPEGReader extends FormatReader {
 
   private transient JPEGTurboService service;
 
+  /**
+   * Restart marker offsets found when the file was first opened,
+   * so that the stream does not need to be scanned again on reopen.
+   */
+  private long[] restartMarkers;
+
   // -- Constructor --
 
   public TileJPEGReader() {
@@ -92,6 +98,7 @@ public class TileJPEGReader extends FormatReader {
         service.close();
       }
       service = null;
+      restartMarkers = null;
     }
   }
 
@@ -141,7 +148,11 @@ public class TileJPEGReader extends FormatReader {
     in.seek(0);
     service = new JPEGTurboServiceImpl();
     try {
+      if (restartMarkers != null) {
+        service.setRestartMarkers(restartMarkers);
+      }
       service.initialize(in, getSizeX(), getSizeY());
+      restartMarkers = service.getRestartMarkers();
     }
     catch (ServiceException se) {
       service = null;
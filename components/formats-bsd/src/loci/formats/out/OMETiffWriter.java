@@ -83,6 +83,9 @@ public class OMETiffWriter extends TiffWriter {
   private String[][] imageLocations;
   private OMEXMLMetadata omeMeta;
   private OMEXMLService service;
+
+  /** OME-XML block for omeMeta, shared by every file except for its UUID. */
+  private String omeXML;
   private Map<String, Integer> ifdCounts = new HashMap<String, Integer>();
 
   private Map<String, String> uuids = new HashMap<String, String>();
@@ -186,6 +189,7 @@ public class OMETiffWriter extends TiffWriter {
       if (canReallyClose) {
         imageLocations = null;
         omeMeta = null;
+        omeXML = null;
         service = null;
         ifdCounts.clear();
       }
@@ -271,40 +275,67 @@ public class OMETiffWriter extends TiffWriter {
   private void setupServiceAndMetadata()
     throws DependencyException, ServiceException
   {
-    // extract OME-XML string from metadata object
+    // copy the metadata object so that it can be modified safely
     MetadataRetrieve retrieve = getMetadataRetrieve();
 
     ServiceFactory factory = new ServiceFactory();
     service = factory.getInstance(OMEXMLService.class);
-    OMEXMLMetadata originalOMEMeta = service.getOMEMetadata(retrieve);
-    originalOMEMeta.resolveReferences();
-
-    String omexml = service.getOMEXML(originalOMEMeta);
-    omeMeta = service.createOMEXMLMetadata(omexml);
+    omeMeta = service.copyOMEMetadata(retrieve);
+    omeXML = null;
   }
 
   private String insertWarningComment(String xml) {
-    String prefix = xml.substring(0, xml.indexOf('>') + 1);
-    String suffix = xml.substring(xml.indexOf('>') + 1);
-    return prefix + WARNING_COMMENT + suffix;
+    int split = xml.indexOf('>') + 1;
+    return new StringBuilder(xml.length() + WARNING_COMMENT.length())
+      .append(xml, 0, split).append(WARNING_COMMENT)
+      .append(xml, split, xml.length()).toString();
   }
 
   private String getOMEXML(String file) throws FormatException, IOException {
     // generate UUID and add to OME element
     String uuid = "urn:uuid:" + getUUID(new Location(file).getName());
+
+    // files only differ by the root UUID, so reuse the serialized model
+    if (omeXML != null) {
+      String xml = replaceRootUUID(omeXML, uuid);
+      if (xml != null) return xml;
+    }
+
     omeMeta.setUUID(uuid);
 
     OMEXMLMetadataRoot root = (OMEXMLMetadataRoot) omeMeta.getRoot();
     root.setCreator(FormatTools.CREATOR);
 
-    String xml;
     try {
-      xml = service.getOMEXML(omeMeta);
+      omeXML = service.getOMEXML(omeMeta);
     }
     catch (ServiceException se) {
       throw new FormatException(se);
     }
-    return xml;
+    return omeXML;
+  }
+
+  /**
+   * Replaces the UUID attribute of the root element in the given OME-XML
+   * string, or returns null if the root element has no UUID attribute.
+   */
+  private String replaceRootUUID(String xml, String uuid) {
+    int start = xml.indexOf('<');
+    while (start >= 0 && start + 1 < xml.length() &&
+      (xml.charAt(start + 1) == '?' || xml.charAt(start + 1) == '!'))
+    {
+      start = xml.indexOf('<', start + 1);
+    }
+    if (start < 0) return null;
+    int end = xml.indexOf('>', start);
+    int attr = xml.indexOf(" UUID=\"", start);
+    if (end < 0 || attr < 0 || attr > end) return null;
+    int valueStart = attr + 7;
+    int valueEnd = xml.indexOf('"', valueStart);
+    if (valueEnd < 0 || valueEnd > end) return null;
+    return new StringBuilder(xml.length() + uuid.length())
+      .append(xml, 0, valueStart).append(uuid)
+      .append(xml, valueEnd, xml.length()).toString();
   }
 
   private String getBinaryOnlyOMEXML(
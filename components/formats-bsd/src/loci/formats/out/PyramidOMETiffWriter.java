@@ -33,6 +33,7 @@
 package loci.formats.out;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import loci.common.RandomAccessInputStream;
 import loci.common.RandomAccessOutputStream;
@@ -40,7 +41,6 @@ import loci.formats.FormatException;
 import loci.formats.meta.IPyramidStore;
 import loci.formats.meta.MetadataRetrieve;
 import loci.formats.tiff.IFD;
-import loci.formats.tiff.TiffParser;
 import loci.formats.tiff.TiffSaver;
 
 /**
@@ -48,6 +48,15 @@ import loci.formats.tiff.TiffSaver;
  */
 public class PyramidOMETiffWriter extends OMETiffWriter {
 
+  // -- Fields --
+
+  /**
+   * Offset of each written IFD, indexed by series, resolution and plane.
+   * Offsets are recorded as planes are written so that SubIFD arrays can
+   * be filled in on close without re-reading the file.
+   */
+  private long[][][] ifdOffsets;
+
   // -- Constructor --
 
   // -- IFormatHandler API methods --
@@ -82,11 +91,25 @@ public class PyramidOMETiffWriter extends OMETiffWriter {
     }
     else {
       if (!ifd.containsKey(IFD.SUB_IFD)) {
-        ifd.put(IFD.SUB_IFD, (long) 0);
+        // reserve space for the SubIFD offsets, so that they can be
+        // overwritten in place when the file is closed
+        int subResolutions = getResolutionCount() - 1;
+        if (subResolutions > 0) {
+          ifd.put(IFD.SUB_IFD, new long[subResolutions]);
+        }
+        else {
+          ifd.put(IFD.SUB_IFD, (long) 0);
+        }
       }
     }
 
     super.saveBytes(no, buf, ifd, x, y, w, h);
+
+    // the IFD is written at the position stored by TiffWriter
+    Object offset = ifd.get(IFD.REUSE);
+    if (offset instanceof Long) {
+      recordIFDOffset(no, (Long) offset);
+    }
   }
 
   @Override
@@ -105,50 +128,39 @@ public class PyramidOMETiffWriter extends OMETiffWriter {
       }
       resCounts[i] = getResolutionCount();
     }
+    long[][][] offsets = ifdOffsets;
+    ifdOffsets = null;
     super.close();
 
-    // post-processing step to fill in all SubIFD arrays
-    try {
-      boolean littleEndian = false;
-      long[] allOffsets = null;
-      try (RandomAccessInputStream in = new RandomAccessInputStream(id)) {
-        TiffParser parser = new TiffParser(in);
-        littleEndian = parser.checkHeader();
-        allOffsets = parser.getIFDOffsets();
-      }
+    // post-processing step to fill in all SubIFD arrays and to link
+    // the full resolution IFDs together
+    try (RandomAccessOutputStream out = new RandomAccessOutputStream(id);
+      RandomAccessInputStream in = new RandomAccessInputStream(id))
+    {
+      TiffSaver saver = new TiffSaver(out, id);
+      saver.setBigTiff(isBigTiff);
 
-      int mainIFDIndex = 0;
-      int currentFullResolution = 0;
       for (int i=0; i<r.getImageCount(); i++) {
-        setSeries(i);
         int resCount = resCounts[i];
         for (int p=0; p<planeCounts[i]; p++) {
           long[] subIFDOffsets = new long[resCount - 1];
           for (int res=0; res<subIFDOffsets.length; res++) {
-            subIFDOffsets[res] = allOffsets[mainIFDIndex + (res + 1) * planeCounts[i]];
+            subIFDOffsets[res] = getIFDOffset(offsets, i, res + 1, p);
           }
 
-          try (RandomAccessOutputStream out = new RandomAccessOutputStream(id);
-               RandomAccessInputStream in = new RandomAccessInputStream(id)) {
-            out.order(littleEndian);
-            in.order(littleEndian);
-            TiffSaver saver = new TiffSaver(out, id);
-            saver.setBigTiff(isBigTiff);
-            saver.setLittleEndian(littleEndian);
-            int index = mainIFDIndex + 1;
-            if (p == planeCounts[i] - 1) {
-              index += (planeCounts[i] * (resCount - 1));
-            }
-            long nextPointer = index < allOffsets.length ? allOffsets[index] : 0;
-
-            saver.overwriteIFDOffset(in, allOffsets[mainIFDIndex], nextPointer);
-            saver.overwriteIFDValue(in, currentFullResolution, IFD.SUB_IFD, subIFDOffsets);
+          long nextPointer = 0;
+          if (p < planeCounts[i] - 1) {
+            nextPointer = getIFDOffset(offsets, i, 0, p + 1);
+          }
+          else if (i < r.getImageCount() - 1) {
+            nextPointer = getIFDOffset(offsets, i + 1, 0, 0);
           }
 
-          mainIFDIndex++;
-          currentFullResolution++;
+          long mainIFD = getIFDOffset(offsets, i, 0, p);
+          saver.overwriteIFDValueAtOffset(
+            in, mainIFD, IFD.SUB_IFD, subIFDOffsets);
+          saver.overwriteIFDOffset(in, mainIFD, nextPointer);
         }
-        mainIFDIndex += (planeCounts[i] * (resCount - 1));
       }
       setSeries(0);
     }
@@ -157,4 +169,41 @@ public class PyramidOMETiffWriter extends OMETiffWriter {
     }
   }
 
+  // -- Helper methods --
+
+  /**
+   * Record the offset of the IFD for the given plane in the current series
+   * and resolution.  Only the first offset is recorded, as all tiles of a
+   * plane share the same IFD.
+   */
+  private void recordIFDOffset(int no, long offset) {
+    MetadataRetrieve r = getMetadataRetrieve();
+    if (ifdOffsets == null) {
+      ifdOffsets = new long[r.getImageCount()][][];
+    }
+    if (ifdOffsets[series] == null) {
+      ifdOffsets[series] = new long[getResolutionCount()][];
+    }
+    int resolution = getResolution();
+    if (ifdOffsets[series][resolution] == null) {
+      ifdOffsets[series][resolution] = new long[getPlaneCount()];
+      Arrays.fill(ifdOffsets[series][resolution], -1);
+    }
+    if (ifdOffsets[series][resolution][no] < 0) {
+      ifdOffsets[series][resolution][no] = offset;
+    }
+  }
+
+  private long getIFDOffset(long[][][] offsets, int s, int res, int no)
+    throws FormatException
+  {
+    if (offsets == null || offsets[s] == null || offsets[s][res] == null ||
+      offsets[s][res][no] < 0)
+    {
+      throw new FormatException("No IFD was written for series " + s +
+        ", resolution " + res + ", plane " + no);
+    }
+    return offsets[s][res][no];
+  }
+
 }
@@ -38,6 +38,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import loci.common.RandomAccessInputStream;
 import loci.common.services.Service;
 import loci.common.services.ServiceException;
 import loci.formats.codec.JPEG2000CodecOptions;
@@ -111,4 +112,22 @@ public interface JAIIIOService extends Service {
    */
   public Raster readRaster(InputStream in) throws IOException, ServiceException;
 
+  /**
+   * Reads an image into a raster using JAI Image I/O using the JPEG 2000 codec.
+   * The codestream is read in place, starting at the current file pointer, so
+   * that only the parts needed for the requested region and resolution are
+   * read from the stream.  If {@link JPEG2000CodecOptions#codestreamEnd} is
+   * set, it is the offset in the stream at which the codestream ends.
+   * @param in Target input stream, positioned at the start of the codestream.
+   * @param options Options for the JPEG 2000 codec.
+   * @return An AWT image raster.
+   * @throws IOException Thrown if there is an error reading from or writing
+   * to one of the target streams / buffers.
+   * @throws ServiceException Thrown if there is an error initializing or
+   * interacting with the dependencies of the service.
+   * @see #readRaster(InputStream, JPEG2000CodecOptions)
+   */
+  public Raster readRaster(RandomAccessInputStream in,
+    JPEG2000CodecOptions options) throws IOException, ServiceException;
+
 }
@@ -32,6 +32,7 @@
 
 package loci.formats.services;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
 import java.io.IOException;
@@ -44,9 +45,13 @@ import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.spi.IIORegistry;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
 import javax.imageio.stream.ImageOutputStream;
 import javax.imageio.stream.MemoryCacheImageInputStream;
 
+import loci.common.RandomAccessInputStream;
+import loci.common.Region;
 import loci.common.services.AbstractService;
 import loci.common.services.ServiceException;
 import loci.formats.codec.JPEG2000CodecOptions;
@@ -146,10 +151,7 @@ public class JAIIIOServiceImpl extends AbstractService
     J2KImageReader reader = getReader();
     MemoryCacheImageInputStream mciis = new MemoryCacheImageInputStream(in);
     reader.setInput(mciis, false, true);
-    J2KImageReadParam param = (J2KImageReadParam) reader.getDefaultReadParam();
-    if (options.resolution != null) {
-      param.setResolution(options.resolution.intValue());
-    }
+    J2KImageReadParam param = getReadParam(reader, options);
     BufferedImage image = reader.read(0, param);
     mciis.close();
     reader.dispose();
@@ -169,17 +171,8 @@ public class JAIIIOServiceImpl extends AbstractService
   public Raster readRaster(InputStream in, JPEG2000CodecOptions options)
     throws IOException, ServiceException
   {
-    J2KImageReader reader = getReader();
     MemoryCacheImageInputStream mciis = new MemoryCacheImageInputStream(in);
-    reader.setInput(mciis, false, true);
-    J2KImageReadParam param = (J2KImageReadParam) reader.getDefaultReadParam();
-    if (options.resolution != null) {
-      param.setResolution(options.resolution.intValue());
-    }
-    Raster raster = reader.readRaster(0, param);
-    mciis.close();
-    reader.dispose();
-    return raster;
+    return readRaster(mciis, options);
   }
 
   /* @see JAIIIOService#readRaster(InputStream) */
@@ -189,6 +182,46 @@ public class JAIIIOServiceImpl extends AbstractService
     return readRaster(in, JPEG2000CodecOptions.getDefaultOptions());
   }
 
+  /* @see JAIIIOService#readRaster(RandomAccessInputStream, JPEG2000CodecOptions) */
+  @Override
+  public Raster readRaster(RandomAccessInputStream in,
+    JPEG2000CodecOptions options) throws IOException, ServiceException
+  {
+    long end = options.codestreamEnd > 0 ? options.codestreamEnd : in.length();
+    return readRaster(new StreamImageInputStream(in, end), options);
+  }
+
+  /** Decodes a raster from the given stream, then closes the stream. */
+  private Raster readRaster(ImageInputStream iis, JPEG2000CodecOptions options)
+    throws IOException
+  {
+    J2KImageReader reader = getReader();
+    reader.setInput(iis, false, true);
+    J2KImageReadParam param = getReadParam(reader, options);
+    Raster raster = reader.readRaster(0, param);
+    iis.close();
+    reader.dispose();
+    return raster;
+  }
+
+  /**
+   * Builds the read parameters for the resolution and region given in the
+   * codec options.
+   */
+  private J2KImageReadParam getReadParam(J2KImageReader reader,
+    JPEG2000CodecOptions options)
+  {
+    J2KImageReadParam param = (J2KImageReadParam) reader.getDefaultReadParam();
+    if (options.resolution != null) {
+      param.setResolution(options.resolution.intValue());
+    }
+    if (options.region != null) {
+      Region r = options.region;
+      param.setSourceRegion(new Rectangle(r.x, r.y, r.width, r.height));
+    }
+    return param;
+  }
+
   /** Set up the JPEG-2000 image reader. */
   private J2KImageReader getReader() {
     J2KImageReaderSpi spi =
@@ -205,4 +238,66 @@ public class JAIIIOServiceImpl extends AbstractService
     return registry;
   }
 
+  // -- Helper classes --
+
+  /**
+   * Presents part of a {@link RandomAccessInputStream}, from the file pointer
+   * it had on construction up to the given end offset, as an
+   * {@link ImageInputStream}.
+   * Unlike {@link MemoryCacheImageInputStream}, seeking forward does not
+   * buffer the skipped bytes, so the codestream is read only where the
+   * decoder needs it.  Closing this stream does not close the underlying one.
+   */
+  private static class StreamImageInputStream extends ImageInputStreamImpl {
+
+    private final RandomAccessInputStream in;
+    private final long offset;
+    private final long end;
+
+    StreamImageInputStream(RandomAccessInputStream in, long end)
+      throws IOException
+    {
+      this.in = in;
+      this.offset = in.getFilePointer();
+      this.end = Math.min(end, in.length());
+    }
+
+    @Override
+    public int read() throws IOException {
+      bitOffset = 0;
+      if (offset + streamPos >= end) {
+        return -1;
+      }
+      in.seek(offset + streamPos);
+      streamPos++;
+      return in.readUnsignedByte();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      bitOffset = 0;
+      long available = end - offset - streamPos;
+      if (available <= 0) {
+        return -1;
+      }
+      in.seek(offset + streamPos);
+      int n = in.read(b, off, (int) Math.min(len, available));
+      if (n > 0) {
+        streamPos += n;
+      }
+      return n;
+    }
+
+    @Override
+    public long length() {
+      return end - offset;
+    }
+
+    @Override
+    public boolean isCached() {
+      return false;
+    }
+
+  }
+
 }
@@ -33,9 +33,14 @@
 package loci.formats.services;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import loci.common.DataTools;
 import loci.common.RandomAccessInputStream;
@@ -76,6 +81,9 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
 
   private static final int EOI = 0xffd9;
 
+  /** Size of the buffer used when scanning for restart markers. */
+  private static final int SCAN_BUFFER_SIZE = 10 * 1024 * 1024;
+
   // -- Fields --
 
   private transient Logger logger;
@@ -92,10 +100,16 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
   private int xTiles;
   private int yTiles;
 
-  private ArrayList<Long> restartMarkers = new ArrayList<Long>();
+  /** Offsets of each restart interval; only the first count are valid. */
+  private long[] restartMarkers = new long[16];
+  private int restartMarkerCount = 0;
 
   private byte[] header;
 
+  /** Decompressors that are not currently in use, for reuse by any thread. */
+  private final ConcurrentLinkedQueue<TJDecompressor> decompressors =
+    new ConcurrentLinkedQueue<TJDecompressor>();
+
   private static boolean libraryLoaded = false;
 
   // -- Constructor --
@@ -113,21 +127,16 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
 
   @Override
   public void setRestartMarkers(long[] markers) {
-    restartMarkers.clear();
+    restartMarkerCount = 0;
     if (markers != null) {
-      for (long marker : markers) {
-        restartMarkers.add(marker);
-      }
+      restartMarkers = markers.clone();
+      restartMarkerCount = markers.length;
     }
   }
 
   @Override
   public long[] getRestartMarkers() {
-    long[] markers = new long[restartMarkers.size()];
-    for (int i=0; i<markers.length; i++) {
-      markers[i] = restartMarkers.get(i);
-    }
-    return markers;
+    return Arrays.copyOf(restartMarkers, restartMarkerCount);
   }
 
   @Override
@@ -159,15 +168,13 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
       else if (marker == SOS) {
         sos = end;
         inImage = true;
-        if (restartMarkers.size() == 0) {
-          restartMarkers.add(sos);
+        if (restartMarkerCount == 0) {
+          addRestartMarker(sos);
         }
         else {
-          long diff = sos - restartMarkers.get(0);
-          for (int i=0; i<restartMarkers.size(); i++) {
-            long original = restartMarkers.get(i);
-            original += diff;
-            restartMarkers.set(i, original);
+          long diff = sos - restartMarkers[0];
+          for (int i=0; i<restartMarkerCount; i++) {
+            restartMarkers[i] += diff;
           }
           break;
         }
@@ -179,22 +186,29 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
       }
     }
 
-    if (restartMarkers.size() == 1) {
-      in.seek(restartMarkers.get(0));
+    if (restartMarkerCount == 1) {
+      in.seek(restartMarkers[0]);
 
-      byte[] buf = new byte[10 * 1024 * 1024];
+      long length = in.length();
+      long remaining = length - in.getFilePointer();
+      byte[] buf = new byte[(int) Math.min(SCAN_BUFFER_SIZE, remaining + 4)];
       in.read(buf, 0, 4);
 
-      while (in.getFilePointer() < in.length()) {
+      while (in.getFilePointer() < length) {
         int n = in.read(buf, 4,
-          (int) Math.min(buf.length - 4, in.length() - in.getFilePointer()));
+          (int) Math.min(buf.length - 4, length - in.getFilePointer()));
         n += 4;
+        long bufferStart = in.getFilePointer() - n;
 
         for (int i=0; i<n-1; i++) {
-          marker = DataTools.bytesToShort(buf, i, 2, false) & 0xffff;
-          if (marker >= RST0 && marker <= RST7) {
-            restartMarkers.add(in.getFilePointer() - n + i + 2);
-            LOGGER.debug("adding RST marker at {}", restartMarkers.get(restartMarkers.size() - 1));
+          // RST0 - RST7 are 0xffd0 - 0xffd7
+          // the last bytes of each buffer are scanned twice
+          long position = bufferStart + i + 2;
+          if (buf[i] == (byte) 0xff && (buf[i + 1] & 0xf8) == (RST0 & 0xff) &&
+            position > restartMarkers[restartMarkerCount - 1])
+          {
+            addRestartMarker(position);
+            LOGGER.trace("adding RST marker at {}", position);
             i += restartInterval;
           }
         }
@@ -217,7 +231,7 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
       yTiles++;
     }
 
-    if (restartInterval == 1 && restartMarkers.size() <= 1) {
+    if (restartInterval == 1 && restartMarkerCount <= 1) {
       // interval and markers are not present or invalid
       throw new IOException("Restart interval and markers invalid");
     }
@@ -228,52 +242,68 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
     int width, int height)
     throws IOException
   {
-    Region image = new Region(xCoordinate, yCoordinate, width, height);
-
-    int bufX = 0;
-    int bufY = 0;
-
-    int outputRowLen = width * 3;
+    final Region image = new Region(xCoordinate, yCoordinate, width, height);
+    final int outputRowLen = width * 3;
 
-    Region intersection = null;
-    Region tileBoundary = new Region(0, 0, 0, 0);
-    byte[] tile = null;
+    // read the compressed data for each intersecting tile serially,
+    // then decode the tiles in parallel
+    final List<Region> tiles = new ArrayList<Region>();
+    final List<byte[]> data = new ArrayList<byte[]>();
     for (int row=0; row<yTiles; row++) {
-      tileBoundary.height = row < yTiles - 1 ? tileDim : imageHeight - (tileDim*row);
-      tileBoundary.y = row * tileDim;
+      int tileY = row * tileDim;
+      int tileHeight = row < yTiles - 1 ? tileDim : imageHeight - tileY;
+      if (tileY >= image.y + image.height) {
+        break;
+      }
       for (int col=0; col<xTiles; col++) {
-        tileBoundary.x = col * tileDim;
-        tileBoundary.width = col < xTiles - 1 ? tileDim : imageWidth - (tileDim*col);
+        int tileX = col * tileDim;
+        int tileWidth = col < xTiles - 1 ? tileDim : imageWidth - tileX;
+        Region tileBoundary = new Region(tileX, tileY, tileWidth, tileHeight);
         if (tileBoundary.intersects(image)) {
-          intersection = image.intersection(tileBoundary);
-          tile = getTile(col, row);
-
-          int rowLen =
-            3 * (int) Math.min(tileBoundary.width, intersection.width);
-          int outputOffset = bufY * outputRowLen + bufX;
-          int intersectionX = 0;
+          tiles.add(tileBoundary);
+          data.add(getCompressedTile(col, row));
+        }
+      }
+    }
 
-          if (tileBoundary.x < image.x) {
-            intersectionX = image.x - tileBoundary.x;
-          }
+    final byte[] output = buf;
+    IntStream indexes = IntStream.range(0, tiles.size());
+    if (tiles.size() > 1) {
+      indexes = indexes.parallel();
+    }
+    try {
+      indexes.forEach(t -> {
+        Region tileBoundary = tiles.get(t);
+        Region intersection = image.intersection(tileBoundary);
+        TJDecompressor decoder = null;
+        try {
+          decoder = getDecompressor();
+          byte[] tile = decompress(decoder, data.get(t));
+
+          int rowLen = 3 * intersection.width;
+          int outputOffset = (intersection.y - image.y) * outputRowLen +
+            (intersection.x - image.x) * 3;
+          int intersectionX = intersection.x - tileBoundary.x;
 
           for (int trow=0; trow<intersection.height; trow++) {
             int realRow = trow + intersection.y - tileBoundary.y;
-            int inputOffset =
-              3 * (realRow * tileDim + intersectionX);
-            System.arraycopy(tile, inputOffset, buf, outputOffset, rowLen);
+            int inputOffset = 3 * (realRow * tileDim + intersectionX);
+            System.arraycopy(tile, inputOffset, output, outputOffset, rowLen);
             outputOffset += outputRowLen;
           }
-          bufX += rowLen;
         }
-      }
-      if (intersection != null) {
-        bufX = 0;
-        bufY += intersection.height;
-      }
-      if (bufY >= height) {
-        break;
-      }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        finally {
+          if (decoder != null) {
+            decompressors.add(decoder);
+          }
+        }
+      });
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
     }
 
     return buf;
@@ -281,6 +311,61 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
 
   @Override
   public byte[] getTile(int tileX, int tileY) throws IOException {
+    byte[] data = getCompressedTile(tileX, tileY);
+    TJDecompressor decoder = getDecompressor();
+    try {
+      return decompress(decoder, data);
+    }
+    finally {
+      decompressors.add(decoder);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    logger = null;
+    imageWidth = 0;
+    imageHeight = 0;
+    if (in != null) {
+      in.close();
+    }
+    in = null;
+    offset = 0;
+    restartMarkerCount = 0;
+    restartInterval = 1;
+    sos = 0;
+    imageDimensions = 0;
+    tileDim = 0;
+    xTiles = 0;
+    yTiles = 0;
+    header = null;
+    TJDecompressor decoder = decompressors.poll();
+    while (decoder != null) {
+      try {
+        decoder.close();
+      }
+      catch (Exception e) {
+        LOGGER.debug("", e);
+      }
+      decoder = decompressors.poll();
+    }
+  }
+
+  // -- Helper methods --
+
+  private void addRestartMarker(long marker) {
+    if (restartMarkerCount == restartMarkers.length) {
+      restartMarkers = Arrays.copyOf(restartMarkers,
+        Math.max(16, restartMarkers.length * 2));
+    }
+    restartMarkers[restartMarkerCount++] = marker;
+  }
+
+  /**
+   * Reads the restart intervals that make up the given tile, and wraps
+   * them in a JPEG stream that can be decoded independently.
+   */
+  private byte[] getCompressedTile(int tileX, int tileY) throws IOException {
     if (header == null) {
       header = getFixedHeader();
     }
@@ -291,11 +376,8 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
     for (int row=0; row<restartInterval; row++) {
       int end = start + 1;
 
-      if (end < restartMarkers.size()) {
-        long startOffset = restartMarkers.get(start);
-        long endOffset = restartMarkers.get(end);
-
-        dataLength += (endOffset - startOffset);
+      if (end < restartMarkerCount) {
+        dataLength += restartMarkers[end] - restartMarkers[start];
       }
       start += xTiles;
     }
@@ -310,9 +392,9 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
     for (int row=0; row<restartInterval; row++) {
       int end = start + 1;
 
-      if (end < restartMarkers.size()) {
-        long startOffset = restartMarkers.get(start);
-        long endOffset = restartMarkers.get(end);
+      if (end < restartMarkerCount) {
+        long startOffset = restartMarkers[start];
+        long endOffset = restartMarkers[end];
 
         in.seek(startOffset);
         in.read(data, offset, (int) (endOffset - startOffset - 2));
@@ -325,18 +407,34 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
     }
 
     DataTools.unpackBytes(EOI, data, offset, 2, false);
+    return data;
+  }
 
-    // and here we actually decompress it...
+  /** Returns an idle decompressor, creating a new one if necessary. */
+  private TJDecompressor getDecompressor() throws IOException {
+    TJDecompressor decoder = decompressors.poll();
+    if (decoder == null) {
+      try {
+        decoder = new TJDecompressor();
+      }
+      catch (Exception e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
+    return decoder;
+  }
 
+  private byte[] decompress(TJDecompressor decoder, byte[] data)
+    throws IOException
+  {
     try {
       int pixelType = TJ.PF_RGB;
       int pixelSize = TJ.getPixelSize(pixelType);
 
-      TJDecompressor decoder = new TJDecompressor(data);
-      byte[] decompressed = decoder.decompress(tileDim, tileDim * pixelSize,
+      decoder.setJPEGImage(data, data.length);
+      byte[] decompressed = new byte[tileDim * tileDim * pixelSize];
+      decoder.decompress(decompressed, tileDim, tileDim * pixelSize,
         tileDim, pixelType, pixelType);
-      data = null;
-      decoder.close();
       return decompressed;
     }
     catch (Exception e) {
@@ -346,28 +444,6 @@ public class JPEGTurboServiceImpl implements JPEGTurboService {
     }
   }
 
-  @Override
-  public void close() throws IOException {
-    logger = null;
-    imageWidth = 0;
-    imageHeight = 0;
-    if (in != null) {
-      in.close();
-    }
-    in = null;
-    offset = 0;
-    restartMarkers.clear();
-    restartInterval = 1;
-    sos = 0;
-    imageDimensions = 0;
-    tileDim = 0;
-    xTiles = 0;
-    yTiles = 0;
-    header = null;
-  }
-
-  // -- Helper methods --
-
   private byte[] getFixedHeader() throws IOException {
     in.seek(offset);
 
@@ -51,6 +51,18 @@ public class OnDemandLongArray {
     start = stream.getFilePointer();
   }
 
+  /**
+   * Creates an array with the same size and offset as the given array,
+   * which reads from the given stream.
+   */
+  public OnDemandLongArray(OnDemandLongArray array,
+    RandomAccessInputStream in)
+  {
+    stream = in;
+    size = array.size;
+    start = array.start;
+  }
+
   public void setSize(int size) {
     this.size = size;
   }
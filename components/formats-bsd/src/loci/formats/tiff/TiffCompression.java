@@ -33,14 +33,19 @@
 package loci.formats.tiff;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 
+import loci.common.ByteArrayHandle;
 import loci.common.DataTools;
+import loci.common.RandomAccessInputStream;
 import loci.common.enumeration.CodedEnum;
 import loci.common.enumeration.EnumException;
 import loci.formats.FormatException;
+import loci.formats.ReaderMetrics;
 import loci.formats.UnsupportedCompressionException;
 import loci.formats.codec.Codec;
 import loci.formats.codec.CodecOptions;
@@ -96,6 +101,7 @@ public enum TiffCompression implements CodedEnum {
         JPEG2000CodecOptions o = (JPEG2000CodecOptions) opt;
         j2k.numDecompositionLevels = o.numDecompositionLevels;
         j2k.resolution = o.resolution;
+        j2k.region = o.region;
         if (o.codeBlockSize != null) {
           j2k.codeBlockSize = o.codeBlockSize;
         }
@@ -125,6 +131,7 @@ public enum TiffCompression implements CodedEnum {
         JPEG2000CodecOptions o = (JPEG2000CodecOptions) opt;
         j2k.numDecompositionLevels = o.numDecompositionLevels;
         j2k.resolution = o.resolution;
+        j2k.region = o.region;
         if (o.codeBlockSize != null) {
           j2k.codeBlockSize = o.codeBlockSize;
         }
@@ -154,6 +161,7 @@ public enum TiffCompression implements CodedEnum {
         JPEG2000CodecOptions o = (JPEG2000CodecOptions) opt;
         j2k.numDecompositionLevels = o.numDecompositionLevels;
         j2k.resolution = o.resolution;
+        j2k.region = o.region;
         if (o.codeBlockSize != null)
           j2k.codeBlockSize = o.codeBlockSize;
         if (o.quality > 0)
@@ -183,6 +191,7 @@ public enum TiffCompression implements CodedEnum {
         JPEG2000CodecOptions o = (JPEG2000CodecOptions) opt;
         j2k.numDecompositionLevels = o.numDecompositionLevels;
         j2k.resolution = o.resolution;
+        j2k.region = o.region;
         if (o.codeBlockSize != null)
           j2k.codeBlockSize = o.codeBlockSize;
         if (o.quality > 0)
@@ -276,7 +285,74 @@ public enum TiffCompression implements CodedEnum {
       throw new UnsupportedCompressionException(
           "Sorry, " + getCodecName() + " compression mode is not supported");
     }
-    return codec.decompress(input, options);
+    long start = ReaderMetrics.start();
+    byte[] output = codec.decompress(input, options);
+    if (start >= 0) {
+      ReaderMetrics.record("TiffCompression." + name(), "decompress", start,
+        input.length);
+    }
+    return output;
+  }
+
+  /**
+   * Decodes a strip of data held in the first length bytes of the given
+   * array, which may be longer than the strip, e.g. when it was taken from
+   * {@link loci.formats.BufferPool#takeAtLeast(int)}.
+   */
+  public byte[] decompress(byte[] input, int length, CodecOptions options)
+    throws FormatException, IOException
+  {
+    if (length == input.length) {
+      return decompress(input, options);
+    }
+    if (!isStreamDecoded()) {
+      return decompress(Arrays.copyOf(input, length), options);
+    }
+    try (RandomAccessInputStream s = new RandomAccessInputStream(
+      new ByteArrayHandle(ByteBuffer.wrap(input, 0, length))))
+    {
+      return decompress(s, options);
+    }
+  }
+
+  /**
+   * Whether the codec decodes an array by reading it as a stream, in which
+   * case {@link #decompress(byte[], int, CodecOptions)} decodes part of an
+   * array without copying it.
+   */
+  public boolean isStreamDecoded() {
+    return codec instanceof JPEGCodec || codec instanceof LZWCodec ||
+      codec instanceof PackbitsCodec || codec instanceof ZlibCodec ||
+      codec instanceof NikonCodec;
+  }
+
+  /**
+   * Decodes a strip of data that is read in place from the given stream,
+   * starting at its current file pointer.
+   */
+  public byte[] decompress(RandomAccessInputStream in, CodecOptions options)
+    throws FormatException, IOException
+  {
+    if (codec == null) {
+      throw new UnsupportedCompressionException(
+          "Sorry, " + getCodecName() + " compression mode is not supported");
+    }
+    long start = ReaderMetrics.start();
+    long offset = in.getFilePointer();
+    byte[] output = codec.decompress(in, options);
+    if (start >= 0) {
+      ReaderMetrics.record("TiffCompression." + name(), "decompress", start,
+        in.getFilePointer() - offset);
+    }
+    return output;
+  }
+
+  /**
+   * Whether or not this compression is one of the JPEG-2000 variants, which
+   * can decode a sub-region of a strip or tile without decoding all of it.
+   */
+  public boolean isJPEG2000() {
+    return codec instanceof JPEG2000Codec;
   }
 
   /** Undoes in-place differencing according to the given predictor value. */
@@ -33,7 +33,9 @@
 package loci.formats.tiff;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 
@@ -43,9 +45,13 @@ import loci.common.DataTools;
 import loci.common.RandomAccessInputStream;
 import loci.common.Region;
 import loci.common.enumeration.EnumException;
+import loci.formats.BufferPool;
 import loci.formats.FormatException;
 import loci.formats.ImageTools;
+import loci.formats.ReaderMetrics;
 import loci.formats.codec.CodecOptions;
+import loci.formats.codec.JPEG2000CodecOptions;
+import loci.formats.remote.RangeHandle;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,9 +76,6 @@ public class TiffParser {
   /** Input source from which to parse TIFF data. */
   protected transient RandomAccessInputStream in;
 
-  /** Cached tile buffer to avoid re-allocations when reading tiles. */
-  private byte[] cachedTileBuffer;
-
   /** Whether or not the TIFF file contains BigTIFF data. */
   private boolean bigTiff;
 
@@ -94,6 +97,12 @@ public class TiffParser {
   /** Codec options to be used when decoding compressed pixel data. */
   private CodecOptions codecOptions = CodecOptions.getDefaultOptions();
 
+  /** Handle used to prefetch tiles when the file is read remotely. */
+  private RangeHandle rangeHandle;
+
+  /** Name under which read and decode times are recorded. */
+  private String metricsSource = TiffParser.class.getSimpleName();
+
   // -- Constructors --
 
   /** Constructs a new TIFF parser from the given file name. */
@@ -115,6 +124,20 @@ public class TiffParser {
 
   // -- TiffParser methods --
 
+  /**
+   * Sets the name under which read and decode times are recorded in
+   * {@link ReaderMetrics}, typically the simple name of the owning reader.
+   * Defaults to "TiffParser".
+   */
+  public void setMetricsSource(String metricsSource) {
+    this.metricsSource = metricsSource;
+  }
+
+  /** Gets the name under which read and decode times are recorded. */
+  public String getMetricsSource() {
+    return metricsSource;
+  }
+
   /**
    * Sets whether or not to assume that strips are of equal size.
    * @param equalStrips Whether or not the strips are of equal size.
@@ -150,6 +173,16 @@ public class TiffParser {
     fakeBigTiff = use64Bit;
   }
 
+  /**
+   * Sets the handle through which the file is being read with range
+   * requests.  When set, the tiles needed by
+   * {@link #getSamples(IFD, byte[], int, int, long, long, int, int)}
+   * are fetched together before they are decoded.
+   */
+  public void setRangeHandle(RangeHandle rangeHandle) {
+    this.rangeHandle = rangeHandle;
+  }
+
   /** Sets whether or not YCbCr color correction is allowed. */
   public void setYCbCrCorrection(boolean correctionAllowed) {
     ycbcrCorrection = correctionAllowed;
@@ -771,36 +804,58 @@ public class TiffParser {
     if (stripByteCounts[countIndex] == 0 || stripOffset >= in.length()) {
       return buf;
     }
-    byte[] tile = new byte[(int) stripByteCounts[countIndex]];
-
-    LOGGER.debug("Reading tile Length {} Offset {}", tile.length, stripOffset);
+    // compressed strips vary in length, so any pooled array that is long
+    // enough is used if the codec can be told where the strip ends;
+    // uncompressed strips are unpacked using the length of the array
+    boolean partial = compression.isStreamDecoded();
+    int length = (int) stripByteCounts[countIndex];
+    byte[] tile = partial ?
+      BufferPool.takeAtLeast(length) : BufferPool.take(length);
+    byte[] compressed = tile;
+    byte[] jpeg = null;
+
+    LOGGER.debug("Reading tile Length {} Offset {}", length, stripOffset);
+    long start = ReaderMetrics.start();
     in.seek(stripOffset);
-    in.read(tile);
+    int read = in.read(tile, 0, length);
+    if (read < length) {
+      // pooled arrays are not zeroed
+      Arrays.fill(tile, Math.max(read, 0), length, (byte) 0);
+    }
+    ReaderMetrics.record(metricsSource, "read", start, length);
 
     // reverse bits in each byte if FillOrder == 2
 
     if (ifd.getIFDIntValue(IFD.FILL_ORDER) == 2 &&
       compression.getCode() <= TiffCompression.GROUP_4_FAX.getCode())
     {
-      for (int i=0; i<tile.length; i++) {
+      for (int i=0; i<length; i++) {
         tile[i] = (byte) (Integer.reverse(tile[i]) >> 24);
       }
     }
 
-    codecOptions.maxBytes = (int) Math.max(size, tile.length);
+    codecOptions.maxBytes = (int) Math.max(size, length);
     codecOptions.ycbcr =
       ifd.getPhotometricInterpretation() == PhotoInterp.Y_CB_CR &&
       ifd.getIFDIntValue(IFD.Y_CB_CR_SUB_SAMPLING) == 1 && ycbcrCorrection;
 
     if (jpegTable != null) {
-      byte[] q = new byte[jpegTable.length + tile.length - 4];
-      System.arraycopy(jpegTable, 0, q, 0, jpegTable.length - 2);
-      System.arraycopy(tile, 2, q, jpegTable.length - 2, tile.length - 2);
-      tile = compression.decompress(q, codecOptions);
-    }
-    else tile = compression.decompress(tile, codecOptions);
+      int jpegLength = jpegTable.length + length - 4;
+      jpeg = partial ?
+        BufferPool.takeAtLeast(jpegLength) : BufferPool.take(jpegLength);
+      System.arraycopy(jpegTable, 0, jpeg, 0, jpegTable.length - 2);
+      System.arraycopy(tile, 2, jpeg, jpegTable.length - 2, length - 2);
+      tile = compression.decompress(jpeg, jpegLength, codecOptions);
+    }
+    else tile = compression.decompress(tile, length, codecOptions);
     TiffCompression.undifference(tile, ifd);
+    start = ReaderMetrics.start();
     unpackBytes(buf, 0, tile, ifd);
+    ReaderMetrics.record(metricsSource, "unpackBytes", start, tile.length);
+    // uncompressed strips are unpacked from the compressed array itself,
+    // so neither array may be reused before this point
+    BufferPool.release(compressed);
+    BufferPool.release(jpeg);
 
     if (planarConfig == 2 && !ifd.isTiled() && ifd.getSamplesPerPixel() > 1) {
       int channel = (int) (row % nStrips);
@@ -841,6 +896,87 @@ public class TiffParser {
     return getSamples(ifd, buf, x, y, width, height, 0, 0);
   }
 
+  /**
+   * Reads the given region of an image into <code>buf</code>, starting at its
+   * current position, which is not changed.  Uncompressed single-sample
+   * images stored as one strip or tile are read straight into the buffer;
+   * all other images are decoded as by
+   * {@link #getSamples(IFD, byte[], int, int, long, long)} and copied.
+   */
+  public ByteBuffer getSamples(IFD ifd, ByteBuffer buf, int x, int y,
+    long width, long height) throws FormatException, IOException
+  {
+    int bytes = ifd.getBytesPerSample()[0];
+    long size = width * height * ifd.getSamplesPerPixel() * bytes;
+    if (size > buf.remaining()) {
+      throw new FormatException("Buffer too small (got " + buf.remaining() +
+        ", expected " + size + ").");
+    }
+
+    long offset = getSingleStripOffset(ifd);
+    long tileWidth = ifd.getTileWidth();
+    long end = offset + ((y + height - 1) * tileWidth + x + width) * bytes;
+    if (offset < 0 || end > in.length()) {
+      // the byte array variant relies on the array length being exact
+      if (buf.hasArray() && buf.arrayOffset() + buf.position() == 0 &&
+        buf.array().length == size)
+      {
+        getSamples(ifd, buf.array(), x, y, width, height);
+      }
+      else {
+        byte[] samples = new byte[(int) size];
+        getSamples(ifd, samples, x, y, width, height);
+        buf.duplicate().put(samples);
+      }
+      return buf;
+    }
+
+    long start = ReaderMetrics.start();
+    int rowLen = (int) (width * bytes);
+    for (int row=0; row<height; row++) {
+      ByteBuffer dest = buf.duplicate();
+      dest.position(buf.position() + row * rowLen);
+      dest.limit(dest.position() + rowLen);
+      in.seek(offset + ((y + row) * tileWidth + x) * bytes);
+      // handles differ in how they apply the offset to a buffer,
+      // so always read into a slice that starts at zero
+      in.read(dest.slice(), 0, rowLen);
+    }
+    ReaderMetrics.record(metricsSource, "getSamples", start, size);
+    return buf;
+  }
+
+  /**
+   * Returns the offset of the pixel data if the given IFD describes an
+   * uncompressed single-sample image stored as one strip or tile, and
+   * -1 otherwise.
+   */
+  private long getSingleStripOffset(IFD ifd)
+    throws FormatException, IOException
+  {
+    PhotoInterp photoInterp = ifd.getPhotometricInterpretation();
+    if (ifd.getSamplesPerPixel() != 1 ||
+      (ifd.getBitsPerSample()[0] % 8) != 0 ||
+      ifd.getCompression() != TiffCompression.UNCOMPRESSED ||
+      photoInterp == PhotoInterp.WHITE_IS_ZERO ||
+      ifd.getIFDIntValue(IFD.FILL_ORDER) == 2 ||
+      ifd.getTilesPerRow() * ifd.getTilesPerColumn() != 1)
+    {
+      return -1;
+    }
+    long[] stripOffsets;
+    if (ifd.getOnDemandStripOffsets() != null) {
+      OnDemandLongArray offsets = ifd.getOnDemandStripOffsets();
+      offsets.setStream(in);
+      stripOffsets = offsets.toArray();
+    }
+    else {
+      stripOffsets = ifd.getStripOffsets();
+    }
+    return stripOffsets == null || stripOffsets.length != 1 ?
+      -1 : stripOffsets[0];
+  }
+
   public byte[] getSamples(IFD ifd, byte[] buf, int x, int y,
     long width, long height, int overlapX, int overlapY)
     throws FormatException, IOException
@@ -1005,6 +1141,28 @@ public class TiffParser {
       return buf;
     }
 
+    // special case: if we only need part of a single JPEG-2000 tile, then
+    // decode just that region instead of the whole tile
+    if (compression.isJPEG2000() && (effectiveChannels == 1 || planarConfig == 1) &&
+      (ifd.getBitsPerSample()[0] == 8 || ifd.getBitsPerSample()[0] == 16) &&
+      photoInterp != PhotoInterp.WHITE_IS_ZERO &&
+      photoInterp != PhotoInterp.CMYK && photoInterp != PhotoInterp.Y_CB_CR &&
+      ifd.getIFDIntValue(IFD.PREDICTOR, 1) == 1 &&
+      overlapX == 0 && overlapY == 0 && (width < tileWidth || height < tileLength) &&
+      numTileRows * numTileCols == 1 && stripOffsets != null &&
+      stripByteCounts != null && stripByteCounts[0] > 0 &&
+      in.length() >= stripOffsets[0] + stripByteCounts[0])
+    {
+      JPEG2000CodecOptions options = new JPEG2000CodecOptions(codecOptions);
+      options.interleaved = false;
+      options.codestreamEnd = stripOffsets[0] + stripByteCounts[0];
+      options.region = new Region(x, y, (int) width, (int) height);
+      in.seek(stripOffsets[0]);
+      byte[] region = compression.decompress(in, options);
+      System.arraycopy(region, 0, buf, 0, Math.min(region.length, buf.length));
+      return buf;
+    }
+
     long nrows = numTileRows;
     if (planarConfig == 2) numTileRows *= samplesPerPixel;
 
@@ -1027,10 +1185,20 @@ public class TiffParser {
     int bufferSize = (int) tileWidth * (int) tileLength *
       bufferSizeSamplesPerPixel * bpp;
 
-    cachedTileBuffer = new byte[bufferSize];
+    // tiles that are missing from the file are left blank
+    byte[] tileBuffer = BufferPool.take(bufferSize);
+    Arrays.fill(tileBuffer, (byte) 0);
 
     Region tileBounds = new Region(0, 0, (int) tileWidth, (int) tileLength);
 
+    if (rangeHandle != null && stripOffsets != null &&
+      stripByteCounts != null)
+    {
+      prefetchTiles(stripOffsets, stripByteCounts, imageBounds, numTileRows,
+        numTileCols, nrows, tileWidth, tileLength, overlapX, overlapY,
+        planarConfig);
+    }
+
     for (int row=0; row<numTileRows; row++) {
       // make the first row shorter to account for row overlap
       if (row == 0) {
@@ -1052,7 +1220,7 @@ public class TiffParser {
 
         if (!imageBounds.intersects(tileBounds)) continue;
 
-        getTile(ifd, cachedTileBuffer, row, col);
+        getTile(ifd, tileBuffer, row, col);
 
         // adjust tile bounds, if necessary
 
@@ -1087,11 +1255,11 @@ public class TiffParser {
           // otherwise, we may be overwriting a previous tile
           // (or the current tile may be overwritten by a subsequent tile)
           if (rowLen == outputRowLen && overlapX == 0 && overlapY == 0) {
-            System.arraycopy(cachedTileBuffer, src, buf, dest, copy * theight);
+            System.arraycopy(tileBuffer, src, buf, dest, copy * theight);
           }
           else {
             for (int tileRow=0; tileRow<theight; tileRow++) {
-              System.arraycopy(cachedTileBuffer, src, buf, dest, copy);
+              System.arraycopy(tileBuffer, src, buf, dest, copy);
               src += rowLen;
               dest += outputRowLen;
             }
@@ -1099,10 +1267,56 @@ public class TiffParser {
         }
       }
     }
+    BufferPool.release(tileBuffer);
 
     return buf;
   }
 
+  /**
+   * Passes the byte ranges of the tiles that intersect the given region to
+   * the range handle, so that they can be fetched with a few batched
+   * requests instead of one request per tile.
+   */
+  private void prefetchTiles(long[] stripOffsets, long[] stripByteCounts,
+    Region imageBounds, long numTileRows, long numTileCols, long nrows,
+    long tileWidth, long tileLength, int overlapX, int overlapY,
+    int planarConfig) throws IOException
+  {
+    long[] offsets = new long[stripOffsets.length];
+    long[] lengths = new long[stripOffsets.length];
+    int n = 0;
+    Region tileBounds = new Region(0, 0, (int) tileWidth, (int) tileLength);
+    for (int row=0; row<numTileRows; row++) {
+      if (row == 0) {
+        tileBounds.height = (int) (tileLength - overlapY);
+      }
+      for (int col=0; col<numTileCols; col++) {
+        if (col == 0) {
+          tileBounds.width = (int) (tileWidth - overlapX);
+        }
+        tileBounds.x = col * (int) (tileWidth - overlapX);
+        tileBounds.y = row * (int) (tileLength - overlapY);
+        if (planarConfig == 2) {
+          tileBounds.y = (int) ((row % nrows) * (tileLength - overlapY));
+        }
+        if (!imageBounds.intersects(tileBounds)) continue;
+
+        int index = (int) (row * numTileCols + col);
+        int countIndex = equalStrips ? 0 : index;
+        if (index < stripOffsets.length &&
+          countIndex < stripByteCounts.length)
+        {
+          offsets[n] = stripOffsets[index];
+          lengths[n] = stripByteCounts[countIndex];
+          n++;
+        }
+      }
+    }
+    if (n > 1) {
+      rangeHandle.prefetch(Arrays.copyOf(offsets, n), Arrays.copyOf(lengths, n));
+    }
+  }
+
   // -- Utility methods - byte stream decoding --
 
   /**
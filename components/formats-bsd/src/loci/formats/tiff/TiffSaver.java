@@ -728,24 +728,11 @@ public class TiffSaver {
     LOGGER.debug("overwriteIFDValue (ifd={}; tag={}; value={})",
       new Object[] {ifd, tag, value});
 
-    raf.seek(0);
-    TiffParser parser = new TiffParser(raf);
-    Boolean valid = parser.checkHeader();
-    if (valid == null) {
-      throw new FormatException("Invalid TIFF header");
-    }
-
-    boolean little = valid.booleanValue();
+    TiffParser parser = checkOverwriteHeader(raf);
     boolean bigTiff = parser.isBigTiff();
 
-    setLittleEndian(little);
-    setBigTiff(bigTiff);
-
     long offset = bigTiff ? 8 : 4; // offset to the IFD
 
-    int bytesPerEntry = bigTiff ?
-      TiffConstants.BIG_TIFF_BYTES_PER_ENTRY : TiffConstants.BYTES_PER_ENTRY;
-
     raf.seek(offset);
 
     // skip to the correct IFD
@@ -754,14 +741,64 @@ public class TiffSaver {
       throw new FormatException(
         "No such IFD (" + ifd + " of " + offsets.length + ")");
     }
-    raf.seek(offsets[ifd]);
+    overwriteIFDValue(raf, parser, offsets[ifd], tag, value);
+  }
+
+  /**
+   * Surgically overwrites an existing value in the IFD that starts at the
+   * given file offset.  This behaves in the same way as
+   * {@link #overwriteIFDValue(RandomAccessInputStream, int, int, Object)},
+   * but does not need to traverse the IFD chain to find the IFD.
+   */
+  public void overwriteIFDValueAtOffset(RandomAccessInputStream raf,
+    long ifdOffset, int tag, Object value) throws FormatException, IOException
+  {
+    if (raf == null)
+      throw new FormatException("Output cannot be null");
+    LOGGER.debug("overwriteIFDValueAtOffset (offset={}; tag={}; value={})",
+      new Object[] {ifdOffset, tag, value});
+
+    TiffParser parser = checkOverwriteHeader(raf);
+    overwriteIFDValue(raf, parser, ifdOffset, tag, value);
+  }
+
+  /**
+   * Reads the header of the given stream and sets this saver's endianness
+   * and BigTIFF flag to match.
+   */
+  private TiffParser checkOverwriteHeader(RandomAccessInputStream raf)
+    throws FormatException, IOException
+  {
+    raf.seek(0);
+    TiffParser parser = new TiffParser(raf);
+    Boolean valid = parser.checkHeader();
+    if (valid == null) {
+      throw new FormatException("Invalid TIFF header");
+    }
+
+    setLittleEndian(valid.booleanValue());
+    setBigTiff(parser.isBigTiff());
+    return parser;
+  }
+
+  private void overwriteIFDValue(RandomAccessInputStream raf,
+    TiffParser parser, long ifdOffset, int tag, Object value)
+    throws FormatException, IOException
+  {
+    boolean little = isLittleEndian();
+    boolean bigTiff = isBigTiff();
+
+    int bytesPerEntry = bigTiff ?
+      TiffConstants.BIG_TIFF_BYTES_PER_ENTRY : TiffConstants.BYTES_PER_ENTRY;
+
+    raf.seek(ifdOffset);
 
     // get the number of directory entries
     long num = bigTiff ? raf.readLong() : raf.readUnsignedShort();
 
     // search directory entries for proper tag
     for (int i=0; i<num; i++) {
-      raf.seek(offsets[ifd] + (bigTiff ? 8 : 2) + bytesPerEntry * i);
+      raf.seek(ifdOffset + (bigTiff ? 8 : 2) + bytesPerEntry * i);
 
       TiffIFDEntry entry = parser.readTiffIFDEntry();
       if (entry.getTag() == tag) {
@@ -827,13 +864,13 @@ public class TiffSaver {
         }
 
         // overwrite old entry
-        out.seek(offsets[ifd] + (bigTiff ? 8 : 2) + bytesPerEntry * i + 2);
+        out.seek(ifdOffset + (bigTiff ? 8 : 2) + bytesPerEntry * i + 2);
         out.writeShort(newType);
         writeIntValue(out, newCount);
         writeIntValue(out, newOffset);
         if (extraBuf.length() > 0) {
           out.seek(newOffset);
-          out.write(extraBuf.getByteBuffer());
+          out.write(extraBuf.getBytes(), 0, (int) extraBuf.length());
         }
         return;
       }
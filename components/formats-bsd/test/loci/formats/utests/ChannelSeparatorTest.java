@@ -0,0 +1,118 @@
+/*
+ * #%L
+ * BSD implementations of Bio-Formats readers and writers
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.utests;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import loci.formats.BufferPool;
+import loci.formats.ChannelSeparator;
+import loci.formats.CoreMetadata;
+import loci.formats.FormatException;
+import loci.formats.FormatReader;
+import loci.formats.FormatTools;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link loci.formats.ChannelSeparator}.
+ */
+public class ChannelSeparatorTest {
+
+  private static final int SIZE = 64;
+
+  private static final byte VALUE = 85;
+
+  /** RGB reader that leaves its odd planes unwritten. */
+  private static class SparseReader extends FormatReader {
+    SparseReader() {
+      super("Sparse RGB test", "sparse");
+    }
+
+    @Override
+    public boolean isThisType(String name, boolean open) {
+      return false;
+    }
+
+    @Override
+    public byte[] openBytes(int no, byte[] buf, int x, int y, int w, int h)
+      throws FormatException, IOException
+    {
+      FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
+      if (no % 2 == 0) {
+        Arrays.fill(buf, VALUE);
+      }
+      return buf;
+    }
+
+    @Override
+    protected void initFile(String id) throws FormatException, IOException {
+      super.initFile(id);
+      CoreMetadata ms = core.get(0);
+      ms.sizeX = SIZE;
+      ms.sizeY = SIZE;
+      ms.sizeZ = 2;
+      ms.sizeC = 3;
+      ms.sizeT = 1;
+      ms.imageCount = 2;
+      ms.rgb = true;
+      ms.interleaved = true;
+      ms.dimensionOrder = "XYCZT";
+      ms.pixelType = FormatTools.UINT8;
+    }
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    BufferPool.clear();
+  }
+
+  @Test
+  public void testUnwrittenPlaneIsBlank() throws Exception {
+    ChannelSeparator separator = new ChannelSeparator(new SparseReader());
+    separator.setId("test.sparse");
+    assertEquals(separator.getImageCount(), 6);
+    for (int no=0; no<separator.getImageCount(); no++) {
+      byte[] plane = separator.openBytes(no);
+      byte expected = no < 3 ? VALUE : 0;
+      for (byte b : plane) {
+        assertEquals(b, expected, "plane " + no);
+      }
+    }
+    separator.close();
+  }
+
+}
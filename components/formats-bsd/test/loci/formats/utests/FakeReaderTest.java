@@ -45,6 +45,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 
 import loci.common.Constants;
+import loci.common.DataTools;
 import loci.common.Location;
 import loci.formats.FormatException;
 import loci.formats.FormatTools;
@@ -699,4 +700,47 @@ public class FakeReaderTest {
     assertEquals(reader.getResolutionCount(), 1);
   }
 
+  @Test
+  public void testFillZero() throws Exception {
+    reader.setId("test&sizeX=64&sizeY=32&pixelType=uint16&fill=zero.fake");
+    byte[] plane = reader.openBytes(0);
+    assertEquals(plane.length, 64 * 32 * 2);
+    for (byte b : plane) {
+      assertEquals(b, 0);
+    }
+  }
+
+  @Test
+  public void testFillConstant() throws Exception {
+    reader.setId("test&sizeX=64&sizeY=32&pixelType=uint16&little=true" +
+      "&rgb=3&sizeC=3&fill=constant&fillValue=1000.fake");
+    byte[] plane = reader.openBytes(0, 3, 5, 20, 10);
+    assertEquals(plane.length, 20 * 10 * 3 * 2);
+    for (int i=0; i<plane.length; i+=2) {
+      assertEquals(DataTools.bytesToShort(plane, i, 2, true), 1000);
+    }
+  }
+
+  @Test(expectedExceptions={FormatException.class})
+  public void testInvalidFill() throws Exception {
+    reader.setId("test&fill=noise.fake");
+  }
+
+  @Test
+  public void testLargePlane() throws Exception {
+    // large enough to be generated in parallel
+    reader.setId("test&sizeX=4200&sizeY=4200&pixelType=uint8&sizeZ=3.fake");
+    byte[] plane = reader.openBytes(2);
+    int[] special = FakeReader.readSpecialPixels(plane);
+    assertEquals(special[1], 2);
+    assertEquals(special[2], 2);
+    int sizeX = reader.getSizeX();
+    for (int row=FakeReader.BOX_SIZE; row<reader.getSizeY(); row+=97) {
+      for (int col=0; col<sizeX; col+=13) {
+        assertEquals(plane[row * sizeX + col], (byte) col);
+      }
+    }
+    assertEquals(plane[plane.length - 1], (byte) (sizeX - 1));
+  }
+
 }
@@ -32,7 +32,11 @@
 
 package loci.formats.utests;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -44,10 +48,15 @@ import loci.formats.FormatTools;
 import loci.formats.FileStitcher;
 import loci.formats.FormatException;
 import loci.formats.IFormatReader;
+import loci.formats.MetadataTools;
 import loci.formats.in.FakeReader;
 import loci.formats.in.MetadataLevel;
 import loci.formats.in.MetadataOptions;
 import loci.formats.in.DynamicMetadataOptions;
+import loci.formats.meta.IMetadata;
+import loci.formats.out.TiffWriter;
+import loci.formats.tiff.IFD;
+import loci.formats.tiff.TiffCompression;
 
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -65,6 +74,10 @@ public class FileStitcherTest {
   public static final String KEY = "test.option";
   public static final String VALUE = "foo";
 
+  private static final int RAW_WIDTH = 32;
+  private static final int RAW_HEIGHT = 16;
+  private static final int RAW_PIXELS_OFFSET = 128;
+
   public static void checkKV(IFormatReader r, String k, String expv) {
     MetadataOptions rOpt = r.getMetadataOptions();
     assertTrue(rOpt instanceof DynamicMetadataOptions);
@@ -252,6 +265,91 @@ public class FileStitcherTest {
     fs.close();
   }
 
+  @Test
+  public void testTemplateMetadata() throws Exception {
+    File dir = Files.createTempDirectory("template").toFile();
+    try {
+      // files with identical structure but different pixels
+      for (int t=0; t<5; t++) {
+        writeTemplateFile(new File(dir, "test_t" + t + ".tif"), t);
+      }
+      // a compressed file does not match, and needs its own reader
+      writeTemplateFile(new File(dir, "test_t5.tif"), 5,
+        TiffWriter.COMPRESSION_LZW);
+      String pattern =
+        new File(dir, "test_t<0-5>.tif").getAbsolutePath();
+
+      FileStitcher expected = new FileStitcher();
+      expected.setId(pattern);
+      FileStitcher fs = new FileStitcher();
+      fs.setUsingTemplateMetadata(true);
+      fs.setMaxOpenReaders(2);
+      fs.setId(pattern);
+      assertTrue(fs.isUsingTemplateMetadata());
+      assertEquals(fs.getImageCount(), expected.getImageCount());
+      assertEquals(fs.getSizeZ(), expected.getSizeZ());
+      assertEquals(fs.getSizeT(), expected.getSizeT());
+      assertEqualsNoOrder(fs.getUsedFiles(), expected.getUsedFiles());
+      // read every file twice, so that evicted readers are recreated
+      for (int pass=0; pass<2; pass++) {
+        for (int i=0; i<fs.getImageCount(); i++) {
+          byte[] plane = fs.openBytes(i);
+          assertEquals(plane, expected.openBytes(i));
+          int[] zct = fs.getZCTCoords(i);
+          assertEquals(plane[0], (byte) (zct[2] * 10 + zct[0]));
+          assertTrue(fs.getUnderlyingReaders().length <= 3);
+        }
+      }
+      expected.close();
+      fs.close();
+    }
+    finally {
+      for (File f : dir.listFiles()) {
+        f.delete();
+      }
+      dir.delete();
+    }
+  }
+
+  @Test
+  public void testTemplateDifferentCompression() throws Exception {
+    File dir = Files.createTempDirectory("template").toFile();
+    try {
+      // same length and leading bytes, but different compression
+      // and so different strip byte counts
+      writeRawTiffFile(new File(dir, "test_t0.tif"), 0, false);
+      writeRawTiffFile(new File(dir, "test_t1.tif"), 1, true);
+      writeRawTiffFile(new File(dir, "test_t2.tif"), 2, false);
+      assertEquals(new File(dir, "test_t1.tif").length(),
+        new File(dir, "test_t0.tif").length());
+      String pattern =
+        new File(dir, "test_t<0-2>.tif").getAbsolutePath();
+
+      FileStitcher fs = new FileStitcher();
+      fs.setUsingTemplateMetadata(true);
+      fs.setId(pattern);
+      assertEquals(fs.getImageCount(), 3);
+      for (int i=0; i<fs.getImageCount(); i++) {
+        byte[] plane = fs.openBytes(i);
+        byte[] expected = new byte[RAW_WIDTH * RAW_HEIGHT];
+        Arrays.fill(expected, (byte) (i * 10 + 1));
+        assertEquals(plane, expected);
+      }
+      fs.close();
+    }
+    finally {
+      for (File f : dir.listFiles()) {
+        f.delete();
+      }
+      dir.delete();
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidMaxOpenReaders() {
+    new FileStitcher().setMaxOpenReaders(0);
+  }
+
   @Test(dataProvider = "levels")
   public void testOptionsImplicit(MetadataLevel level)
       throws IOException, FormatException {
@@ -264,4 +362,91 @@ public class FileStitcherTest {
     fs.close();
   }
 
+  /**
+   * Writes a TIFF file with two 8-bit planes, each filled with
+   * index * 10 + z.
+   */
+  private static void writeTemplateFile(File file, int index)
+    throws Exception
+  {
+    writeTemplateFile(file, index, TiffWriter.COMPRESSION_UNCOMPRESSED);
+  }
+
+  private static void writeTemplateFile(File file, int index,
+    String compression)
+    throws Exception
+  {
+    IMetadata meta = MetadataTools.createOMEXMLMetadata();
+    MetadataTools.populateMetadata(meta, 0, "template", false, "XYZCT",
+      FormatTools.getPixelTypeString(FormatTools.UINT8), 32, 16, 2, 1, 1, 1);
+    TiffWriter writer = new TiffWriter();
+    writer.setMetadataRetrieve(meta);
+    writer.setCompression(compression);
+    writer.setId(file.getAbsolutePath());
+    for (int z=0; z<2; z++) {
+      byte[] plane = new byte[32 * 16];
+      Arrays.fill(plane, (byte) (index * 10 + z));
+      writer.saveBytes(z, plane);
+    }
+    writer.close();
+  }
+
+  /**
+   * Writes a little-endian TIFF file with one 8-bit plane filled with
+   * index * 10 + 1.  The pixel data starts after a block of zeros and is
+   * padded to the uncompressed plane size, and the IFD follows it, so
+   * that compressed and uncompressed files have the same length and
+   * leading bytes.
+   */
+  private static void writeRawTiffFile(File file, int index,
+    boolean packBits)
+    throws Exception
+  {
+    byte value = (byte) (index * 10 + 1);
+    int planeSize = RAW_WIDTH * RAW_HEIGHT;
+    byte[] pixels = new byte[planeSize];
+    int byteCount = planeSize;
+    if (packBits) {
+      // each row is one run of identical bytes
+      for (int row=0; row<RAW_HEIGHT; row++) {
+        pixels[row * 2] = (byte) (1 - RAW_WIDTH);
+        pixels[row * 2 + 1] = value;
+      }
+      byteCount = RAW_HEIGHT * 2;
+    }
+    else {
+      Arrays.fill(pixels, value);
+    }
+
+    int ifdOffset = RAW_PIXELS_OFFSET + planeSize;
+    int[][] entries = {
+      {IFD.IMAGE_WIDTH, RAW_WIDTH},
+      {IFD.IMAGE_LENGTH, RAW_HEIGHT},
+      {IFD.BITS_PER_SAMPLE, 8},
+      {IFD.COMPRESSION, packBits ?
+        TiffCompression.PACK_BITS.getCode() :
+        TiffCompression.UNCOMPRESSED.getCode()},
+      {IFD.PHOTOMETRIC_INTERPRETATION, 1},
+      {IFD.STRIP_OFFSETS, RAW_PIXELS_OFFSET},
+      {IFD.SAMPLES_PER_PIXEL, 1},
+      {IFD.ROWS_PER_STRIP, RAW_HEIGHT},
+      {IFD.STRIP_BYTE_COUNTS, byteCount},
+    };
+    ByteBuffer buf = ByteBuffer.allocate(ifdOffset + 2 +
+      entries.length * 12 + 4).order(ByteOrder.LITTLE_ENDIAN);
+    buf.put((byte) 'I').put((byte) 'I').putShort((short) 42);
+    buf.putInt(ifdOffset);
+    buf.position(RAW_PIXELS_OFFSET);
+    buf.put(pixels);
+    buf.putShort((short) entries.length);
+    for (int[] entry : entries) {
+      buf.putShort((short) entry[0]);
+      buf.putShort((short) 4); // LONG
+      buf.putInt(1);
+      buf.putInt(entry[1]);
+    }
+    buf.putInt(0);
+    Files.write(file.toPath(), buf.array());
+  }
+
 }
@@ -0,0 +1,168 @@
+/*
+ * #%L
+ * BSD implementations of Bio-Formats readers and writers
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.utests;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import loci.common.services.ServiceFactory;
+import loci.formats.FormatTools;
+import loci.formats.InstrumentedReader;
+import loci.formats.MetricSnapshot;
+import loci.formats.ReaderMetrics;
+import loci.formats.in.FakeReader;
+import loci.formats.in.MinimalTiffReader;
+import loci.formats.meta.IMetadata;
+import loci.formats.out.TiffWriter;
+import loci.formats.services.OMEXMLService;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link InstrumentedReader} and {@link ReaderMetrics}.
+ */
+public class InstrumentedReaderTest {
+
+  private static final String TEST_FILE =
+    "test&pixelType=uint16&sizeX=32&sizeY=16&sizeZ=3.fake";
+
+  private InstrumentedReader reader;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    ReaderMetrics.reset();
+    reader = new InstrumentedReader(new FakeReader());
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    reader.close();
+    ReaderMetrics.setEnabled(false);
+    ReaderMetrics.reset();
+  }
+
+  @Test
+  public void testOpenBytes() throws Exception {
+    assertNull(reader.getReaderName());
+    reader.setId(TEST_FILE);
+    assertEquals(reader.getReaderName(), "FakeReader");
+
+    for (int i=0; i<reader.getImageCount(); i++) {
+      reader.openBytes(i);
+    }
+    reader.openBytes(0, 0, 0, 8, 4);
+
+    Map<String, MetricSnapshot> metrics = reader.getMetrics();
+    assertEquals(metrics.get("setId").getCount(), 1);
+
+    MetricSnapshot openBytes = metrics.get("openBytes");
+    assertEquals(openBytes.getCount(), 4);
+    long planeSize = FormatTools.getPlaneSize(reader);
+    assertEquals(openBytes.getBytes(), 3 * planeSize + 8 * 4 * 2);
+    assertTrue(openBytes.getMaxNanos() <= openBytes.getTotalNanos());
+
+    long histogramCount = 0;
+    for (long bucket : openBytes.getHistogram()) {
+      histogramCount += bucket;
+    }
+    assertEquals(histogramCount, 4);
+  }
+
+  @Test
+  public void testReset() throws Exception {
+    reader.setId(TEST_FILE);
+    reader.openBytes(0);
+    assertEquals(reader.getMetrics().size(), 2);
+    ReaderMetrics.reset();
+    assertTrue(reader.getMetrics().isEmpty());
+  }
+
+  @Test
+  public void testNotEnabledByWrapper() throws Exception {
+    new InstrumentedReader(new FakeReader()).close();
+    assertFalse(ReaderMetrics.isEnabled());
+    reader.setId(TEST_FILE);
+    reader.openBytes(0);
+    assertEquals(reader.getMetrics().get("openBytes").getCount(), 1);
+  }
+
+  @Test
+  public void testTiffParserAttributedToReader() throws Exception {
+    File tiff = File.createTempFile(getClass().getName(), ".tif");
+    tiff.delete();
+    try {
+      OMEXMLService service =
+        new ServiceFactory().getInstance(OMEXMLService.class);
+      IMetadata meta = service.createOMEXMLMetadata();
+      FakeReader fake = new FakeReader();
+      fake.setMetadataStore(meta);
+      fake.setId(TEST_FILE);
+      TiffWriter writer = new TiffWriter();
+      writer.setMetadataRetrieve(meta);
+      writer.setId(tiff.getAbsolutePath());
+      writer.saveBytes(0, fake.openBytes(0));
+      writer.close();
+      fake.close();
+
+      ReaderMetrics.setEnabled(true);
+      InstrumentedReader tiffReader =
+        new InstrumentedReader(new MinimalTiffReader());
+      tiffReader.setId(tiff.getAbsolutePath());
+      tiffReader.openBytes(0);
+      tiffReader.close();
+
+      Map<String, MetricSnapshot> all = ReaderMetrics.snapshot();
+      assertTrue(all.containsKey("MinimalTiffReader.read"));
+      assertFalse(all.containsKey("TiffParser.read"));
+    }
+    finally {
+      tiff.delete();
+    }
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    ReaderMetrics.setEnabled(false);
+    assertEquals(ReaderMetrics.start(), -1);
+    ReaderMetrics.record("Test", "op", ReaderMetrics.start(), 1);
+    assertTrue(ReaderMetrics.snapshot().isEmpty());
+  }
+
+}
@@ -0,0 +1,241 @@
+/*
+ * #%L
+ * BSD implementations of Bio-Formats readers and writers
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.utests;
+
+import static org.testng.AssertJUnit.*;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import loci.common.Location;
+import loci.common.RandomAccessInputStream;
+import loci.common.Region;
+import loci.common.services.ServiceFactory;
+import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
+import loci.formats.MetadataTools;
+import loci.formats.codec.JPEG2000Codec;
+import loci.formats.codec.JPEG2000CodecOptions;
+import loci.formats.in.JPEG2000Reader;
+import loci.formats.in.TiffReader;
+import loci.formats.meta.IMetadata;
+import loci.formats.out.TiffWriter;
+import loci.formats.services.JAIIIOServiceImpl;
+import loci.formats.services.OMEXMLService;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that regions read from tiled JPEG-2000 codestreams and from TIFF
+ * files with a single JPEG-2000 tile, and regions decoded at reduced
+ * resolutions, match the same region cropped from the whole decoded plane.
+ */
+public class JPEG2000RegionTest {
+
+  private static final String JP2_FILE = "region.jp2";
+  private static final String TIFF_FILE = "region.tif";
+
+  private static final int SIZE_X = 600;
+  private static final int SIZE_Y = 400;
+  private static final int DECOMPOSITION_LEVELS = 5;
+
+  private static final int[][] REGIONS = {
+    {10, 20, 100, 50}, {250, 100, 300, 200}, {500, 300, 100, 100},
+    {0, 0, SIZE_X, SIZE_Y}, {300, 3, 17, 390}
+  };
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    File jp2 = File.createTempFile("region", ".jp2");
+    File tiff = File.createTempFile("region", ".tif");
+    jp2.deleteOnExit();
+    tiff.deleteOnExit();
+    tiff.delete();
+    Location.mapId(JP2_FILE, jp2.getAbsolutePath());
+    Location.mapId(TIFF_FILE, tiff.getAbsolutePath());
+
+    BufferedImage img =
+      new BufferedImage(SIZE_X, SIZE_Y, BufferedImage.TYPE_3BYTE_BGR);
+    WritableRaster raster = img.getRaster();
+    for (int c=0; c<raster.getNumBands(); c++) {
+      for (int y=0; y<SIZE_Y; y++) {
+        for (int x=0; x<SIZE_X; x++) {
+          raster.setSample(x, y, c, (x * 7 + y * 13 + c * 50) & 0xff);
+        }
+      }
+    }
+
+    JPEG2000CodecOptions options = JPEG2000CodecOptions.getDefaultOptions();
+    options.lossless = true;
+    options.tileWidth = 128;
+    options.tileHeight = 128;
+    options.numDecompositionLevels = DECOMPOSITION_LEVELS;
+    try (OutputStream out = new FileOutputStream(jp2)) {
+      new JAIIIOServiceImpl().writeImage(out, img, options);
+    }
+
+    byte[] plane = openPlane(new JPEG2000Reader(), JP2_FILE);
+
+    ServiceFactory factory = new ServiceFactory();
+    IMetadata metadata =
+      factory.getInstance(OMEXMLService.class).createOMEXMLMetadata();
+    MetadataTools.populateMetadata(metadata, 0, "foo", false, "XYCZT",
+      "uint8", SIZE_X, SIZE_Y, 1, 3, 1, 3);
+    TiffWriter writer = new TiffWriter();
+    writer.setMetadataRetrieve(metadata);
+    writer.setCompression(TiffWriter.COMPRESSION_J2K);
+    writer.setInterleaved(true);
+    writer.setId(TIFF_FILE);
+    writer.setTileSizeX(SIZE_X);
+    writer.setTileSizeY(SIZE_Y);
+    writer.saveBytes(0, plane);
+    writer.close();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    Location.mapId(JP2_FILE, null);
+    Location.mapId(TIFF_FILE, null);
+  }
+
+  @Test
+  public void testTiledCodestreamRegions() throws Exception {
+    assertRegions(new JPEG2000Reader(), JP2_FILE);
+  }
+
+  @Test
+  public void testTiffTileRegions() throws Exception {
+    assertRegions(new TiffReader(), TIFF_FILE);
+  }
+
+  @Test
+  public void testReducedResolutionRegions() throws Exception {
+    JPEG2000Codec codec = new JPEG2000Codec();
+    for (int level=1; level<=2; level++) {
+      JPEG2000CodecOptions options = JPEG2000CodecOptions.getDefaultOptions();
+      options.interleaved = true;
+      options.littleEndian = false;
+      options.resolution = DECOMPOSITION_LEVELS - level;
+      byte[] plane;
+      try (RandomAccessInputStream in = new RandomAccessInputStream(JP2_FILE)) {
+        plane = codec.decompress(in, options);
+      }
+      int sizeX = SIZE_X >> level, sizeY = SIZE_Y >> level;
+      assertEquals(sizeX * sizeY * 3, plane.length);
+
+      for (int[] r : REGIONS) {
+        JPEG2000CodecOptions regionOptions = new JPEG2000CodecOptions(options);
+        int width = Math.max(1, r[2] >> level);
+        int height = Math.max(1, r[3] >> level);
+        regionOptions.region =
+          new Region(r[0] >> level, r[1] >> level, width, height);
+        byte[] region;
+        try (RandomAccessInputStream in =
+          new RandomAccessInputStream(JP2_FILE))
+        {
+          regionOptions.codestreamEnd = in.length();
+          region = codec.decompress(in, regionOptions);
+        }
+        assertEquals(width * height * 3, region.length);
+        for (int y=0; y<height; y++) {
+          for (int x=0; x<width; x++) {
+            for (int c=0; c<3; c++) {
+              int px = x + regionOptions.region.x;
+              int py = y + regionOptions.region.y;
+              assertEquals(plane[(py * sizeX + px) * 3 + c],
+                region[(y * width + x) * 3 + c]);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private byte[] openPlane(IFormatReader reader, String file)
+    throws Exception
+  {
+    reader.setId(file);
+    byte[] plane = reader.openBytes(0);
+    reader.close();
+    return plane;
+  }
+
+  private void assertRegions(IFormatReader reader, String file)
+    throws Exception
+  {
+    byte[] plane = openPlane(reader, file);
+    reader.setId(file);
+    for (int[] r : REGIONS) {
+      assertRegion(reader, plane, r);
+    }
+    reader.close();
+  }
+
+  /**
+   * Checks that the given region of the current plane matches the same
+   * region cropped from the whole plane.
+   */
+  private void assertRegion(IFormatReader reader, byte[] plane, int[] r)
+    throws Exception
+  {
+    int channels = reader.getRGBChannelCount();
+    int bpp = FormatTools.getBytesPerPixel(reader.getPixelType());
+    int sizeX = reader.getSizeX(), sizeY = reader.getSizeY();
+    byte[] region = reader.openBytes(0, r[0], r[1], r[2], r[3]);
+    assertEquals(r[2] * r[3] * channels * bpp, region.length);
+    for (int c=0; c<channels; c++) {
+      for (int y=0; y<r[3]; y++) {
+        for (int x=0; x<r[2]; x++) {
+          assertEquals(
+            plane[index(reader, x + r[0], y + r[1], c, sizeX, sizeY)],
+            region[index(reader, x, y, c, r[2], r[3])]);
+        }
+      }
+    }
+  }
+
+  private int index(IFormatReader reader, int x, int y, int c,
+    int width, int height)
+  {
+    if (reader.isInterleaved()) {
+      return (y * width + x) * reader.getRGBChannelCount() + c;
+    }
+    return c * width * height + y * width + x;
+  }
+
+}
@@ -232,6 +232,48 @@ public class MinMaxCalculatorTest {
     }
   }
 
+  /**
+   * Checks that values computed by a copy of the calculator can be added to
+   * those of the original.
+   */
+  @Test
+  public void testMergeMinMax() throws Exception {
+    String id = "merge&pixelType=int16&sizeX=20&sizeY=20&sizeZ=4&sizeC=2.fake";
+    MinMaxCalculator expected = new MinMaxCalculator(new FakeReader());
+    MinMaxCalculator original = new MinMaxCalculator(new FakeReader());
+    try {
+      expected.setId(id);
+      original.setId(id);
+      original.openBytes(0);
+      MinMaxCalculator copy = (MinMaxCalculator) original.copy();
+      for (int i=0; i<expected.getImageCount(); i++) {
+        expected.openBytes(i);
+        if (i > 0) copy.openBytes(i);
+      }
+      assertFalse(original.isMinMaxPopulated());
+      original.mergeMinMax(copy);
+      copy.close();
+
+      assertTrue(original.isMinMaxPopulated());
+      for (int c=0; c<expected.getSizeC(); c++) {
+        assertEquals(expected.getChannelGlobalMinimum(c),
+          original.getChannelGlobalMinimum(c));
+        assertEquals(expected.getChannelGlobalMaximum(c),
+          original.getChannelGlobalMaximum(c));
+      }
+      for (int i=0; i<expected.getImageCount(); i++) {
+        assertEquals(expected.getPlaneMinimum(i)[0],
+          original.getPlaneMinimum(i)[0]);
+        assertEquals(expected.getPlaneMaximum(i)[0],
+          original.getPlaneMaximum(i)[0]);
+      }
+    }
+    finally {
+      expected.close();
+      original.close();
+    }
+  }
+
   /**
    * A testing implementation of {@link loci.formats.meta.IMinMaxStore} that
    * we'll use to ensure that the various methods are called with the correct
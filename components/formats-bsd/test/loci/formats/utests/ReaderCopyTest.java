@@ -0,0 +1,330 @@
+/*
+ * #%L
+ * BSD implementations of Bio-Formats readers and writers
+ * %%
+ * Copyright (C) 2005 - 2017 Open Microscopy Environment:
+ *   - Board of Regents of the University of Wisconsin-Madison
+ *   - Glencoe Software, Inc.
+ *   - University of Dundee
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package loci.formats.utests;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import loci.common.services.ServiceFactory;
+import loci.formats.ChannelSeparator;
+import loci.formats.DimensionSwapper;
+import loci.formats.FileStitcher;
+import loci.formats.FormatException;
+import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
+import loci.formats.ImageReader;
+import loci.formats.MinMaxCalculator;
+import loci.formats.in.FakeReader;
+import loci.formats.in.MinimalTiffReader;
+import loci.formats.in.OMETiffReader;
+import loci.formats.meta.IMetadata;
+import loci.formats.out.OMETiffWriter;
+import loci.formats.services.OMEXMLService;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link IFormatReader#copy()}.
+ */
+public class ReaderCopyTest {
+
+  private static final String FAKE_ID =
+    "test&sizeX=64&sizeY=48&sizeZ=3&sizeC=2&series=2&pixelType=uint16.fake";
+
+  private File omeTiff;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    omeTiff = File.createTempFile(getClass().getName(), ".ome.tif");
+    omeTiff.delete();
+
+    OMEXMLService service =
+      new ServiceFactory().getInstance(OMEXMLService.class);
+    IMetadata meta = service.createOMEXMLMetadata();
+    FakeReader reader = new FakeReader();
+    reader.setMetadataStore(meta);
+    reader.setId(FAKE_ID);
+    OMETiffWriter writer = new OMETiffWriter();
+    writer.setMetadataRetrieve(meta);
+    writer.setId(omeTiff.getAbsolutePath());
+    for (int s=0; s<reader.getSeriesCount(); s++) {
+      reader.setSeries(s);
+      writer.setSeries(s);
+      for (int i=0; i<reader.getImageCount(); i++) {
+        writer.saveBytes(i, reader.openBytes(i));
+      }
+    }
+    writer.close();
+    reader.close();
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    omeTiff.delete();
+  }
+
+  @Test
+  public void testCopyUninitialized() throws Exception {
+    FakeReader reader = new FakeReader();
+    reader.setFlattenedResolutions(false);
+    IFormatReader copy = reader.copy();
+    assertNotSame(copy, reader);
+    assertNull(copy.getCurrentFile());
+    assertEquals(copy.hasFlattenedResolutions(), false);
+    copy.setId(FAKE_ID);
+    assertNull(reader.getCurrentFile());
+    copy.close();
+  }
+
+  @Test
+  public void testCopyUnsupported() throws Exception {
+    // subclasses may hold streams of their own, so must opt in separately
+    MinimalTiffReader subclass = new MinimalTiffReader() { };
+    subclass.setId(omeTiff.getAbsolutePath());
+    IFormatReader wrapper = new ChannelSeparator(subclass);
+    for (IFormatReader reader : new IFormatReader[] {subclass, wrapper}) {
+      try {
+        reader.copy();
+        fail("expected FormatException");
+      }
+      catch (FormatException e) { }
+    }
+    subclass.close();
+  }
+
+  @Test
+  public void testCopyToFile() throws Exception {
+    File other = File.createTempFile(getClass().getName(), ".tif");
+    try {
+      Files.copy(omeTiff.toPath(), other.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+      MinimalTiffReader reader = new MinimalTiffReader();
+      reader.setId(omeTiff.getAbsolutePath());
+      IFormatReader copy = reader.copy(other.getAbsolutePath());
+      assertEquals(copy.getCurrentFile(), other.getAbsolutePath());
+      assertEquals(copy.getImageCount(), reader.getImageCount());
+      for (int i=0; i<reader.getImageCount(); i++) {
+        assertEquals(copy.openBytes(i), reader.openBytes(i));
+      }
+      copy.close();
+      reader.close();
+
+      // OME-TIFF keeps the names of the files holding each plane
+      OMETiffReader ome = new OMETiffReader();
+      ome.setId(omeTiff.getAbsolutePath());
+      try {
+        ome.copy(other.getAbsolutePath());
+        fail("expected FormatException");
+      }
+      catch (FormatException e) { }
+      ome.close();
+    }
+    finally {
+      other.delete();
+    }
+  }
+
+  @Test
+  public void testCopyUninitializedImageReader() throws Exception {
+    ImageReader reader = new ImageReader();
+    reader.setGroupFiles(false);
+    IFormatReader copy = reader.copy();
+    assertEquals(copy.isGroupFiles(), false);
+    copy.setId(omeTiff.getAbsolutePath());
+    assertTrue(((ImageReader) copy).getReader() instanceof OMETiffReader);
+    assertNull(reader.getCurrentFile());
+    copy.close();
+  }
+
+  @Test
+  public void testCopyFakeReader() throws Exception {
+    FakeReader reader = new FakeReader();
+    reader.setId(FAKE_ID);
+    reader.setSeries(1);
+    IFormatReader copy = reader.copy();
+    assertTrue(copy instanceof FakeReader);
+    assertEquals(copy.getCurrentFile(), reader.getCurrentFile());
+    assertEquals(copy.getSeries(), 1);
+    assertSame(copy.getMetadataStore(), reader.getMetadataStore());
+
+    copy.setSeries(0);
+    assertEquals(reader.getSeries(), 1);
+    assertPixelsEqual(reader, copy);
+    reader.close();
+    copy.close();
+  }
+
+  @Test
+  public void testCopyWrappers() throws Exception {
+    DimensionSwapper swapper = new DimensionSwapper(new ImageReader());
+    IFormatReader reader =
+      new MinMaxCalculator(new ChannelSeparator(swapper));
+    reader.setId(FAKE_ID);
+    reader.openBytes(0);
+    IFormatReader copy = reader.copy();
+    assertTrue(copy instanceof MinMaxCalculator);
+    assertPixelsEqual(reader, copy);
+
+    DimensionSwapper swapperCopy = (DimensionSwapper)
+      ((ChannelSeparator) ((MinMaxCalculator) copy).getReader()).getReader();
+    assertNotSame(swapperCopy, swapper);
+    swapperCopy.setOutputOrder("XYCZT");
+    assertEquals(swapperCopy.getDimensionOrder(), "XYCZT");
+    assertEquals(swapper.getDimensionOrder(), "XYZCT");
+    reader.close();
+    copy.close();
+  }
+
+  @Test
+  public void testCopyFileStitcher() throws Exception {
+    FileStitcher reader = new FileStitcher(new FakeReader());
+    reader.setId("test_z<0-2>&sizeZ=2&sizeC=2.fake");
+    IFormatReader copy = reader.copy();
+    assertTrue(copy instanceof FileStitcher);
+    assertEquals(copy.getImageCount(), 12);
+    assertPixelsEqual(reader, copy);
+
+    // closing the copy does not affect the original
+    copy.close();
+    assertEquals(reader.getImageCount(), 12);
+    assertEquals(reader.getSizeZ(), 6);
+    reader.openBytes(11);
+    reader.close();
+  }
+
+  @Test
+  public void testCopyTiff() throws Exception {
+    MinimalTiffReader reader = new MinimalTiffReader();
+    reader.setId(omeTiff.getAbsolutePath());
+    MinimalTiffReader copy = (MinimalTiffReader) reader.copy();
+    assertNotSame(copy.getIFDs(), reader.getIFDs());
+    assertEquals(copy.getIFDs().size(), reader.getIFDs().size());
+    assertPixelsEqual(reader, copy);
+
+    // the copy does not depend upon the original's open files
+    byte[] plane = reader.openBytes(1);
+    reader.close();
+    assertEquals(copy.openBytes(1), plane);
+    copy.close();
+  }
+
+  @Test
+  public void testConcurrentCopies() throws Exception {
+    final OMETiffReader reader = new OMETiffReader();
+    reader.setId(omeTiff.getAbsolutePath());
+    final List<byte[]> expected = new ArrayList<byte[]>();
+    for (int s=0; s<reader.getSeriesCount(); s++) {
+      reader.setSeries(s);
+      for (int i=0; i<reader.getImageCount(); i++) {
+        expected.add(reader.openBytes(i));
+      }
+    }
+
+    int threads = 4;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+      for (int t=0; t<threads; t++) {
+        final IFormatReader copy = reader.copy();
+        results.add(pool.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws Exception {
+            try {
+              for (int iteration=0; iteration<10; iteration++) {
+                int index = 0;
+                for (int s=0; s<copy.getSeriesCount(); s++) {
+                  copy.setSeries(s);
+                  for (int i=0; i<copy.getImageCount(); i++) {
+                    byte[] plane = copy.openBytes(i);
+                    if (!Arrays.equals(plane, expected.get(index++))) {
+                      return false;
+                    }
+                  }
+                }
+              }
+              return true;
+            }
+            finally {
+              copy.close();
+            }
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    }
+    finally {
+      pool.shutdown();
+      reader.close();
+    }
+  }
+
+  private void assertPixelsEqual(IFormatReader a, IFormatReader b)
+    throws Exception
+  {
+    assertEquals(b.getSeriesCount(), a.getSeriesCount());
+    int seriesA = a.getSeries();
+    int seriesB = b.getSeries();
+    for (int s=0; s<a.getSeriesCount(); s++) {
+      a.setSeries(s);
+      b.setSeries(s);
+      assertEquals(b.getImageCount(), a.getImageCount());
+      assertEquals(b.getDimensionOrder(), a.getDimensionOrder());
+      for (int i=0; i<a.getImageCount(); i++) {
+        assertEquals(b.openBytes(i), a.openBytes(i));
+      }
+      assertEquals(FormatTools.getPlaneSize(b), FormatTools.getPlaneSize(a));
+    }
+    a.setSeries(seriesA);
+    b.setSeries(seriesB);
+  }
+
+}
@@ -38,6 +38,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 
+import loci.common.RandomAccessInputStream;
 import loci.formats.FormatException;
 import loci.formats.IFormatReader;
 import loci.formats.ImageReader;
@@ -47,6 +48,8 @@ import loci.formats.meta.IMetadata;
 import loci.formats.meta.IPyramidStore;
 import loci.formats.out.PyramidOMETiffWriter;
 import loci.formats.tiff.IFD;
+import loci.formats.tiff.IFDList;
+import loci.formats.tiff.TiffParser;
 
 import ome.xml.model.enums.DimensionOrder;
 import ome.xml.model.enums.PixelType;
@@ -68,7 +71,7 @@ public class PyramidTest {
   private static final int TILE_SIZE = 1;
   private static final int SCALE = 2;
 
-  private File[] files = new File[9];
+  private File[] files = new File[11];
 
   @BeforeClass
   public void setUp() throws Exception {
@@ -254,6 +257,22 @@ public class PyramidTest {
     }
   }
 
+  @Test
+  public void testSubIFDArrays() throws FormatException, IOException {
+    int[] dims = new int[] {16, 8};
+    writePyramid(files[9].getAbsolutePath(), dims, dims, 2, 1, false, false);
+    checkSubIFDs(9, dims, 2, 1);
+  }
+
+  @Test
+  public void testSubIFDArraysBigEndianBigTiff()
+    throws FormatException, IOException
+  {
+    int[] dims = new int[] {16, 8};
+    writePyramid(files[10].getAbsolutePath(), dims, dims, 2, 1, true, true);
+    checkSubIFDs(10, dims, 2, 1);
+  }
+
   private IFormatReader getReader(int index) throws FormatException, IOException {
     ImageReader reader = new ImageReader();
     reader.setFlattenedResolutions(false);
@@ -261,6 +280,62 @@ public class PyramidTest {
     return reader;
   }
 
+  /**
+   * Checks that the main IFD chain contains exactly the full resolution
+   * planes, and that each SubIFD array points to the sub-resolutions of
+   * the same plane, in order.
+   */
+  private void checkSubIFDs(int index, int[] dims, int planes, int extra)
+    throws FormatException, IOException
+  {
+    try (RandomAccessInputStream in =
+      new RandomAccessInputStream(files[index].getAbsolutePath()))
+    {
+      TiffParser parser = new TiffParser(in);
+      IFDList mainIFDs = parser.getMainIFDs();
+      assertEquals(mainIFDs.size(), (dims.length + extra) * planes);
+
+      // pixel values are assigned in the order the planes were written
+      int value = 1;
+      int ifdIndex = 0;
+      for (int s=0; s<dims.length; s++) {
+        for (int p=0; p<planes; p++) {
+          IFD ifd = mainIFDs.get(ifdIndex++);
+          assertEquals(ifd.getImageWidth(), dims[s]);
+          assertEquals(getPixel(parser, ifd), value + p);
+
+          IFDList subIFDs = parser.getSubIFDs(ifd);
+          assertEquals(subIFDs.size(), RESOLUTION_COUNT - 1);
+          for (int r=1; r<RESOLUTION_COUNT; r++) {
+            IFD subIFD = subIFDs.get(r - 1);
+            int scale = (int) Math.pow(SCALE, r);
+            assertEquals(subIFD.getImageWidth(), dims[s] / scale);
+            assertEquals(subIFD.getImageLength(), dims[s] / scale);
+            assertEquals(getPixel(parser, subIFD), value + r * planes + p);
+          }
+        }
+        value += RESOLUTION_COUNT * planes;
+      }
+      for (int e=0; e<extra; e++) {
+        for (int p=0; p<planes; p++) {
+          IFD ifd = mainIFDs.get(ifdIndex++);
+          assertEquals(ifd.getImageWidth(), EXTRA_WIDTH);
+          assertEquals(parser.getSubIFDs(ifd).size(), 0);
+          assertEquals(getPixel(parser, ifd), value++);
+        }
+      }
+    }
+  }
+
+  /** Reads the first pixel of the given IFD. */
+  private int getPixel(TiffParser parser, IFD ifd)
+    throws FormatException, IOException
+  {
+    byte[] pixel = new byte[1];
+    parser.getSamples(ifd, pixel, 0, 0, 1, 1);
+    return pixel[0] & 0xff;
+  }
+
   private boolean checkPixels(IFormatReader reader) throws FormatException, IOException {
     int index = 1;
     for (int s=0; s<reader.getSeriesCount(); s++) {
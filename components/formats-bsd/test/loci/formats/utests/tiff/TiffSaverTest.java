@@ -37,12 +37,14 @@ import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import loci.common.ByteArrayHandle;
 import loci.common.RandomAccessInputStream;
 import loci.common.RandomAccessOutputStream;
 import loci.formats.FormatException;
 import loci.formats.tiff.IFD;
+import loci.formats.tiff.IFDList;
 import loci.formats.tiff.TiffParser;
 import loci.formats.tiff.TiffSaver;
 
@@ -56,6 +58,8 @@ import org.testng.annotations.Test;
  */
 public class TiffSaverTest {
 
+  private ByteArrayHandle handle;
+
   private RandomAccessOutputStream out;
 
   private RandomAccessInputStream in;
@@ -70,7 +74,7 @@ public class TiffSaverTest {
 
   @BeforeMethod
   public void setUp() throws IOException {
-    ByteArrayHandle handle = new ByteArrayHandle(INITIAL_CAPACITY);
+    handle = new ByteArrayHandle(INITIAL_CAPACITY);
     out = new RandomAccessOutputStream(handle);
     in = new RandomAccessInputStream(handle);
     tiffSaver = new TiffSaver(out, handle);
@@ -161,6 +165,29 @@ public class TiffSaverTest {
     assertEquals(1024, tiffParser.getFirstIFD().getImageWidth());
   }
 
+  @Test
+  public void testOverwriteIFDValueInPlace()
+    throws FormatException, IOException
+  {
+    long secondIFD = writeTwoIFDs();
+    byte[] before = getBytes();
+
+    tiffSaver.overwriteIFDValue(in, 0, IFD.SUB_IFD, new long[] {4, 5, 6});
+    checkOverwrittenSubIFDs(before, secondIFD);
+  }
+
+  @Test
+  public void testOverwriteIFDValueAtOffset()
+    throws FormatException, IOException
+  {
+    long secondIFD = writeTwoIFDs();
+    byte[] before = getBytes();
+
+    tiffSaver.overwriteIFDValueAtOffset(
+      in, 8, IFD.SUB_IFD, new long[] {4, 5, 6});
+    checkOverwrittenSubIFDs(before, secondIFD);
+  }
+
   @Test
   public void testOverwriteComment() throws FormatException, IOException {
     out.seek(0);
@@ -170,4 +197,60 @@ public class TiffSaverTest {
     assertTrue("new comment".equals(tiffParser.getComment()));
   }
 
+  /**
+   * Writes a little-endian TIFF with two IFDs.  The first IFD has a
+   * three-element SubIFD array, which is stored after its entries and
+   * immediately before the second IFD.
+   *
+   * @return the offset of the second IFD
+   */
+  private long writeTwoIFDs() throws FormatException, IOException {
+    tiffSaver.setLittleEndian(true);
+    tiffSaver.writeHeader();
+
+    IFD first = new IFD();
+    first.putIFDValue(IFD.IMAGE_WIDTH, 512);
+    first.putIFDValue(IFD.SUB_IFD, new long[] {1, 2, 3});
+    out.seek(8);
+    tiffSaver.writeIFD(first, 0);
+
+    long secondIFD = out.getFilePointer();
+    IFD second = new IFD();
+    second.putIFDValue(IFD.IMAGE_WIDTH, 256);
+    second.putIFDValue(IFD.IMAGE_LENGTH, 128);
+    tiffSaver.writeIFD(second, 0);
+    tiffSaver.overwriteIFDOffset(in, 8, secondIFD);
+    return secondIFD;
+  }
+
+  /**
+   * Checks that only the SubIFD array of the first IFD was changed to
+   * {4, 5, 6}, and that the bytes after it, including the second IFD,
+   * are unchanged.
+   */
+  private void checkOverwrittenSubIFDs(byte[] before, long secondIFD)
+    throws FormatException, IOException
+  {
+    byte[] after = getBytes();
+    assertEquals(before.length, after.length);
+    int valueStart = (int) secondIFD - 12;
+    assertTrue(Arrays.equals(Arrays.copyOf(before, valueStart),
+      Arrays.copyOf(after, valueStart)));
+    assertTrue(Arrays.equals(
+      Arrays.copyOfRange(before, (int) secondIFD, before.length),
+      Arrays.copyOfRange(after, (int) secondIFD, after.length)));
+
+    tiffParser = new TiffParser(in);
+    IFDList ifds = tiffParser.getMainIFDs();
+    assertEquals(2, ifds.size());
+    long[] subIFDs = ifds.get(0).getIFDLongArray(IFD.SUB_IFD);
+    assertTrue(Arrays.equals(new long[] {4, 5, 6}, subIFDs));
+    assertEquals(256, ifds.get(1).getImageWidth());
+    assertEquals(128, ifds.get(1).getImageLength());
+  }
+
+  private byte[] getBytes() {
+    return Arrays.copyOf(handle.getBytes(), (int) handle.length());
+  }
+
 }
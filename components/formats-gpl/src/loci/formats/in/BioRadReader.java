@@ -245,7 +245,7 @@ public class BioRadReader extends FormatReader {
 
     if (picFiles != null) {
       int file = no % picFiles.length;
-      try (RandomAccessInputStream ras = new RandomAccessInputStream(picFiles[file])) {
+      try (RandomAccessInputStream ras = openHandle(picFiles[file])) {
         long offset = (no / picFiles.length) * FormatTools.getPlaneSize(this);
         ras.seek(offset + 76);
 
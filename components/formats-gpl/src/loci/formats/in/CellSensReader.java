@@ -25,11 +25,14 @@
 
 package loci.formats.in;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicLong;
 
 import loci.common.ByteArrayHandle;
 import loci.common.DataTools;
@@ -48,12 +51,18 @@ import loci.formats.codec.CodecOptions;
 import loci.formats.codec.JPEGCodec;
 import loci.formats.codec.LosslessJPEGCodec;
 import loci.formats.codec.JPEG2000Codec;
+import loci.formats.codec.JPEG2000CodecOptions;
+import loci.formats.gui.AWTImageTools;
 import loci.formats.meta.MetadataStore;
 import loci.formats.tiff.IFD;
 import loci.formats.tiff.IFDList;
 import loci.formats.tiff.PhotoInterp;
 import loci.formats.tiff.TiffParser;
 
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
 import ome.units.UNITS;
 import ome.xml.model.primitives.Timestamp;
 
@@ -75,6 +84,9 @@ public class CellSensReader extends FormatReader {
   private static final int PNG = 8;
   private static final int BMP = 9;
 
+  /** Gives each tile mapped for APNGReader or BMPReader a unique name. */
+  private static final AtomicLong MAPPED_TILES = new AtomicLong();
+
   // Pixel types
   private static final int CHAR = 1;
   private static final int UCHAR = 2;
@@ -406,6 +418,13 @@ public class CellSensReader extends FormatReader {
 
   private transient boolean expectETS = false;
 
+  /** Open stream for the most recently read .ets file. */
+  private transient RandomAccessInputStream etsStream;
+  private transient String etsStreamFile;
+
+  /** Codecs used to decompress tiles, indexed by compression type. */
+  private transient HashMap<Integer, Codec> codecs;
+
   // -- Constructor --
 
   /** Constructs a new cellSens reader. */
@@ -546,7 +565,17 @@ public class CellSensReader extends FormatReader {
             intersectionX = image.x - tile.x;
           }
 
-          tileBuf = decodeTile(no, row, col);
+          // JPEG-2000 tiles can be partially decoded, so only decode the
+          // part of the tile that overlaps the requested region
+          Region tileRegion = null;
+          if (compressionType.get(getCoreIndex()) == JPEG_2000 &&
+            (intersection.width < width || intersection.height < height))
+          {
+            tileRegion = new Region(intersectionX, intersection.y - tile.y,
+              intersection.width, intersection.height);
+          }
+
+          tileBuf = decodeTile(no, row, col, tileRegion);
 
           int rowLen = pixel * (int) Math.min(intersection.width, width);
 
@@ -554,6 +583,9 @@ public class CellSensReader extends FormatReader {
           for (int trow=0; trow<intersection.height; trow++) {
             int realRow = trow + intersection.y - tile.y;
             int inputOffset = pixel * (realRow * width + intersectionX);
+            if (tileRegion != null) {
+              inputOffset = trow * rowLen;
+            }
             System.arraycopy(tileBuf, inputOffset, buf, outputOffset, rowLen);
             outputOffset += outputRowLen;
           }
@@ -585,7 +617,13 @@ public class CellSensReader extends FormatReader {
   @Override
   public void close(boolean fileOnly) throws IOException {
     super.close(fileOnly);
+    if (etsStream != null) {
+      etsStream.close();
+    }
+    etsStream = null;
+    etsStreamFile = null;
     if (!fileOnly) {
+      codecs = null;
       if (parser != null && parser.getStream() != null) {
         parser.getStream().close();
       }
@@ -615,6 +653,23 @@ public class CellSensReader extends FormatReader {
 
   // -- Internal FormatReader API methods --
 
+  /* @see loci.formats.FormatReader#initCopy() */
+  @Override
+  protected void initCopy() throws FormatException, IOException {
+    super.initCopy();
+    parser = null;
+    ifds = MinimalTiffReader.copyIFDs(ifds);
+    etsStream = null;
+    etsStreamFile = null;
+    codecs = null;
+  }
+
+  /* @see loci.formats.FormatReader#isCopySupported() */
+  @Override
+  protected boolean isCopySupported() {
+    return getClass() == CellSensReader.class;
+  }
+
   /* @see loci.formats.FormatReader#initFile(String) */
   @Override
   protected void initFile(String id) throws FormatException, IOException {
@@ -915,11 +970,15 @@ public class CellSensReader extends FormatReader {
     return bpp * channels * tileX.get(index) * tileY.get(index);
   }
 
-  private byte[] decodeTile(int no, int row, int col)
+  /**
+   * Decodes the given tile.  If a region within the tile is given, then only
+   * that region is returned; JPEG-2000 tiles decode just the region.
+   */
+  private byte[] decodeTile(int no, int row, int col, Region region)
     throws FormatException, IOException
   {
     if (tileMap.get(getCoreIndex()) == null) {
-      return new byte[getTileSize()];
+      return cropTile(new byte[getTileSize()], region);
     }
 
     int[] zct = getZCTCoords(no);
@@ -978,70 +1037,187 @@ public class CellSensReader extends FormatReader {
           }
         }
       }
-      return tile;
+      return cropTile(tile, region);
     }
 
     Long offset = tileOffsets.get(getCoreIndex())[index];
     byte[] buf = null;
-    IFormatReader reader = null;
-    try (RandomAccessInputStream ets =
-      new RandomAccessInputStream(fileMap.get(getCoreIndex()))) {
-      ets.seek(offset);
-      CodecOptions options = new CodecOptions();
-      options.interleaved = isInterleaved();
-      options.littleEndian = isLittleEndian();
-      int tileSize = getTileSize();
-      if (tileSize == 0) {
-        tileSize = tileX.get(getCoreIndex()) * tileY.get(getCoreIndex()) * 10;
-      }
-      options.maxBytes = (int) (offset + tileSize);
+    RandomAccessInputStream ets = getETSStream(fileMap.get(getCoreIndex()));
+    ets.seek(offset);
+    CodecOptions options = new CodecOptions();
+    options.interleaved = isInterleaved();
+    options.littleEndian = isLittleEndian();
+    int tileSize = getTileSize();
+    if (tileSize == 0) {
+      tileSize = tileX.get(getCoreIndex()) * tileY.get(getCoreIndex()) * 10;
+    }
+    options.maxBytes = (int) (offset + tileSize);
+
+    long end = index < tileOffsets.get(getCoreIndex()).length - 1 ?
+      tileOffsets.get(getCoreIndex())[index + 1] : ets.length();
+
+    int compression = compressionType.get(getCoreIndex());
+    switch (compression) {
+      case RAW:
+        buf = new byte[tileSize];
+        ets.read(buf);
+        break;
+      case JPEG_2000:
+        if (region != null) {
+          JPEG2000CodecOptions j2k =
+            JPEG2000CodecOptions.getDefaultOptions(options);
+          j2k.region = region;
+          j2k.codestreamEnd = end;
+          return getCodec(compression).decompress(ets, j2k);
+        }
+        buf = getCodec(compression).decompress(ets, options);
+        break;
+      case JPEG:
+      case JPEG_LOSSLESS:
+        buf = getCodec(compression).decompress(ets, options);
+        break;
+      case PNG:
+      case BMP:
+        byte[] b = new byte[(int) (end - offset)];
+        ets.read(b);
+        if (isDirectlyDecodable(b, compression)) {
+          buf = decodeImage(b);
+        }
+        else {
+          buf = readImage(b, compression);
+        }
+        break;
+    }
+    return cropTile(buf, region);
+  }
 
-      
-      long end = index < tileOffsets.get(getCoreIndex()).length - 1 ?
-        tileOffsets.get(getCoreIndex())[index + 1] : ets.length();
+  /** Copies the given region out of a whole decoded tile. */
+  private byte[] cropTile(byte[] tile, Region region) {
+    if (region == null || tile == null) {
+      return tile;
+    }
+    int pixel =
+      getRGBChannelCount() * FormatTools.getBytesPerPixel(getPixelType());
+    int width = tileX.get(getCoreIndex());
+    int rowLen = region.width * pixel;
+    byte[] crop = new byte[rowLen * region.height];
+    for (int row=0; row<region.height; row++) {
+      int src = pixel * ((region.y + row) * width + region.x);
+      System.arraycopy(tile, src, crop, row * rowLen, rowLen);
+    }
+    return crop;
+  }
 
-      String file = null;
+  /**
+   * Returns an open stream for the given .ets file, reusing the stream
+   * from the previous tile if it belongs to the same file.
+   */
+  private RandomAccessInputStream getETSStream(String file) throws IOException {
+    if (etsStream == null || !file.equals(etsStreamFile)) {
+      if (etsStream != null) {
+        etsStream.close();
+      }
+      etsStream = new RandomAccessInputStream(file);
+      etsStreamFile = file;
+    }
+    return etsStream;
+  }
 
-      switch (compressionType.get(getCoreIndex())) {
-        case RAW:
-          buf = new byte[tileSize];
-          ets.read(buf);
-          break;
+  /** Returns the codec for the given compression type. */
+  private Codec getCodec(int compression) {
+    if (codecs == null) {
+      codecs = new HashMap<Integer, Codec>();
+    }
+    Codec codec = codecs.get(compression);
+    if (codec == null) {
+      switch (compression) {
         case JPEG:
-          Codec codec = new JPEGCodec();
-          buf = codec.decompress(ets, options);
+          codec = new JPEGCodec();
           break;
         case JPEG_2000:
           codec = new JPEG2000Codec();
-          buf = codec.decompress(ets, options);
           break;
         case JPEG_LOSSLESS:
           codec = new LosslessJPEGCodec();
-          buf = codec.decompress(ets, options);
           break;
-        case PNG:
-          file = "tile.png";
-          reader = new APNGReader();
-        case BMP:
-          if (reader == null) {
-            file = "tile.bmp";
-            reader = new BMPReader();
-          }
+      }
+      codecs.put(compression, codec);
+    }
+    return codec;
+  }
 
-          byte[] b = new byte[(int) (end - offset)];
-          ets.read(b);
-          Location.mapFile(file, new ByteArrayHandle(b));
-          reader.setId(file);
-          buf = reader.openBytes(0);
-          Location.mapFile(file, null);
-          break;
+  /**
+   * Returns true if the given PNG or BMP tile is 8-bit RGB or RGBA,
+   * which {@link #decodeImage(byte[])} decodes to the same bytes as
+   * APNGReader and BMPReader.  Other tiles, such as grayscale or
+   * palette tiles, are read with those readers.
+   */
+  private boolean isDirectlyDecodable(byte[] b, int compression) {
+    if (compression == PNG) {
+      // IHDR bit depth and color type follow the signature, chunk header,
+      // width and height
+      if (b.length < 26) {
+        return false;
       }
-    } finally {
-      if (reader != null) {
-        reader.close();
+      int bitDepth = b[24] & 0xff;
+      int colorType = b[25] & 0xff;
+      return bitDepth == 8 && (colorType == 2 || colorType == 6);
+    }
+    // BITMAPINFOHEADER bits per pixel and compression
+    if (b.length < 34) {
+      return false;
+    }
+    int bpp = DataTools.bytesToInt(b, 28, 2, true);
+    int bmpCompression = DataTools.bytesToInt(b, 30, 4, true);
+    return bpp == 24 && bmpCompression == 0;
+  }
+
+  /** Reads a PNG or BMP tile held in memory with APNGReader or BMPReader. */
+  private byte[] readImage(byte[] b, int compression)
+    throws FormatException, IOException
+  {
+    String file = "CellSensReader-tile-" + MAPPED_TILES.incrementAndGet() +
+      (compression == PNG ? ".png" : ".bmp");
+    IFormatReader reader =
+      compression == PNG ? new APNGReader() : new BMPReader();
+    Location.mapFile(file, new ByteArrayHandle(b));
+    try {
+      reader.setId(file);
+      return reader.openBytes(0);
+    }
+    finally {
+      reader.close();
+      Location.mapFile(file, null);
+    }
+  }
+
+  /**
+   * Decodes an 8-bit RGB or RGBA PNG or BMP tile held in memory, returning
+   * the pixels with the channels interleaved.
+   */
+  private byte[] decodeImage(byte[] b) throws FormatException, IOException {
+    // ImageIO.read closes the stream once the image has been read
+    ImageInputStream stream =
+      new MemoryCacheImageInputStream(new ByteArrayInputStream(b));
+    BufferedImage img = ImageIO.read(stream);
+    if (img == null) {
+      throw new FormatException("Could not decode tile");
+    }
+
+    byte[][] channels = AWTImageTools.getPixelBytes(img, false);
+    if (channels.length == 1) {
+      return channels[0];
+    }
+
+    int bpp = channels[0].length / (img.getWidth() * img.getHeight());
+    int pixel = bpp * channels.length;
+    byte[] pixels = new byte[pixel * img.getWidth() * img.getHeight()];
+    for (int c=0; c<channels.length; c++) {
+      for (int i=0, q=c*bpp; i<channels[c].length; i+=bpp, q+=pixel) {
+        System.arraycopy(channels[c], i, pixels, q, bpp);
       }
     }
-    return buf;
+    return pixels;
   }
 
   private void parseETSFile(RandomAccessInputStream etsFile, String file, int s)
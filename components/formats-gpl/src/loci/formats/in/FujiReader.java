@@ -105,7 +105,8 @@ public class FujiReader extends FormatReader {
   {
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
-    try (RandomAccessInputStream s = new RandomAccessInputStream(pixelsFile)) {
+    try (RandomAccessInputStream s = openHandle(pixelsFile)) {
+      s.seek(0);
       readPlane(s, x, y, w, h, buf);
     }
     return buf;
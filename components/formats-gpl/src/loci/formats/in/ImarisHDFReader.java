@@ -26,12 +26,22 @@
 package loci.formats.in;
 
 import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 
-import loci.common.DataTools;
 import loci.common.Location;
 import loci.common.RandomAccessInputStream;
+import loci.common.Region;
 import loci.common.services.DependencyException;
 import loci.common.services.ServiceException;
 import loci.common.services.ServiceFactory;
@@ -58,6 +68,9 @@ public class ImarisHDFReader extends SubResolutionFormatReader {
 
   private static final String[] DELIMITERS = {" ", "-", "."};
 
+  /** Maximum number of bytes of decoded blocks held in memory. */
+  private static final long MAX_BLOCK_CACHE_SIZE = 64L * 1024 * 1024;
+
   // -- Fields --
 
   private double pixelSizeX, pixelSizeY, pixelSizeZ;
@@ -71,6 +84,13 @@ public class ImarisHDFReader extends SubResolutionFormatReader {
   private List<double[]> colors;
   private int lastChannel = 0;
 
+  /** Chunk dimensions (Z, Y, X) of each resolution level's data sets. */
+  private transient int[][] chunkSizes;
+
+  /** Most recently used blocks of pixel data, keyed by data set and origin. */
+  private transient LinkedHashMap<String, Block> blockCache;
+  private transient long cachedBytes;
+
   // -- Constructor --
 
   /** Constructs a new Imaris HDF reader. */
@@ -155,62 +175,46 @@ public class ImarisHDFReader extends SubResolutionFormatReader {
   {
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
-    lastChannel = getZCTCoords(no)[1];
-
-    // pixel data is stored in XYZ blocks
+    int[] zct = getZCTCoords(no);
+    lastChannel = zct[1];
 
-    Object image = getImageData(no, x, y, w, h);
+    // pixel data is stored in XYZ chunks; read whole chunks so that each is
+    // decompressed once, and keep them for the neighbouring Z sections
 
-    boolean little = isLittleEndian();
+    String path = getDataPath(zct[2], zct[1]);
+    Region region = new Region(x, y, w, h);
     int bpp = FormatTools.getBytesPerPixel(getPixelType());
-    for (int row=0; row<h; row++) {
-      int rowlen = w * bpp;
-      int base = row * rowlen;
-
-      // indexes into the source array add (data.length - h) and
-      // (rowData.length - w) to account for cases where the source array
-      // represents a tile that is larger than the desired tile
-      if (image instanceof byte[][]) {
-        byte[][] data = (byte[][]) image;
-        byte[] rowData = data[row + data.length - h];
-        System.arraycopy(rowData, rowData.length - w, buf, base, w);
-      }
-      else if (image instanceof short[][]) {
-        short[][] data = (short[][]) image;
-        short[] rowData = data[row + data.length - h];
-        int index = rowData.length - w;
-        for (int i=0; i<w; i++) {
-          DataTools.unpackBytes(rowData[i + index], buf, base + 2*i, 2, little);
-        }
-      }
-      else if (image instanceof int[][]) {
-        int[][] data = (int[][]) image;
-        int[] rowData = data[row + data.length - h];
-        int index = rowData.length - w;
-        for (int i=0; i<w; i++) {
-          DataTools.unpackBytes(rowData[i + index], buf, base + i*4, 4, little);
-        }
-      }
-      else if (image instanceof float[][]) {
-        float[][] data = (float[][]) image;
-        float[] rowData = data[row + data.length - h];
-        int index = rowData.length - w;
-        for (int i=0; i<w; i++) {
-          int v = Float.floatToIntBits(rowData[i + index]);
-          DataTools.unpackBytes(v, buf, base + i*4, 4, little);
-        }
-      }
-      else if (image instanceof double[][]) {
-        double[][] data = (double[][]) image;
-        double[] rowData = data[row + data.length - h];
-        int index = rowData.length - w;
-        for (int i=0; i<w; i++) {
-          long v = Double.doubleToLongBits(rowData[i + index]);
-          DataTools.unpackBytes(v, buf, base + i * 8, 8, little);
-        }
-      }
+    int[] chunk = getChunkSize(path);
+
+    if (chunk == null) {
+      Block block = readBlock(path, zct[0], y, x, 1, h, w);
+      copyBlock(block, zct[0], region, buf);
+      return buf;
     }
 
+    int firstX = (x / chunk[2]) * chunk[2];
+    int firstY = (y / chunk[1]) * chunk[1];
+    int depth = chunk[0];
+    long blockBytes = (long) depth * chunk[1] * chunk[2] * bpp;
+    long tiles = (long) ((x + w - firstX + chunk[2] - 1) / chunk[2]) *
+      ((y + h - firstY + chunk[1] - 1) / chunk[1]);
+
+    // only keep the other Z sections if the blocks for this tile fit in the
+    // cache; otherwise read just the requested section
+    if (blockBytes * tiles > MAX_BLOCK_CACHE_SIZE / 2) {
+      depth = 1;
+    }
+    int z = (zct[0] / depth) * depth;
+    depth = Math.min(depth, getSizeZ() - z);
+
+    for (int by=firstY; by<y + h; by+=chunk[1]) {
+      int height = Math.min(chunk[1], getSizeY() - by);
+      for (int bx=firstX; bx<x + w; bx+=chunk[2]) {
+        int width = Math.min(chunk[2], getSizeX() - bx);
+        Block block = getBlock(path, z, by, bx, depth, height, width);
+        copyBlock(block, zct[0], region, buf);
+      }
+    }
     return buf;
   }
 
@@ -230,6 +234,9 @@ public class ImarisHDFReader extends SubResolutionFormatReader {
       gain = pinhole = channelName = microscopyMode = null;
       colors = null;
       lastChannel = 0;
+      chunkSizes = null;
+      blockCache = null;
+      cachedBytes = 0;
     }
   }
 
@@ -305,12 +312,12 @@ public class ImarisHDFReader extends SubResolutionFormatReader {
 
     int type = -1;
 
-    Object pix = getImageData(0, 0, 0, 1, 1);
-    if (pix instanceof byte[][]) type = FormatTools.UINT8;
-    else if (pix instanceof short[][]) type = FormatTools.UINT16;
-    else if (pix instanceof int[][]) type = FormatTools.UINT32;
-    else if (pix instanceof float[][]) type = FormatTools.FLOAT;
-    else if (pix instanceof double[][]) type = FormatTools.DOUBLE;
+    Object pix = readBlock(getDataPath(0, 0), 0, 0, 0, 1, 1, 1).data;
+    if (pix instanceof byte[]) type = FormatTools.UINT8;
+    else if (pix instanceof short[]) type = FormatTools.UINT16;
+    else if (pix instanceof int[]) type = FormatTools.UINT32;
+    else if (pix instanceof float[]) type = FormatTools.FLOAT;
+    else if (pix instanceof double[]) type = FormatTools.DOUBLE;
     else {
       throw new FormatException("Unknown pixel type: " + pix);
     }
@@ -422,57 +429,180 @@ public class ImarisHDFReader extends SubResolutionFormatReader {
 
   // -- Helper methods --
 
+  /** Returns the path to the pixel data of the current resolution. */
+  private String getDataPath(int t, int c) {
+    return "/DataSet/ResolutionLevel_" + getCoreIndex() + "/TimePoint_" + t +
+      "/Channel_" + c + "/Data";
+  }
+
   /**
-   * Retrieve an array corresponding to the specified image tile.
-   * In some cases, the returned tile will be larger than the requested tile;
-   * openBytes will correct for this as needed.
+   * Returns the chunk dimensions (Z, Y, X) of the given data set, or null if
+   * they are unknown.  All data sets of a resolution level are assumed to
+   * be stored in the same way.
    */
-  private Object getImageData(int no, int x, int y, int width, int height)
+  private int[] getChunkSize(String path) {
+    if (chunkSizes == null) {
+      chunkSizes = new int[core.flattenedSize()][];
+    }
+    int index = getCoreIndex();
+    if (chunkSizes[index] == null) {
+      int[] chunk = netcdf.getChunkSize(path);
+      chunkSizes[index] = chunk != null && chunk.length == 3 ? chunk :
+        new int[0];
+    }
+    return chunkSizes[index].length == 0 ? null : chunkSizes[index];
+  }
+
+  /** Returns the given block, reading it if it is not cached. */
+  private Block getBlock(String path, int z, int y, int x, int depth,
+    int height, int width)
     throws FormatException
   {
-    int[] zct = getZCTCoords(no);
-    String path = "/DataSet/ResolutionLevel_" + getCoreIndex() + "/TimePoint_" +
-      zct[2] + "/Channel_" + zct[1] + "/Data";
-    Object image = null;
+    if (blockCache == null) {
+      blockCache = new LinkedHashMap<String, Block>(16, 0.75f, true);
+    }
+    String key = path + ":" + z + ":" + y + ":" + x + ":" + depth;
+    Block block = blockCache.get(key);
+    if (block == null) {
+      block = readBlock(path, z, y, x, depth, height, width);
+      blockCache.put(key, block);
+      cachedBytes += block.getBytes();
+      Iterator<Block> eldest = blockCache.values().iterator();
+      while (cachedBytes > MAX_BLOCK_CACHE_SIZE && blockCache.size() > 1) {
+        cachedBytes -= eldest.next().getBytes();
+        eldest.remove();
+      }
+    }
+    return block;
+  }
+
+  /**
+   * Reads the given block of pixel data.  The region requested from netCDF
+   * may be larger than the block, but the returned block always has the
+   * requested origin and size, so that cached blocks are no larger than
+   * the chunks they hold.
+   */
+  private Block readBlock(String path, int z, int y, int x, int depth,
+    int height, int width)
+    throws FormatException
+  {
+    int readY = y;
+    int readX = x;
+    int readHeight = height;
+    int readWidth = width;
 
     // the width and height cannot be 1, because then netCDF will give us a
     // singleton instead of an array
-    if (height == 1) {
-      height++;
+    if (readHeight == 1 && getSizeY() > 1) {
+      readHeight++;
 
       // if we only wanted the last row, the Y coordinate must be adjusted
       // so that we don't attempt to read past the end of the image
-      if (y == getSizeY() - 1) {
-        y--;
+      if (readY == getSizeY() - 1) {
+        readY--;
       }
     }
-    if (width == 1) {
-      width++;
+    if (readWidth == 1 && getSizeX() > 1) {
+      readWidth++;
 
       // if we only wanted the last column, the X coordinate must be adjusted
       // so that we don't attempt to read past the end of the image
-      if (x == getSizeX() - 1) {
-        x--;
+      if (readX == getSizeX() - 1) {
+        readX--;
       }
     }
 
     // netCDF sometimes returns incorrect pixel values if the (X, Y) coordinate
     // is in the lower right quadrant of the image.  We correct for this by
     // moving the X coordinate to the left and adjusting the width.
-    if (x >= getSizeX() / 2 && y >= getSizeY() / 2) {
-      width += x - (getSizeX() / 2) + 1;
-      x = (getSizeX() / 2) - 1;
+    if (getSizeX() > 1 && readX >= getSizeX() / 2 &&
+      readY >= getSizeY() / 2)
+    {
+      readWidth += readX - (getSizeX() / 2) + 1;
+      readX = (getSizeX() / 2) - 1;
     }
 
-    int[] dimensions = new int[] {1, height, width};
-    int[] indices = new int[] {zct[0], y, x};
+    Object data;
     try {
-      image = netcdf.getArray(path, indices, dimensions);
+      data = netcdf.getArray1D(path, new int[] {z, readY, readX},
+        new int[] {depth, readHeight, readWidth});
     }
     catch (ServiceException e) {
       throw new FormatException(e);
     }
-    return image;
+
+    Block block = new Block();
+    block.z = z;
+    block.y = y;
+    block.x = x;
+    block.depth = depth;
+    block.height = height;
+    block.width = width;
+    if (readY == y && readX == x && readHeight == height &&
+      readWidth == width)
+    {
+      block.data = data;
+      return block;
+    }
+
+    // copy the requested block out of the larger region that was read
+    block.data = Array.newInstance(data.getClass().getComponentType(),
+      depth * height * width);
+    for (int plane=0; plane<depth; plane++) {
+      for (int row=0; row<height; row++) {
+        int src = (plane * readHeight + y - readY + row) * readWidth +
+          x - readX;
+        int dest = (plane * height + row) * width;
+        System.arraycopy(data, src, block.data, dest, width);
+      }
+    }
+    return block;
+  }
+
+  /**
+   * Copies the part of the given block that lies in the given Z section and
+   * region into the buffer, a row at a time.
+   */
+  private void copyBlock(Block block, int z, Region region, byte[] buf) {
+    Region tile = new Region(block.x, block.y, block.width, block.height);
+    Region overlap = tile.intersection(region);
+    if (overlap.width <= 0 || overlap.height <= 0) {
+      return;
+    }
+    ByteBuffer bytes = ByteBuffer.wrap(buf);
+    bytes.order(isLittleEndian() ? ByteOrder.LITTLE_ENDIAN :
+      ByteOrder.BIG_ENDIAN);
+    Buffer view = null;
+    if (block.data instanceof short[]) view = bytes.asShortBuffer();
+    else if (block.data instanceof int[]) view = bytes.asIntBuffer();
+    else if (block.data instanceof float[]) view = bytes.asFloatBuffer();
+    else if (block.data instanceof double[]) view = bytes.asDoubleBuffer();
+
+    int planeOffset = (z - block.z) * block.width * block.height;
+    for (int row=0; row<overlap.height; row++) {
+      int src = planeOffset +
+        (overlap.y - block.y + row) * block.width + overlap.x - block.x;
+      int dest =
+        (overlap.y - region.y + row) * region.width + overlap.x - region.x;
+
+      if (view == null) {
+        System.arraycopy(block.data, src, buf, dest, overlap.width);
+        continue;
+      }
+      view.position(dest);
+      if (view instanceof ShortBuffer) {
+        ((ShortBuffer) view).put((short[]) block.data, src, overlap.width);
+      }
+      else if (view instanceof IntBuffer) {
+        ((IntBuffer) view).put((int[]) block.data, src, overlap.width);
+      }
+      else if (view instanceof FloatBuffer) {
+        ((FloatBuffer) view).put((float[]) block.data, src, overlap.width);
+      }
+      else if (view instanceof DoubleBuffer) {
+        ((DoubleBuffer) view).put((double[]) block.data, src, overlap.width);
+      }
+    }
   }
 
   private void parseAttributes() {
@@ -574,4 +704,20 @@ public class ImarisHDFReader extends SubResolutionFormatReader {
     }
   }
 
+  // -- Helper classes --
+
+  /** Pixel data of a block of Z sections, rows and columns. */
+  private static class Block {
+    int z, y, x, depth, height, width;
+    Object data;
+
+    long getBytes() {
+      int bpp = 1;
+      if (data instanceof short[]) bpp = 2;
+      else if (data instanceof int[] || data instanceof float[]) bpp = 4;
+      else if (data instanceof double[]) bpp = 8;
+      return (long) depth * height * width * bpp;
+    }
+  }
+
 }
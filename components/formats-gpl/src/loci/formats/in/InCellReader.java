@@ -207,7 +207,7 @@ public class InCellReader extends FormatReader {
     }
 
     // pixels are stored in .im files
-    RandomAccessInputStream s = new RandomAccessInputStream(filename);
+    RandomAccessInputStream s = openHandle(filename);
     if (s.length() > FormatTools.getPlaneSize(this)) {
       s.seek(128);
       readPlane(s, x, y, w, h, buf);
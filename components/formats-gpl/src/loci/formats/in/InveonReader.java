@@ -113,7 +113,7 @@ public class InveonReader extends FormatReader {
     long planeSize = (long) FormatTools.getPlaneSize(this);
     int index = getCoreIndex();
 
-    RandomAccessInputStream dat = new RandomAccessInputStream(datFile);
+    RandomAccessInputStream dat = openHandle(datFile);
     try {
       dat.order(isLittleEndian());
       dat.seek(dataPointers.get(index) + no * planeSize);
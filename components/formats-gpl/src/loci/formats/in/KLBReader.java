@@ -29,15 +29,20 @@ import static java.util.Collections.unmodifiableSet;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.apache.commons.lang.ArrayUtils;
 
@@ -64,6 +69,12 @@ import ome.xml.model.primitives.PositiveFloat;
 public class KLBReader extends FormatReader {
 
   // -- Constants --
+
+  public static final String BLOCK_CACHE_KEY = "klb.block_cache_size";
+  public static final int BLOCK_CACHE_DEFAULT = 64;
+
+  /** Maximum number of files for which block offset tables are kept. */
+  private static final int MAX_BLOCK_TABLES = 32;
   private static final int KLB_DATA_DIMS = 5; //images have at most 5 dimensions: x,y,z, c, t
   private static final int KLB_METADATA_SIZE = 256; //number of bytes in metadata
   private static final int KLB_DEFAULT_HEADER_VERSION = 2;
@@ -99,6 +110,16 @@ public class KLBReader extends FormatReader {
   private long offsetFilePointer;
   private int headerVersion;
 
+  /** Header and block offsets for recently read files, keyed on file name. */
+  private transient Map<String, BlockTable> blockTables;
+
+  /** Recently decompressed blocks, in least recently used order. */
+  private transient LinkedHashMap<String, byte[]> blockCache;
+  private transient long blockCacheBytes;
+
+  /** Name of the file currently open in 'in'. */
+  private transient String currentFile;
+
   private LinkedHashMap<String, String[][]> filelist = new LinkedHashMap<String, String[][]>();
   private ArrayList<Integer> channels = new ArrayList<Integer>();
   private static final String DEFAULT_SERIES = "Default";
@@ -124,6 +145,22 @@ public class KLBReader extends FormatReader {
     setGroupFiles(true);
   }
 
+  // -- KLBReader API methods --
+
+  /**
+   * Returns the maximum size in megabytes of decompressed blocks kept
+   * in memory, so that adjacent planes stored in the same block are
+   * not decompressed again.  A value of 0 disables block caching.
+   */
+  public int getBlockCacheSize() {
+    MetadataOptions options = getMetadataOptions();
+    if (options instanceof DynamicMetadataOptions) {
+      return ((DynamicMetadataOptions) options).getInteger(
+        BLOCK_CACHE_KEY, BLOCK_CACHE_DEFAULT);
+    }
+    return BLOCK_CACHE_DEFAULT;
+  }
+
   // -- IFormatReader API methods --
 
   /**
@@ -133,7 +170,6 @@ public class KLBReader extends FormatReader {
   public byte[] openBytes(int no, byte[] buf, int x, int y, int w, int h)
     throws FormatException, IOException
   {
-    in.close();
     String fileName;
     int[] currentCoords = getZCTCoords(no);
     int currentSeries = getSeries();
@@ -141,14 +177,20 @@ public class KLBReader extends FormatReader {
     Set<String> keys = filelist.keySet();
     fileName = filelist.get(keys.toArray()[currentSeries])[currentCoords[2]][currentCoords[1]];
 
-    in = new RandomAccessInputStream(fileName);
+    if (in == null || !fileName.equals(currentFile)) {
+      if (in != null) {
+        in.close();
+      }
+      in = new RandomAccessInputStream(fileName);
+      currentFile = fileName;
+    }
 
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
     //As number of offsets can be greater than INT_MAX only storing enough required for given plane
-    //New offsets are read from header each time openBytes is called
-    reCalculateBlockOffsets(no);
-    
+    //Offsets for each plane are read from the header once and then cached
+    int requiredBlockNum = reCalculateBlockOffsets(fileName, no);
+
     //Calculate block offsets for tiled reading
     int xBlockOffset = x % dims_blockSize[0];
     int yBlockOffset = y % dims_blockSize[1];
@@ -162,25 +204,27 @@ public class KLBReader extends FormatReader {
     int yBlockStartIndex = 0;
     if (y > 0) yBlockStartIndex = y / dims_blockSize[1];
 
-    int bytesPerPixel = FormatTools.getBytesPerPixel(getPixelType());
-    
+    final int bytesPerPixel = FormatTools.getBytesPerPixel(getPixelType());
+
     int[]dimsBlock = new int[KLB_DATA_DIMS]; //Number of blocks on each dimension
-    int[] coordBlock = new int[KLB_DATA_DIMS]; //Coordinates
-    int[] blockSizeAux = new int[KLB_DATA_DIMS]; //Block sizes taking into account border cases
 
     for (int ii = 0; ii < KLB_DATA_DIMS; ii++)
     {
       dimsBlock[ii] = (int) Math.ceil((float)dims_xyzct[ii] / (float)dims_blockSize[ii]);
     }
 
-    long compressedBlockSize = blockOffsets[1] - blockOffsets[0];
-    int outputOffset = 0;
+    // Read the compressed data for each intersecting block serially,
+    // then decompress the blocks in parallel
+    final List<Block> blocks = new ArrayList<Block>();
+    boolean compressed = false;
 
     for (int yy=0; yy < yNumBlocks; yy++) {
       for (int xx=0; xx < xNumBlocks; xx++) {
+        Block block = new Block();
 
-        //calculate coordinate (in block space)        
+        //calculate coordinate (in block space)
         int blockId = (yBlockStartIndex + yy) * blocksPerImageRow + xBlockStartIndex + xx;
+        int[] coordBlock = block.coordinates;
         for (int ii = 0; ii < KLB_DATA_DIMS; ii++)
         {
           //parsing coordinates to image space (not block anymore)
@@ -194,6 +238,7 @@ public class KLBReader extends FormatReader {
         }
 
         // Calculate block size in case we had border block
+        int[] blockSizeAux = block.size;
         blockSizeAux[0] = Math.min(dims_blockSize[0], (x + w - coordBlock[0]));
         blockSizeAux[0] = Math.min(blockSizeAux[0], coordBlock[0] + dims_blockSize[0] - x);
         blockSizeAux[1] = Math.min(dims_blockSize[1], (y + h - coordBlock[1]));
@@ -212,82 +257,62 @@ public class KLBReader extends FormatReader {
             blockSizeBytes *= dims_blockSize[ii];
           }
         }
-        
-        compressedBlockSize = blockOffsets[blockId+1] - blockOffsets[blockId];
-        long offset =  blockOffsets[blockId];
-        //Seek to start of block
-        in.seek((long) (headerSize + offset));
-
-        //Read compressed block
-        byte[] block = new byte[(int) compressedBlockSize];
-        in.read(block);
-
-        //Decompress block
-        if (compressionType == COMPRESSION_BZIP2) {
-          // Discard first two bytes of BZIP2 header
-          byte[] tempPixels = block;
-          block = new byte[tempPixels.length - 2];
-          System.arraycopy(tempPixels, 2, block, 0, block.length);
-
-          try {
-            ByteArrayInputStream bais = new ByteArrayInputStream(block);
-            CBZip2InputStream bzip = new CBZip2InputStream(bais);
-            block = new byte[blockSizeBytes];
-            bzip.read(block, 0, block.length);
-            tempPixels = null;
-            bais.close();
-            bzip.close();
-            bais = null;
-            bzip = null;
-          }
-          catch(IOException e) {
-            LOGGER.error("IOException while decompressing block {}", xx);
-            throw e;
-          }
-        }
-        else if (compressionType == COMPRESSION_ZLIB) {
-          CodecOptions options = new CodecOptions();
-          block = new ZlibCodec().decompress(block, options);
+        block.sizeBytes = blockSizeBytes;
+
+        // Blocks are identified by their index within the file
+        block.key = fileName + ":" +
+          ((long) requiredBlockNum * blocksPerPlane + blockId) + ":" +
+          blockSizeBytes;
+        block.pixels = getCachedBlock(block.key);
+        if (block.pixels == null) {
+          long compressedBlockSize = blockOffsets[blockId+1] - blockOffsets[blockId];
+          long offset =  blockOffsets[blockId];
+          //Seek to start of block
+          in.seek((long) (headerSize + offset));
+
+          //Read compressed block
+          block.data = new byte[(int) compressedBlockSize];
+          in.read(block.data);
+          compressed = compressed || compressionType != COMPRESSION_NONE;
         }
+        blocks.add(block);
+      }
+    }
 
+    final byte[] output = buf;
+    final int xStart = x, yStart = y, width = w;
+    IntStream indexes = IntStream.range(0, blocks.size());
+    if (compressed && blocks.size() > 1) {
+      indexes = indexes.parallel();
+    }
+    try {
+      indexes.forEach(b -> {
+        Block block = blocks.get(b);
         try {
-          int imageRowSize = w * bytesPerPixel;
-          int blockRowSize = blockSizeAux[0] * bytesPerPixel;
-          int fullBlockRowSize = dims_blockSize[0] * bytesPerPixel;
-
-          // Location in output buffer to copy block
-          outputOffset = (imageRowSize * (coordBlock[1] - y)) + ((coordBlock[0] - x) * bytesPerPixel);
-          if (coordBlock[0] < x && blockSizeAux[0] != dims_blockSize[0]) outputOffset += (dims_blockSize[0] - blockSizeAux[0]) * bytesPerPixel;
-          if (coordBlock[1] < y && blockSizeAux[1] != dims_blockSize[1]) outputOffset = (coordBlock[0] - x) * bytesPerPixel;
-          if (coordBlock[1] < y && coordBlock[0] < x && blockSizeAux[1] != dims_blockSize[1] && blockSizeAux[0] != dims_blockSize[0]) outputOffset = 0;
-
-          // Location within the block for required XY plane
-          int inputOffset = (coordBlock[2] % dims_blockSize[2]) * blockRowSize * blockSizeAux[1];
-          if (coordBlock[0] < x && coordBlock[1] < y && blockSizeAux[1] != dims_blockSize[1] && blockSizeAux[0] != dims_blockSize[0]) inputOffset += ((dims_blockSize[0] * (dims_blockSize[1] - blockSizeAux[1])) + (x - coordBlock[0])) * bytesPerPixel;
-          // Partial block at the start of x tile
-          else if (coordBlock[0] < x && blockSizeAux[0] != dims_blockSize[0]) inputOffset += (dims_blockSize[0] - blockSizeAux[0]) * bytesPerPixel;
-          // Partial block at the start of y tile
-          else if (coordBlock[1] < y && blockSizeAux[1] != dims_blockSize[1] && coordBlock[0] + blockSizeAux[0] == dims_xyzct[0]) inputOffset += blockSizeAux[0] * (dims_blockSize[1] - blockSizeAux[1]) * bytesPerPixel;
-          else if (coordBlock[1] < y && blockSizeAux[1] != dims_blockSize[1]) inputOffset += dims_blockSize[0] * (dims_blockSize[1] - blockSizeAux[1]) * bytesPerPixel;
-          
-          inputOffset += (coordBlock[3] % dims_blockSize[3]) * blockRowSize * blockSizeAux[1] * blockSizeAux[2];
-          inputOffset += (coordBlock[4] % dims_blockSize[4]) * blockRowSize * blockSizeAux[1] * blockSizeAux[2] * blockSizeAux[3];
-
-          // If its the last block in a row then use the corrected rowSize
-          if (coordBlock[0] + blockSizeAux[0] == dims_xyzct[0]) {
-            fullBlockRowSize = blockRowSize;
-          }
-          // Copy row at a time from decompressed block to output buffer
-          for (int numRows = 0; numRows < blockSizeAux[1]; numRows++) {
-            int destPos = outputOffset + (numRows * imageRowSize);
-            if (destPos + blockRowSize <= buf.length) {
-              System.arraycopy(block, inputOffset + (numRows * fullBlockRowSize), buf, destPos, blockRowSize);
-            }
+          if (block.pixels == null) {
+            block.pixels = decompressBlock(block.data, block.sizeBytes);
           }
+          copyBlock(block, output, xStart, yStart, width, bytesPerPixel);
         }
-        catch(Exception e) {
-          throw new FormatException("Exception caught while copying decompressed block data to output buffer : " + e);
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
         }
+        catch (FormatException e) {
+          throw new UncheckedIOException(new IOException(e));
+        }
+      });
+    }
+    catch (UncheckedIOException e) {
+      IOException cause = e.getCause();
+      if (cause.getCause() instanceof FormatException) {
+        throw (FormatException) cause.getCause();
+      }
+      throw cause;
+    }
+
+    for (Block block : blocks) {
+      if (block.data != null) {
+        cacheBlock(block.key, block.pixels);
       }
     }
 
@@ -472,58 +497,182 @@ public class KLBReader extends FormatReader {
   }
   
   // Needed as offsets array can only be int max and full image may be greater
-  private void reCalculateBlockOffsets(int no) throws IOException, FormatException {
-    LOGGER.debug("Beginning calulating offsets for plane : " + no);
-    headerVersion = in.readUnsignedByte();
-    for (int i=0; i < KLB_DATA_DIMS; i++) {
-      dims_xyzct[i] = readUInt32();
+  // Returns the index of the first block for the given plane
+  private int reCalculateBlockOffsets(String fileName, int no) throws IOException, FormatException {
+    if (blockTables == null) {
+      blockTables = new LinkedHashMap<String, BlockTable>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BlockTable> eldest) {
+          return size() > MAX_BLOCK_TABLES;
+        }
+      };
+    }
+    BlockTable table = blockTables.get(fileName);
+    if (table == null) {
+      table = readBlockTable();
+      blockTables.put(fileName, table);
     }
 
-    PositiveFloat[] dims_pixelSize = new PositiveFloat[KLB_DATA_DIMS];
+    dims_xyzct = table.dims_xyzct;
+    dims_blockSize = table.dims_blockSize;
+    compressionType = table.compressionType;
+    blocksPerPlane = table.blocksPerPlane;
+    numBlocks = table.numBlocks;
+    headerSize = table.headerSize;
+
+    String order = core.get(getSeries()).dimensionOrder;
+    int[] ztc = FormatTools.getZCTCoords(order, getSizeZ(), getSizeC(), getSizeT(), getImageCount(), no);
+
+    // Calculate the first required block
+    int requiredBlockNum = (ztc[0] / dims_blockSize[2]);
+
+    blockOffsets = table.offsets.get(requiredBlockNum);
+    if (blockOffsets == null) {
+      LOGGER.debug("Beginning calulating offsets for plane : " + no);
+
+      // Seek to start of offsets and read required offsets
+      blockOffsets = new long[blocksPerPlane + 1];
+      byte[] b = new byte[(blocksPerPlane + 1) * 8];
+      ByteBuffer bb = ByteBuffer.wrap(b).order(ByteOrder.LITTLE_ENDIAN);
+
+      // If not the first plane then the first offset needs to be calculated as last of previous plane
+      if (requiredBlockNum > 0) {
+        in.seek(offsetFilePointer + (requiredBlockNum * blocksPerPlane * 8L) - 8);
+        in.readFully(b);
+      }
+      else {
+        in.seek(offsetFilePointer);
+        in.readFully(b, 8, b.length - 8);
+      }
+      bb.asLongBuffer().get(blockOffsets);
+      table.offsets.put(requiredBlockNum, blockOffsets);
+    }
+    return requiredBlockNum;
+  }
+
+  /** Reads the header fields that describe the block layout of 'in'. */
+  private BlockTable readBlockTable() throws IOException {
+    BlockTable table = new BlockTable();
+    in.seek(0);
+    headerVersion = in.readUnsignedByte();
     for (int i=0; i < KLB_DATA_DIMS; i++) {
-      dims_pixelSize[i] = readFloat32();
+      table.dims_xyzct[i] = readUInt32();
     }
-    int dataType = in.readUnsignedByte();
-    compressionType = in.readUnsignedByte();
-    byte[] user_metadata = new byte[KLB_METADATA_SIZE];
-    in.read(user_metadata);
+
+    // skip the pixel sizes and data type
+    in.skipBytes(KLB_DATA_DIMS * 4 + 1);
+    table.compressionType = in.readUnsignedByte();
+    in.skipBytes(KLB_METADATA_SIZE);
 
     for (int i=0; i < KLB_DATA_DIMS; i++) {
-      dims_blockSize[i] = readUInt32();
+      table.dims_blockSize[i] = readUInt32();
     }
-    blocksPerPlane = (int) (Math.ceil((float)getSizeX()/dims_blockSize[0]) * Math.ceil((float)getSizeY()/dims_blockSize[1]));
-    
-    numBlocks = 1;
+    table.blocksPerPlane = (int) (Math.ceil((float)getSizeX()/table.dims_blockSize[0]) * Math.ceil((float)getSizeY()/table.dims_blockSize[1]));
+
+    table.numBlocks = 1;
     for (int i=0; i < KLB_DATA_DIMS; i++) {
-      numBlocks *= Math.ceil((float)(dims_xyzct[i]) / (float)(dims_blockSize[i]));
+      table.numBlocks *= Math.ceil((float)(table.dims_xyzct[i]) / (float)(table.dims_blockSize[i]));
     }
 
-    headerSize = (long) ((KLB_DATA_DIMS * 12) + 2 + (numBlocks * 8) + KLB_METADATA_SIZE + 1);
-    
-    String order = core.get(getSeries()).dimensionOrder;
-    int[] ztc = FormatTools.getZCTCoords(order, getSizeZ(), getSizeC(), getSizeT(), getImageCount(), no);
+    table.headerSize = (long) ((KLB_DATA_DIMS * 12) + 2 + (table.numBlocks * 8) + KLB_METADATA_SIZE + 1);
+    return table;
+  }
 
-    // Calculate the first required block
-    int requiredBlockNum = (ztc[0] / dims_blockSize[2]);
+  private byte[] decompressBlock(byte[] block, int blockSizeBytes)
+    throws FormatException, IOException
+  {
+    //Decompress block
+    if (compressionType == COMPRESSION_BZIP2) {
+      // Discard first two bytes of BZIP2 header
+      try (ByteArrayInputStream bais =
+        new ByteArrayInputStream(block, 2, block.length - 2))
+      {
+        CBZip2InputStream bzip = new CBZip2InputStream(bais);
+        block = new byte[blockSizeBytes];
+        bzip.read(block, 0, block.length);
+        bzip.close();
+      }
+      catch(IOException e) {
+        LOGGER.error("IOException while decompressing block", e);
+        throw e;
+      }
+    }
+    else if (compressionType == COMPRESSION_ZLIB) {
+      CodecOptions options = new CodecOptions();
+      block = new ZlibCodec().decompress(block, options);
+    }
+    return block;
+  }
+
+  private void copyBlock(Block b, byte[] buf, int x, int y, int w, int bytesPerPixel)
+    throws FormatException
+  {
+    byte[] block = b.pixels;
+    int[] coordBlock = b.coordinates;
+    int[] blockSizeAux = b.size;
+    try {
+      int imageRowSize = w * bytesPerPixel;
+      int blockRowSize = blockSizeAux[0] * bytesPerPixel;
+      int fullBlockRowSize = dims_blockSize[0] * bytesPerPixel;
+
+      // Location in output buffer to copy block
+      int outputOffset = (imageRowSize * (coordBlock[1] - y)) + ((coordBlock[0] - x) * bytesPerPixel);
+      if (coordBlock[0] < x && blockSizeAux[0] != dims_blockSize[0]) outputOffset += (dims_blockSize[0] - blockSizeAux[0]) * bytesPerPixel;
+      if (coordBlock[1] < y && blockSizeAux[1] != dims_blockSize[1]) outputOffset = (coordBlock[0] - x) * bytesPerPixel;
+      if (coordBlock[1] < y && coordBlock[0] < x && blockSizeAux[1] != dims_blockSize[1] && blockSizeAux[0] != dims_blockSize[0]) outputOffset = 0;
+
+      // Location within the block for required XY plane
+      int inputOffset = (coordBlock[2] % dims_blockSize[2]) * blockRowSize * blockSizeAux[1];
+      if (coordBlock[0] < x && coordBlock[1] < y && blockSizeAux[1] != dims_blockSize[1] && blockSizeAux[0] != dims_blockSize[0]) inputOffset += ((dims_blockSize[0] * (dims_blockSize[1] - blockSizeAux[1])) + (x - coordBlock[0])) * bytesPerPixel;
+      // Partial block at the start of x tile
+      else if (coordBlock[0] < x && blockSizeAux[0] != dims_blockSize[0]) inputOffset += (dims_blockSize[0] - blockSizeAux[0]) * bytesPerPixel;
+      // Partial block at the start of y tile
+      else if (coordBlock[1] < y && blockSizeAux[1] != dims_blockSize[1] && coordBlock[0] + blockSizeAux[0] == dims_xyzct[0]) inputOffset += blockSizeAux[0] * (dims_blockSize[1] - blockSizeAux[1]) * bytesPerPixel;
+      else if (coordBlock[1] < y && blockSizeAux[1] != dims_blockSize[1]) inputOffset += dims_blockSize[0] * (dims_blockSize[1] - blockSizeAux[1]) * bytesPerPixel;
+
+      inputOffset += (coordBlock[3] % dims_blockSize[3]) * blockRowSize * blockSizeAux[1] * blockSizeAux[2];
+      inputOffset += (coordBlock[4] % dims_blockSize[4]) * blockRowSize * blockSizeAux[1] * blockSizeAux[2] * blockSizeAux[3];
+
+      // If its the last block in a row then use the corrected rowSize
+      if (coordBlock[0] + blockSizeAux[0] == dims_xyzct[0]) {
+        fullBlockRowSize = blockRowSize;
+      }
+      // Copy row at a time from decompressed block to output buffer
+      for (int numRows = 0; numRows < blockSizeAux[1]; numRows++) {
+        int destPos = outputOffset + (numRows * imageRowSize);
+        if (destPos + blockRowSize <= buf.length) {
+          System.arraycopy(block, inputOffset + (numRows * fullBlockRowSize), buf, destPos, blockRowSize);
+        }
+      }
+    }
+    catch(Exception e) {
+      throw new FormatException("Exception caught while copying decompressed block data to output buffer : " + e);
+    }
+  }
 
-    // Mark the current file pointer to return after reading offsets
-    long filePoointer = in.getFilePointer();
+  private byte[] getCachedBlock(String key) {
+    return blockCache == null ? null : blockCache.get(key);
+  }
 
-    // Seek to start of offsets and read required offsets
-    blockOffsets = new long[blocksPerPlane + 1];
-    in.seek(offsetFilePointer + (requiredBlockNum * blocksPerPlane * 8));
-    for (int i=0; i < blocksPerPlane; i++) {
-      blockOffsets[i+1] = readUInt64();
+  private void cacheBlock(String key, byte[] block) {
+    long maxBytes = getBlockCacheSize() * 1024L * 1024L;
+    if (block.length > maxBytes) {
+      return;
     }
+    if (blockCache == null) {
+      blockCache = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    }
+    byte[] previous = blockCache.put(key, block);
+    if (previous != null) {
+      blockCacheBytes -= previous.length;
+    }
+    blockCacheBytes += block.length;
 
-    // If not the first plane then the first offset needs to be calculated as last of previous plane
-    if (requiredBlockNum > 0) {
-      in.seek(offsetFilePointer + (requiredBlockNum * blocksPerPlane * 8) - 8);
-      blockOffsets[0] = readUInt64();
-    } else {
-      blockOffsets[0] = 0;
+    Iterator<byte[]> eldest = blockCache.values().iterator();
+    while (blockCacheBytes > maxBytes && eldest.hasNext()) {
+      blockCacheBytes -= eldest.next().length;
+      eldest.remove();
     }
-    in.seek(filePoointer);
   }
 
   // Helper methods
@@ -593,6 +742,10 @@ public class KLBReader extends FormatReader {
   @Override
   public void close(boolean fileOnly) throws IOException {
     super.close(fileOnly);
+    currentFile = null;
+    blockTables = null;
+    blockCache = null;
+    blockCacheBytes = 0;
     filelist.clear();
     Arrays.fill(dims_blockSize, 0);
     Arrays.fill(dims_xyzct, 0);
@@ -605,4 +758,29 @@ public class KLBReader extends FormatReader {
     headerVersion = 0;    
   }
 
+  // -- Helper classes --
+
+  /** Block layout and offsets read from the header of a single file. */
+  private static class BlockTable {
+    int compressionType;
+    int[] dims_xyzct = new int[KLB_DATA_DIMS];
+    int[] dims_blockSize = new int[KLB_DATA_DIMS];
+    int blocksPerPlane;
+    double numBlocks;
+    long headerSize;
+
+    /** Offsets for each plane of blocks, keyed on the block plane index. */
+    Map<Integer, long[]> offsets = new HashMap<Integer, long[]>();
+  }
+
+  /** A single block intersecting the region requested from openBytes. */
+  private static class Block {
+    int[] coordinates = new int[KLB_DATA_DIMS];
+    int[] size = new int[KLB_DATA_DIMS];
+    int sizeBytes;
+    String key;
+    byte[] data;
+    byte[] pixels;
+  }
+
 }
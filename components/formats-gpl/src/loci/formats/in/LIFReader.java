@@ -25,8 +25,8 @@
 
 package loci.formats.in;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.ArrayList;
@@ -38,9 +38,12 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.StringTokenizer;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.sax.SAXSource;
 
 import loci.common.DataTools;
 import loci.common.DateTools;
@@ -49,7 +52,6 @@ import loci.common.RandomAccessInputStream;
 import loci.common.services.DependencyException;
 import loci.common.services.ServiceException;
 import loci.common.services.ServiceFactory;
-import loci.common.xml.XMLTools;
 import loci.formats.CoreMetadata;
 import loci.formats.FormatException;
 import loci.formats.FormatReader;
@@ -69,9 +71,14 @@ import ome.units.quantity.Length;
 import ome.units.quantity.Time;
 import ome.units.UNITS;
 
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
 import org.apache.commons.lang.StringUtils;
 import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
@@ -99,6 +106,12 @@ public class LIFReader extends FormatReader {
   /** The encoding used in this file.*/
   private static final String ENCODING = "ISO-8859-1";
 
+  /**
+   * Blocks that duplicate the metadata of sequential scans; these are
+   * dropped while the XML is parsed.
+   */
+  private static final String PRUNED_BLOCK = "LDM_Block_Sequential_Master";
+
   private static final String LOGO_FILE = "LeicaLogo.jpg";
   private static final String STYLESHEET_FILE = "LASAF_CIP.xsl";
 
@@ -124,7 +137,7 @@ public class LIFReader extends FormatReader {
   // -- Fields --
 
   /** Offsets to memory blocks, paired with their corresponding description. */
-  private List<Long> offsets;
+  private long[] offsets;
 
   private int[][] realChannel;
   private int lastChannel = 0;
@@ -135,6 +148,21 @@ public class LIFReader extends FormatReader {
   private List<Length> fieldPosX = new ArrayList<Length>();
   private List<Length> fieldPosY = new ArrayList<Length>();
 
+  /** Position and length in characters of the XML description block. */
+  private long xmlOffset;
+  private int xmlLength;
+
+  /**
+   * Image elements whose detailed metadata is translated on demand, when
+   * series are initialized lazily.
+   */
+  private transient List<Element> imageNodes;
+
+  /** Images whose detailed metadata has been translated. */
+  private boolean[] translatedImages;
+
+  private int roiCount;
+
   private String[] descriptions, microscopeModels, serialNumber;
   private Double[] pinholes, zooms, zSteps, tSteps, lensNA;
   private Double[][] expTimes, gains, detectorOffsets;
@@ -312,19 +340,19 @@ public class LIFReader extends FormatReader {
     }
 
     int index = getTileIndex(series);
-    if (index >= offsets.size()) {
+    if (index >= offsets.length) {
       // truncated file; imitate LAS AF and return black planes
       Arrays.fill(buf, (byte) 0);
       return buf;
     }
 
-    long offset = offsets.get(index).longValue();
+    long offset = offsets[index];
     int bytes = FormatTools.getBytesPerPixel(getPixelType());
     int bpp = bytes * getRGBChannelCount();
 
     long planeSize = (long) getSizeX() * getSizeY() * bpp;
-    long nextOffset = index + 1 < offsets.size() ?
-      offsets.get(index + 1).longValue() : endPointer;
+    long nextOffset = index + 1 < offsets.length ?
+      offsets[index + 1] : endPointer;
     int bytesToSkip = (int) (nextOffset - offset - planeSize * getImageCount());
     bytesToSkip /= getSizeY();
     if ((getSizeX() % 4) == 0) bytesToSkip = 0;
@@ -466,6 +494,11 @@ public class LIFReader extends FormatReader {
       fieldPosX.clear();
       fieldPosY.clear();
       endPointer = 0;
+      xmlOffset = 0;
+      xmlLength = 0;
+      imageNodes = null;
+      translatedImages = null;
+      roiCount = 0;
     }
   }
 
@@ -477,7 +510,6 @@ public class LIFReader extends FormatReader {
     super.initFile(id);
     in = new RandomAccessInputStream(id);
     in.setEncoding(ENCODING);
-    offsets = new ArrayList<Long>();
 
     in.order(true);
 
@@ -501,17 +533,20 @@ public class LIFReader extends FormatReader {
     }
 
     // number of Unicode characters in the XML block
-    int nc = in.readInt();
-    String xml = DataTools.stripString(in.readString(nc * 2));
+    xmlLength = in.readInt();
+    xmlOffset = in.getFilePointer();
+    in.seek(xmlOffset + xmlLength * 2L);
 
     LOGGER.info("Finding image offsets");
 
+    long[] blocks = new long[16];
+    int blockCount = 0;
     while (in.getFilePointer() < in.length()) {
       LOGGER.debug("Looking for a block at {}; {} blocks read",
-        in.getFilePointer(), offsets.size());
+        in.getFilePointer(), blockCount);
       int check = in.readInt();
       if (check != LIF_MAGIC_BYTE) {
-        if (check == 0 && offsets.size() > 0) {
+        if (check == 0 && blockCount > 0) {
           // newer .lif file; the remainder of the file is all 0s
           endPointer = in.getFilePointer();
           break;
@@ -541,22 +576,26 @@ public class LIFReader extends FormatReader {
       int descrLength = in.readInt() * 2;
 
       if (blockLength > 0) {
-        offsets.add(in.getFilePointer() + descrLength);
+        if (blockCount == blocks.length) {
+          blocks = Arrays.copyOf(blocks, blockCount * 2);
+        }
+        blocks[blockCount++] = in.getFilePointer() + descrLength;
       }
 
       in.seek(in.getFilePointer() + descrLength + blockLength);
     }
-    initMetadata(xml);
-    xml = null;
+    offsets = Arrays.copyOf(blocks, blockCount);
+    blocks = null;
+    initMetadata();
 
     if (endPointer == 0) {
       endPointer = in.length();
     }
 
     // correct offsets, if necessary
-    if (offsets.size() > getSeriesCount()) {
-      Long[] storedOffsets = offsets.toArray(new Long[offsets.size()]);
-      offsets.clear();
+    if (offsets.length > getSeriesCount()) {
+      long[] storedOffsets = offsets;
+      offsets = new long[getSeriesCount()];
       int index = 0;
       for (int i=0; i<getSeriesCount(); i++) {
         setSeries(i);
@@ -570,17 +609,33 @@ public class LIFReader extends FormatReader {
           end = index == storedOffsets.length - 1 ? in.length() :
             storedOffsets[index + 1];
         }
-        offsets.add(storedOffsets[index]);
+        offsets[i] = storedOffsets[index];
         index++;
       }
       setSeries(0);
     }
   }
 
+  /* @see loci.formats.FormatReader#initSeries(int) */
+  @Override
+  protected void initSeries(int series) throws FormatException, IOException {
+    int index = getTileIndex(series);
+    if (!translatedImages[index]) {
+      if (imageNodes == null) {
+        // restored without the parsed XML; parse it again
+        imageNodes = new ArrayList<Element>();
+        getImageNodes(getImageNodeList(getMetadataRoot()), imageNodes,
+          new ArrayList<Integer>());
+      }
+      translateImageDetails(imageNodes.get(index), index);
+    }
+    populateSeriesMetadata(makeFilterMetadata(), series);
+  }
+
   // -- Helper methods --
 
-  /** Parses a string of XML and puts the values in a Hashtable. */
-  private void initMetadata(String xml) throws FormatException, IOException {
+  /** Parses the XML description block and puts the values in a Hashtable. */
+  private void initMetadata() throws FormatException, IOException {
     try {
       ServiceFactory factory = new ServiceFactory();
       OMEXMLService service = factory.getInstance(OMEXMLService.class);
@@ -594,16 +649,7 @@ public class LIFReader extends FormatReader {
     }
     MetadataStore store = makeFilterMetadata();
 
-    // the XML blocks stored in a LIF file are invalid,
-    // because they don't have a root node
-
-    xml = "<?xml version=\"1.0\" encoding=\""+ENCODING+"\"?><LEICA>" + xml +
-      "</LEICA>";
-
-    xml = XMLTools.sanitizeXML(xml);
-    LOGGER.trace(xml);
-
-    translateMetadata(getMetadataRoot(xml));
+    translateMetadata(getMetadataRoot());
 
     for (int i=0; i<imageNames.length; i++) {
       setSeries(i);
@@ -654,482 +700,479 @@ public class LIFReader extends FormatReader {
 
     MetadataTools.populatePixels(store, this, true, false);
 
-    int roiCount = 0;
+    roiCount = 0;
+    if (imageNodes != null) {
+      // detailed metadata is populated by initSeries; instruments are
+      // created here as the store requires them to be added in order
+      for (int i=0; i<getSeriesCount(); i++) {
+        store.setInstrumentID(MetadataTools.createLSID("Instrument", i), i);
+        store.setImageName(imageNames[getTileIndex(i)].trim(), i);
+      }
+      deferSeriesInitialization();
+      return;
+    }
+
     for (int i=0; i<getSeriesCount(); i++) {
       setSeries(i);
+      populateSeriesMetadata(store, i);
+    }
+  }
 
-      String instrumentID = MetadataTools.createLSID("Instrument", i);
-      store.setInstrumentID(instrumentID, i);
-
-      int index = getTileIndex(i);
-
-      store.setMicroscopeModel(microscopeModels[index], i);
-      store.setMicroscopeType(MetadataTools.getMicroscopeType("Other"), i);
-
-      String objectiveID = MetadataTools.createLSID("Objective", i, 0);
-      store.setObjectiveID(objectiveID, i, 0);
-      store.setObjectiveLensNA(lensNA[index], i, 0);
-      store.setObjectiveSerialNumber(serialNumber[index], i, 0);
-      if (magnification[index] != null) {
-        store.setObjectiveNominalMagnification(magnification[index], i, 0);
-      }
-      store.setObjectiveImmersion(MetadataTools.getImmersion(immersions[index]), i, 0);
-      store.setObjectiveCorrection(MetadataTools.getCorrection(corrections[index]), i, 0);
-      store.setObjectiveModel(objectiveModels[index], i, 0);
-
-      if (cutIns[index] != null && filterModels[index] != null) {
-        int channel = 0;
-        if (cutIns[index].size() >= filterModels[index].size() * 2) {
-          int diff = cutIns[index].size() - filterModels[index].size();
-          for (int q=0; q<diff; q++) {
-            cutIns[index].remove(filterModels[index].size());
-          }
-        }
-        for (int filter=0; filter<cutIns[index].size(); filter++) {
-          String filterID = MetadataTools.createLSID("Filter", i, filter);
-          store.setFilterID(filterID, i, filter);
-          if (filterModels[index] != null &&
-            filter < filterModels[index].size())
-          {
-            store.setFilterModel(
-              (String) filterModels[index].get(filter), i, filter);
-          }
-          store.setTransmittanceRangeCutIn(
-            (Length) cutIns[index].get(filter), i, filter);
-          store.setTransmittanceRangeCutOut(
-            (Length) cutOuts[index].get(filter), i, filter);
+  /** Populates the MetadataStore for the given series. */
+  private void populateSeriesMetadata(MetadataStore store, int i)
+    throws FormatException
+  {
+    String instrumentID = MetadataTools.createLSID("Instrument", i);
+    store.setInstrumentID(instrumentID, i);
+
+    int index = getTileIndex(i);
+
+    store.setMicroscopeModel(microscopeModels[index], i);
+    store.setMicroscopeType(MetadataTools.getMicroscopeType("Other"), i);
+
+    String objectiveID = MetadataTools.createLSID("Objective", i, 0);
+    store.setObjectiveID(objectiveID, i, 0);
+    store.setObjectiveLensNA(lensNA[index], i, 0);
+    store.setObjectiveSerialNumber(serialNumber[index], i, 0);
+    if (magnification[index] != null) {
+      store.setObjectiveNominalMagnification(magnification[index], i, 0);
+    }
+    store.setObjectiveImmersion(MetadataTools.getImmersion(immersions[index]), i, 0);
+    store.setObjectiveCorrection(MetadataTools.getCorrection(corrections[index]), i, 0);
+    store.setObjectiveModel(objectiveModels[index], i, 0);
+
+    if (cutIns[index] != null && filterModels[index] != null) {
+      int channel = 0;
+      if (cutIns[index].size() >= filterModels[index].size() * 2) {
+        int diff = cutIns[index].size() - filterModels[index].size();
+        for (int q=0; q<diff; q++) {
+          cutIns[index].remove(filterModels[index].size());
+        }
+      }
+      for (int filter=0; filter<cutIns[index].size(); filter++) {
+        String filterID = MetadataTools.createLSID("Filter", i, filter);
+        store.setFilterID(filterID, i, filter);
+        if (filterModels[index] != null &&
+          filter < filterModels[index].size())
+        {
+          store.setFilterModel(
+            (String) filterModels[index].get(filter), i, filter);
         }
+        store.setTransmittanceRangeCutIn(
+          (Length) cutIns[index].get(filter), i, filter);
+        store.setTransmittanceRangeCutOut(
+          (Length) cutOuts[index].get(filter), i, filter);
       }
+    }
 
-      final List<Double> lasers = laserWavelength[index];
-      final List<Double> laserIntensities = laserIntensity[index];
+    final List<Double> lasers = laserWavelength[index];
+    final List<Double> laserIntensities = laserIntensity[index];
 
-      final List<Boolean> active = laserActive[index];
-      final List<Boolean> frap = laserFrap[index];
-      int nextChannel = 0;
+    final List<Boolean> active = laserActive[index];
+    final List<Boolean> frap = laserFrap[index];
+    int nextChannel = 0;
 
-      if (lasers != null) {
-        int laserIndex = 0;
-        while (laserIndex < lasers.size()) {
-          if ((Double) lasers.get(laserIndex) == 0) {
-            lasers.remove(laserIndex);
-          }
-          else {
-            laserIndex++;
-          }
+    if (lasers != null) {
+      int laserIndex = 0;
+      while (laserIndex < lasers.size()) {
+        if ((Double) lasers.get(laserIndex) == 0) {
+          lasers.remove(laserIndex);
+        }
+        else {
+          laserIndex++;
         }
+      }
 
-        for (int laser=0; laser<lasers.size(); laser++) {
-          String id = MetadataTools.createLSID("LightSource", i, laser);
-          store.setLaserID(id, i, laser);
-          store.setLaserType(LaserType.OTHER, i, laser);
-          store.setLaserLaserMedium(LaserMedium.OTHER, i, laser);
-          Double wavelength = (Double) lasers.get(laser);
-          Length wave = FormatTools.getWavelength(wavelength);
-          if (wave != null) {
-            store.setLaserWavelength(wave, i, laser);
-          }
+      for (int laser=0; laser<lasers.size(); laser++) {
+        String id = MetadataTools.createLSID("LightSource", i, laser);
+        store.setLaserID(id, i, laser);
+        store.setLaserType(LaserType.OTHER, i, laser);
+        store.setLaserLaserMedium(LaserMedium.OTHER, i, laser);
+        Double wavelength = (Double) lasers.get(laser);
+        Length wave = FormatTools.getWavelength(wavelength);
+        if (wave != null) {
+          store.setLaserWavelength(wave, i, laser);
         }
+      }
 
-        Set<Integer> ignoredChannels = new HashSet<Integer>();
-        final List<Integer> validIntensities = new ArrayList<Integer>();
-        int size = lasers.size();
-        int channel = 0;
-        Set<Integer> channels = new HashSet<Integer>();
+      Set<Integer> ignoredChannels = new HashSet<Integer>();
+      final List<Integer> validIntensities = new ArrayList<Integer>();
+      int size = lasers.size();
+      int channel = 0;
+      Set<Integer> channels = new HashSet<Integer>();
 
-        for (int laser=0; laser<laserIntensities.size(); laser++) {
-          double intensity = (Double) laserIntensities.get(laser);
-          channel = laser/size;
-          if (intensity < 100) {
-            validIntensities.add(laser);
-            channels.add(channel);
-          }
-          ignoredChannels.add(channel);
+      for (int laser=0; laser<laserIntensities.size(); laser++) {
+        double intensity = (Double) laserIntensities.get(laser);
+        channel = laser/size;
+        if (intensity < 100) {
+          validIntensities.add(laser);
+          channels.add(channel);
         }
-        //remove channels w/o valid intensities
-        ignoredChannels.removeAll(channels);
-        //remove entries if channel has 2 wavelengths
-        //e.g. 30% 458 70% 633
-        int s = validIntensities.size();
+        ignoredChannels.add(channel);
+      }
+      //remove channels w/o valid intensities
+      ignoredChannels.removeAll(channels);
+      //remove entries if channel has 2 wavelengths
+      //e.g. 30% 458 70% 633
+      int s = validIntensities.size();
 
-        int jj;
-        Set<Integer> toRemove = new HashSet<Integer>();
+      int jj;
+      Set<Integer> toRemove = new HashSet<Integer>();
 
-        int as = active.size();
-        for (int j = 0; j < s; j++) {
-          if (j < as && !(Boolean) active.get(j)) {
+      int as = active.size();
+      for (int j = 0; j < s; j++) {
+        if (j < as && !(Boolean) active.get(j)) {
+          toRemove.add(validIntensities.get(j));
+        }
+        jj = j+1;
+        if (jj < s) {
+          int v = validIntensities.get(j)/size;
+          int vv = validIntensities.get(jj)/size;
+          if (vv == v) {//do not consider that channel.
             toRemove.add(validIntensities.get(j));
+            toRemove.add(validIntensities.get(jj));
+            ignoredChannels.add(j);
           }
-          jj = j+1;
-          if (jj < s) {
-            int v = validIntensities.get(j)/size;
-            int vv = validIntensities.get(jj)/size;
-            if (vv == v) {//do not consider that channel.
-              toRemove.add(validIntensities.get(j));
-              toRemove.add(validIntensities.get(jj));
-              ignoredChannels.add(j);
-            }
-          }
-        }
-        if (toRemove.size() > 0) {
-          validIntensities.removeAll(toRemove);
         }
+      }
+      if (toRemove.size() > 0) {
+        validIntensities.removeAll(toRemove);
+      }
 
-        boolean noNames = true;
-        if (channelNames[index] != null) {
-          for (String name : channelNames[index]) {
-            if (name != null && !name.equals("")) {
-              noNames = false;
-              break;
-            }
+      boolean noNames = true;
+      if (channelNames[index] != null) {
+        for (String name : channelNames[index]) {
+          if (name != null && !name.equals("")) {
+            noNames = false;
+            break;
           }
         }
-        if (!noNames && frap != null) { //only use name for frap.
-          for (int k = 0; k < frap.size(); k++) {
-            if (!frap.get(k)) {
-              noNames = true;
-              break;
-            }
+      }
+      if (!noNames && frap != null) { //only use name for frap.
+        for (int k = 0; k < frap.size(); k++) {
+          if (!frap.get(k)) {
+            noNames = true;
+            break;
           }
         }
+      }
 
-        int nextFilter = 0;
-        //int nextFilter = cutIns[i].size() - getEffectiveSizeC();
-        for (int k=0; k<validIntensities.size(); k++, nextChannel++) {
-          int laserArrayIndex = validIntensities.get(k);
-          double intensity = (Double) laserIntensities.get(laserArrayIndex);
-          int laser = laserArrayIndex % lasers.size();
-          Double wavelength = (Double) lasers.get(laser);
-          if (wavelength != 0) {
-            while (ignoredChannels.contains(nextChannel)) {
-              nextChannel++;
-            }
-            while (channelNames != null && nextChannel < getEffectiveSizeC() &&
-              channelNames[index] != null &&
-              ((channelNames[index][nextChannel] == null ||
-              channelNames[index][nextChannel].equals("")) && !noNames))
-            {
-              nextChannel++;
+      int nextFilter = 0;
+      //int nextFilter = cutIns[i].size() - getEffectiveSizeC();
+      for (int k=0; k<validIntensities.size(); k++, nextChannel++) {
+        int laserArrayIndex = validIntensities.get(k);
+        double intensity = (Double) laserIntensities.get(laserArrayIndex);
+        int laser = laserArrayIndex % lasers.size();
+        Double wavelength = (Double) lasers.get(laser);
+        if (wavelength != 0) {
+          while (ignoredChannels.contains(nextChannel)) {
+            nextChannel++;
+          }
+          while (channelNames != null && nextChannel < getEffectiveSizeC() &&
+            channelNames[index] != null &&
+            ((channelNames[index][nextChannel] == null ||
+            channelNames[index][nextChannel].equals("")) && !noNames))
+          {
+            nextChannel++;
+          }
+          if (nextChannel < getEffectiveSizeC()) {
+            String id = MetadataTools.createLSID("LightSource", i, laser);
+            store.setChannelLightSourceSettingsID(id, i, nextChannel);
+            store.setChannelLightSourceSettingsAttenuation(
+              new PercentFraction((float) intensity / 100f), i, nextChannel);
+
+            Length ex = FormatTools.getExcitationWavelength(wavelength);
+            if (ex != null) {
+              store.setChannelExcitationWavelength(ex, i, nextChannel);
             }
-            if (nextChannel < getEffectiveSizeC()) {
-              String id = MetadataTools.createLSID("LightSource", i, laser);
-              store.setChannelLightSourceSettingsID(id, i, nextChannel);
-              store.setChannelLightSourceSettingsAttenuation(
-                new PercentFraction((float) intensity / 100f), i, nextChannel);
-
-              Length ex = FormatTools.getExcitationWavelength(wavelength);
-              if (ex != null) {
-                store.setChannelExcitationWavelength(ex, i, nextChannel);
-              }
 
-              if (wavelength > 0) {
-                if (cutIns[index] == null || nextFilter >= cutIns[index].size())
-                {
-                  continue;
-                }
-                Double cutIn =
-                  ((Length) cutIns[index].get(nextFilter)).value(UNITS.NANOMETER).doubleValue();
-                while (cutIn - wavelength > 20) {
-                  nextFilter++;
-                  if (nextFilter < cutIns[index].size()) {
-                    cutIn = ((Length)
-                      cutIns[index].get(nextFilter)).value(UNITS.NANOMETER).doubleValue();
-                  }
-                  else {
-                    break;
-                  }
-                }
+            if (wavelength > 0) {
+              if (cutIns[index] == null || nextFilter >= cutIns[index].size())
+              {
+                continue;
+              }
+              Double cutIn =
+                ((Length) cutIns[index].get(nextFilter)).value(UNITS.NANOMETER).doubleValue();
+              while (cutIn - wavelength > 20) {
+                nextFilter++;
                 if (nextFilter < cutIns[index].size()) {
-                  String fid =
-                    MetadataTools.createLSID("Filter", i, nextFilter);
-                  //store.setLightPathEmissionFilterRef(fid, i, nextChannel, 0);
-                  nextFilter++;
+                  cutIn = ((Length)
+                    cutIns[index].get(nextFilter)).value(UNITS.NANOMETER).doubleValue();
                 }
+                else {
+                  break;
+                }
+              }
+              if (nextFilter < cutIns[index].size()) {
+                String fid =
+                  MetadataTools.createLSID("Filter", i, nextFilter);
+                //store.setLightPathEmissionFilterRef(fid, i, nextChannel, 0);
+                nextFilter++;
               }
             }
           }
         }
       }
+    }
 
-      store.setImageInstrumentRef(instrumentID, i);
-      store.setObjectiveSettingsID(objectiveID, i);
-      store.setObjectiveSettingsRefractiveIndex(refractiveIndex[index], i);
+    store.setImageInstrumentRef(instrumentID, i);
+    store.setObjectiveSettingsID(objectiveID, i);
+    store.setObjectiveSettingsRefractiveIndex(refractiveIndex[index], i);
 
-      store.setImageDescription(descriptions[index], i);
-      if (acquiredDate[index] > 0) {
-        store.setImageAcquisitionDate(new Timestamp(DateTools.convertDate(
-          (long) (acquiredDate[index] * 1000), DateTools.COBOL,
-          DateTools.ISO8601_FORMAT, false)), i);
-      }
-      store.setImageName(imageNames[index].trim(), i);
+    store.setImageDescription(descriptions[index], i);
+    if (acquiredDate[index] > 0) {
+      store.setImageAcquisitionDate(new Timestamp(DateTools.convertDate(
+        (long) (acquiredDate[index] * 1000), DateTools.COBOL,
+        DateTools.ISO8601_FORMAT, false)), i);
+    }
+    store.setImageName(imageNames[index].trim(), i);
 
-      Length sizeX =
-        FormatTools.getPhysicalSizeX(physicalSizeXs.get(index));
-      Length sizeY =
-        FormatTools.getPhysicalSizeY(physicalSizeYs.get(index));
-      Length sizeZ = FormatTools.getPhysicalSizeZ(zSteps[index]);
+    Length sizeX =
+      FormatTools.getPhysicalSizeX(physicalSizeXs.get(index));
+    Length sizeY =
+      FormatTools.getPhysicalSizeY(physicalSizeYs.get(index));
+    Length sizeZ = FormatTools.getPhysicalSizeZ(zSteps[index]);
 
-      if (sizeX != null) {
-        store.setPixelsPhysicalSizeX(sizeX, i);
-      }
-      if (sizeY != null) {
-        store.setPixelsPhysicalSizeY(sizeY, i);
-      }
-      if (sizeZ != null) {
-        store.setPixelsPhysicalSizeZ(sizeZ, i);
-      }
-      if (tSteps[index] != null) {
-        store.setPixelsTimeIncrement(new Time(tSteps[index], UNITS.SECOND), i);
-      }
+    if (sizeX != null) {
+      store.setPixelsPhysicalSizeX(sizeX, i);
+    }
+    if (sizeY != null) {
+      store.setPixelsPhysicalSizeY(sizeY, i);
+    }
+    if (sizeZ != null) {
+      store.setPixelsPhysicalSizeZ(sizeZ, i);
+    }
+    if (tSteps[index] != null) {
+      store.setPixelsTimeIncrement(new Time(tSteps[index], UNITS.SECOND), i);
+    }
 
-      final List<String> detectors = detectorModels[index];
-      if (detectors != null) {
-        nextChannel = 0;
-        int start = detectors.size() - getEffectiveSizeC();
-        if (start < 0) {
-          start = 0;
-        }
-        for (int detector=start; detector<detectors.size(); detector++) {
-          int dIndex = detector - start;
-          String detectorID = MetadataTools.createLSID("Detector", i, dIndex);
-          store.setDetectorID(detectorID, i, dIndex);
-          store.setDetectorModel((String) detectors.get(detector), i, dIndex);
+    final List<String> detectors = detectorModels[index];
+    if (detectors != null) {
+      nextChannel = 0;
+      int start = detectors.size() - getEffectiveSizeC();
+      if (start < 0) {
+        start = 0;
+      }
+      for (int detector=start; detector<detectors.size(); detector++) {
+        int dIndex = detector - start;
+        String detectorID = MetadataTools.createLSID("Detector", i, dIndex);
+        store.setDetectorID(detectorID, i, dIndex);
+        store.setDetectorModel((String) detectors.get(detector), i, dIndex);
 
-          store.setDetectorZoom(zooms[index], i, dIndex);
-          store.setDetectorType(DetectorType.PMT, i, dIndex);
+        store.setDetectorZoom(zooms[index], i, dIndex);
+        store.setDetectorType(DetectorType.PMT, i, dIndex);
 
-          if (activeDetector[index] != null) {
-            int detectorIndex =
-              activeDetector[index].size() - getEffectiveSizeC() + dIndex;
-            if (detectorIndex >= 0 &&
-              detectorIndex < activeDetector[index].size() &&
-              (Boolean) activeDetector[index].get(detectorIndex) &&
-              detectorOffsets[index] != null &&
-              nextChannel < detectorOffsets[index].length)
-            {
-              store.setDetectorOffset(
-                detectorOffsets[index][nextChannel++], i, dIndex);
-            }
+        if (activeDetector[index] != null) {
+          int detectorIndex =
+            activeDetector[index].size() - getEffectiveSizeC() + dIndex;
+          if (detectorIndex >= 0 &&
+            detectorIndex < activeDetector[index].size() &&
+            (Boolean) activeDetector[index].get(detectorIndex) &&
+            detectorOffsets[index] != null &&
+            nextChannel < detectorOffsets[index].length)
+          {
+            store.setDetectorOffset(
+              detectorOffsets[index][nextChannel++], i, dIndex);
           }
         }
       }
+    }
 
-      final List<Boolean> activeDetectors = activeDetector[index];
-      int firstDetector = activeDetectors == null ? 0 :
-        activeDetectors.size() - getEffectiveSizeC();
-      int nextDetector = firstDetector;
+    final List<Boolean> activeDetectors = activeDetector[index];
+    int firstDetector = activeDetectors == null ? 0 :
+      activeDetectors.size() - getEffectiveSizeC();
+    int nextDetector = firstDetector;
 
-      int nextFilter = 0;
-      int nextFilterDetector = 0;
+    int nextFilter = 0;
+    int nextFilterDetector = 0;
 
-      if (activeDetectors != null &&
-        activeDetectors.size() > cutIns[index].size() &&
-        (Boolean) activeDetectors.get(activeDetectors.size() - 1) &&
-        (Boolean) activeDetectors.get(activeDetectors.size() - 2))
-      {
-        nextFilterDetector = activeDetectors.size() - cutIns[index].size();
+    if (activeDetectors != null &&
+      activeDetectors.size() > cutIns[index].size() &&
+      (Boolean) activeDetectors.get(activeDetectors.size() - 1) &&
+      (Boolean) activeDetectors.get(activeDetectors.size() - 2))
+    {
+      nextFilterDetector = activeDetectors.size() - cutIns[index].size();
 
-        if (cutIns[index].size() > filterModels[index].size()) {
-          nextFilterDetector += filterModels[index].size();
-          nextFilter += filterModels[index].size();
-        }
+      if (cutIns[index].size() > filterModels[index].size()) {
+        nextFilterDetector += filterModels[index].size();
+        nextFilter += filterModels[index].size();
       }
+    }
+
+    for (int c=0; c<getEffectiveSizeC(); c++) {
+      if (activeDetectors != null) {
+        while (nextDetector >= 0 && nextDetector < activeDetectors.size() &&
+          !(Boolean) activeDetectors.get(nextDetector))
+        {
+          nextDetector++;
+        }
+        if (nextDetector < activeDetectors.size() && detectors != null &&
+          nextDetector - firstDetector < detectors.size())
+        {
+          String detectorID = MetadataTools.createLSID(
+            "Detector", i, nextDetector - firstDetector);
+          store.setDetectorSettingsID(detectorID, i, c);
+          nextDetector++;
 
-      for (int c=0; c<getEffectiveSizeC(); c++) {
-        if (activeDetectors != null) {
-          while (nextDetector >= 0 && nextDetector < activeDetectors.size() &&
-            !(Boolean) activeDetectors.get(nextDetector))
+          if (detectorOffsets[index] != null &&
+            c < detectorOffsets[index].length)
           {
-            nextDetector++;
+            store.setDetectorSettingsOffset(detectorOffsets[index][c], i, c);
           }
-          if (nextDetector < activeDetectors.size() && detectors != null &&
-            nextDetector - firstDetector < detectors.size())
-          {
-            String detectorID = MetadataTools.createLSID(
-              "Detector", i, nextDetector - firstDetector);
-            store.setDetectorSettingsID(detectorID, i, c);
-            nextDetector++;
-
-            if (detectorOffsets[index] != null &&
-              c < detectorOffsets[index].length)
-            {
-              store.setDetectorSettingsOffset(detectorOffsets[index][c], i, c);
-            }
 
-            if (gains[index] != null) {
-              store.setDetectorSettingsGain(gains[index][c], i, c);
-            }
+          if (gains[index] != null) {
+            store.setDetectorSettingsGain(gains[index][c], i, c);
           }
         }
+      }
 
-        if (channelNames[index] != null) {
-          store.setChannelName(channelNames[index][c], i, c);
-        }
-        if (pinholes[index] != null) {
-          store.setChannelPinholeSize(new Length(pinholes[index], UNITS.MICROMETER), i, c);
-        }
-        if (exWaves[index] != null) {
-          if (exWaves[index][c] != null && exWaves[index][c] > 1) {
-            Length ex =
-              FormatTools.getExcitationWavelength(exWaves[index][c]);
-            if (ex != null) {
-              store.setChannelExcitationWavelength(ex, i, c);
-            }
+      if (channelNames[index] != null) {
+        store.setChannelName(channelNames[index][c], i, c);
+      }
+      if (pinholes[index] != null) {
+        store.setChannelPinholeSize(new Length(pinholes[index], UNITS.MICROMETER), i, c);
+      }
+      if (exWaves[index] != null) {
+        if (exWaves[index][c] != null && exWaves[index][c] > 1) {
+          Length ex =
+            FormatTools.getExcitationWavelength(exWaves[index][c]);
+          if (ex != null) {
+            store.setChannelExcitationWavelength(ex, i, c);
           }
         }
+      }
 
-        // channel coloring is implicit if the image is stored as RGB
-        Color channelColor = getChannelColor(realChannel[index][c]);
-        if (!isRGB()) {
-          store.setChannelColor(channelColor, i, c);
-        }
-
-        if (channelColor.getValue() != -1 && nextFilter >= 0) {
-          if (nextDetector - firstDetector != getSizeC() &&
-            cutIns[index] != null && nextDetector >= cutIns[index].size())
-          {
-            while (nextFilterDetector < firstDetector) {
-              String filterID =
-                MetadataTools.createLSID("Filter", i, nextFilter);
-              store.setFilterID(filterID, i, nextFilter);
+      // channel coloring is implicit if the image is stored as RGB
+      Color channelColor = getChannelColor(realChannel[index][c]);
+      if (!isRGB()) {
+        store.setChannelColor(channelColor, i, c);
+      }
 
-              nextFilterDetector++;
-              nextFilter++;
-            }
-          }
-          while (activeDetectors != null &&
-            nextFilterDetector < activeDetectors.size() &&
-            !(Boolean) activeDetectors.get(nextFilterDetector))
-          {
-            String filterID = MetadataTools.createLSID("Filter", i, nextFilter);
+      if (channelColor.getValue() != -1 && nextFilter >= 0) {
+        if (nextDetector - firstDetector != getSizeC() &&
+          cutIns[index] != null && nextDetector >= cutIns[index].size())
+        {
+          while (nextFilterDetector < firstDetector) {
+            String filterID =
+              MetadataTools.createLSID("Filter", i, nextFilter);
             store.setFilterID(filterID, i, nextFilter);
+
             nextFilterDetector++;
             nextFilter++;
           }
+        }
+        while (activeDetectors != null &&
+          nextFilterDetector < activeDetectors.size() &&
+          !(Boolean) activeDetectors.get(nextFilterDetector))
+        {
           String filterID = MetadataTools.createLSID("Filter", i, nextFilter);
           store.setFilterID(filterID, i, nextFilter);
-          store.setLightPathEmissionFilterRef(filterID, i, c, 0);
           nextFilterDetector++;
           nextFilter++;
         }
+        String filterID = MetadataTools.createLSID("Filter", i, nextFilter);
+        store.setFilterID(filterID, i, nextFilter);
+        store.setLightPathEmissionFilterRef(filterID, i, c, 0);
+        nextFilterDetector++;
+        nextFilter++;
       }
+    }
 
-      for (int image=0; image<getImageCount(); image++) {
-        Length xPos = posX[index];
-        Length yPos = posY[index];
-        if (i < fieldPosX.size() && fieldPosX.get(i) != null) {
-          xPos = fieldPosX.get(i);
-        }
-        if (i < fieldPosY.size() && fieldPosY.get(i) != null) {
-          yPos = fieldPosY.get(i);
-        }
-        if (xPos != null) {
-          store.setPlanePositionX(xPos, i, image);
-        }
-        if (yPos != null) {
-          store.setPlanePositionY(yPos, i, image);
-        }
-        store.setPlanePositionZ(posZ[index], i, image);
-        if (timestamps[index] != null) {
-          if (timestamps[index][image] != null) {
-            double timestamp = timestamps[index][image];
-            if (timestamps[index][0] == acquiredDate[index]) {
-              timestamp -= acquiredDate[index];
-            }
-            else if (timestamp == acquiredDate[index] && image > 0) {
-              timestamp = timestamps[index][0];
-            }
-            store.setPlaneDeltaT(new Time(timestamp, UNITS.SECOND), i, image);
+    for (int image=0; image<getImageCount(); image++) {
+      Length xPos = posX[index];
+      Length yPos = posY[index];
+      if (i < fieldPosX.size() && fieldPosX.get(i) != null) {
+        xPos = fieldPosX.get(i);
+      }
+      if (i < fieldPosY.size() && fieldPosY.get(i) != null) {
+        yPos = fieldPosY.get(i);
+      }
+      if (xPos != null) {
+        store.setPlanePositionX(xPos, i, image);
+      }
+      if (yPos != null) {
+        store.setPlanePositionY(yPos, i, image);
+      }
+      store.setPlanePositionZ(posZ[index], i, image);
+      if (timestamps[index] != null) {
+        if (timestamps[index][image] != null) {
+          double timestamp = timestamps[index][image];
+          if (timestamps[index][0] == acquiredDate[index]) {
+            timestamp -= acquiredDate[index];
+          }
+          else if (timestamp == acquiredDate[index] && image > 0) {
+            timestamp = timestamps[index][0];
           }
+          store.setPlaneDeltaT(new Time(timestamp, UNITS.SECOND), i, image);
         }
+      }
 
-        if (expTimes[index] != null) {
-          int c = getZCTCoords(image)[1];
-          if (expTimes[index][c] != null)
-          {
-            store.setPlaneExposureTime(new Time(expTimes[index][c], UNITS.SECOND), i, image);
-          }
+      if (expTimes[index] != null) {
+        int c = getZCTCoords(image)[1];
+        if (expTimes[index][c] != null)
+        {
+          store.setPlaneExposureTime(new Time(expTimes[index][c], UNITS.SECOND), i, image);
         }
       }
+    }
 
-      if (imageROIs[index] != null) {
-        for (int roi=0; roi<imageROIs[index].length; roi++) {
-          if (imageROIs[index][roi] != null) {
-            imageROIs[index][roi].storeROI(store, i, roiCount++, roi);
-          }
+    if (imageROIs[index] != null) {
+      for (int roi=0; roi<imageROIs[index].length; roi++) {
+        if (imageROIs[index][roi] != null) {
+          imageROIs[index][roi].storeROI(store, i, roiCount++, roi);
         }
       }
     }
   }
 
-  private Element getMetadataRoot(String xml)
-    throws FormatException, IOException
-  {
-    ByteArrayInputStream s = null;
+  /**
+   * Parses the XML description block directly from the file.  The block is
+   * decoded and sanitized as it is read, and {@link #PRUNED_BLOCK} elements
+   * are dropped before the DOM is built.
+   */
+  private Element getMetadataRoot() throws FormatException, IOException {
+    in.seek(xmlOffset);
     try {
-      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder parser = factory.newDocumentBuilder();
-      s = new ByteArrayInputStream(xml.getBytes(ENCODING));
-      return parser.parse(s).getDocumentElement();
+      XMLReader parser =
+        SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+      SAXSource source = new SAXSource(new PruningFilter(parser),
+        new InputSource(new XMLBlockReader(in, xmlLength * 2L)));
+      DOMResult result = new DOMResult();
+      TransformerFactory.newInstance().newTransformer().transform(
+        source, result);
+      return ((Document) result.getNode()).getDocumentElement();
     }
     catch (ParserConfigurationException e) {
       throw new FormatException(e);
     }
     catch (SAXException e) {
       throw new FormatException(e);
-    } finally {
-        if (s != null) s.close();
     }
-  }
-
-  private void translateMetadata(Element root) throws FormatException {
-    Element realRoot = (Element) root.getChildNodes().item(0);
-
-    NodeList toPrune = getNodes(realRoot, "LDM_Block_Sequential_Master");
-    if (toPrune != null) {
-      for (int i=0; i<toPrune.getLength(); i++) {
-        Element prune = (Element) toPrune.item(i);
-        Element parent = (Element) prune.getParentNode();
-        parent.removeChild(prune);
+    catch (TransformerException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
       }
+      throw new FormatException(e);
     }
+  }
 
-    NodeList images = getNodes(realRoot, "Image");
+  private void translateMetadata(Element root) throws FormatException {
+    NodeList images = getImageNodeList(root);
     List<Element> imageNodes = new ArrayList<Element>();
-    Long[] oldOffsets = null;
-    if (images.getLength() > offsets.size()) {
-      oldOffsets = offsets.toArray(new Long[offsets.size()]);
-      offsets.clear();
-    }
-
-    int nextOffset = 0;
-    for (int i=0; i<images.getLength(); i++) {
-      Element image = (Element) images.item(i);
-      Element grandparent = (Element) image.getParentNode();
-      if (grandparent == null) {
-        continue;
-      }
-      grandparent = (Element) grandparent.getParentNode();
-      if (grandparent == null) {
-        continue;
-      }
-      if (!"ProcessingHistory".equals(grandparent.getNodeName())) {
-        // image is being referenced from an event list
-        imageNodes.add(image);
-        if (oldOffsets != null && nextOffset < oldOffsets.length) {
-          offsets.add(oldOffsets[nextOffset]);
-        }
-      }
-      grandparent = (Element) grandparent.getParentNode();
-      if (grandparent == null) {
-        continue;
-      }
-      grandparent = (Element) grandparent.getParentNode();
-      if (grandparent != null) {
-        if (!"Image".equals(grandparent.getNodeName())) {
-          nextOffset++;
+    List<Integer> blocks = new ArrayList<Integer>();
+    getImageNodes(images, imageNodes, blocks);
+
+    if (images.getLength() > offsets.length) {
+      long[] oldOffsets = offsets;
+      offsets = new long[blocks.size()];
+      int offsetCount = 0;
+      for (int block : blocks) {
+        if (block >= oldOffsets.length) {
+          break;
         }
+        offsets[offsetCount++] = oldOffsets[block];
       }
+      offsets = Arrays.copyOf(offsets, offsetCount);
     }
 
     tileCount = new int[imageNodes.size()];
@@ -1172,6 +1215,12 @@ public class LIFReader extends FormatReader {
     exWaves = new Double[imageNodes.size()][];
     imageROIs = new ROI[imageNodes.size()][];
     imageNames = new String[imageNodes.size()];
+    translatedImages = new boolean[imageNodes.size()];
+
+    boolean lazy = isLazySeries();
+    if (lazy) {
+      this.imageNodes = imageNodes;
+    }
 
     core.clear();
     for (int i=0; i<imageNodes.size(); i++) {
@@ -1186,17 +1235,9 @@ public class LIFReader extends FormatReader {
       translateImageNames(image, index);
       translateImageNodes(image, index);
       translateAttachmentNodes(image, index);
-      translateScannerSettings(image, index);
-      translateFilterSettings(image, index);
-      translateTimestamps(image, index);
-      translateLaserLines(image, index);
-      translateROIs(image, index);
-      translateSingleROIs(image, index);
-      translateDetectors(image, index);
-
-      final Deque<String> nameStack = new ArrayDeque<String>();
-      populateOriginalMetadata(image, nameStack);
-      addUserCommentMeta(image, i);
+      if (!lazy) {
+        translateImageDetails(image, index);
+      }
     }
     setSeries(0);
 
@@ -1213,6 +1254,69 @@ public class LIFReader extends FormatReader {
     core = newCore;
   }
 
+  /**
+   * Translates the metadata for the given image that is not needed to
+   * determine the series list and core dimensions.  The image's series must
+   * be the current series.
+   */
+  private void translateImageDetails(Element image, int index)
+    throws FormatException
+  {
+    translateScannerSettings(image, index);
+    translateFilterSettings(image, index);
+    translateTimestamps(image, index);
+    translateLaserLines(image, index);
+    translateROIs(image, index);
+    translateSingleROIs(image, index);
+    translateDetectors(image, index);
+
+    final Deque<String> nameStack = new ArrayDeque<String>();
+    populateOriginalMetadata(image, nameStack);
+    addUserCommentMeta(image, index);
+    translatedImages[index] = true;
+  }
+
+  private NodeList getImageNodeList(Element root) {
+    Element realRoot = (Element) root.getChildNodes().item(0);
+    return getNodes(realRoot, "Image");
+  }
+
+  /**
+   * Finds the Image elements that correspond to series, along with the
+   * index of the memory block for each one.
+   */
+  private void getImageNodes(NodeList images, List<Element> imageNodes,
+    List<Integer> blocks)
+  {
+    int nextOffset = 0;
+    for (int i=0; i<images.getLength(); i++) {
+      Element image = (Element) images.item(i);
+      Element grandparent = (Element) image.getParentNode();
+      if (grandparent == null) {
+        continue;
+      }
+      grandparent = (Element) grandparent.getParentNode();
+      if (grandparent == null) {
+        continue;
+      }
+      if (!"ProcessingHistory".equals(grandparent.getNodeName())) {
+        // image is being referenced from an event list
+        imageNodes.add(image);
+        blocks.add(nextOffset);
+      }
+      grandparent = (Element) grandparent.getParentNode();
+      if (grandparent == null) {
+        continue;
+      }
+      grandparent = (Element) grandparent.getParentNode();
+      if (grandparent != null) {
+        if (!"Image".equals(grandparent.getNodeName())) {
+          nextOffset++;
+        }
+      }
+    }
+  }
+
   private void populateOriginalMetadata(Element root, Deque<String> nameStack) {
     String name = root.getNodeName();
     if (root.hasAttributes() && !name.equals("Element") &&
@@ -2264,7 +2368,177 @@ public class LIFReader extends FormatReader {
     return channel - 1;
   }
 
-  // -- Helper class --
+  // -- Helper classes --
+
+  /**
+   * Decodes the UTF-16LE XML description block as it is read from the file.
+   * The XML blocks stored in a LIF file have no root node, so the block is
+   * wrapped in a LEICA element.  Null characters and leading whitespace are
+   * removed, and invalid characters are replaced, in the same way as
+   * {@link DataTools#stripString(String)} followed by
+   * {@link loci.common.xml.XMLTools#sanitizeXML(String)}.
+   */
+  private static class XMLBlockReader extends Reader {
+    private static final String PREFIX = "<LEICA>";
+    private static final String SUFFIX = "</LEICA>";
+
+    private final RandomAccessInputStream stream;
+    private long remaining;
+    private final byte[] buffer = new byte[65536];
+    private int bufferLength, bufferPos;
+
+    private int prefixPos, suffixPos;
+    private boolean started;
+    /** Unit read ahead of the current one, or -1. */
+    private int lookahead = -1;
+    /** Sanitized character held back to check for '&#', or -1. */
+    private int pending = -1;
+    /** Second half of a surrogate pair, or -1. */
+    private int lowSurrogate = -1;
+
+    XMLBlockReader(RandomAccessInputStream stream, long length) {
+      this.stream = stream;
+      this.remaining = length;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      int n = 0;
+      while (n < len) {
+        int c = nextChar();
+        if (c < 0) break;
+        cbuf[off + n++] = (char) c;
+      }
+      return n == 0 && len > 0 ? -1 : n;
+    }
+
+    @Override
+    public void close() {
+      // the underlying stream belongs to the reader
+    }
+
+    private int nextChar() throws IOException {
+      if (prefixPos < PREFIX.length()) {
+        return PREFIX.charAt(prefixPos++);
+      }
+      int c = pending >= 0 ? pending : nextSanitized();
+      pending = -1;
+      if (c >= 0) {
+        if (c == '&') {
+          pending = nextSanitized();
+          if (pending == '#') c = ' ';
+        }
+        return c;
+      }
+      if (suffixPos < SUFFIX.length()) {
+        return SUFFIX.charAt(suffixPos++);
+      }
+      return -1;
+    }
+
+    private int nextSanitized() throws IOException {
+      if (lowSurrogate >= 0) {
+        int c = lowSurrogate;
+        lowSurrogate = -1;
+        return c;
+      }
+      while (true) {
+        int c = nextUnit();
+        if (c < 0) return -1;
+        if (c == 0 || (!started && c <= ' ')) continue;
+        started = true;
+
+        if (Character.isHighSurrogate((char) c)) {
+          lookahead = nextUnit();
+          if (lookahead >= 0 && Character.isLowSurrogate((char) lookahead)) {
+            lowSurrogate = lookahead;
+            lookahead = -1;
+            return c;
+          }
+          return ' ';
+        }
+        if (Character.isLowSurrogate((char) c)) {
+          return ' ';
+        }
+        if ((Character.isISOControl((char) c) && c != '\n' && c != '\t' &&
+          c != '\r') || !Character.isDefined((char) c))
+        {
+          return ' ';
+        }
+        return c;
+      }
+    }
+
+    private int nextUnit() throws IOException {
+      if (lookahead >= 0) {
+        int c = lookahead;
+        lookahead = -1;
+        return c;
+      }
+      if (bufferPos + 1 >= bufferLength) {
+        if (remaining < 2) return -1;
+        bufferLength = (int) Math.min(buffer.length, remaining & ~1L);
+        stream.readFully(buffer, 0, bufferLength);
+        remaining -= bufferLength;
+        bufferPos = 0;
+      }
+      int c = (buffer[bufferPos] & 0xff) | ((buffer[bufferPos + 1] & 0xff) << 8);
+      bufferPos += 2;
+      return c;
+    }
+  }
+
+  /** Drops {@link #PRUNED_BLOCK} elements and everything inside them. */
+  private static class PruningFilter extends XMLFilterImpl {
+    private int prunedDepth;
+
+    PruningFilter(XMLReader parent) {
+      super(parent);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName,
+      Attributes atts) throws SAXException
+    {
+      if (prunedDepth > 0 || PRUNED_BLOCK.equals(qName)) {
+        prunedDepth++;
+        return;
+      }
+      super.startElement(uri, localName, qName, atts);
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName)
+      throws SAXException
+    {
+      if (prunedDepth > 0) {
+        prunedDepth--;
+        return;
+      }
+      super.endElement(uri, localName, qName);
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length)
+      throws SAXException
+    {
+      if (prunedDepth == 0) super.characters(ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length)
+      throws SAXException
+    {
+      if (prunedDepth == 0) super.ignorableWhitespace(ch, start, length);
+    }
+
+    @Override
+    public void processingInstruction(String target, String data)
+      throws SAXException
+    {
+      if (prunedDepth == 0) super.processingInstruction(target, data);
+    }
+  }
 
   class ROI {
     // -- Constants --
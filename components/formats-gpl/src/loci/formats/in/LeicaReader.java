@@ -277,7 +277,7 @@ public class LeicaReader extends FormatReader {
         return tiff.openBytes(planeIndex, buf, x, y, w, h);
       }
       else {
-        try (RandomAccessInputStream s = new RandomAccessInputStream(filename)) {
+        try (RandomAccessInputStream s = openHandle(filename)) {
           s.seek(planeIndex * FormatTools.getPlaneSize(this));
           readPlane(s, x, y, w, h, buf);
         }
@@ -156,10 +156,10 @@ public class MetamorphTiffReader extends BaseTiffReader {
     int fileIndex = FormatTools.positionToRaster(lengths, position);
     final RandomAccessInputStream s;
     if (fileIndex < files.length) {
-      s = new RandomAccessInputStream(files[fileIndex]);
+      s = openHandle(files[fileIndex]);
     }
     else {
-      s = new RandomAccessInputStream(files[0]);
+      s = openHandle(files[0]);
     }
     try (RandomAccessInputStream stream = s) {
       TiffParser parser = new TiffParser(s);
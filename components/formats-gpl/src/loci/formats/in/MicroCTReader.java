@@ -145,8 +145,9 @@ public class MicroCTReader extends FormatReader {
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
     int vffIndex = no % vffs.length;
-    try (RandomAccessInputStream vff = new RandomAccessInputStream(vffs[vffIndex])) {
+    try (RandomAccessInputStream vff = openHandle(vffs[vffIndex])) {
       if (headerSize[vffIndex] == 0) {
+        vff.seek(0);
         skipHeader(vff);
         headerSize[vffIndex] = vff.getFilePointer();
       }
@@ -26,6 +26,8 @@
 package loci.formats.in;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import loci.common.DateTools;
 import loci.common.RandomAccessInputStream;
@@ -58,15 +60,22 @@ public class NDPIReader extends BaseTiffReader {
   private static final int THUMB_TAG_2 = 65439;
   private static final int METADATA_TAG = 65449;
 
-  // -- Fields --
+  /** Maximum number of initialized JPEG services kept open at once. */
+  private static final int MAX_SERVICES = 4;
 
-  private int initializedSeries = -1;
-  private int initializedPlane = -1;
+  // -- Fields --
 
   private int sizeZ = 1;
   private int pyramidHeight = 1;
 
-  private JPEGTurboService service = new JPEGTurboServiceImpl();
+  /** Parser used to read planes smaller than MAX_SIZE. */
+  private transient TiffParser planeParser;
+
+  /**
+   * Initialized JPEG services for large planes, keyed on core index and
+   * plane number, in least recently used order.
+   */
+  private transient Map<Long, JPEGTurboService> services;
 
   private Double magnification;
   private String serialNumber;
@@ -131,49 +140,10 @@ public class NDPIReader extends BaseTiffReader {
     }
     else if (getSizeX() <= MAX_SIZE || getSizeY() <= MAX_SIZE) {
       int ifdIndex = getIFDIndex(getCoreIndex(), no);
-      in = new RandomAccessInputStream(currentId);
-      tiffParser = new TiffParser(in);
-      tiffParser.setUse64BitOffsets(true);
-      tiffParser.setYCbCrCorrection(false);
-      byte[] b = tiffParser.getSamples(ifds.get(ifdIndex), buf, x, y, w, h);
-      in.close();
-      tiffParser.getStream().close();
-      return b;
+      return getPlaneParser().getSamples(ifds.get(ifdIndex), buf, x, y, w, h);
     }
 
-    if (initializedSeries != getCoreIndex() || initializedPlane != no) {
-      IFD ifd = ifds.get(getIFDIndex(getCoreIndex(), no));
-
-      long offset = ifd.getStripOffsets()[0];
-      long byteCount = ifd.getStripByteCounts()[0];
-      if (in != null) {
-        in.close();
-      }
-      in = new RandomAccessInputStream(currentId);
-      in.seek(offset);
-      in.setLength(offset + byteCount);
-
-      try {
-        service.close();
-        long[] markers = ifd.getIFDLongArray(MARKER_TAG);
-        if (!use64Bit) {
-          for (int i=0; i<markers.length; i++) {
-            markers[i] = markers[i] & 0xffffffffL;
-          }
-        }
-        if (markers != null) {
-          service.setRestartMarkers(markers);
-        }
-        service.initialize(in, getSizeX(), getSizeY());
-      }
-      catch (ServiceException e) {
-        throw new FormatException(e);
-      }
-
-      initializedSeries = getCoreIndex();
-      initializedPlane = no;
-    }
-    service.getTile(buf, x, y, w, h);
+    getService(no).getTile(buf, x, y, w, h);
     return buf;
   }
 
@@ -229,10 +199,9 @@ public class NDPIReader extends BaseTiffReader {
   /* @see loci.formats.IFormatReader#close(boolean) */
   @Override
   public void close(boolean fileOnly) throws IOException {
+    closeServices();
+    planeParser = null;
     if (!fileOnly) {
-      service.close();
-      initializedSeries = -1;
-      initializedPlane = -1;
       sizeZ = 1;
       pyramidHeight = 1;
       magnification = null;
@@ -270,6 +239,20 @@ public class NDPIReader extends BaseTiffReader {
     super.initFile(id);
   }
 
+  /* @see loci.formats.FormatReader#initCopy() */
+  @Override
+  protected void initCopy() throws FormatException, IOException {
+    super.initCopy();
+    planeParser = null;
+    services = null;
+  }
+
+  /* @see loci.formats.FormatReader#isCopySupported() */
+  @Override
+  protected boolean isCopySupported() {
+    return getClass() == NDPIReader.class;
+  }
+
   // -- Internal BaseTiffReader API methods --
 
   /* @see loci.formats.BaseTiffReader#initStandardMetadata() */
@@ -530,6 +513,103 @@ public class NDPIReader extends BaseTiffReader {
 
   // -- Helper methods --
 
+  /**
+   * Retrieve a parser for reading small planes, backed by the stream
+   * that remains open for the lifetime of the current file.
+   */
+  private TiffParser getPlaneParser() throws IOException {
+    if (in == null) {
+      in = new RandomAccessInputStream(currentId);
+    }
+    if (planeParser == null || planeParser.getStream() != in) {
+      planeParser = new TiffParser(in);
+      planeParser.setUse64BitOffsets(true);
+      planeParser.setYCbCrCorrection(false);
+    }
+    return planeParser;
+  }
+
+  /**
+   * Retrieve the JPEG service for the given plane in the current series,
+   * initializing it (and evicting the least recently used service) if
+   * it is not already open.
+   */
+  private JPEGTurboService getService(int no)
+    throws FormatException, IOException
+  {
+    if (services == null) {
+      services = new LinkedHashMap<Long, JPEGTurboService>(
+        MAX_SERVICES + 1, 0.75f, true)
+      {
+        @Override
+        protected boolean removeEldestEntry(
+          Map.Entry<Long, JPEGTurboService> eldest)
+        {
+          if (size() > MAX_SERVICES) {
+            try {
+              eldest.getValue().close();
+            }
+            catch (IOException e) {
+              LOGGER.debug("Could not close JPEG service", e);
+            }
+            return true;
+          }
+          return false;
+        }
+      };
+    }
+
+    Long key = ((long) getCoreIndex() << 32) | no;
+    JPEGTurboService service = services.get(key);
+    if (service != null) {
+      return service;
+    }
+
+    IFD ifd = ifds.get(getIFDIndex(getCoreIndex(), no));
+    long offset = ifd.getStripOffsets()[0];
+    long byteCount = ifd.getStripByteCounts()[0];
+
+    RandomAccessInputStream s = new RandomAccessInputStream(currentId);
+    service = new JPEGTurboServiceImpl();
+    try {
+      s.seek(offset);
+      s.setLength(offset + byteCount);
+
+      long[] markers = ifd.getIFDLongArray(MARKER_TAG);
+      if (markers != null) {
+        if (!use64Bit) {
+          for (int i=0; i<markers.length; i++) {
+            markers[i] = markers[i] & 0xffffffffL;
+          }
+        }
+        service.setRestartMarkers(markers);
+      }
+      service.initialize(s, getSizeX(), getSizeY());
+    }
+    catch (ServiceException e) {
+      service.close();
+      s.close();
+      throw new FormatException(e);
+    }
+    catch (IOException e) {
+      service.close();
+      s.close();
+      throw e;
+    }
+    services.put(key, service);
+    return service;
+  }
+
+  /** Close and discard all initialized JPEG services. */
+  private void closeServices() throws IOException {
+    if (services != null) {
+      for (JPEGTurboService service : services.values()) {
+        service.close();
+      }
+      services.clear();
+    }
+  }
+
   private int getIFDIndex(int seriesIndex, int zIndex) {
     if (seriesIndex < pyramidHeight) {
       return zIndex * pyramidHeight + seriesIndex;
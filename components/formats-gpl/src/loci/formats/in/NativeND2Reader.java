@@ -27,6 +27,7 @@ package loci.formats.in;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
@@ -39,6 +40,7 @@ import loci.common.Location;
 import loci.common.RandomAccessInputStream;
 import loci.common.xml.XMLTools;
 
+import loci.formats.BufferPool;
 import loci.formats.CoreMetadata;
 import loci.formats.CoreMetadataList;
 import loci.formats.FormatException;
@@ -265,8 +267,9 @@ public class NativeND2Reader extends SubResolutionFormatReader {
         int destLength = w * pixel;
 
         int p = rowLength * y + x * pixel;
-        byte[] pix = new byte[destLength * h];
-        for (int row=0; row<h; row++) {
+        byte[] pix = BufferPool.take(destLength * h);
+        int row = 0;
+        for (; row<h; row++) {
           if (p + destLength <= t.length) {
             System.arraycopy(t, p, pix, row * destLength, destLength);
             int skip = pixel * (getSizeX() - w - x) + scanlinePad * bpp;
@@ -276,12 +279,16 @@ public class NativeND2Reader extends SubResolutionFormatReader {
             break;
           }
         }
+        // rows beyond the end of the decoded data are blank
+        Arrays.fill(pix, row * destLength, pix.length, (byte) 0);
 
         if (split) {
-          pix = ImageTools.splitChannels(pix, lastChannel, getEffectiveSizeC(),
-            bpp, false, true);
+          splitChannels(pix, bpp, buf);
         }
-        System.arraycopy(pix, 0, buf, 0, pix.length);
+        else {
+          System.arraycopy(pix, 0, buf, 0, pix.length);
+        }
+        BufferPool.release(pix);
       }
       else {
         copyPixels(x, y, w, h, bpp, scanlinePad, t, buf, split);
@@ -289,10 +296,13 @@ public class NativeND2Reader extends SubResolutionFormatReader {
       t = null;
     }
     else if (split && (getSizeC() <= 4 || scanlinePad == 0) && nXFields == 1) {
-      byte[] pix = new byte[(getSizeX() + scanlinePad) * getSizeY() * pixel];
-      in.read(pix);
+      byte[] pix =
+        BufferPool.take((getSizeX() + scanlinePad) * getSizeY() * pixel);
+      int read = in.read(pix);
+      // the final plane may be truncated
+      Arrays.fill(pix, Math.max(read, 0), pix.length, (byte) 0);
       copyPixels(x, y, w, h, bpp, scanlinePad, pix, buf, split);
-      pix = null;
+      BufferPool.release(pix);
     }
     else if (split) {
       // one padding pixel per row total, instead of one padding pixel
@@ -302,18 +312,22 @@ public class NativeND2Reader extends SubResolutionFormatReader {
 
       long skip = (long) rowLength * y;
       in.seek(in.getFilePointer() + skip);
-      byte[] pix = new byte[destLength * h];
+      byte[] pix = BufferPool.take(destLength * h);
       long pre = (long) x * pixel;
       long post = (long) pixel * (getSizeX() - w - x) + (scanlinePad * bpp);
       for (int row=0; row<h; row++) {
         in.seek(in.getFilePointer() + pre);
-        in.read(pix, row * destLength, destLength);
+        int read = in.read(pix, row * destLength, destLength);
+        if (read < destLength) {
+          // the final plane may be truncated
+          Arrays.fill(pix, row * destLength + Math.max(read, 0),
+            (row + 1) * destLength, (byte) 0);
+        }
         in.seek(in.getFilePointer() + post);
       }
 
-      pix = ImageTools.splitChannels(pix, lastChannel, getEffectiveSizeC(),
-        bpp, false, true);
-      System.arraycopy(pix, 0, buf, 0, pix.length);
+      splitChannels(pix, bpp, buf);
+      BufferPool.release(pix);
     }
     else {
       // plane is not compressed
@@ -373,7 +387,7 @@ public class NativeND2Reader extends SubResolutionFormatReader {
 
     // using a 32KB buffer instead of the default 1MB gives
     // better performance with the seek/skip pattern used here
-    in = new RandomAccessInputStream(id, BUFFER_SIZE);
+    in = openStream(id, BUFFER_SIZE);
 
     boolean useChunkMap = useChunkMap();
     LOGGER.debug("Attempting to use chunk map = {}", useChunkMap);
@@ -2369,13 +2383,27 @@ public class NativeND2Reader extends SubResolutionFormatReader {
     byte[] pix, byte[] buf, boolean split)
     throws IOException
   {
+    byte[] channel = null;
     if (split) {
-      pix = ImageTools.splitChannels(pix, lastChannel, getEffectiveSizeC(), bpp,
-        false, true);
+      int c = getEffectiveSizeC();
+      channel = BufferPool.take(pix.length / c);
+      pix = ImageTools.splitChannels(pix, channel, lastChannel, c, bpp,
+        false, true, channel.length);
     }
     RandomAccessInputStream s = new RandomAccessInputStream(pix);
     readPlane(s, x, y, w, h, scanlinePad, buf);
     s.close();
+    BufferPool.release(channel);
+  }
+
+  /** Copies the current channel of the given interleaved pixels to buf. */
+  private void splitChannels(byte[] pix, int bpp, byte[] buf) {
+    int c = getEffectiveSizeC();
+    byte[] channel = ImageTools.splitChannels(pix, buf, lastChannel, c, bpp,
+      false, true, pix.length / c);
+    if (channel != buf) {
+      System.arraycopy(channel, 0, buf, 0, channel.length);
+    }
   }
 
   /** Remove control and invalid characters from the given string. */
@@ -223,7 +223,7 @@ public class OIRReader extends FormatReader {
           if (s != null) {
             s.close();
           }
-          s = new RandomAccessInputStream(block.file, BUFFER_SIZE);
+          s = openHandle(block.file, BUFFER_SIZE);
           openFile = block.file;
         }
         pixels = readPixelBlock(s, block.offset);
@@ -124,7 +124,8 @@ public class PDSReader extends FormatReader {
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
     int pad = recordWidth - (getSizeX() % recordWidth);
-    try (RandomAccessInputStream pixels = new RandomAccessInputStream(pixelsFile)) {
+    try (RandomAccessInputStream pixels = openHandle(pixelsFile)) {
+      pixels.seek(0);
       int realX = reverseX ? getSizeX() - w - x : x;
       int realY = reverseY ? getSizeY() - h - y : y;
 
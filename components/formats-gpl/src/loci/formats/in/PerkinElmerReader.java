@@ -207,7 +207,7 @@ public class PerkinElmerReader extends FormatReader {
       return tiff.openBytes(index, buf, x, y, w, h);
     }
 
-    try (RandomAccessInputStream ras = new RandomAccessInputStream(file)) {
+    try (RandomAccessInputStream ras = openHandle(file)) {
       if (6 + index * FormatTools.getPlaneSize(this) < ras.length()) {
         ras.seek(6 + index * FormatTools.getPlaneSize(this));
         readPlane(ras, x, y, w, h, buf);
@@ -147,7 +147,7 @@ public class SEQReader extends BaseTiffReader {
     int[] lengths = new int[] {getSizeZ(), getEffectiveSizeC(), core.size(), getSizeT()};
     int index = FormatTools.positionToRaster(lengths, coords);
 
-    try (RandomAccessInputStream in = new RandomAccessInputStream(files[index])) {
+    try (RandomAccessInputStream in = openHandle(files[index])) {
       TiffParser p = new TiffParser(in);
       IFD ifd = p.getFirstIFD();
       p.getSamples(ifd, buf, x, y, w, h);
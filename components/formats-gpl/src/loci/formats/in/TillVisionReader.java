@@ -133,7 +133,7 @@ public class TillVisionReader extends FormatReader {
       readPlane(in, x, y, w, h, buf);
     }
     else {
-      pixelsStream = new RandomAccessInputStream(pixelsFiles[getCoreIndex()]);
+      pixelsStream = openHandle(pixelsFiles[getCoreIndex()]);
       if ((no + 1) * plane <= pixelsStream.length()) {
         pixelsStream.seek(no * plane);
         readPlane(pixelsStream, x, y, w, h, buf);
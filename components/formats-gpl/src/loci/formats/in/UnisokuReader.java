@@ -116,8 +116,9 @@ public class UnisokuReader extends FormatReader {
   {
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
-    try (RandomAccessInputStream dat = new RandomAccessInputStream(datFile)) {
+    try (RandomAccessInputStream dat = openHandle(datFile)) {
       dat.order(isLittleEndian());
+      dat.seek(0);
       readPlane(dat, x, y, w, h, buf);
     }
     return buf;
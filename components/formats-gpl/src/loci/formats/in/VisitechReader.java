@@ -125,7 +125,7 @@ public class VisitechReader extends FormatReader {
     }
 
     String file = files.get(fileIndex);
-    try (RandomAccessInputStream s = new RandomAccessInputStream(file)) {
+    try (RandomAccessInputStream s = openHandle(file)) {
       s.order(isLittleEndian());
       s.seek(pixelOffsets[fileIndex]);
 
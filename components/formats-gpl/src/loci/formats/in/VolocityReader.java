@@ -154,8 +154,7 @@ public class VolocityReader extends FormatReader {
       return buf;
     }
 
-    try (RandomAccessInputStream pix =
-      new RandomAccessInputStream(stack.pixelsFiles[zct[1]])) {
+    try (RandomAccessInputStream pix = openHandle(stack.pixelsFiles[zct[1]])) {
       int padding = zct[2] * stack.planePadding;
 
       long planeSize = FormatTools.getPlaneSize(this);
@@ -29,9 +29,16 @@ import ch.systemsx.cisd.base.mdarray.MDByteArray;
 import ch.systemsx.cisd.base.mdarray.MDIntArray;
 import ch.systemsx.cisd.base.mdarray.MDShortArray;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-import java.nio.ShortBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import loci.common.services.DependencyException;
 import loci.common.services.ServiceFactory;
@@ -49,16 +56,46 @@ import ome.xml.model.enums.DimensionOrder;
 
 /**
  * CellH5Writer is the file format writer for CellH5 format.
+ *
+ * The image dataset is chunked by plane, or by tile if a tile size is set
+ * before {@link #setId(String)}, and compressed according to
+ * {@link #setCompression(String)}.  Pixel data is converted in the calling
+ * thread and handed to a single background thread that performs the HDF5
+ * writes, so {@link #saveBytes(int, byte[], int, int, int, int)} may be called
+ * from several threads at once.  Errors raised while writing are reported by
+ * the next call to saveBytes or by {@link #close()}.
  */
 public class CellH5Writer extends FormatWriter {
 
   // -- Constants --
 
+  public static final String COMPRESSION_DEFLATE = "Deflate";
+  public static final String COMPRESSION_SHUFFLE_DEFLATE = "Shuffle+Deflate";
+  public static final String COMPRESSION_UNCOMPRESSED = "Uncompressed";
+
+  /** Deflate level used for compressed datasets. */
+  private static final int DEFLATE_LEVEL = 1;
+
+  /** Maximum number of converted blocks waiting to be written. */
+  private static final int MAX_PENDING_BLOCKS = 16;
+
   // -- Fields --
   private transient JHDFService jhdf;
   
   private long bpp;
   private String outputPath;
+
+  private int tileSizeX;
+  private int tileSizeY;
+
+  /** Performs the HDF5 writes, one block at a time. */
+  private transient ExecutorService backgroundWriter;
+
+  /** Bounds the number of converted blocks held in memory. */
+  private transient Semaphore pendingBlocks;
+
+  /** First exception thrown by the background writer. */
+  private transient volatile Exception writeError;
   
   // -- Constructors --
 
@@ -68,6 +105,9 @@ public class CellH5Writer extends FormatWriter {
 
   public CellH5Writer(String format, String[] exts) {
     super(format, exts);
+    compressionTypes = new String[] {COMPRESSION_DEFLATE,
+      COMPRESSION_SHUFFLE_DEFLATE, COMPRESSION_UNCOMPRESSED};
+    compression = COMPRESSION_DEFLATE;
   }
 
   // -- FormatWriter API methods --
@@ -113,95 +153,64 @@ public class CellH5Writer extends FormatWriter {
     jhdf.createGroup(CellH5Constants.DEFINITION + CellH5Reader.CellH5Constants.OBJECT);
     jhdf.createGroup(CellH5Constants.DEFINITION + CellH5Reader.CellH5Constants.FEATURE);
     jhdf.createGroup(CellH5Constants.DEFINITION + CellH5Reader.CellH5Constants.IMAGE);
+
+    int[] chunkSize = new int[] {1, 1, 1,
+      tileSizeY > 0 ? Math.min(tileSizeY, sizeY) : sizeY,
+      tileSizeX > 0 ? Math.min(tileSizeX, sizeX) : sizeX};
+    String compress = getCompression();
+    int deflateLevel =
+      COMPRESSION_UNCOMPRESSED.equals(compress) ? 0 : DEFLATE_LEVEL;
+    boolean shuffle = COMPRESSION_SHUFFLE_DEFLATE.equals(compress);
+    LOGGER.debug("CellH5Writer: chunk size {}x{}, compression {}",
+      chunkSize[4], chunkSize[3], compress);
     
     outputPath = String.format("/sample/0/plate/%s/experiment/%s/position/%d/image/channel", plate, well, site);
-    jhdf.initIntArray(outputPath, new long[] {sizeC, sizeT, sizeZ, sizeY, sizeX}, bpp);
-  }
+    jhdf.initIntArray(outputPath, new long[] {sizeC, sizeT, sizeZ, sizeY, sizeX},
+      bpp, chunkSize, deflateLevel, shuffle);
 
-  /**
-   * Saves the given image to the specified (possibly already open) file.
-   */
-  @Override
-  public void saveBytes(int no, byte[] buf)
-    throws IOException, FormatException
-  {
-    LOGGER.info("CellH5Writer: Save image to HDF5 path: " + outputPath);
-    MetadataRetrieve r = getMetadataRetrieve();
-    
-    int sizeX = r.getPixelsSizeX(series).getValue();
-    int sizeY = r.getPixelsSizeY(series).getValue();
-    int sizeC = r.getPixelsSizeC(series).getValue();
-    int sizeT = r.getPixelsSizeT(series).getValue();
-    int sizeZ = r.getPixelsSizeZ(series).getValue();
-    
-    DimensionOrder dimo = r.getPixelsDimensionOrder(0);
-    int c, z, t;
-    if (dimo.equals(DimensionOrder.XYCZT)) {
-        c = no % sizeC;
-        z = ((no - c) / sizeC) % sizeZ;
-        t = (((no - c) / sizeC)) / sizeZ;
-    } else if (dimo.equals(DimensionOrder.XYCTZ)){
-        c = no % sizeC;
-        t = ((no - c) / sizeC) % sizeT;
-        z = (((no - c) / sizeC)) / sizeT;
-        
-    } else if (dimo.equals(DimensionOrder.XYZTC)){
-        z = no % sizeZ;
-        t = ((no - z) / sizeZ) % sizeT;
-        c = (((no - z) / sizeZ)) / sizeT;
-        
-    } else {
-        throw new FormatException("CellH5Writer: Dimension order not understood: " + dimo.getValue());
-    }
-    
-    LOGGER.info("CellH5Writer.saveBytes(): Current c, t, z == {} {} {}", c,t,z);
-    LOGGER.info("CellH5Writer.saveBytes(): bpp {} byte buffer len {}", bpp, buf.length);
-    
-    if (bpp==1) {
-        MDByteArray image = new MDByteArray(new int[] {1, 1, 1, sizeY, sizeX});
-        for (int x_i=0; x_i < sizeX; x_i++) {
-            for (int y_i=0; y_i < sizeY; y_i++) {
-                byte value = (byte) buf[y_i*sizeX + x_i];
-                image.set(value, 0, 0, 0, y_i, x_i );
-            }
-        }
-        jhdf.writeArraySlice(outputPath, image, new long[] {c,t,z, 0, 0});
-    } else if (bpp==2) {
-        ByteBuffer bb = ByteBuffer.wrap(buf);
-        ShortBuffer sb = bb.asShortBuffer();
-        MDShortArray image = new MDShortArray(new int[] {1, 1, 1, sizeY, sizeX});
-        for (int x_i=0; x_i < sizeX; x_i++) {
-            for (int y_i=0; y_i < sizeY; y_i++) {
-                short value = sb.get(y_i*sizeX + x_i);
-                image.set(value, 0, 0, 0, y_i, x_i );
-            }
-        }
-        jhdf.writeArraySlice(outputPath, image, new long[] {c,t,z, 0, 0});
-    } else if (bpp==4) {
-        ByteBuffer bb = ByteBuffer.wrap(buf);
-        IntBuffer ib = bb.asIntBuffer();
-        MDIntArray image = new MDIntArray(new int[] {1, 1, 1, sizeY, sizeX});
-        for (int x_i=0; x_i < sizeX; x_i++) {
-            for (int y_i=0; y_i < sizeY; y_i++) {
-                int value = (int) ib.get(y_i*sizeX + x_i);
-                image.set(value, 0, 0, 0, y_i, x_i );
-            }
-        }
-        jhdf.writeArraySlice(outputPath, image, new long[] {c,t,z, 0, 0});
-    } else {
-        throw new FormatException("CellH5Writer: Pixel type not supported");
-    }
+    writeError = null;
+    pendingBlocks = new Semaphore(MAX_PENDING_BLOCKS);
+    backgroundWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "CellH5Writer");
+        t.setDaemon(true);
+        return t;
+      }
+    });
   }
 
-  // -- FormatWriter API methods --
-
   /* (non-Javadoc)
    * @see loci.formats.FormatWriter#close()
    */
   @Override
   public void close() throws IOException {
-    jhdf.close();
-    super.close();
+    try {
+      if (backgroundWriter != null) {
+        backgroundWriter.shutdown();
+        try {
+          while (!backgroundWriter.awaitTermination(1, TimeUnit.MINUTES)) {
+            LOGGER.debug("CellH5Writer: waiting for pending writes");
+          }
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException(
+            "Interrupted while waiting for pending writes");
+        }
+        backgroundWriter = null;
+        pendingBlocks = null;
+      }
+      checkWriteError();
+    }
+    finally {
+      writeError = null;
+      if (jhdf != null) {
+        jhdf.close();
+        jhdf = null;
+      }
+      super.close();
+    }
   }
 
   /* @see loci.formats.FormatWriter#getPlaneCount() */
@@ -228,10 +237,73 @@ public class CellH5Writer extends FormatWriter {
   public void saveBytes(int no, byte[] buf, int x, int y, int w, int h)
     throws FormatException, IOException
   {
-      // always save to full image
-      saveBytes(no, buf);
+    checkParams(no, buf, x, y, w, h);
+    checkWriteError();
+    if (backgroundWriter == null) {
+      throw new FormatException("CellH5Writer: setId must be called first");
+    }
+
+    MetadataRetrieve r = getMetadataRetrieve();
+    int[] czt = getCZT(r, no);
+    LOGGER.debug("CellH5Writer.saveBytes(): Current c, t, z == {} {} {}",
+      czt[0], czt[1], czt[2]);
+
+    boolean littleEndian = false;
+    if (r.getPixelsBigEndian(series) != null) {
+      littleEndian = !r.getPixelsBigEndian(series).booleanValue();
+    }
+
+    int[] dims = new int[] {1, 1, 1, h, w};
+    long[] offset = new long[] {czt[0], czt[1], czt[2], y, x};
+    int count = w * h;
+    ByteBuffer bb = ByteBuffer.wrap(buf, 0, (int) (count * bpp));
+    bb.order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+
+    Object image;
+    if (bpp==1) {
+        image = new MDByteArray(Arrays.copyOf(buf, count), dims);
+    } else if (bpp==2) {
+        short[] data = new short[count];
+        bb.asShortBuffer().get(data);
+        image = new MDShortArray(data, dims);
+    } else if (bpp==4) {
+        int[] data = new int[count];
+        bb.asIntBuffer().get(data);
+        image = new MDIntArray(data, dims);
+    } else {
+        throw new FormatException("CellH5Writer: Pixel type not supported");
+    }
+    enqueue(image, offset);
   }
   
+  /* @see loci.formats.IFormatWriter#getTileSizeX() */
+  @Override
+  public int getTileSizeX() throws FormatException {
+    return tileSizeX;
+  }
+
+  /* @see loci.formats.IFormatWriter#setTileSizeX(int) */
+  @Override
+  public int setTileSizeX(int tileSize) throws FormatException {
+    int width = super.setTileSizeX(tileSize);
+    tileSizeX = Math.min(tileSize, width);
+    return tileSizeX == 0 ? width : tileSizeX;
+  }
+
+  /* @see loci.formats.IFormatWriter#getTileSizeY() */
+  @Override
+  public int getTileSizeY() throws FormatException {
+    return tileSizeY;
+  }
+
+  /* @see loci.formats.IFormatWriter#setTileSizeY(int) */
+  @Override
+  public int setTileSizeY(int tileSize) throws FormatException {
+    int height = super.setTileSizeY(tileSize);
+    tileSizeY = Math.min(tileSize, height);
+    return tileSizeY == 0 ? height : tileSizeY;
+  }
+
   /* @see loci.formats.IFormatWriter#canDoStacks(String) */
   @Override
   public boolean canDoStacks() { return true; }
@@ -241,4 +313,98 @@ public class CellH5Writer extends FormatWriter {
   public int[] getPixelTypes(String codec) {
     return new int[] {FormatTools.UINT8, FormatTools.UINT16, FormatTools.INT32};
   }
+
+  // -- Helper methods --
+
+  /** Returns the {C, T, Z} position of the given plane. */
+  private int[] getCZT(MetadataRetrieve r, int no) throws FormatException {
+    int sizeC = r.getPixelsSizeC(series).getValue();
+    int sizeT = r.getPixelsSizeT(series).getValue();
+    int sizeZ = r.getPixelsSizeZ(series).getValue();
+    
+    DimensionOrder dimo = r.getPixelsDimensionOrder(0);
+    int c, z, t;
+    if (dimo.equals(DimensionOrder.XYCZT)) {
+        c = no % sizeC;
+        z = ((no - c) / sizeC) % sizeZ;
+        t = (((no - c) / sizeC)) / sizeZ;
+    } else if (dimo.equals(DimensionOrder.XYCTZ)){
+        c = no % sizeC;
+        t = ((no - c) / sizeC) % sizeT;
+        z = (((no - c) / sizeC)) / sizeT;
+        
+    } else if (dimo.equals(DimensionOrder.XYZTC)){
+        z = no % sizeZ;
+        t = ((no - z) / sizeZ) % sizeT;
+        c = (((no - z) / sizeZ)) / sizeT;
+        
+    } else {
+        throw new FormatException("CellH5Writer: Dimension order not understood: " + dimo.getValue());
+    }
+    return new int[] {c, t, z};
+  }
+
+  /**
+   * Hands a converted block to the background writer, blocking while
+   * {@link #MAX_PENDING_BLOCKS} blocks are already waiting.
+   */
+  private void enqueue(final Object image, final long[] offset)
+    throws IOException
+  {
+    try {
+      pendingBlocks.acquire();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while queueing block");
+    }
+    final Semaphore pending = pendingBlocks;
+    try {
+      backgroundWriter.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            if (writeError == null) {
+              writeBlock(image, offset);
+            }
+          }
+          catch (Exception e) {
+            LOGGER.debug("CellH5Writer: failed to write block", e);
+            writeError = e;
+          }
+          finally {
+            pending.release();
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      pending.release();
+      throw new IOException("CellH5Writer: writer has been closed", e);
+    }
+  }
+
+  /** Writes a block; called only from the background writer thread. */
+  private void writeBlock(Object image, long[] offset) {
+    if (image instanceof MDByteArray) {
+      jhdf.writeArraySlice(outputPath, (MDByteArray) image, offset);
+    }
+    else if (image instanceof MDShortArray) {
+      jhdf.writeArraySlice(outputPath, (MDShortArray) image, offset);
+    }
+    else {
+      jhdf.writeArraySlice(outputPath, (MDIntArray) image, offset);
+    }
+  }
+
+  /** Rethrows the first exception raised by the background writer. */
+  private void checkWriteError() throws IOException {
+    Exception e = writeError;
+    if (e != null) {
+      if (e instanceof IOException) {
+        throw (IOException) e;
+      }
+      throw new IOException("CellH5Writer: failed to write HDF5 data", e);
+    }
+  }
 }
@@ -167,6 +167,22 @@ public interface JHDFService extends Service {
      * bpp \in {1,2,4} == {Byte, Short, Integer}
      */
     public void initIntArray(String path, long[] dimensions, long bpp);
+
+    /**
+     * Creates an HDF5 dataset in path consisting of integers specified 
+     * by bytes per pixel bpp, stored in chunks of the given size.
+     *
+     * @param path path to HDF5 a dataset.
+     * @param bpp bytes per pixel for the integer data type
+     * bpp \in {1,2,4} == {Byte, Short, Integer}
+     * @param chunkSize extent of each chunk in each dimension
+     * @param deflateLevel deflate level from 1 to 9, or 0 to store the
+     * chunks uncompressed
+     * @param shuffle true if the bytes of each chunk should be shuffled
+     * before deflation, which usually compresses integers further
+     */
+    public void initIntArray(String path, long[] dimensions, long bpp,
+        int[] chunkSize, int deflateLevel, boolean shuffle);
     
     /**
      * Writes an array as sub-slice into an existing HDF5 dataset
@@ -194,18 +194,36 @@ public class JHDFServiceImpl extends AbstractService
      * @see loci.formats.JHDFService#initIntArray()
      */
     public void initIntArray(String path, long[] dimensions, long bpp) {
+        initIntArray(path, dimensions, bpp,
+            new int[] {1,1,1, (int) dimensions[3], (int) dimensions[4]},
+                1, false);
+    }
+
+    /* (non-Javadoc)
+     * @see loci.formats.JHDFService#initIntArray()
+     */
+    public void initIntArray(String path, long[] dimensions, long bpp,
+        int[] chunkSize, int deflateLevel, boolean shuffle) {
+        HDF5IntStorageFeatures features;
+        if (deflateLevel <= 0) {
+            features = HDF5IntStorageFeatures.INT_NO_COMPRESSION;
+        } else if (shuffle) {
+            features = HDF5IntStorageFeatures.build()
+                .deflateLevel((byte) deflateLevel)
+                .shuffleBeforeDeflate().features();
+        } else {
+            features = HDF5IntStorageFeatures.createDeflationKeep(deflateLevel);
+        }
+
         if (bpp == 1) {
             this.hdfWriter.uint8().createMDArray(path, dimensions, 
-                new int[] {1,1,1, (int) dimensions[3], (int) dimensions[4]}, 
-                        HDF5IntStorageFeatures.createDeflationKeep(1));
+                chunkSize, features);
         } else if (bpp == 2) {
             this.hdfWriter.uint16().createMDArray(path, dimensions, 
-                new int[] {1,1,1, (int) dimensions[3], (int) dimensions[4]}, 
-                        HDF5IntStorageFeatures.createDeflationKeep(1));
+                chunkSize, features);
         } else if (bpp == 4) {
             this.hdfWriter.int32().createMDArray(path, dimensions, 
-                new int[] {1,1,1, (int) dimensions[3], (int) dimensions[4]}, 
-                        HDF5IntStorageFeatures.createDeflationKeep(1));
+                chunkSize, features);
         }
     }
     
@@ -102,6 +102,31 @@ public interface NetCDFService extends Service {
   public Object getArray(String path, int[] origin, int[] shape)
     throws ServiceException;
 
+  /**
+   * Retrieves an HDF path's values as a one-dimensional array, without
+   * the per-element copy into a nested Java array made by
+   * {@link #getArray(String, int[], int[])}.
+   * @param path HDF path to the values.
+   * @param origin Array specifying the starting index.
+   * @param shape Array specifying the extents in each dimension.
+   * @return The Java one-dimensional primitive array of the values in
+   * row-major order, of length equal to the product of the extents.
+   * @throws ServiceException If there is an error with the range of values
+   * or reading from the file.
+   * @see ucar.nc2.Variable#read(int[], int[])
+   */
+  public Object getArray1D(String path, int[] origin, int[] shape)
+    throws ServiceException;
+
+  /**
+   * Retrieves the dimensions of the chunks in which a variable is stored.
+   * Reading whole chunks avoids decompressing the same chunk more than once.
+   * @param path HDF path to the variable.
+   * @return The extent of a chunk in each dimension, or <code>null</code>
+   * if the variable is not stored in chunks or the chunk size is unknown.
+   */
+  public int[] getChunkSize(String path);
+
   /**
    * Retrieves all of a variable's attributes.
    * @param path HDF path to the variable.
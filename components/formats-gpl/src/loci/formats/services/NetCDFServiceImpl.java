@@ -68,6 +68,9 @@ public class NetCDFServiceImpl extends AbstractService
     "/developers/java-library.html.\n" +
     "Required JAR files are netcdf-4.3.22.jar and slf4j-jdk14.jar.";
 
+  /** Attribute added by the HDF5 layer to variables stored in chunks. */
+  private static final String CHUNK_SIZES = "_ChunkSizes";
+
   // -- Fields --
 
   private String currentFile;
@@ -184,6 +187,65 @@ public class NetCDFServiceImpl extends AbstractService
     }
   }
 
+  /* (non-Javadoc)
+   * @see loci.formats.NetCDFService#getArray1D(java.lang.String, int[], int[])
+   */
+  @Override
+  public Object getArray1D(String path, int[] origin, int[] shape)
+    throws ServiceException
+  {
+    String groupName = getDirectory(path);
+    String variableName = getName(path);
+    Group group = getGroup(groupName);
+
+    Variable variable = group.findVariable(variableName);
+    if (variable == null) {
+      throw new ServiceException("Variable not found: " + path);
+    }
+    try {
+      Array array = variable.read(origin, shape);
+      // a newly read array is backed by a row-major Java array of exactly
+      // its size, which can be returned as is
+      Object storage = array.getStorage();
+      if (storage == null ||
+        java.lang.reflect.Array.getLength(storage) != array.getSize())
+      {
+        storage = array.copyTo1DJavaArray();
+      }
+      return storage;
+    }
+    catch (InvalidRangeException e) {
+      throw new ServiceException(e);
+    }
+    catch (IOException e) {
+      throw new ServiceException(e);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see loci.formats.NetCDFService#getChunkSize(java.lang.String)
+   */
+  @Override
+  public int[] getChunkSize(String path) {
+    String groupName = getDirectory(path);
+    String variableName = getName(path);
+    Group group = getGroup(groupName);
+
+    Variable variable = group.findVariable(variableName);
+    if (variable == null) return null;
+    Attribute attribute = variable.findAttribute(CHUNK_SIZES);
+    if (attribute == null || attribute.getLength() != variable.getRank()) {
+      return null;
+    }
+    int[] chunkSize = new int[attribute.getLength()];
+    for (int i=0; i<chunkSize.length; i++) {
+      Number size = attribute.getNumericValue(i);
+      if (size == null || size.intValue() <= 0) return null;
+      chunkSize[i] = size.intValue();
+    }
+    return chunkSize;
+  }
+
   /* (non-Javadoc)
    * @see loci.formats.NetCDFService#getVariableAttributes(java.lang.String)
    */